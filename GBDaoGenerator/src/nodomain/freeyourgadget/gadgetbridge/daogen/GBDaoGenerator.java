@@ -56,7 +56,7 @@ public class GBDaoGenerator {
 
 
     public static void main(String[] args) throws Exception {
-        final Schema schema = new Schema(99, MAIN_PACKAGE + ".entities");
+        final Schema schema = new Schema(102, MAIN_PACKAGE + ".entities");
 
         Entity userAttributes = addUserAttributes(schema);
         Entity user = addUserInfo(schema, userAttributes);
@@ -194,6 +194,9 @@ public class GBDaoGenerator {
         addGenericHrvValueSample(schema, user, device);
         addGenericTemperatureSample(schema, user, device);
 
+        addDailyActivityRollup(schema, device);
+        addHourlyActivityRollup(schema, device);
+
         new DaoGenerator().generateAll(schema, "app/src/main/java");
     }
 
@@ -1267,6 +1270,13 @@ public class GBDaoGenerator {
         summary.addToOne(user, userId);
         summary.addStringProperty("summaryData");
         summary.addByteArrayProperty("rawSummaryData");
+
+        // Derived from the summary data for the activity list, null until computed.
+        // Reset by a trigger whenever the summary data or gpx track change.
+        summary.addDoubleProperty("distanceMeters").javaDocGetterAndSetter("Derived distance in meters, null if not computed yet.");
+        summary.addDoubleProperty("caloriesBurnt").javaDocGetterAndSetter("Derived burnt calories, null if not computed yet.");
+        summary.addDoubleProperty("activeSeconds").javaDocGetterAndSetter("Derived active duration in seconds, null if not computed yet.");
+        summary.addBooleanProperty("hasGps").javaDocGetterAndSetter("Derived presence of a gps track, null if not computed yet.");
     }
 
     private static Property findProperty(Entity entity, String propertyName) {
@@ -1295,6 +1305,42 @@ public class GBDaoGenerator {
         return batteryLevel;
     }
 
+    private static Entity addDailyActivityRollup(Schema schema, Entity device) {
+        Entity rollup = addEntity(schema, "DailyActivityRollup");
+        rollup.setJavaDoc(
+                "Pre-aggregated activity amounts of a single day, starting at local midnight.\n" +
+                        "The existence of a row also marks all HourlyActivityRollups of that day as complete.");
+        addCommonActivityRollupProperties(rollup, device);
+        return rollup;
+    }
+
+    private static Entity addHourlyActivityRollup(Schema schema, Entity device) {
+        Entity rollup = addEntity(schema, "HourlyActivityRollup");
+        rollup.setJavaDoc(
+                "Pre-aggregated activity amounts of a single hour. The lead-in is the time between the\n" +
+                        "first sample of the hour and the sample before it, which only counts if that one is in range.");
+        addCommonActivityRollupProperties(rollup, device);
+        rollup.addIntProperty("leadInSeconds").notNull();
+        rollup.addIntProperty("leadInKind").notNull();
+        rollup.addIntProperty("leadInPreviousKind").javaDocGetterAndSetter("Null if the time was not shared with the previous kind.");
+        return rollup;
+    }
+
+    private static void addCommonActivityRollupProperties(Entity rollup, Entity device) {
+        rollup.addIntProperty("timestamp").notNull().primaryKey();
+        Property deviceId = rollup.addLongProperty("deviceId").primaryKey().notNull().getProperty();
+        rollup.addToOne(device, deviceId);
+        rollup.addIntProperty("steps").notNull();
+        rollup.addIntProperty("distanceCm").notNull();
+        rollup.addIntProperty("activeCalories").notNull();
+        rollup.addIntProperty("activitySeconds").notNull();
+        rollup.addIntProperty("lightSleepSeconds").notNull();
+        rollup.addIntProperty("deepSleepSeconds").notNull();
+        rollup.addIntProperty("remSleepSeconds").notNull();
+        rollup.addIntProperty("awakeSleepSeconds").notNull();
+        rollup.addIntProperty("notWornSeconds").notNull();
+    }
+
     private static Entity addFitProActivitySample(Schema schema, Entity user, Entity device) {
         Entity activitySample = addEntity(schema, "FitProActivitySample");
         activitySample.implementsSerializable();
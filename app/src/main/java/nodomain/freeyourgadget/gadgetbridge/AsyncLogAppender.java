@@ -0,0 +1,226 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+/**
+ * Hands log events to a background thread, which writes them to the wrapped appender in batches
+ * and flushes once per batch. The logging thread, e.g. a GATT callback, never does file I/O.
+ * <p>
+ * Events are queued in a bounded ring buffer. When it is full, events below WARN are dropped right
+ * away, WARN and ERROR events wait for a short time before being dropped. The number of dropped
+ * events is written to the log once there is room again.
+ */
+public class AsyncLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final long WARN_OFFER_TIMEOUT_MILLIS = 100;
+    private static final long STOP_TIMEOUT_MILLIS = 2000;
+
+    private final OutputStreamAppender<ILoggingEvent> delegate;
+    private final ArrayBlockingQueue<ILoggingEvent> queue;
+
+    private final AtomicLong droppedSinceReport = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    // guarded by flushLock
+    private long flushedCount = 0;
+    private final Object flushLock = new Object();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public AsyncLogAppender(final OutputStreamAppender<ILoggingEvent> delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    public AsyncLogAppender(final OutputStreamAppender<ILoggingEvent> delegate, final int capacity) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        // flushed by the worker after each batch
+        delegate.setImmediateFlush(false);
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::writeLoop, "GB log writer");
+        worker.setDaemon(true);
+        worker.start();
+        super.start();
+    }
+
+    /**
+     * Stop accepting events and wait for the queued ones to be written. The wrapped appender is
+     * not stopped.
+     */
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(STOP_TIMEOUT_MILLIS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+    }
+
+    @Override
+    protected void append(final ILoggingEvent event) {
+        if (!running) {
+            return;
+        }
+
+        // thread name, MDC and message must be captured on the logging thread
+        event.prepareForDeferredProcessing();
+
+        if (queue.offer(event)) {
+            enqueuedCount.incrementAndGet();
+            return;
+        }
+
+        if (event.getLevel().isGreaterOrEqual(Level.WARN)) {
+            try {
+                if (queue.offer(event, WARN_OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    enqueuedCount.incrementAndGet();
+                    return;
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        droppedSinceReport.incrementAndGet();
+        droppedTotal.incrementAndGet();
+    }
+
+    /**
+     * Wait until all events logged before this call are written and flushed, or the timeout passes.
+     *
+     * @return whether all events were written in time
+     */
+    public boolean flush(final long timeoutMillis) {
+        final long target = enqueuedCount.get();
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (flushLock) {
+            while (flushedCount < target) {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || !running) {
+                    return flushedCount >= target;
+                }
+                try {
+                    flushLock.wait(remaining);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of events dropped because the queue was full, since this appender was created
+     */
+    public long getDroppedCount() {
+        return droppedTotal.get();
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    private void writeLoop() {
+        final List<ILoggingEvent> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                final ILoggingEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (final InterruptedException e) {
+                // stop() was called, write what is left
+                if (running) {
+                    continue;
+                }
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(final List<ILoggingEvent> batch) {
+        final long dropped = droppedSinceReport.getAndSet(0);
+        if (dropped > 0) {
+            delegate.doAppend(createDroppedEvent(dropped));
+        }
+
+        for (final ILoggingEvent event : batch) {
+            delegate.doAppend(event);
+        }
+
+        final OutputStream outputStream = delegate.getOutputStream();
+        if (outputStream != null) {
+            try {
+                outputStream.flush();
+            } catch (final IOException e) {
+                addError("Failed to flush log", e);
+            }
+        }
+
+        synchronized (flushLock) {
+            flushedCount += batch.size();
+            flushLock.notifyAll();
+        }
+    }
+
+    private ILoggingEvent createDroppedEvent(final long dropped) {
+        final LoggerContext loggerContext = (LoggerContext) getContext();
+        return new LoggingEvent(
+                AsyncLogAppender.class.getName(),
+                loggerContext.getLogger(AsyncLogAppender.class),
+                Level.WARN,
+                "Dropped {} log events, the log queue was full",
+                null,
+                new Object[]{dropped}
+        );
+    }
+}
@@ -61,14 +61,16 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import nodomain.freeyourgadget.gadgetbridge.activities.ControlCenterv2;
 import nodomain.freeyourgadget.gadgetbridge.activities.devicesettings.DeviceSettingsPreferenceConst;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
+import nodomain.freeyourgadget.gadgetbridge.database.DBLockStatistics;
 import nodomain.freeyourgadget.gadgetbridge.database.DBOpenHelper;
+import nodomain.freeyourgadget.gadgetbridge.database.rollup.ActivityRollupManager;
 import nodomain.freeyourgadget.gadgetbridge.database.PeriodicExporter;
 import nodomain.freeyourgadget.gadgetbridge.devices.DeviceManager;
 import nodomain.freeyourgadget.gadgetbridge.devices.SampleProvider;
@@ -122,7 +124,10 @@ public class GBApplication extends Application {
     public static final String DATABASE_NAME = "Gadgetbridge";
 
     private static GBApplication context;
-    private static final Lock dbLock = new ReentrantLock();
+    // held by writers, see acquireDB()
+    private static final ReentrantLock dbWriteLock = new ReentrantLock();
+    // shared by readers, and held exclusively while the database is closed, see acquireDBReadOnly()
+    private static final ReentrantReadWriteLock dbOpenLock = new ReentrantReadWriteLock();
     private static DeviceService deviceService;
     private static SharedPreferences sharedPrefs;
     private static final String PREFS_VERSION = "shared_preferences_version";
@@ -132,6 +137,11 @@ public class GBApplication extends Application {
     private static final LimitedQueue<Integer, String> mIDSenderLookup = new LimitedQueue<>(16);
     private static GBPrefs prefs;
     private static LockHandler lockHandler;
+    private static final StartupPhases startupPhases = new StartupPhases();
+    private static final String STARTUP_PHASE_DATABASE = "database";
+    private static final String STARTUP_PHASE_BLACKLISTS = "blacklists";
+    private static final String STARTUP_PHASE_WEATHER_CACHE = "weather cache";
+    private static ReadOnlyLockHandler readOnlyLockHandler;
     /**
      * Note: is null on Lollipop
      */
@@ -226,19 +236,23 @@ public class GBApplication extends Application {
         sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
         prefs = new GBPrefs(sharedPrefs);
 
+        // Only what is needed to reconnect the devices and show the UI runs on the main thread,
+        // the rest runs in the background or when it is first needed. See getStartupSummary.
         if (!GBEnvironment.isEnvironmentSetup()) {
-            GBEnvironment.setupEnvironment(GBEnvironment.createDeviceEnvironment());
-            // setup db after the environment is set up, but don't do it in test mode
-            // in test mode, it's done individually, see TestBase
-            setupDatabase();
+            startupPhases.run(STARTUP_PHASE_DATABASE, () -> {
+                GBEnvironment.setupEnvironment(GBEnvironment.createDeviceEnvironment());
+                // setup db after the environment is set up, but don't do it in test mode
+                // in test mode, it's done individually, see TestBase
+                setupDatabase();
+            });
         }
 
         // don't do anything here before we set up logging, otherwise
         // slf4j may be implicitly initialized before we properly configured it.
-        setupLogging(isFileLoggingEnabled());
+        startupPhases.run("logging", () -> setupLogging(isFileLoggingEnabled()));
 
         if (getPrefsFileVersion() != CURRENT_PREFS_VERSION) {
-            migratePrefs(getPrefsFileVersion());
+            startupPhases.run("preferences migration", () -> migratePrefs(getPrefsFileVersion()));
         }
 
         // Uncomment the line below to force a device key migration, after you updated
@@ -247,17 +261,21 @@ public class GBApplication extends Application {
 
         setupExceptionHandler(prefs.getBoolean("crash_notification", isDebug()));
 
-        Weather.getInstance().setCacheFile(getCacheDir(), prefs.getBoolean("cache_weather", true));
+        final boolean cacheWeather = prefs.getBoolean("cache_weather", true);
+        startupPhases.runInBackground(STARTUP_PHASE_WEATHER_CACHE, () -> Weather.getInstance().setCacheFile(getCacheDir(), cacheWeather));
 
-        deviceManager = new DeviceManager(this);
+        startupPhases.run("device manager", () -> deviceManager = new DeviceManager(this));
         String language = prefs.getString("language", "default");
         setLanguage(language);
 
         deviceService = createDeviceService();
-        loadAppsNotifBlackList();
-        loadAppsPebbleBlackList();
+        startupPhases.defer(STARTUP_PHASE_BLACKLISTS, () -> {
+            loadAppsNotifBlackList();
+            loadAppsPebbleBlackList();
+        });
 
-        PeriodicExporter.enablePeriodicExport(context);
+        startupPhases.runInBackground("periodic export", () -> PeriodicExporter.enablePeriodicExport(context), STARTUP_PHASE_DATABASE);
+        startupPhases.runInBackground("rollup backfill", ActivityRollupManager::scheduleBackfill, STARTUP_PHASE_DATABASE);
 
         if (isRunningMarshmallowOrLater()) {
             notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
@@ -339,13 +357,18 @@ public class GBApplication extends Application {
             helper = new DaoMaster.DevOpenHelper(this, null, null);
         } else {
             helper = new DBOpenHelper(this, DATABASE_NAME, null);
+            // WAL allows readers to proceed on their own connections while a write is ongoing
+            helper.setWriteAheadLoggingEnabled(true);
         }
         SQLiteDatabase db = helper.getWritableDatabase();
         DaoMaster daoMaster = new DaoMaster(db);
         if (lockHandler == null) {
             lockHandler = new LockHandler();
+            readOnlyLockHandler = new ReadOnlyLockHandler(lockHandler);
         }
         lockHandler.init(daoMaster, helper);
+        // set up again after LockHandler#closeDb()
+        unlockDBClosed();
     }
 
     public static Context getContext() {
@@ -380,19 +403,30 @@ public class GBApplication extends Application {
      * <p>
      * Callers must not hold a reference to the returned instance because it
      * will be invalidated at some point.
+     * <p>
+     * The returned handler gives exclusive access among writers. Callers that only
+     * read should use {@link #acquireDBReadOnly()} instead, so they neither block
+     * each other nor wait for writers.
      *
      * @return the DBHandler
      * @throws GBException
      * @see #releaseDB()
      */
     public static DBHandler acquireDB() throws GBException {
+        if (dbOpenLock.getReadHoldCount() > 0 && !dbOpenLock.isWriteLockedByCurrentThread()) {
+            // closing the database would wait for this thread's own read-only access
+            throw new GBException("Unable to access the database for writing while holding read-only access.");
+        }
+        final long start = System.nanoTime();
         try {
-            if (dbLock.tryLock(30, TimeUnit.SECONDS)) {
+            if (dbWriteLock.tryLock(30, TimeUnit.SECONDS)) {
+                DBLockStatistics.recordWait(false, System.nanoTime() - start);
                 return lockHandler;
             }
         } catch (InterruptedException ex) {
             Log.i(TAG, "Interrupted while waiting for DB lock");
         }
+        DBLockStatistics.recordTimeout(false);
         throw new GBException("Unable to access the database.");
     }
 
@@ -403,7 +437,82 @@ public class GBApplication extends Application {
      * @see #acquireDB()
      */
     public static void releaseDB() {
-        dbLock.unlock();
+        dbWriteLock.unlock();
+    }
+
+    /**
+     * @return whether a writer on another thread currently holds {@link #acquireDB()}. Readers
+     * do not wait for writers, so what they read while this is true may be outdated once the
+     * writer commits.
+     */
+    public static boolean isDBWriteLockedByOtherThread() {
+        return dbWriteLock.isLocked() && !dbWriteLock.isHeldByCurrentThread();
+    }
+
+    /**
+     * Returns a DBHandler instance for reading only, or throws GBException
+     * when that was not successful.
+     * Any number of threads may hold read-only access at the same time, and they
+     * do not wait for a writer holding {@link #acquireDB()}: the database uses
+     * write-ahead logging, so they read on their own read-only connections, and
+     * see the last committed state. They only wait while the database is closed,
+     * e.g. for an import. The handler's session has no identity scope, so entities
+     * are never shared with writers.
+     * <p>
+     * Callers must close the handler (from the same thread that acquired it!)
+     * when they are done, must not hold a reference to it, and must not
+     * call {@link #acquireDB()} while holding it.
+     *
+     * @return the read-only DBHandler
+     * @throws GBException
+     * @see #releaseDBReadOnly()
+     */
+    public static DBHandler acquireDBReadOnly() throws GBException {
+        final long start = System.nanoTime();
+        try {
+            if (dbOpenLock.readLock().tryLock(30, TimeUnit.SECONDS)) {
+                DBLockStatistics.recordWait(true, System.nanoTime() - start);
+                return readOnlyLockHandler;
+            }
+        } catch (InterruptedException ex) {
+            Log.i(TAG, "Interrupted while waiting for DB read lock");
+        }
+        DBLockStatistics.recordTimeout(true);
+        throw new GBException("Unable to access the database.");
+    }
+
+    /**
+     * Releases the read-only database lock.
+     *
+     * @throws IllegalMonitorStateException if the current thread is not owning the lock
+     * @see #acquireDBReadOnly()
+     */
+    public static void releaseDBReadOnly() {
+        dbOpenLock.readLock().unlock();
+    }
+
+    /**
+     * Waits for all readers, and keeps new ones waiting until the database is set up again.
+     * Called by {@link LockHandler#closeDb()}.
+     */
+    static void lockDBClosed() {
+        try {
+            if (dbOpenLock.writeLock().tryLock(30, TimeUnit.SECONDS)) {
+                return;
+            }
+        } catch (InterruptedException ex) {
+            Log.i(TAG, "Interrupted while waiting for DB readers");
+        }
+        throw new IllegalStateException("Unable to close the database while it is being read.");
+    }
+
+    /**
+     * Lets the readers continue after {@link #lockDBClosed()}, once the database is set up again.
+     */
+    private static void unlockDBClosed() {
+        if (dbOpenLock.isWriteLockedByCurrentThread()) {
+            dbOpenLock.writeLock().unlock();
+        }
     }
 
     public static boolean isRunningMarshmallowOrLater() {
@@ -481,9 +590,24 @@ public class GBApplication extends Application {
         return NotificationManager.INTERRUPTION_FILTER_ALL;
     }
 
+    /**
+     * @return the startup phases and their timings, for debugging
+     */
+    public static String getStartupSummary() {
+        return startupPhases.getSummary();
+    }
+
+    /**
+     * Wait until the weather cache was loaded by the startup phase, if it is still running.
+     */
+    public static void ensureWeatherCacheLoaded() {
+        startupPhases.ensure(STARTUP_PHASE_WEATHER_CACHE);
+    }
+
     private static HashSet<String> apps_notification_blacklist = null;
 
     public static boolean appIsNotifBlacklisted(String packageName) {
+        startupPhases.ensure(STARTUP_PHASE_BLACKLISTS);
         if (apps_notification_blacklist == null) {
             GB.log("appIsNotifBlacklisted: apps_notification_blacklist is null!", GB.INFO, null);
         }
@@ -495,6 +619,7 @@ public class GBApplication extends Application {
     }
 
     public static void setAppsNotifBlackList(Set<String> packageNames, SharedPreferences.Editor editor) {
+        startupPhases.ensure(STARTUP_PHASE_BLACKLISTS);
         if (packageNames == null) {
             GB.log("Set null apps_notification_blacklist", GB.INFO, null);
             apps_notification_blacklist = new HashSet<>();
@@ -529,12 +654,14 @@ public class GBApplication extends Application {
     }
 
     public static void addAppToNotifBlacklist(String packageName) {
+        startupPhases.ensure(STARTUP_PHASE_BLACKLISTS);
         if (apps_notification_blacklist.add(packageName)) {
             saveAppsNotifBlackList();
         }
     }
 
     public static synchronized void removeFromAppsNotifBlacklist(String packageName) {
+        startupPhases.ensure(STARTUP_PHASE_BLACKLISTS);
         GB.log("Removing from apps_notification_blacklist: " + packageName, GB.INFO, null);
         apps_notification_blacklist.remove(packageName);
         saveAppsNotifBlackList();
@@ -543,6 +670,7 @@ public class GBApplication extends Application {
     private static HashSet<String> apps_pebblemsg_blacklist = null;
 
     public static boolean appIsPebbleBlacklisted(String sender) {
+        startupPhases.ensure(STARTUP_PHASE_BLACKLISTS);
         if (apps_pebblemsg_blacklist == null) {
             GB.log("appIsPebbleBlacklisted: apps_pebblemsg_blacklist is null!", GB.INFO, null);
         }
@@ -554,6 +682,7 @@ public class GBApplication extends Application {
     }
 
     public static void setAppsPebbleBlackList(Set<String> packageNames, SharedPreferences.Editor editor) {
+        startupPhases.ensure(STARTUP_PHASE_BLACKLISTS);
         if (packageNames == null) {
             GB.log("Set null apps_pebblemsg_blacklist", GB.INFO, null);
             apps_pebblemsg_blacklist = new HashSet<>();
@@ -588,12 +717,14 @@ public class GBApplication extends Application {
     }
 
     public static void addAppToPebbleBlacklist(String packageName) {
+        startupPhases.ensure(STARTUP_PHASE_BLACKLISTS);
         if (apps_pebblemsg_blacklist.add(packageNameToPebbleMsgSender(packageName))) {
             saveAppsPebbleBlackList();
         }
     }
 
     public static synchronized void removeFromAppsPebbleBlacklist(String packageName) {
+        startupPhases.ensure(STARTUP_PHASE_BLACKLISTS);
         GB.log("Removing from apps_pebblemsg_blacklist: " + packageName, GB.INFO, null);
         apps_pebblemsg_blacklist.remove(packageNameToPebbleMsgSender(packageName));
         saveAppsPebbleBlackList();
@@ -614,12 +745,16 @@ public class GBApplication extends Application {
      * @return true on successful deletion
      */
     public static synchronized boolean deleteActivityDatabase(Context context) {
-        // TODO: flush, close, reopen db
+        // TODO: flush
         if (lockHandler != null) {
             lockHandler.closeDb();
         }
         boolean result = deleteOldActivityDatabase(context);
         result &= getContext().deleteDatabase(DATABASE_NAME);
+        if (lockHandler != null) {
+            // creates the empty database, and lets the readers continue
+            lockHandler.openDb();
+        }
         return result;
     }
 
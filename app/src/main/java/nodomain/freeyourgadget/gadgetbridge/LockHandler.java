@@ -19,9 +19,13 @@ package nodomain.freeyourgadget.gadgetbridge;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import de.greenrobot.dao.identityscope.IdentityScopeType;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
+import nodomain.freeyourgadget.gadgetbridge.database.DeviceIdCache;
+import nodomain.freeyourgadget.gadgetbridge.database.SampleQueryCache;
 import nodomain.freeyourgadget.gadgetbridge.entities.DaoMaster;
 import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
+import nodomain.freeyourgadget.gadgetbridge.externalevents.notifications.NotificationFilterIndex;
 
 /**
  * Provides low-level access to the database.
@@ -30,6 +34,7 @@ public class LockHandler implements DBHandler {
 
     private DaoMaster daoMaster = null;
     private DaoSession session = null;
+    private DaoSession readOnlySession = null;
     private SQLiteOpenHelper helper = null;
 
     public LockHandler() {
@@ -52,6 +57,8 @@ public class LockHandler implements DBHandler {
         if (session == null) {
             throw new RuntimeException("Unable to create database session");
         }
+        // used by readers concurrently with the writers, so it must not share entities with them
+        readOnlySession = daoMaster.newSession(IdentityScopeType.None);
     }
 
     @Override
@@ -89,9 +96,14 @@ public class LockHandler implements DBHandler {
         if (session == null) {
             throw new IllegalStateException("session must not be null");
         }
+        GBApplication.lockDBClosed();
         session.clear();
+        DeviceIdCache.clear();
+        SampleQueryCache.clear();
+        NotificationFilterIndex.invalidate();
         session.getDatabase().close();
         session = null;
+        readOnlySession = null;
         helper = null;
         daoMaster = null;
     }
@@ -108,6 +120,11 @@ public class LockHandler implements DBHandler {
         return session;
     }
 
+    DaoSession getReadOnlyDaoSession() {
+        ensureValid();
+        return readOnlySession;
+    }
+
     @Override
     public SQLiteDatabase getDatabase() {
         ensureValid();
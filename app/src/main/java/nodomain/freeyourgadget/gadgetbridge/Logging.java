@@ -33,15 +33,20 @@ import ch.qos.logback.core.rolling.RollingFileAppender;
 import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
 import ch.qos.logback.core.util.FileSize;
 import ch.qos.logback.core.util.StatusPrinter;
-import nodomain.freeyourgadget.gadgetbridge.util.GB;
+import nodomain.freeyourgadget.gadgetbridge.util.LazyHexdump;
 import nodomain.freeyourgadget.gadgetbridge.BuildConfig;
 
 public abstract class Logging {
     // Only used for tests
     public static final String PROP_LOGFILES_DIR = "GB_LOGFILES_DIR";
 
+    private static final long FLUSH_TIMEOUT_MILLIS = 2000;
+
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
     private String logDirectory;
     private FileAppender<ILoggingEvent> fileLogger;
+    private AsyncLogAppender asyncLogger;
 
     public void setupLogging(boolean enable) {
         try {
@@ -67,12 +72,30 @@ public abstract class Logging {
             return null;
     }
 
-    public void setImmediateFlush(final boolean immediateFlush) {
-        if (fileLogger != null) {
-            fileLogger.setImmediateFlush(true);
+    /**
+     * Wait until everything logged so far is written to the log file.
+     */
+    public void flush() {
+        if (asyncLogger != null && !asyncLogger.flush(FLUSH_TIMEOUT_MILLIS)) {
+            Log.w("GBApplication", "Timed out flushing the log file");
         }
     }
 
+    /**
+     * @return the number of log events that were dropped because they were logged faster than
+     * they could be written to the log file
+     */
+    public long getDroppedLogCount() {
+        return asyncLogger != null ? asyncLogger.getDroppedCount() : 0;
+    }
+
+    /**
+     * @return the number of log events waiting to be written to the log file
+     */
+    public int getQueuedLogCount() {
+        return asyncLogger != null ? asyncLogger.getQueuedCount() : 0;
+    }
+
     public boolean isFileLoggerInitialized() {
         return logDirectory != null;
     }
@@ -110,10 +133,17 @@ public abstract class Logging {
             return;
         }
 
-        final FileAppender fileAppender = createFileAppender(logDirectory);
+        final FileAppender<ILoggingEvent> fileAppender = createFileAppender(logDirectory);
         fileAppender.start();
-        attachLogger(fileAppender);
+
+        final AsyncLogAppender asyncAppender = new AsyncLogAppender(fileAppender);
+        asyncAppender.setContext(fileAppender.getContext());
+        asyncAppender.setName("ASYNC_FILE");
+        asyncAppender.start();
+        attachLogger(asyncAppender);
+
         fileLogger = fileAppender;
+        asyncLogger = asyncAppender;
     }
 
     private void stopFileLogger() {
@@ -121,13 +151,16 @@ public abstract class Logging {
             return;
         }
 
+        detachLogger(asyncLogger);
+        // writes the events that are still queued
+        asyncLogger.stop();
+
         if (fileLogger.isStarted()) {
             fileLogger.stop();
         }
 
-        detachLogger(fileLogger);
-
         fileLogger = null;
+        asyncLogger = null;
     }
 
     private void attachLogger(Appender<ILoggingEvent> logger) {
@@ -160,21 +193,31 @@ public abstract class Logging {
         if (bytes == null) {
             return "(null)";
         }
-        StringBuilder builder = new StringBuilder(bytes.length * 5);
-        for (byte b : bytes) {
-            builder.append(String.format("0x%02x", b));
-            builder.append(" ");
+        if (bytes.length == 0) {
+            return "";
+        }
+        final char[] chars = new char[bytes.length * 5 - 1];
+        for (int i = 0; i < bytes.length; i++) {
+            final int v = bytes[i] & 0xFF;
+            final int pos = i * 5;
+            if (i > 0) {
+                chars[pos - 1] = ' ';
+            }
+            chars[pos] = '0';
+            chars[pos + 1] = 'x';
+            chars[pos + 2] = HEX_CHARS[v >>> 4];
+            chars[pos + 3] = HEX_CHARS[v & 0x0F];
         }
-        return builder.toString().trim();
+        return new String(chars);
     }
 
     public static void logBytes(Logger logger, byte[] value) {
         if (value != null) {
-            logger.warn("DATA: " + GB.hexdump(value, 0, value.length));
+            logger.warn("DATA: {}", LazyHexdump.hexdump(value));
         }
     }
 
-    public static FileAppender createFileAppender(final String logDirectory) {
+    public static FileAppender<ILoggingEvent> createFileAppender(final String logDirectory) {
         final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
 
         final PatternLayoutEncoder ple = new PatternLayoutEncoder();
@@ -196,10 +239,11 @@ public abstract class Logging {
 
         fileAppender.setContext(lc);
         fileAppender.setName("FILE");
-        fileAppender.setLazy(true);
+        // open the file right away, the first events are only written later by AsyncLogAppender
+        fileAppender.setLazy(false);
         fileAppender.setFile(logDirectory + "/gadgetbridge.log");
         fileAppender.setEncoder(ple);
-        // to debug crashes, set immediateFlush to true, otherwise keep it false to improve throughput
+        // flushed by AsyncLogAppender after each batch of events
         fileAppender.setImmediateFlush(false);
         fileAppender.setRollingPolicy(rollingPolicy);
 
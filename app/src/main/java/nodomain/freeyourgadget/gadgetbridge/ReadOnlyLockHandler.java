@@ -0,0 +1,74 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
+import nodomain.freeyourgadget.gadgetbridge.entities.DaoMaster;
+import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
+
+/**
+ * A {@link DBHandler} for shared, read-only access to the database. Multiple threads may hold
+ * one at the same time, concurrently with a writer. Its session has no identity scope, so the
+ * entities it loads are not shared with the writers.
+ * <p>
+ * Re-opening or closing the database requires exclusive access, so it is not supported here.
+ */
+public class ReadOnlyLockHandler implements DBHandler {
+    private final LockHandler delegate;
+
+    ReadOnlyLockHandler(final LockHandler delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void close() {
+        GBApplication.releaseDBReadOnly();
+    }
+
+    @Override
+    public void openDb() {
+        throw new UnsupportedOperationException("Opening the database requires GBApplication.acquireDB()");
+    }
+
+    @Override
+    public void closeDb() {
+        throw new UnsupportedOperationException("Closing the database requires GBApplication.acquireDB()");
+    }
+
+    @Override
+    public SQLiteOpenHelper getHelper() {
+        return delegate.getHelper();
+    }
+
+    @Override
+    public SQLiteDatabase getDatabase() {
+        return delegate.getDatabase();
+    }
+
+    @Override
+    public DaoMaster getDaoMaster() {
+        return delegate.getDaoMaster();
+    }
+
+    @Override
+    public DaoSession getDaoSession() {
+        return delegate.getReadOnlyDaoSession();
+    }
+}
@@ -0,0 +1,206 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The phases of the application startup, and how long each of them took.
+ * <p>
+ * A phase either runs right away on the calling thread, in the background after the phases it
+ * depends on, or is deferred until it is first needed. Code that needs the result of a background
+ * or deferred phase calls {@link #ensure(String)}, which runs the phase on the calling thread if it
+ * did not start yet, or waits for it otherwise. Each phase runs at most once.
+ * <p>
+ * Logging is only configured by one of the first phases, so this class does not log anything
+ * before a background or deferred phase fails.
+ */
+public class StartupPhases {
+    public enum Mode {
+        MAIN,
+        BACKGROUND,
+        DEFERRED,
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    public StartupPhases() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(2, 2, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            final Thread thread = new Thread(r, "GB startup " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the threads are only needed during startup
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Run a phase on the calling thread. Exceptions are passed on to the caller.
+     */
+    public void run(final String name, final Runnable action) {
+        final Phase phase = add(name, Mode.MAIN, action);
+        phase.task.run();
+        try {
+            phase.task.get();
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Startup phase " + name + " failed", e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run a phase in the background, once the phases it depends on are done.
+     */
+    public void runInBackground(final String name, final Runnable action, final String... dependencies) {
+        final Phase phase = add(name, Mode.BACKGROUND, action, dependencies);
+        executor.execute(phase.task);
+    }
+
+    /**
+     * Register a phase that only runs when {@link #ensure(String)} is first called for it.
+     */
+    public void defer(final String name, final Runnable action) {
+        add(name, Mode.DEFERRED, action);
+    }
+
+    /**
+     * Make sure that a phase is done, running it on the calling thread if it did not start yet.
+     * Failures of the phase were already logged, and are not passed on.
+     */
+    public void ensure(final String name) {
+        final Phase phase;
+        synchronized (phases) {
+            phase = phases.get(name);
+        }
+        if (phase == null) {
+            // e.g. in tests, where the application is not created
+            return;
+        }
+
+        phase.task.run();
+        try {
+            phase.task.get();
+        } catch (final ExecutionException e) {
+            // logged by the phase
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getSummary() {
+        final List<Phase> snapshot;
+        synchronized (phases) {
+            snapshot = new ArrayList<>(phases.values());
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        for (final Phase phase : snapshot) {
+            sb.append(phase).append('\n');
+        }
+        return sb.toString().trim();
+    }
+
+    private Phase add(final String name, final Mode mode, final Runnable action, final String... dependencies) {
+        final Phase phase = new Phase(name, mode, action, dependencies);
+        synchronized (phases) {
+            if (phases.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate startup phase " + name);
+            }
+            phases.put(name, phase);
+        }
+        return phase;
+    }
+
+    private class Phase {
+        private final String name;
+        private final Mode mode;
+        private final FutureTask<Void> task;
+
+        // written by the thread running the phase, before the task completes
+        private volatile long startOffsetNanos = -1;
+        private volatile long durationNanos = -1;
+        private volatile String threadName;
+        private volatile boolean failed;
+
+        private Phase(final String name, final Mode mode, final Runnable action, final String[] dependencies) {
+            this.name = name;
+            this.mode = mode;
+            this.task = new FutureTask<>(() -> {
+                // not part of the timing of this phase
+                for (final String dependency : dependencies) {
+                    ensure(dependency);
+                }
+
+                final long start = System.nanoTime();
+                startOffsetNanos = start - startNanos;
+                threadName = Thread.currentThread().getName();
+                try {
+                    action.run();
+                } catch (final RuntimeException e) {
+                    failed = true;
+                    if (mode != Mode.MAIN) {
+                        // passed on to the caller otherwise
+                        final Logger log = LoggerFactory.getLogger(StartupPhases.class);
+                        log.error("Startup phase {} failed", name, e);
+                    }
+                    throw e;
+                } finally {
+                    durationNanos = System.nanoTime() - start;
+                }
+                return null;
+            });
+        }
+
+        @Override
+        public String toString() {
+            if (startOffsetNanos < 0) {
+                return String.format(Locale.ROOT, "%s (%s): not run", name, mode.name().toLowerCase(Locale.ROOT));
+            }
+            if (durationNanos < 0) {
+                return String.format(Locale.ROOT, "%s (%s): running since +%d ms",
+                        name, mode.name().toLowerCase(Locale.ROOT), startOffsetNanos / 1_000_000L);
+            }
+            return String.format(Locale.ROOT, "%s (%s): +%d ms, took %d ms on %s%s",
+                    name,
+                    mode.name().toLowerCase(Locale.ROOT),
+                    startOffsetNanos / 1_000_000L,
+                    durationNanos / 1_000_000L,
+                    threadName,
+                    failed ? ", failed" : "");
+        }
+    }
+}
@@ -61,6 +61,7 @@ import nodomain.freeyourgadget.gadgetbridge.adapter.ActivitySummariesAdapter;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
 import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummary;
+import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummaryDao;
 import nodomain.freeyourgadget.gadgetbridge.entities.Device;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityKind;
@@ -310,6 +311,8 @@ public class ActivitySummariesActivity extends AbstractListActivity<BaseActivity
                     shareMultiple(paths);
                     processed = true;
                 } else if (itemId == R.id.activity_action_select_all) {
+                    // the list is loaded page by page while scrolling
+                    ((ActivitySummariesAdapter) getItemAdapter()).loadAllPages();
                     for (int i = 1; i < getItemAdapter().getItemCount() - 1; i++) {
                         if (!selectedItems.get(i)) {
                             numSelected[0]++;
@@ -359,10 +362,10 @@ public class ActivitySummariesActivity extends AbstractListActivity<BaseActivity
         LinkedHashMap<String, ActivityKind> newMap = new LinkedHashMap<>(0); //reset
 
         newMap.put(getString(R.string.activity_summaries_all_activities), ActivityKind.UNKNOWN);
-        for (BaseActivitySummary item : getItemAdapter().getItems()) {
-            String activityName = ActivityKind.fromCode(item.getActivityKind()).getLabel(this);
-            if (!newMap.containsKey(activityName) && item.getActivityKind() != 0) {
-                newMap.put(activityName, ActivityKind.fromCode(item.getActivityKind()));
+        for (int activityKind : ((ActivitySummariesAdapter) getItemAdapter()).getActivityKinds()) {
+            String activityName = ActivityKind.fromCode(activityKind).getLabel(this);
+            if (!newMap.containsKey(activityName) && activityKind != 0) {
+                newMap.put(activityName, ActivityKind.fromCode(activityKind));
             }
         }
         return newMap;
@@ -392,12 +395,18 @@ public class ActivitySummariesActivity extends AbstractListActivity<BaseActivity
     }
 
     private void deleteItems(List<BaseActivitySummary> items) {
-        for (BaseActivitySummary item : items) {
-            try {
-                item.delete();
-            } catch (Exception e) {
-                //pass delete error
+        // the listed summaries are not attached to the dao, delete them by their id
+        try (DBHandler handler = GBApplication.acquireDB()) {
+            final BaseActivitySummaryDao summaryDao = handler.getDaoSession().getBaseActivitySummaryDao();
+            for (BaseActivitySummary item : items) {
+                try {
+                    summaryDao.deleteByKey(item.getId());
+                } catch (Exception e) {
+                    //pass delete error
+                }
             }
+        } catch (Exception e) {
+            LOG.error("Failed to delete activity summaries", e);
         }
         // Adapter is fully reloaded after refresh
         refresh();
@@ -33,6 +33,9 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.R;
 import nodomain.freeyourgadget.gadgetbridge.util.backup.AbstractZipBackupJob;
@@ -44,10 +47,13 @@ public class BackupRestoreProgressActivity extends AbstractGBActivity {
     private static final Logger LOG = LoggerFactory.getLogger(BackupRestoreProgressActivity.class);
 
     public static final String EXTRA_URI = "uri";
+    public static final String EXTRA_URIS = "uris"; // import a full backup along with its incremental backups
     public static final String EXTRA_ACTION = "action"; // import/export
+    public static final String EXTRA_INCREMENTAL = "incremental"; // export
 
     private boolean jobFinished = false;
     private Uri uri;
+    private ArrayList<Uri> uris;
     private String action;
     private Thread mThread;
     private AbstractZipBackupJob mZipBackupJob;
@@ -64,7 +70,11 @@ public class BackupRestoreProgressActivity extends AbstractGBActivity {
             return;
         }
 
+        uris = extras.getParcelableArrayList(EXTRA_URIS);
         uri = extras.getParcelable(EXTRA_URI);
+        if (uri == null && uris != null && !uris.isEmpty()) {
+            uri = uris.get(0);
+        }
         if (uri == null) {
             LOG.error("No uri");
             finish();
@@ -159,11 +169,20 @@ public class BackupRestoreProgressActivity extends AbstractGBActivity {
         switch (action) {
             case "import":
                 backupRestoreHint.setText(getString(R.string.backup_restore_do_not_exit, getString(R.string.backup_restore_importing)));
-                mZipBackupJob = new ZipBackupImportJob(GBApplication.getContext(), zipBackupCallback, uri);
+                mZipBackupJob = new ZipBackupImportJob(
+                        GBApplication.getContext(),
+                        zipBackupCallback,
+                        uris != null ? uris : Collections.singletonList(uri)
+                );
                 break;
             case "export":
                 backupRestoreHint.setText(getString(R.string.backup_restore_do_not_exit, getString(R.string.backup_restore_exporting)));
-                mZipBackupJob = new ZipBackupExportJob(GBApplication.getContext(), zipBackupCallback, uri);
+                mZipBackupJob = new ZipBackupExportJob(
+                        GBApplication.getContext(),
+                        zipBackupCallback,
+                        uri,
+                        extras.getBoolean(EXTRA_INCREMENTAL, false)
+                );
                 break;
             default:
                 LOG.error("Unknown action {}", action);
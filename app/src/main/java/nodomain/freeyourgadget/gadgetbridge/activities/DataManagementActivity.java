@@ -44,6 +44,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -93,12 +94,33 @@ public class DataManagementActivity extends AbstractGBActivity {
             backupZipFileChooser.launch(defaultFilename);
         });
 
-        final ActivityResultLauncher<String[]> restoreFileChooser = registerForActivityResult(
-                new ActivityResultContracts.OpenDocument(),
+        final ActivityResultLauncher<String> incrementalBackupZipFileChooser = registerForActivityResult(
+                new ActivityResultContracts.CreateDocument("application/zip"),
                 uri -> {
-                    LOG.info("Got restore file: {}", uri);
+                    LOG.info("Got target incremental backup file: {}", uri);
+                    if (uri != null) {
+                        final Intent startBackupIntent = new Intent(DataManagementActivity.this, BackupRestoreProgressActivity.class);
+                        startBackupIntent.putExtra(BackupRestoreProgressActivity.EXTRA_URI, uri);
+                        startBackupIntent.putExtra(BackupRestoreProgressActivity.EXTRA_ACTION, "export");
+                        startBackupIntent.putExtra(BackupRestoreProgressActivity.EXTRA_INCREMENTAL, true);
+                        startActivity(startBackupIntent);
+                    }
+                }
+        );
+
+        final Button backupIncrementalToZipButton = findViewById(R.id.backupIncrementalToZipButton);
+        backupIncrementalToZipButton.setOnClickListener(v -> {
+            final SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss", Locale.getDefault());
+            final String defaultFilename = String.format(Locale.ROOT, "gadgetbridge_%s_incremental.zip", sdf.format(new Date()));
+            incrementalBackupZipFileChooser.launch(defaultFilename);
+        });
+
+        final ActivityResultLauncher<String[]> restoreFileChooser = registerForActivityResult(
+                new ActivityResultContracts.OpenMultipleDocuments(),
+                uris -> {
+                    LOG.info("Got restore files: {}", uris);
 
-                    if (uri == null) {
+                    if (uris == null || uris.isEmpty()) {
                         return;
                     }
 
@@ -112,7 +134,7 @@ public class DataManagementActivity extends AbstractGBActivity {
                                 GBApplication.deviceService().disconnect();
 
                                 final Intent startBackupIntent = new Intent(DataManagementActivity.this, BackupRestoreProgressActivity.class);
-                                startBackupIntent.putExtra(BackupRestoreProgressActivity.EXTRA_URI, uri);
+                                startBackupIntent.putParcelableArrayListExtra(BackupRestoreProgressActivity.EXTRA_URIS, new ArrayList<>(uris));
                                 startBackupIntent.putExtra(BackupRestoreProgressActivity.EXTRA_ACTION, "import");
                                 startActivity(startBackupIntent);
                             })
@@ -104,6 +104,7 @@ import nodomain.freeyourgadget.gadgetbridge.adapter.SpinnerWithIconAdapter;
 import nodomain.freeyourgadget.gadgetbridge.adapter.SpinnerWithIconItem;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
+import nodomain.freeyourgadget.gadgetbridge.database.DBLockStatistics;
 import nodomain.freeyourgadget.gadgetbridge.deviceevents.GBDeviceEventCameraRemote;
 import nodomain.freeyourgadget.gadgetbridge.devices.DeviceCoordinator;
 import nodomain.freeyourgadget.gadgetbridge.devices.DeviceManager;
@@ -569,6 +570,37 @@ public class DebugActivity extends AbstractGBActivity {
             }
         });
 
+        Button showDbLockStatistics = findViewById(R.id.showDbLockStatistics);
+        showDbLockStatistics.setOnClickListener(v -> new MaterialAlertDialogBuilder(DebugActivity.this)
+                .setCancelable(true)
+                .setTitle("DB Lock Statistics")
+                .setMessage(DBLockStatistics.getSummary())
+                .setPositiveButton(R.string.ok, (dialog, which) -> {
+                })
+                .setNeutralButton("Reset", (dialog, which) -> DBLockStatistics.reset())
+                .show());
+
+        Button showStartupTimings = findViewById(R.id.showStartupTimings);
+        showStartupTimings.setOnClickListener(v -> new MaterialAlertDialogBuilder(DebugActivity.this)
+                .setCancelable(true)
+                .setTitle("Startup Timings")
+                .setMessage(GBApplication.getStartupSummary())
+                .setPositiveButton(R.string.ok, (dialog, which) -> {
+                })
+                .show());
+
+        Button showLogStatistics = findViewById(R.id.showLogStatistics);
+        showLogStatistics.setOnClickListener(v -> new MaterialAlertDialogBuilder(DebugActivity.this)
+                .setCancelable(true)
+                .setTitle("Log Statistics")
+                .setMessage(String.format(Locale.ROOT,
+                        "Queued log events: %d\nDropped log events: %d",
+                        GBApplication.getLogging().getQueuedLogCount(),
+                        GBApplication.getLogging().getDroppedLogCount()))
+                .setPositiveButton(R.string.ok, (dialog, which) -> {
+                })
+                .show());
+
         Button addDeviceButtonDebug = findViewById(R.id.addDeviceButtonDebug);
         addDeviceButtonDebug.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -972,9 +1004,8 @@ public class DebugActivity extends AbstractGBActivity {
         String fileName = GBApplication.getLogPath();
         if (fileName != null && fileName.length() > 0) {
             // Flush the logs, so that we ensure latest lines are also there
-            GBApplication.getLogging().setImmediateFlush(true);
             LOG.debug("Flushing logs before sharing");
-            GBApplication.getLogging().setImmediateFlush(false);
+            GBApplication.getLogging().flush();
 
             File logFile = new File(fileName);
             if (!logFile.exists()) {
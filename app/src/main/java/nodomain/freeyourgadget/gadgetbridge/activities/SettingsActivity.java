@@ -43,6 +43,7 @@ import android.widget.Spinner;
 import android.widget.Toast;
 
 import androidx.core.app.ActivityCompat;
+import androidx.documentfile.provider.DocumentFile;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import androidx.preference.ListPreference;
 import androidx.preference.Preference;
@@ -93,6 +94,7 @@ public class SettingsActivity extends AbstractSettingsActivityV2 {
         static final String FRAGMENT_TAG = "SETTINGS_FRAGMENT";
 
         private static final int EXPORT_LOCATION_FILE_REQUEST_CODE = 4711;
+        private static final int INCREMENTAL_EXPORT_LOCATION_REQUEST_CODE = 4712;
         private EditText fitnessAppEditText = null;
         private int fitnessAppSelectionListSpinnerFirstRun = 0;
 
@@ -287,6 +289,18 @@ public class SettingsActivity extends AbstractSettingsActivityV2 {
                 pref.setSummary(getAutoExportLocationSummary());
             }
 
+            pref = findPreference(GBPrefs.AUTO_EXPORT_INCREMENTAL_LOCATION);
+            if (pref != null) {
+                pref.setOnPreferenceClickListener(preference -> {
+                    Intent i = new Intent(Intent.ACTION_OPEN_DOCUMENT_TREE);
+                    i.addFlags(Intent.FLAG_GRANT_PERSISTABLE_URI_PERMISSION | Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+                    String title = requireContext().getApplicationContext().getString(R.string.choose_auto_export_incremental_location);
+                    startActivityForResult(Intent.createChooser(i, title), INCREMENTAL_EXPORT_LOCATION_REQUEST_CODE);
+                    return true;
+                });
+                pref.setSummary(getIncrementalExportLocationSummary());
+            }
+
             pref = findPreference(GBPrefs.AUTO_EXPORT_INTERVAL);
             if (pref != null) {
                 pref.setOnPreferenceChangeListener((preference, autoExportInterval) -> {
@@ -526,7 +540,27 @@ public class SettingsActivity extends AbstractSettingsActivityV2 {
                 int autoExportPeriod = GBApplication
                         .getPrefs().getInt(GBPrefs.AUTO_EXPORT_INTERVAL, 0);
                 PeriodicExporter.scheduleAlarm(requireContext().getApplicationContext(), autoExportPeriod, autoExportEnabled);
+            } else if (requestCode == INCREMENTAL_EXPORT_LOCATION_REQUEST_CODE && intent != null) {
+                Uri uri = intent.getData();
+                requireContext().getContentResolver().takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+                GBApplication.getPrefs().getPreferences()
+                        .edit()
+                        .putString(GBPrefs.AUTO_EXPORT_INCREMENTAL_LOCATION, uri.toString())
+                        .apply();
+                findPreference(GBPrefs.AUTO_EXPORT_INCREMENTAL_LOCATION).setSummary(getIncrementalExportLocationSummary());
+            }
+        }
+
+        private String getIncrementalExportLocationSummary() {
+            String location = GBApplication.getPrefs().getString(GBPrefs.AUTO_EXPORT_INCREMENTAL_LOCATION, null);
+            if (location == null) {
+                return "";
+            }
+            DocumentFile dir = DocumentFile.fromTreeUri(requireContext(), Uri.parse(location));
+            if (dir == null || dir.getName() == null) {
+                return "";
             }
+            return dir.getName();
         }
 
         /*
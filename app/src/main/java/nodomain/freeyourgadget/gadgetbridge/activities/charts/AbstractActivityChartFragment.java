@@ -40,6 +40,7 @@ import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.R;
 import nodomain.freeyourgadget.gadgetbridge.activities.HeartRateUtils;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
+import nodomain.freeyourgadget.gadgetbridge.database.SampleQueryCache;
 import nodomain.freeyourgadget.gadgetbridge.devices.DeviceCoordinator;
 import nodomain.freeyourgadget.gadgetbridge.devices.SampleProvider;
 import nodomain.freeyourgadget.gadgetbridge.entities.AbstractActivitySample;
@@ -177,20 +178,20 @@ public abstract class AbstractActivityChartFragment<D extends ChartsData> extend
      */
     protected List<? extends ActivitySample> getAllSamples(DBHandler db, GBDevice device, int tsFrom, int tsTo) {
         SampleProvider<? extends ActivitySample> provider = getProvider(db, device);
-        return provider.getAllActivitySamples(tsFrom, tsTo);
+        return SampleQueryCache.query(device, provider.getClass(), SampleQueryCache.Resolution.ALL, tsFrom, tsTo, provider::getAllActivitySamples);
     }
 
     protected List<? extends ActivitySample> getAllSamplesHighRes(DBHandler db, GBDevice device, int tsFrom, int tsTo) {
         SampleProvider<? extends ActivitySample> provider = getProvider(db, device);
         // Only retrieve if the provider signals it has high res data, otherwise it is useless
         if (provider.hasHighResData())
-            return provider.getAllActivitySamplesHighRes(tsFrom, tsTo);
+            return SampleQueryCache.query(device, provider.getClass(), SampleQueryCache.Resolution.HIGH_RES, tsFrom, tsTo, provider::getAllActivitySamplesHighRes);
         return null;
     }
 
     protected List<? extends AbstractActivitySample> getActivitySamples(DBHandler db, GBDevice device, int tsFrom, int tsTo) {
         SampleProvider<? extends AbstractActivitySample> provider = getProvider(db, device);
-        return provider.getActivitySamples(tsFrom, tsTo);
+        return SampleQueryCache.query(device, provider.getClass(), SampleQueryCache.Resolution.ACTIVITY, tsFrom, tsTo, provider::getActivitySamples);
     }
 
     public DefaultChartsData<LineData> refresh(GBDevice gbDevice, List<? extends ActivitySample> samples) {
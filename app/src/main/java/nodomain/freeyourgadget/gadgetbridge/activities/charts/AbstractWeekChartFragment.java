@@ -45,10 +45,12 @@ import java.util.Locale;
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.R;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
+import nodomain.freeyourgadget.gadgetbridge.database.rollup.ActivityRollupManager;
 import nodomain.freeyourgadget.gadgetbridge.devices.TimeSampleProvider;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityAmounts;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivitySample;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySampleColumns;
 import nodomain.freeyourgadget.gadgetbridge.model.SleepScoreSample;
 import nodomain.freeyourgadget.gadgetbridge.util.LimitedQueue;
 
@@ -237,7 +239,7 @@ public abstract class AbstractWeekChartFragment extends AbstractActivityChartFra
         yAxisRight.setTextColor(CHART_TEXT_COLOR);
     }
 
-    private List<? extends ActivitySample> getSamplesOfDay(DBHandler db, Calendar day, int offsetHours, GBDevice device) {
+    private ActivitySampleColumns getSampleColumnsOfDay(DBHandler db, Calendar day, int offsetHours, GBDevice device) {
         int startTs;
         int endTs;
 
@@ -250,7 +252,7 @@ public abstract class AbstractWeekChartFragment extends AbstractActivityChartFra
         startTs = (int) (day.getTimeInMillis() / 1000);
         endTs = startTs + 24 * 60 * 60 - 1;
 
-        return getSamples(db, device, startTs, endTs);
+        return getProvider(db, device).getAllActivitySampleColumns(startTs, endTs);
     }
 
     @Override
@@ -282,9 +284,13 @@ public abstract class AbstractWeekChartFragment extends AbstractActivityChartFra
             amounts = activityAmountCache.lookup(key);
         }
 
+        if (amounts == null) {
+            amounts = ActivityRollupManager.getActivityAmountsOfDay(db.getDaoSession(), device, day, mOffsetHours);
+        }
+
         if (amounts == null) {
             ActivityAnalysis analysis = new ActivityAnalysis();
-            amounts = analysis.calculateActivityAmounts(getSamplesOfDay(db, day, mOffsetHours, device));
+            amounts = analysis.calculateActivityAmounts(getSampleColumnsOfDay(db, day, mOffsetHours, device));
             if (activityAmountCache != null) {
                 activityAmountCache.add(key, amounts);
             }
@@ -27,6 +27,7 @@ import nodomain.freeyourgadget.gadgetbridge.model.ActivityAmount;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityAmounts;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityKind;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivitySample;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySampleColumns;
 
 public class ActivityAnalysis {
     public static final Logger LOG = LoggerFactory.getLogger(ActivityAnalysis.class);
@@ -37,6 +38,10 @@ public class ActivityAnalysis {
     private int maxSpeed = 0;
 
     public ActivityAmounts calculateActivityAmounts(List<? extends ActivitySample> samples) {
+        return calculateActivityAmounts(ActivitySampleColumns.of(samples));
+    }
+
+    public ActivityAmounts calculateActivityAmounts(ActivitySampleColumns samples) {
         ActivityAmount deepSleep = new ActivityAmount(ActivityKind.DEEP_SLEEP);
         ActivityAmount lightSleep = new ActivityAmount(ActivityKind.LIGHT_SLEEP);
         ActivityAmount remSleep = new ActivityAmount(ActivityKind.REM_SLEEP);
@@ -45,10 +50,10 @@ public class ActivityAnalysis {
         ActivityAmount activity = new ActivityAmount(ActivityKind.ACTIVITY);
 
         ActivityAmount previousAmount = null;
-        ActivitySample previousSample = null;
-        for (ActivitySample sample : samples) {
+        for (int i = 0; i < samples.size(); i++) {
             ActivityAmount amount;
-            switch (sample.getKind()) {
+            final ActivityKind kind = samples.getKind(i);
+            switch (kind) {
                 case DEEP_SLEEP:
                     amount = deepSleep;
                     break;
@@ -70,24 +75,24 @@ public class ActivityAnalysis {
                     break;
             }
 
-            int steps = sample.getSteps();
+            int steps = samples.getSteps(i);
             if (steps > 0) {
                 amount.addSteps(steps);
             }
 
-            final int distance = sample.getDistanceCm();
+            final int distance = samples.getDistanceCm(i);
             if (distance >= 0) {
                 amount.addDistance(distance);
             }
 
-            final int activeCalories = sample.getActiveCalories();
+            final int activeCalories = samples.getActiveCalories(i);
             if (activeCalories > 0) {
                 amount.addActiveCalories(activeCalories);
             }
 
-            if (previousSample != null) {
-                long timeDifference = sample.getTimestamp() - previousSample.getTimestamp();
-                if (previousSample.getRawKind() == sample.getRawKind()) {
+            if (i > 0) {
+                long timeDifference = samples.getTimestamp(i) - samples.getTimestamp(i - 1);
+                if (samples.getRawKind(i - 1) == samples.getRawKind(i)) {
                     amount.addSeconds(timeDifference);
                 } else {
                     long sharedTimeDifference = (long) (timeDifference / 2.0f);
@@ -96,7 +101,7 @@ public class ActivityAnalysis {
                 }
 
                 // add time
-                if (steps > 0 && sample.getKind() == ActivityKind.ACTIVITY) {
+                if (steps > 0 && kind == ActivityKind.ACTIVITY) {
                     if (steps > maxSpeed) {
                         maxSpeed = steps;
                     }
@@ -112,11 +117,10 @@ public class ActivityAnalysis {
                 }
             }
 
-            amount.setStartDate(sample.getTimestamp());
-            amount.setEndDate(sample.getTimestamp());
+            amount.setStartDate(samples.getTimestamp(i));
+            amount.setEndDate(samples.getTimestamp(i));
 
             previousAmount = amount;
-            previousSample = sample;
         }
 
         ActivityAmounts result = new ActivityAmounts();
@@ -22,6 +22,7 @@ import java.util.List;
 
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityKind;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivitySample;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySampleColumns;
 
 public class SleepAnalysis {
 
@@ -29,9 +30,12 @@ public class SleepAnalysis {
     public static final long MAX_WAKE_PHASE_LENGTH = 2 * 60 * 60;
 
     public List<SleepSession> calculateSleepSessions(List<? extends ActivitySample> samples) {
+        return calculateSleepSessions(ActivitySampleColumns.of(samples));
+    }
+
+    public List<SleepSession> calculateSleepSessions(ActivitySampleColumns samples) {
         List<SleepSession> result = new ArrayList<>();
 
-        ActivitySample previousSample = null;
         Date sleepStart = null;
         Date sleepEnd = null;
         long lightSleepDuration = 0;
@@ -40,11 +44,12 @@ public class SleepAnalysis {
         long awakeSleepDuration = 0;
         long durationSinceLastSleep = 0;
 
-        for (ActivitySample sample : samples) {
-            if (isSleep(sample)) {
+        for (int i = 0; i < samples.size(); i++) {
+            final ActivityKind kind = samples.getKind(i);
+            if (isSleep(kind)) {
                 if (sleepStart == null)
-                    sleepStart = getDateFromSample(sample);
-                sleepEnd = getDateFromSample(sample);
+                    sleepStart = getDateFromTimestamp(samples.getTimestamp(i));
+                sleepEnd = getDateFromTimestamp(samples.getTimestamp(i));
 
                 durationSinceLastSleep = 0;
             } else {
@@ -59,15 +64,15 @@ public class SleepAnalysis {
                 awakeSleepDuration = 0;
             }
 
-            if (previousSample != null) {
-                long durationSinceLastSample = sample.getTimestamp() - previousSample.getTimestamp();
-                if (sample.getKind() == ActivityKind.LIGHT_SLEEP) {
+            if (i > 0) {
+                long durationSinceLastSample = samples.getTimestamp(i) - samples.getTimestamp(i - 1);
+                if (kind == ActivityKind.LIGHT_SLEEP) {
                     lightSleepDuration += durationSinceLastSample;
-                } else if (sample.getKind() == ActivityKind.DEEP_SLEEP) {
+                } else if (kind == ActivityKind.DEEP_SLEEP) {
                     deepSleepDuration += durationSinceLastSample;
-                } else if (sample.getKind() == ActivityKind.REM_SLEEP) {
+                } else if (kind == ActivityKind.REM_SLEEP) {
                     remSleepDuration += durationSinceLastSample;
-                } else if (sample.getKind() == ActivityKind.AWAKE_SLEEP) {
+                } else if (kind == ActivityKind.AWAKE_SLEEP) {
                     awakeSleepDuration += durationSinceLastSample;
                 } else {
                     durationSinceLastSleep += durationSinceLastSample;
@@ -83,8 +88,6 @@ public class SleepAnalysis {
                     }
                 }
             }
-
-            previousSample = sample;
         }
         if (lightSleepDuration + deepSleepDuration + remSleepDuration + awakeSleepDuration > MIN_SESSION_LENGTH) {
             result.add(new SleepSession(sleepStart, sleepEnd, lightSleepDuration, deepSleepDuration, remSleepDuration, awakeSleepDuration));
@@ -92,15 +95,15 @@ public class SleepAnalysis {
         return result;
     }
 
-    private boolean isSleep(ActivitySample sample) {
-        return sample.getKind() == ActivityKind.DEEP_SLEEP ||
-                sample.getKind() == ActivityKind.LIGHT_SLEEP ||
-                sample.getKind() == ActivityKind.REM_SLEEP ||
-                sample.getKind() == ActivityKind.AWAKE_SLEEP;
+    private boolean isSleep(ActivityKind kind) {
+        return kind == ActivityKind.DEEP_SLEEP ||
+                kind == ActivityKind.LIGHT_SLEEP ||
+                kind == ActivityKind.REM_SLEEP ||
+                kind == ActivityKind.AWAKE_SLEEP;
     }
 
-    private Date getDateFromSample(ActivitySample sample) {
-        return new Date(sample.getTimestamp() * 1000L);
+    private Date getDateFromTimestamp(int timestamp) {
+        return new Date(timestamp * 1000L);
     }
 
 
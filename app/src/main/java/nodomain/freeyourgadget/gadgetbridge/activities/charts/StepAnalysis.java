@@ -27,6 +27,7 @@ import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.activities.HeartRateUtils;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityKind;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivitySample;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySampleColumns;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivitySession;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityUser;
 
@@ -35,6 +36,10 @@ public class StepAnalysis {
     private int totalDailySteps = 0;
 
     public List<ActivitySession> calculateStepSessions(List<? extends ActivitySample> samples) {
+        return calculateStepSessions(ActivitySampleColumns.of(samples, sample -> sample instanceof TrailingActivitySample));
+    }
+
+    public List<ActivitySession> calculateStepSessions(ActivitySampleColumns samples) {
         LOG.debug("get all samples activity sessions: {}", samples.size());
         List<ActivitySession> result = new ArrayList<>();
         ActivityUser activityUser = new ActivityUser();
@@ -46,7 +51,7 @@ public class StepAnalysis {
         final double MIN_SESSION_INTENSITY = Math.max(0, Math.min(1, MIN_STEPS_PER_MINUTE * 0.01));
         totalDailySteps = 0;
 
-        ActivitySample previousSample = null;
+        int previousSample = -1;
         Date sessionStart = null;
         Date sessionEnd;
         int activeSteps = 0; //steps that we count
@@ -63,8 +68,8 @@ public class StepAnalysis {
         float intensityBetweenActivePeriods = 0;
         HeartRateUtils heartRateUtilsInstance = HeartRateUtils.getInstance();
 
-        for (ActivitySample sample : samples) {
-            int steps = sample.getSteps();
+        for (int i = 0; i < samples.size(); i++) {
+            int steps = samples.getSteps(i);
             if (steps > 0) {
                 totalDailySteps += steps;
             }
@@ -75,47 +80,47 @@ public class StepAnalysis {
              *  introduces a regression for some devices such as the Amazfit Bip. Processing everything
              *  seems to work, but this logic needs to be reviewed.
              */
-            if (!(sample instanceof TrailingActivitySample)) { //trailing samples have wrong date and make trailing activity have 0 duration
+            if (!samples.isSynthetic(i)) { //trailing samples have wrong date and make trailing activity have 0 duration
 
                 if (sessionStart == null) {
-                    sessionStart = getDateFromSample(sample);
-                    if (sample.getSteps() >= 0) {
-                        activeSteps = sample.getSteps();
+                    sessionStart = getDateFromTimestamp(samples.getTimestamp(i));
+                    if (samples.getSteps(i) >= 0) {
+                        activeSteps = samples.getSteps(i);
                     } else {
                         activeSteps = 0;
                     }
-                    if (sample.getDistanceCm() >= 0) {
-                        activeDistanceCm = sample.getDistanceCm();
+                    if (samples.getDistanceCm(i) >= 0) {
+                        activeDistanceCm = samples.getDistanceCm(i);
                     } else if (activeSteps > 0) {
                         activeDistanceCm = activeSteps * stepLengthCm;
                     } else {
                         activeDistanceCm = 0;
                     }
-                    activeIntensity = sample.getIntensity();
+                    activeIntensity = samples.getIntensity(i);
                     heartRateSum = new ArrayList<>();
-                    if (heartRateUtilsInstance.isValidHeartRateValue(sample.getHeartRate())) {
-                        heartRateSum.add(sample.getHeartRate());
+                    if (heartRateUtilsInstance.isValidHeartRateValue(samples.getHeartRate(i))) {
+                        heartRateSum.add(samples.getHeartRate(i));
                     }
                     durationSinceLastActiveStep = 0;
                     stepsBetweenActivePeriods = 0;
                     distanceBetweenActivePeriods = 0;
                     heartRateBetweenActivePeriodsSum = new ArrayList<>();
-                    previousSample = null;
+                    previousSample = -1;
                 }
-                if (previousSample != null) {
-                    int durationSinceLastSample = sample.getTimestamp() - previousSample.getTimestamp();
-
-                    if (sample.getSteps() > MIN_STEPS_PER_MINUTE || //either some steps
-                            (sample.getIntensity() > MIN_SESSION_INTENSITY && sample.getSteps() > 0)) { //or some intensity plus at least one step
-                        activeSteps += sample.getSteps() + stepsBetweenActivePeriods;
-                        if (sample.getDistanceCm() >= 0) {
-                            activeDistanceCm += sample.getDistanceCm() + distanceBetweenActivePeriods;
+                if (previousSample != -1) {
+                    int durationSinceLastSample = samples.getTimestamp(i) - samples.getTimestamp(previousSample);
+
+                    if (samples.getSteps(i) > MIN_STEPS_PER_MINUTE || //either some steps
+                            (samples.getIntensity(i) > MIN_SESSION_INTENSITY && samples.getSteps(i) > 0)) { //or some intensity plus at least one step
+                        activeSteps += samples.getSteps(i) + stepsBetweenActivePeriods;
+                        if (samples.getDistanceCm(i) >= 0) {
+                            activeDistanceCm += samples.getDistanceCm(i) + distanceBetweenActivePeriods;
                         } else {
-                            activeDistanceCm += sample.getSteps() * stepLengthCm + distanceBetweenActivePeriods;
+                            activeDistanceCm += samples.getSteps(i) * stepLengthCm + distanceBetweenActivePeriods;
                         }
-                        activeIntensity += sample.getIntensity() + intensityBetweenActivePeriods;
-                        if (heartRateUtilsInstance.isValidHeartRateValue(sample.getHeartRate())) {
-                            heartRateSum.add(sample.getHeartRate());
+                        activeIntensity += samples.getIntensity(i) + intensityBetweenActivePeriods;
+                        if (heartRateUtilsInstance.isValidHeartRateValue(samples.getHeartRate(i))) {
+                            heartRateSum.add(samples.getHeartRate(i));
                         }
                         heartRateSum.addAll(heartRateBetweenActivePeriodsSum);
                         heartRateBetweenActivePeriodsSum = new ArrayList<>();
@@ -125,30 +130,30 @@ public class StepAnalysis {
                         durationSinceLastActiveStep = 0;
 
                     } else { //short break data to remember, we will add it to the rest later, if break not too long
-                        if (sample.getSteps() >= 0) {
-                            stepsBetweenActivePeriods += sample.getSteps();
+                        if (samples.getSteps(i) >= 0) {
+                            stepsBetweenActivePeriods += samples.getSteps(i);
                         }
-                        if (sample.getDistanceCm() >= 0) {
-                            distanceBetweenActivePeriods += sample.getDistanceCm();
-                        } else if (sample.getSteps() > 0) {
-                            distanceBetweenActivePeriods += sample.getSteps() * stepLengthCm;
+                        if (samples.getDistanceCm(i) >= 0) {
+                            distanceBetweenActivePeriods += samples.getDistanceCm(i);
+                        } else if (samples.getSteps(i) > 0) {
+                            distanceBetweenActivePeriods += samples.getSteps(i) * stepLengthCm;
                         }
-                        if (heartRateUtilsInstance.isValidHeartRateValue(sample.getHeartRate())) {
-                            heartRateBetweenActivePeriodsSum.add(sample.getHeartRate());
+                        if (heartRateUtilsInstance.isValidHeartRateValue(samples.getHeartRate(i))) {
+                            heartRateBetweenActivePeriodsSum.add(samples.getHeartRate(i));
                         }
                         durationSinceLastActiveStep += durationSinceLastSample;
-                        intensityBetweenActivePeriods += sample.getIntensity();
+                        intensityBetweenActivePeriods += samples.getIntensity(i);
                     }
                     if (durationSinceLastActiveStep >= MAX_IDLE_PHASE_LENGTH) { //break too long, we split here
 
-                        int current = sample.getTimestamp();
+                        int current = samples.getTimestamp(i);
                         int starting = (int) (sessionStart.getTime() / 1000);
                         int session_length = current - starting - durationSinceLastActiveStep;
 
                         if (session_length >= MIN_SESSION_LENGTH) { //valid activity session
                             int heartRateAverage = heartRateSum.toArray().length > 0 ? calculateSumOfInts(heartRateSum) / heartRateSum.toArray().length : 0;
                             float distance = activeDistanceCm * 0.01f;
-                            sessionEnd = new Date((sample.getTimestamp() - durationSinceLastActiveStep) * 1000L);
+                            sessionEnd = new Date((samples.getTimestamp(i) - durationSinceLastActiveStep) * 1000L);
                             activityKind = detect_activity_kind(session_length, activeSteps, heartRateAverage, activeIntensity);
                             ActivitySession activitySession = new ActivitySession(sessionStart, sessionEnd, activeSteps, heartRateAverage, activeIntensity, distance, activityKind);
                             //activitySession.setSessionType(ActivitySession.SESSION_ONGOING);
@@ -157,20 +162,20 @@ public class StepAnalysis {
                         sessionStart = null;
                     }
                 }
-                previousSample = sample;
+                previousSample = i;
             }
         }
         //trailing activity: make sure we show the last portion of the data as well in case no further activity is recorded yet
 
         if (sessionStart != null) {
-            int current = previousSample.getTimestamp();
+            int current = samples.getTimestamp(previousSample);
             int starting = (int) (sessionStart.getTime() / 1000);
             int session_length = current - starting - durationSinceLastActiveStep;
 
             if (session_length >= MIN_SESSION_LENGTH) {
                 int heartRateAverage = heartRateSum.toArray().length > 0 ? calculateSumOfInts(heartRateSum) / heartRateSum.toArray().length : 0;
                 float distance = activeDistanceCm * 0.01f;
-                sessionEnd = getDateFromSample(previousSample);
+                sessionEnd = getDateFromTimestamp(samples.getTimestamp(previousSample));
                 activityKind = detect_activity_kind(session_length, activeSteps, heartRateAverage, activeIntensity);
                 ActivitySession ongoingActivity = new ActivitySession(sessionStart, sessionEnd, activeSteps, heartRateAverage, activeIntensity, distance, activityKind);
                 ongoingActivity.setSessionType(ActivitySession.SESSION_ONGOING);
@@ -254,7 +259,7 @@ public class StepAnalysis {
         return ActivityKind.ACTIVITY;
     }
 
-    private Date getDateFromSample(ActivitySample sample) {
-        return new Date(sample.getTimestamp() * 1000L);
+    private Date getDateFromTimestamp(int timestamp) {
+        return new Date(timestamp * 1000L);
     }
 }
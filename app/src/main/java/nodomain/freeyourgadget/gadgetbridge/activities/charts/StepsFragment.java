@@ -12,11 +12,13 @@ import java.util.List;
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.R;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
+import nodomain.freeyourgadget.gadgetbridge.database.rollup.ActivityRollupManager;
 import nodomain.freeyourgadget.gadgetbridge.devices.SampleProvider;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityAmount;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityAmounts;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivitySample;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySampleColumns;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityUser;
 import nodomain.freeyourgadget.gadgetbridge.util.LimitedQueue;
 
@@ -86,9 +88,13 @@ abstract class StepsFragment<T extends ChartsData> extends AbstractChartFragment
             amounts = activityAmountCache.lookup(key);
         }
 
+        if (amounts == null) {
+            amounts = ActivityRollupManager.getActivityAmountsOfDay(db.getDaoSession(), device, day, 0);
+        }
+
         if (amounts == null) {
             ActivityAnalysis analysis = new ActivityAnalysis();
-            amounts = analysis.calculateActivityAmounts(getSamplesOfDay(db, day, 0, device));
+            amounts = analysis.calculateActivityAmounts(getSampleColumnsOfDay(db, day, 0, device));
             if (activityAmountCache != null) {
                 activityAmountCache.add(key, amounts);
             }
@@ -113,6 +119,20 @@ abstract class StepsFragment<T extends ChartsData> extends AbstractChartFragment
         return getSamples(db, device, startTs, endTs);
     }
 
+    protected ActivitySampleColumns getSampleColumnsOfDay(DBHandler db, Calendar day, int offsetHours, GBDevice device) {
+        day = (Calendar) day.clone(); // do not modify the caller's argument
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.add(Calendar.HOUR, offsetHours);
+
+        int startTs = (int) (day.getTimeInMillis() / 1000);
+        int endTs = startTs + 24 * 60 * 60 - 1;
+
+        SampleProvider<? extends ActivitySample> provider = device.getDeviceCoordinator().getSampleProvider(device, db.getDaoSession());
+        return provider.getAllActivitySampleColumns(startTs, endTs);
+    }
+
     protected List<? extends ActivitySample> getSamples(DBHandler db, GBDevice device, int tsFrom, int tsTo) {
         SampleProvider<? extends ActivitySample> provider = device.getDeviceCoordinator().getSampleProvider(device, db.getDaoSession());
         return provider.getAllActivitySamples(tsFrom, tsTo);
@@ -44,7 +44,7 @@ public class DashboardStressData implements Serializable {
 
         final int[] totalTime = new int[StressChartFragment.StressType.values().length];
 
-        try (DBHandler dbHandler = GBApplication.acquireDB()) {
+        try (DBHandler dbHandler = GBApplication.acquireDBReadOnly()) {
             for (GBDevice dev : devices) {
                 if ((dashboardData.showAllDevices || dashboardData.showDeviceList.contains(dev.getAddress())) && dev.getDeviceCoordinator().supportsStressMeasurement()) {
                     final List<? extends StressSample> samples = dev.getDeviceCoordinator()
@@ -239,7 +239,7 @@ public final class GBScanEventProcessor implements Runnable {
                     "Device {} ({}) is supported as '{}' without scanning services",
                     candidate.getDevice(),
                     candidate.getName(),
-                    DeviceHelper.getInstance().resolveDeviceType(candidate, false)
+                    DeviceHelper.getInstance().resolveDeviceType(candidate)
             );
             return true;
         }
@@ -26,7 +26,6 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,36 +35,33 @@ import java.util.Date;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
-import de.greenrobot.dao.query.QueryBuilder;
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.R;
+import nodomain.freeyourgadget.gadgetbridge.database.ActivitySummaryListQuery;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
-import nodomain.freeyourgadget.gadgetbridge.devices.DeviceCoordinator;
 import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummary;
-import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummaryDao;
-import nodomain.freeyourgadget.gadgetbridge.entities.Device;
+import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityKind;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityListItem;
-import nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryData;
-import nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryEntries;
-import nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryJsonSummary;
-import nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryParser;
 import nodomain.freeyourgadget.gadgetbridge.util.DateTimeUtils;
 import nodomain.freeyourgadget.gadgetbridge.util.FormatUtils;
 import nodomain.freeyourgadget.gadgetbridge.util.GB;
 
 import static nodomain.freeyourgadget.gadgetbridge.activities.ActivitySummariesFilter.ALL_DEVICES;
-import static nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryEntries.INTERNAL_HAS_GPS;
 
 import androidx.annotation.NonNull;
-
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
 
 public class ActivitySummariesAdapter extends AbstractActivityListingAdapter<BaseActivitySummary> {
     protected static final Logger LOG = LoggerFactory.getLogger(ActivitySummariesAdapter.class);
+
+    private static final int PAGE_SIZE = 100;
+    // load the next page when an item this close to the end of the loaded ones is shown
+    private static final int PREFETCH_DISTANCE = 20;
+
     private final GBDevice device;
     long dateFromFilter = 0;
     long dateToFilter = 0;
@@ -74,6 +70,14 @@ public class ActivitySummariesAdapter extends AbstractActivityListingAdapter<Bas
     List<Long> itemsFilter;
     private int activityKindFilter;
 
+    private ActivitySummaryListQuery query;
+    private ActivitySummaryListQuery.Totals totals = new ActivitySummaryListQuery.Totals();
+    private List<Integer> activityKinds = new ArrayList<>();
+    private boolean hasMorePages = false;
+    private boolean pageLoadPending = false;
+    @Nullable
+    private RecyclerView recyclerView;
+
     public ActivitySummariesAdapter(Context context, GBDevice device, int activityKindFilter, long dateFromFilter, long dateToFilter, String nameContainsFilter, long deviceFilter, List itemsFilter) {
         super(context);
         this.device = device;
@@ -86,59 +90,34 @@ public class ActivitySummariesAdapter extends AbstractActivityListingAdapter<Bas
         loadItems();
     }
 
+    /**
+     * Loads the totals and the first page of the summaries. The following pages are loaded while
+     * scrolling, see {@link #ensureLoaded(int)}.
+     */
     @Override
     public void loadItems() {
         try (DBHandler handler = GBApplication.acquireDB()) {
-            BaseActivitySummaryDao summaryDao = handler.getDaoSession().getBaseActivitySummaryDao();
-            Device dbDevice = DBHelper.findDevice(device, handler.getDaoSession());
-
-            QueryBuilder<BaseActivitySummary> qb = summaryDao.queryBuilder();
+            final DaoSession session = handler.getDaoSession();
 
+            final Long deviceId;
             if (deviceFilter == ALL_DEVICES) {
-                qb.orderDesc(BaseActivitySummaryDao.Properties.StartTime);
+                deviceId = null;
             } else if (deviceFilter != 0) {
-                qb.where(
-                        BaseActivitySummaryDao.Properties.DeviceId.eq(
-                                deviceFilter)).orderDesc(BaseActivitySummaryDao.Properties.StartTime);
+                deviceId = deviceFilter;
             } else {
-                qb.where(
-                        BaseActivitySummaryDao.Properties.DeviceId.eq(
-                                dbDevice.getId())).orderDesc(BaseActivitySummaryDao.Properties.StartTime);
-            }
-
-            if (activityKindFilter != 0) {
-                qb.where(
-                        BaseActivitySummaryDao.Properties.ActivityKind.eq(activityKindFilter));
+                deviceId = DBHelper.findDevice(device, session).getId();
             }
 
-            if (dateFromFilter != 0) {
-                qb.where(
-                        BaseActivitySummaryDao.Properties.StartTime.gt(new Date(dateFromFilter)));
-            }
-            if (dateToFilter != 0) {
-                qb.where(
-                        BaseActivitySummaryDao.Properties.EndTime.lt(new Date(dateToFilter)));
-            }
-            if (nameContainsFilter != null && !nameContainsFilter.isEmpty()) {
-                qb.where(
-                        BaseActivitySummaryDao.Properties.Name.like("%" + nameContainsFilter + "%"));
-            }
-            if (itemsFilter != null) {
-                qb.where(
-                        BaseActivitySummaryDao.Properties.Id.in(itemsFilter));
-            }
+            query = new ActivitySummaryListQuery(deviceId, activityKindFilter, dateFromFilter, dateToFilter, nameContainsFilter, itemsFilter);
+            query.computeDerivedStats(session, getContext());
+            totals = query.loadTotals(handler.getDatabase());
+            activityKinds = query.loadActivityKinds(handler.getDatabase());
+            final List<BaseActivitySummary> firstPage = query.loadPage(handler.getDatabase(), null, PAGE_SIZE);
+            hasMorePages = firstPage.size() == PAGE_SIZE;
 
-
-            List<BaseActivitySummary> allSummaries = new ArrayList<>();
-            // HACK: Populate json in a dummy summary, so stats load faster
-            BaseActivitySummary dashboardSummary = new BaseActivitySummary();
-            final List<BaseActivitySummary> summaries = qb.build().list();
-            dashboardSummary.setSummaryData(StatsContainer.from(
-                    device.getDeviceCoordinator().getActivitySummaryParser(device, getContext()),
-                    summaries
-            ).toJson());
-            allSummaries.add(dashboardSummary); // dashboard
-            allSummaries.addAll(summaries);
+            final List<BaseActivitySummary> allSummaries = new ArrayList<>(firstPage.size() + 2);
+            allSummaries.add(new BaseActivitySummary()); // dashboard
+            allSummaries.addAll(firstPage);
             allSummaries.add(new BaseActivitySummary()); // empty
             setItems(allSummaries, true);
         } catch (Exception e) {
@@ -146,6 +125,79 @@ public class ActivitySummariesAdapter extends AbstractActivityListingAdapter<Bas
         }
     }
 
+    /**
+     * Loads the following pages until the item at the position is loaded, if it exists.
+     */
+    public void ensureLoaded(final int position) {
+        while (position >= getItemCount() - 1 && loadNextPage()) {
+            // keep loading
+        }
+    }
+
+    public void loadAllPages() {
+        while (loadNextPage()) {
+            // keep loading
+        }
+    }
+
+    /**
+     * @return the distinct activity kind codes of all summaries matching the filters, not only of
+     * the loaded ones, the most recent first
+     */
+    public List<Integer> getActivityKinds() {
+        return activityKinds;
+    }
+
+    private boolean loadNextPage() {
+        if (!hasMorePages) {
+            return false;
+        }
+
+        final List<BaseActivitySummary> items = getItems();
+        final BaseActivitySummary last = items.get(items.size() - 2);
+        final List<BaseActivitySummary> page;
+        try (DBHandler handler = GBApplication.acquireDBReadOnly()) {
+            page = query.loadPage(handler.getDatabase(), last, PAGE_SIZE);
+        } catch (final Exception e) {
+            LOG.error("Failed to load the next page of activity summaries", e);
+            hasMorePages = false;
+            return false;
+        }
+        hasMorePages = page.size() == PAGE_SIZE;
+
+        // before the empty item at the end
+        final int insertPosition = items.size() - 1;
+        items.addAll(insertPosition, page);
+        notifyItemRangeInserted(insertPosition, page.size());
+        return !page.isEmpty();
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull final RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        this.recyclerView = recyclerView;
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull final RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        this.recyclerView = null;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull final AbstractActivityListingViewHolder<BaseActivitySummary> holder, final int position) {
+        super.onBindViewHolder(holder, position);
+
+        if (hasMorePages && !pageLoadPending && recyclerView != null && position >= getItemCount() - 1 - PREFETCH_DISTANCE) {
+            // the adapter must not change while the recycler view is binding
+            pageLoadPending = true;
+            recyclerView.post(() -> {
+                pageLoadPending = false;
+                loadNextPage();
+            });
+        }
+    }
+
     @NonNull
     @Override
     public AbstractActivityListingViewHolder<BaseActivitySummary> onCreateViewHolder(@NonNull final ViewGroup parent, final int viewType) {
@@ -199,16 +251,8 @@ public class ActivitySummariesAdapter extends AbstractActivityListingAdapter<Bas
 
         @Override
         public void fill(final int position, final BaseActivitySummary summary, final boolean selected) {
-            final boolean hasGps;
-
-            if (summary.getGpxTrack() != null) {
-                hasGps = true;
-            } else if (summary.getSummaryData() != null && summary.getSummaryData().contains(ActivitySummaryEntries.INTERNAL_HAS_GPS)) {
-                final ActivitySummaryData summaryData = ActivitySummaryData.fromJson(summary.getSummaryData());
-                hasGps = summaryData != null && summaryData.getBoolean(INTERNAL_HAS_GPS, false);
-            } else {
-                hasGps = false;
-            }
+            // derived when loading, fall back to the gpx track if that failed
+            final boolean hasGps = summary.getHasGps() != null ? summary.getHasGps() : summary.getGpxTrack() != null;
 
             this.activityListItem.update(
                     null,
@@ -257,37 +301,24 @@ public class ActivitySummariesAdapter extends AbstractActivityListingAdapter<Bas
 
         @Override
         public void fill(final int position, final BaseActivitySummary summary, final boolean selected) {
-            int activitiesCount = getItemCount() - 2; // remove dashboard and end spacer
-
-            final DeviceCoordinator coordinator = device.getDeviceCoordinator();
-
-            String summaryData = summary.getSummaryData();
-            final StatsContainer stats;
-            if (StringUtils.isNotBlank(summaryData)) {
-                stats = StatsContainer.fromJson(summaryData);
-            } else {
-                stats = StatsContainer.from(
-                        coordinator.getActivitySummaryParser(device, getContext()),
-                        getItems()
-                );
-            }
+            final ActivitySummaryListQuery.Totals stats = totals;
 
             DecimalFormat df = new DecimalFormat("#.##");
-            durationSumView.setText(String.format("%s", DateTimeUtils.formatDurationHoursMinutes((long) stats.durationSum, TimeUnit.MILLISECONDS)));
-            caloriesBurntSumView.setText(String.format("%s %s", (long) stats.caloriesBurntSum, getContext().getString(R.string.calories_unit)));
-            distanceSumView.setText(String.format("%s %s", df.format(stats.distanceSum / 1000), getContext().getString(R.string.km)));
-            distanceSumView.setText(FormatUtils.getFormattedDistanceLabel(stats.distanceSum));
+            durationSumView.setText(String.format("%s", DateTimeUtils.formatDurationHoursMinutes((long) stats.getDurationSum(), TimeUnit.MILLISECONDS)));
+            caloriesBurntSumView.setText(String.format("%s %s", (long) stats.getCaloriesBurntSum(), getContext().getString(R.string.calories_unit)));
+            distanceSumView.setText(String.format("%s %s", df.format(stats.getDistanceSum() / 1000), getContext().getString(R.string.km)));
+            distanceSumView.setText(FormatUtils.getFormattedDistanceLabel(stats.getDistanceSum()));
 
-            activeSecondsSumView.setText(String.format("%s", DateTimeUtils.formatDurationHoursMinutes((long) stats.activeSecondsSum, TimeUnit.SECONDS)));
-            activitiesCountView.setText(String.valueOf(activitiesCount));
+            activeSecondsSumView.setText(String.format("%s", DateTimeUtils.formatDurationHoursMinutes((long) stats.getActiveSecondsSum(), TimeUnit.SECONDS)));
+            activitiesCountView.setText(String.valueOf(stats.getCount()));
             String activityName = getContext().getString(R.string.activity_summaries_all_activities);
             if (gettActivityKindFilter() != 0) {
                 ActivityKind activityKind = ActivityKind.fromCode(gettActivityKindFilter());
                 activityName = activityKind.getLabel(getContext());
                 activityIconView.setImageResource(activityKind.getIcon());
                 activityIconBigView.setImageResource(activityKind.getIcon());
-            } else if (stats.activityIcon != 0) {
-                ActivityKind activityKind = ActivityKind.fromCode(stats.activityIcon);
+            } else if (stats.getActivityKind() != 0) {
+                ActivityKind activityKind = ActivityKind.fromCode(stats.getActivityKind());
                 activityIconView.setImageResource(activityKind.getIcon());
                 activityIconBigView.setImageResource(activityKind.getIcon());
             } else {
@@ -298,97 +329,8 @@ public class ActivitySummariesAdapter extends AbstractActivityListingAdapter<Bas
             activityKindView.setText(activityName);
 
             //start and end are inverted when filer not applied, because items are sorted the other way
-            timeStartView.setText((dateFromFilter != 0) ? DateTimeUtils.formatDate(new Date(dateFromFilter)) : DateTimeUtils.formatDate(new Date((long) stats.lastItemDate)));
-            timeEndView.setText((dateToFilter != 0) ? DateTimeUtils.formatDate(new Date(dateToFilter)) : DateTimeUtils.formatDate(new Date((long) stats.firstItemDate)));
-        }
-    }
-
-    private static class StatsContainer {
-        private static final Gson GSON = new GsonBuilder().create();
-
-        private final double durationSum;
-        private final double caloriesBurntSum;
-        private final double distanceSum;
-        private final double activeSecondsSum;
-        private final double firstItemDate;
-        private final double lastItemDate;
-        private final int activityIcon;
-
-        public StatsContainer(final double durationSum,
-                              final double caloriesBurntSum,
-                              final double distanceSum,
-                              final double activeSecondsSum,
-                              final double firstItemDate,
-                              final double lastItemDate,
-                              final int activityIcon) {
-            this.durationSum = durationSum;
-            this.caloriesBurntSum = caloriesBurntSum;
-            this.distanceSum = distanceSum;
-            this.activeSecondsSum = activeSecondsSum;
-            this.firstItemDate = firstItemDate;
-            this.lastItemDate = lastItemDate;
-            this.activityIcon = activityIcon;
-        }
-
-        private static StatsContainer from(final ActivitySummaryParser summaryParser,
-                                           final List<BaseActivitySummary> activities) {
-            double durationSum = 0;
-            double caloriesBurntSum = 0;
-            double distanceSum = 0;
-            double activeSecondsSum = 0;
-            double firstItemDate = 0;
-            double lastItemDate = 0;
-            int activityIcon = 0;
-            boolean activitySame = true;
-
-            for (BaseActivitySummary summary : activities) {
-                if (summary.getStartTime() == null) continue; //first item is empty, for dashboard
-
-                if (firstItemDate == 0) firstItemDate = summary.getStartTime().getTime();
-                lastItemDate = summary.getEndTime().getTime();
-                durationSum += summary.getEndTime().getTime() - summary.getStartTime().getTime();
-
-                if (activityIcon == 0) {
-                    activityIcon = summary.getActivityKind();
-                } else {
-                    if (activityIcon != summary.getActivityKind()) {
-                        activitySame = false;
-                    }
-                }
-
-                final ActivitySummaryJsonSummary activitySummaryJsonSummary = new ActivitySummaryJsonSummary(summaryParser, summary);
-                ActivitySummaryData summarySubdata = activitySummaryJsonSummary.getSummaryData(false);
-
-                if (summarySubdata != null) {
-                    if (summarySubdata.has("caloriesBurnt")) {
-                        caloriesBurntSum += summarySubdata.getNumber("caloriesBurnt", 0).doubleValue();
-                    }
-                    if (summarySubdata.has("distanceMeters")) {
-                        distanceSum += summarySubdata.getNumber("distanceMeters", 0).doubleValue();
-                    }
-                    if (summarySubdata.has("activeSeconds")) {
-                        activeSecondsSum += summarySubdata.getNumber("activeSeconds", 0).doubleValue();
-                    }
-                }
-            }
-
-            return new StatsContainer(
-                    durationSum,
-                    caloriesBurntSum,
-                    distanceSum,
-                    activeSecondsSum,
-                    firstItemDate,
-                    lastItemDate,
-                    activitySame ? activityIcon : 0
-            );
-        }
-
-        public static StatsContainer fromJson(final String json) {
-            return GSON.fromJson(json, StatsContainer.class);
-        }
-
-        public String toJson() {
-            return GSON.toJson(this);
+            timeStartView.setText((dateFromFilter != 0) ? DateTimeUtils.formatDate(new Date(dateFromFilter)) : DateTimeUtils.formatDate(new Date(stats.getLastItemDate())));
+            timeEndView.setText((dateToFilter != 0) ? DateTimeUtils.formatDate(new Date(dateToFilter)) : DateTimeUtils.formatDate(new Date(stats.getFirstItemDate())));
         }
     }
 }
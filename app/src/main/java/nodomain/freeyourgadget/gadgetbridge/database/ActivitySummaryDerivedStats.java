@@ -0,0 +1,209 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.database;
+
+import static nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryEntries.ACTIVE_SECONDS;
+import static nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryEntries.CALORIES_BURNT;
+import static nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryEntries.DISTANCE_METERS;
+import static nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryEntries.INTERNAL_HAS_GPS;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummary;
+import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummaryDao;
+import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
+import nodomain.freeyourgadget.gadgetbridge.entities.Device;
+import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryData;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryJsonSummary;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryParser;
+import nodomain.freeyourgadget.gadgetbridge.util.DeviceHelper;
+
+/**
+ * Maintains the values of the activity summaries that the activity list needs from the summary
+ * data, so that the list does not need to parse it.
+ * <p>
+ * The derived columns are null until computed. Triggers reset them whenever the summary data or
+ * the gpx track of a summary change, so they are recomputed by {@link #computeMissing} without
+ * the writers of the summaries having to care about them.
+ */
+public final class ActivitySummaryDerivedStats {
+    private static final Logger LOG = LoggerFactory.getLogger(ActivitySummaryDerivedStats.class);
+
+    private static final int CHUNK_SIZE = 50;
+
+    private static final String TABLE = BaseActivitySummaryDao.TABLENAME;
+    private static final String ID = BaseActivitySummaryDao.Properties.Id.columnName;
+    private static final String SUMMARY_DATA = BaseActivitySummaryDao.Properties.SummaryData.columnName;
+    private static final String RAW_SUMMARY_DATA = BaseActivitySummaryDao.Properties.RawSummaryData.columnName;
+    private static final String GPX_TRACK = BaseActivitySummaryDao.Properties.GpxTrack.columnName;
+    static final String DISTANCE = BaseActivitySummaryDao.Properties.DistanceMeters.columnName;
+    static final String CALORIES = BaseActivitySummaryDao.Properties.CaloriesBurnt.columnName;
+    static final String ACTIVE = BaseActivitySummaryDao.Properties.ActiveSeconds.columnName;
+    static final String HAS_GPS = BaseActivitySummaryDao.Properties.HasGps.columnName;
+
+    private static final String RESET_DERIVED = "UPDATE " + TABLE + " SET "
+            + DISTANCE + " = NULL, " + CALORIES + " = NULL, " + ACTIVE + " = NULL, " + HAS_GPS + " = NULL"
+            + " WHERE " + ID + " = NEW." + ID + ";";
+
+    private ActivitySummaryDerivedStats() {
+    }
+
+    /**
+     * Creates the triggers that reset the derived columns, if they do not exist yet.
+     */
+    public static void createTriggers(final SQLiteDatabase db) {
+        // also covers insertOrReplace, which replaces the row instead of updating it
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TABLE + "_DERIVED_INSERT AFTER INSERT ON " + TABLE
+                + " WHEN NEW." + HAS_GPS + " IS NOT NULL"
+                + " BEGIN " + RESET_DERIVED + " END");
+        // greenDAO updates all columns, so only react to actual changes
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TABLE + "_DERIVED_UPDATE AFTER UPDATE OF "
+                + SUMMARY_DATA + ", " + RAW_SUMMARY_DATA + ", " + GPX_TRACK + " ON " + TABLE
+                + " WHEN OLD." + SUMMARY_DATA + " IS NOT NEW." + SUMMARY_DATA
+                + " OR OLD." + RAW_SUMMARY_DATA + " IS NOT NEW." + RAW_SUMMARY_DATA
+                + " OR OLD." + GPX_TRACK + " IS NOT NEW." + GPX_TRACK
+                + " BEGIN " + RESET_DERIVED + " END");
+    }
+
+    /**
+     * Computes the derived columns of the summaries matching the selection that do not have them
+     * yet. The summary data is parsed with the summary parser of the device of each summary.
+     *
+     * @return the number of updated summaries
+     */
+    public static int computeMissing(final DaoSession session,
+                                     final Context context,
+                                     final String selection,
+                                     final String[] selectionArgs) {
+        final SQLiteDatabase db = session.getDatabase();
+
+        final List<Long> ids = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(
+                "SELECT " + ID + " FROM " + TABLE + " WHERE " + HAS_GPS + " IS NULL AND (" + selection + ")",
+                selectionArgs
+        )) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        final long start = System.currentTimeMillis();
+        final BaseActivitySummaryDao summaryDao = session.getBaseActivitySummaryDao();
+        final Map<Long, ActivitySummaryParser> parsers = new HashMap<>();
+        final SQLiteStatement update = db.compileStatement("UPDATE " + TABLE + " SET "
+                + DISTANCE + " = ?, " + CALORIES + " = ?, " + ACTIVE + " = ?, " + HAS_GPS + " = ?"
+                + " WHERE " + ID + " = ?");
+
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+                final List<BaseActivitySummary> summaries = summaryDao.queryBuilder()
+                        .where(BaseActivitySummaryDao.Properties.Id.in(ids.subList(i, Math.min(ids.size(), i + CHUNK_SIZE))))
+                        .list();
+                for (final BaseActivitySummary summary : summaries) {
+                    final ActivitySummaryParser parser = getParser(session, context, parsers, summary.getDeviceId());
+                    compute(summary, parser);
+                    // the parser may have modified the entity, do not hand it out from the session cache
+                    summaryDao.detach(summary);
+
+                    bindNullable(update, 1, summary.getDistanceMeters());
+                    bindNullable(update, 2, summary.getCaloriesBurnt());
+                    bindNullable(update, 3, summary.getActiveSeconds());
+                    update.bindLong(4, Boolean.TRUE.equals(summary.getHasGps()) ? 1 : 0);
+                    update.bindLong(5, summary.getId());
+                    update.executeUpdateDelete();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            update.close();
+        }
+
+        LOG.debug("Computed derived stats of {} activity summaries in {} ms", ids.size(), System.currentTimeMillis() - start);
+        return ids.size();
+    }
+
+    /**
+     * Sets the derived values of the summary from its summary data, re-parsed with the parser if
+     * there is one.
+     */
+    public static void compute(final BaseActivitySummary summary, @Nullable final ActivitySummaryParser parser) {
+        final ActivitySummaryData summaryData = new ActivitySummaryJsonSummary(parser, summary).getSummaryData(false);
+
+        summary.setDistanceMeters(getNumber(summaryData, DISTANCE_METERS));
+        summary.setCaloriesBurnt(getNumber(summaryData, CALORIES_BURNT));
+        summary.setActiveSeconds(getNumber(summaryData, ACTIVE_SECONDS));
+        summary.setHasGps(summary.getGpxTrack() != null || (summaryData != null && summaryData.getBoolean(INTERNAL_HAS_GPS, false)));
+    }
+
+    @Nullable
+    private static Double getNumber(@Nullable final ActivitySummaryData summaryData, final String key) {
+        if (summaryData == null || !summaryData.has(key)) {
+            return null;
+        }
+        return summaryData.getNumber(key, 0).doubleValue();
+    }
+
+    private static void bindNullable(final SQLiteStatement statement, final int index, @Nullable final Double value) {
+        if (value != null) {
+            statement.bindDouble(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    @Nullable
+    private static ActivitySummaryParser getParser(final DaoSession session,
+                                                   final Context context,
+                                                   final Map<Long, ActivitySummaryParser> parsers,
+                                                   final long deviceId) {
+        if (parsers.containsKey(deviceId)) {
+            return parsers.get(deviceId);
+        }
+
+        ActivitySummaryParser parser = null;
+        try {
+            final Device dbDevice = session.getDeviceDao().load(deviceId);
+            if (dbDevice != null) {
+                final GBDevice gbDevice = DeviceHelper.getInstance().toGBDevice(dbDevice);
+                parser = gbDevice.getDeviceCoordinator().getActivitySummaryParser(gbDevice, context);
+            }
+        } catch (final Exception e) {
+            LOG.warn("Failed to get the activity summary parser of device {}", deviceId, e);
+        }
+        parsers.put(deviceId, parser);
+        return parser;
+    }
+}
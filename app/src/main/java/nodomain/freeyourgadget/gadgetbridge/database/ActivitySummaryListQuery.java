@@ -0,0 +1,277 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.database;
+
+import static nodomain.freeyourgadget.gadgetbridge.database.ActivitySummaryDerivedStats.ACTIVE;
+import static nodomain.freeyourgadget.gadgetbridge.database.ActivitySummaryDerivedStats.CALORIES;
+import static nodomain.freeyourgadget.gadgetbridge.database.ActivitySummaryDerivedStats.DISTANCE;
+import static nodomain.freeyourgadget.gadgetbridge.database.ActivitySummaryDerivedStats.HAS_GPS;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummary;
+import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummaryDao;
+import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
+
+/**
+ * Loads the activity summaries shown in the activity list, newest first, one page at a time.
+ * <p>
+ * The returned summaries only contain the columns needed by the list, in particular not the
+ * summary data, and are not attached to a dao. Use their id to load the complete summary.
+ */
+public class ActivitySummaryListQuery {
+    private static final String TABLE = BaseActivitySummaryDao.TABLENAME;
+    private static final String ID = BaseActivitySummaryDao.Properties.Id.columnName;
+    private static final String NAME = BaseActivitySummaryDao.Properties.Name.columnName;
+    private static final String START_TIME = BaseActivitySummaryDao.Properties.StartTime.columnName;
+    private static final String END_TIME = BaseActivitySummaryDao.Properties.EndTime.columnName;
+    private static final String ACTIVITY_KIND = BaseActivitySummaryDao.Properties.ActivityKind.columnName;
+    private static final String GPX_TRACK = BaseActivitySummaryDao.Properties.GpxTrack.columnName;
+    private static final String RAW_DETAILS_PATH = BaseActivitySummaryDao.Properties.RawDetailsPath.columnName;
+    private static final String DEVICE_ID = BaseActivitySummaryDao.Properties.DeviceId.columnName;
+    private static final String USER_ID = BaseActivitySummaryDao.Properties.UserId.columnName;
+
+    private static final String PROJECTION = String.join(", ",
+            ID, NAME, START_TIME, END_TIME, ACTIVITY_KIND, GPX_TRACK, RAW_DETAILS_PATH, DEVICE_ID, USER_ID,
+            DISTANCE, CALORIES, ACTIVE, HAS_GPS
+    );
+
+    private final String selection;
+    private final String[] selectionArgs;
+
+    /**
+     * @param deviceId     the device of the summaries, or null for all devices
+     * @param activityKind the activity kind code, or 0 for all kinds
+     * @param dateFrom     the time the summaries start after, or 0
+     * @param dateTo       the time the summaries end before, or 0
+     * @param nameContains the text the name must contain, or null
+     * @param ids          the ids of the summaries, or null for all
+     */
+    public ActivitySummaryListQuery(@Nullable final Long deviceId,
+                                    final int activityKind,
+                                    final long dateFrom,
+                                    final long dateTo,
+                                    @Nullable final String nameContains,
+                                    @Nullable final List<Long> ids) {
+        final List<String> conditions = new ArrayList<>();
+        final List<String> args = new ArrayList<>();
+
+        if (deviceId != null) {
+            conditions.add(DEVICE_ID + " = ?");
+            args.add(String.valueOf(deviceId));
+        }
+        if (activityKind != 0) {
+            conditions.add(ACTIVITY_KIND + " = ?");
+            args.add(String.valueOf(activityKind));
+        }
+        if (dateFrom != 0) {
+            conditions.add(START_TIME + " > ?");
+            args.add(String.valueOf(dateFrom));
+        }
+        if (dateTo != 0) {
+            conditions.add(END_TIME + " < ?");
+            args.add(String.valueOf(dateTo));
+        }
+        if (nameContains != null && !nameContains.isEmpty()) {
+            conditions.add(NAME + " LIKE ?");
+            args.add("%" + nameContains + "%");
+        }
+        if (ids != null) {
+            final List<String> placeholders = new ArrayList<>();
+            for (final Long id : ids) {
+                placeholders.add("?");
+                args.add(String.valueOf(id));
+            }
+            conditions.add(ID + " IN (" + String.join(", ", placeholders) + ")");
+        }
+
+        this.selection = conditions.isEmpty() ? "1" : String.join(" AND ", conditions);
+        this.selectionArgs = args.toArray(new String[0]);
+    }
+
+    /**
+     * Computes the derived stats of the matching summaries that do not have them yet. Requires
+     * write access to the database.
+     */
+    public void computeDerivedStats(final DaoSession session, final Context context) {
+        ActivitySummaryDerivedStats.computeMissing(session, context, selection, selectionArgs);
+    }
+
+    /**
+     * Loads the summaries following the given one, in the order of the list.
+     *
+     * @param after the last summary of the previous page, or null for the first page
+     */
+    public List<BaseActivitySummary> loadPage(final SQLiteDatabase db,
+                                              @Nullable final BaseActivitySummary after,
+                                              final int limit) {
+        String where = selection;
+        String[] args = selectionArgs;
+        if (after != null) {
+            // keyset pagination, the order is unique thanks to the id
+            final String startTime = String.valueOf(after.getStartTime().getTime());
+            where = "(" + selection + ") AND (" + START_TIME + " < ? OR (" + START_TIME + " = ? AND " + ID + " < ?))";
+            args = Arrays.copyOf(selectionArgs, selectionArgs.length + 3);
+            args[selectionArgs.length] = startTime;
+            args[selectionArgs.length + 1] = startTime;
+            args[selectionArgs.length + 2] = String.valueOf(after.getId());
+        }
+
+        final List<BaseActivitySummary> summaries = new ArrayList<>(limit);
+        try (Cursor cursor = db.rawQuery(
+                "SELECT " + PROJECTION + " FROM " + TABLE + " WHERE " + where
+                        + " ORDER BY " + START_TIME + " DESC, " + ID + " DESC LIMIT " + limit,
+                args
+        )) {
+            while (cursor.moveToNext()) {
+                summaries.add(readSummary(cursor));
+            }
+        }
+        return summaries;
+    }
+
+    public Totals loadTotals(final SQLiteDatabase db) {
+        final Totals totals = new Totals();
+        try (Cursor cursor = db.rawQuery(
+                "SELECT COUNT(*), TOTAL(" + END_TIME + " - " + START_TIME + "), TOTAL(" + CALORIES + "), TOTAL(" + DISTANCE + "), TOTAL(" + ACTIVE + "),"
+                        + " MAX(" + START_TIME + "), MIN(" + ACTIVITY_KIND + "), MAX(" + ACTIVITY_KIND + ")"
+                        + " FROM " + TABLE + " WHERE " + selection,
+                selectionArgs
+        )) {
+            if (cursor.moveToFirst()) {
+                totals.count = cursor.getInt(0);
+                totals.durationSum = cursor.getDouble(1);
+                totals.caloriesBurntSum = cursor.getDouble(2);
+                totals.distanceSum = cursor.getDouble(3);
+                totals.activeSecondsSum = cursor.getDouble(4);
+                totals.firstItemDate = cursor.getLong(5);
+                totals.activityKind = cursor.getInt(6) == cursor.getInt(7) ? cursor.getInt(6) : 0;
+            }
+        }
+        try (Cursor cursor = db.rawQuery(
+                "SELECT " + END_TIME + " FROM " + TABLE + " WHERE " + selection
+                        + " ORDER BY " + START_TIME + " ASC, " + ID + " ASC LIMIT 1",
+                selectionArgs
+        )) {
+            if (cursor.moveToFirst()) {
+                totals.lastItemDate = cursor.getLong(0);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * @return the distinct activity kind codes of the matching summaries, the most recent first
+     */
+    public List<Integer> loadActivityKinds(final SQLiteDatabase db) {
+        final List<Integer> kinds = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(
+                "SELECT " + ACTIVITY_KIND + " FROM " + TABLE + " WHERE " + selection
+                        + " GROUP BY " + ACTIVITY_KIND + " ORDER BY MAX(" + START_TIME + ") DESC",
+                selectionArgs
+        )) {
+            while (cursor.moveToNext()) {
+                kinds.add(cursor.getInt(0));
+            }
+        }
+        return kinds;
+    }
+
+    @NonNull
+    private static BaseActivitySummary readSummary(final Cursor cursor) {
+        final BaseActivitySummary summary = new BaseActivitySummary();
+        summary.setId(cursor.getLong(0));
+        summary.setName(cursor.isNull(1) ? null : cursor.getString(1));
+        summary.setStartTime(new Date(cursor.getLong(2)));
+        summary.setEndTime(new Date(cursor.getLong(3)));
+        summary.setActivityKind(cursor.getInt(4));
+        summary.setGpxTrack(cursor.isNull(5) ? null : cursor.getString(5));
+        summary.setRawDetailsPath(cursor.isNull(6) ? null : cursor.getString(6));
+        summary.setDeviceId(cursor.getLong(7));
+        summary.setUserId(cursor.getLong(8));
+        summary.setDistanceMeters(cursor.isNull(9) ? null : cursor.getDouble(9));
+        summary.setCaloriesBurnt(cursor.isNull(10) ? null : cursor.getDouble(10));
+        summary.setActiveSeconds(cursor.isNull(11) ? null : cursor.getDouble(11));
+        summary.setHasGps(cursor.isNull(12) ? null : cursor.getInt(12) != 0);
+        return summary;
+    }
+
+    public static class Totals {
+        private int count;
+        private double durationSum;
+        private double caloriesBurntSum;
+        private double distanceSum;
+        private double activeSecondsSum;
+        private long firstItemDate;
+        private long lastItemDate;
+        private int activityKind;
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return the sum of the durations, in milliseconds
+         */
+        public double getDurationSum() {
+            return durationSum;
+        }
+
+        public double getCaloriesBurntSum() {
+            return caloriesBurntSum;
+        }
+
+        public double getDistanceSum() {
+            return distanceSum;
+        }
+
+        public double getActiveSecondsSum() {
+            return activeSecondsSum;
+        }
+
+        /**
+         * @return the start time of the most recent summary
+         */
+        public long getFirstItemDate() {
+            return firstItemDate;
+        }
+
+        /**
+         * @return the end time of the oldest summary
+         */
+        public long getLastItemDate() {
+            return lastItemDate;
+        }
+
+        /**
+         * @return the activity kind code common to all summaries, or 0 if they differ
+         */
+        public int getActivityKind() {
+            return activityKind;
+        }
+    }
+}
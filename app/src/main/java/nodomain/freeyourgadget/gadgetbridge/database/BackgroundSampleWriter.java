@@ -0,0 +1,180 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.database;
+
+import androidx.annotation.VisibleForTesting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import nodomain.freeyourgadget.gadgetbridge.GBApplication;
+import nodomain.freeyourgadget.gadgetbridge.devices.AbstractSampleProvider;
+import nodomain.freeyourgadget.gadgetbridge.devices.SampleProvider;
+import nodomain.freeyourgadget.gadgetbridge.entities.AbstractActivitySample;
+import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
+import nodomain.freeyourgadget.gadgetbridge.entities.Device;
+import nodomain.freeyourgadget.gadgetbridge.entities.User;
+import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
+
+/**
+ * Persists activity samples of a device on a background thread, in batches, so that the thread
+ * producing the samples never waits for the database.
+ * <p>
+ * The device and user of the samples are set when they are persisted. A writer is used for one
+ * sequence of samples, and must be finished with {@link #finish(Consumer)} or discarded with
+ * {@link #abort()}. Either way, the samples are persisted all or nothing: if a batch fails, or the
+ * writer is aborted, the batches that were already persisted are deleted again.
+ */
+public class BackgroundSampleWriter<T extends AbstractActivitySample> {
+    private static final Logger LOG = LoggerFactory.getLogger(BackgroundSampleWriter.class);
+
+    private final GBDevice gbDevice;
+    private final int batchSize;
+    private final ThreadPoolExecutor executor;
+    private final AtomicBoolean failed = new AtomicBoolean(false);
+    private final AtomicBoolean aborted = new AtomicBoolean(false);
+
+    private List<T> batch;
+
+    // only accessed by the writer thread
+    private int persistedFrom = Integer.MAX_VALUE;
+    private int persistedTo = Integer.MIN_VALUE;
+
+    public BackgroundSampleWriter(final String name, final GBDevice gbDevice, final int batchSize) {
+        this.gbDevice = gbDevice;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+        this.executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> new Thread(r, name));
+        // do not keep the thread if the writer is abandoned without being finished
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public void add(final T sample) {
+        batch.add(sample);
+        if (batch.size() >= batchSize) {
+            submitBatch();
+        }
+    }
+
+    /**
+     * Persists the remaining samples without waiting for them.
+     *
+     * @param callback called on the writer thread once all samples were persisted, with true on
+     *                 success, or false if they were discarded because a batch failed
+     */
+    public void finish(final Consumer<Boolean> callback) {
+        submitBatch();
+        executor.execute(() -> {
+            final boolean success = !failed.get();
+            if (!success) {
+                deletePersisted();
+            }
+            callback.accept(success);
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * Discards the samples without waiting, including the ones that were already persisted.
+     */
+    public void abort() {
+        aborted.set(true);
+        batch.clear();
+        executor.execute(this::deletePersisted);
+        executor.shutdown();
+    }
+
+    @VisibleForTesting
+    boolean awaitTermination(final long timeoutMillis) throws InterruptedException {
+        return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void submitBatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final List<T> samples = batch;
+        batch = new ArrayList<>(batchSize);
+        executor.execute(() -> persist(samples));
+    }
+
+    private void persist(final List<T> samples) {
+        if (failed.get() || aborted.get()) {
+            // the transfer is going to be discarded anyway
+            return;
+        }
+
+        final long start = System.currentTimeMillis();
+        try (DBHandler handler = GBApplication.acquireDB()) {
+            final DaoSession session = handler.getDaoSession();
+
+            @SuppressWarnings("unchecked") final SampleProvider<T> sampleProvider =
+                    (SampleProvider<T>) gbDevice.getDeviceCoordinator().getSampleProvider(gbDevice, session);
+            final Device device = DBHelper.getDevice(gbDevice, session);
+            final User user = DBHelper.getUser(session);
+
+            for (final T sample : samples) {
+                sample.setDeviceId(device.getId());
+                sample.setUserId(user.getId());
+                sample.setProvider(sampleProvider);
+            }
+
+            // an array of the actual sample class, providers may not accept any other
+            @SuppressWarnings("unchecked") final T[] sampleArray = samples.toArray(
+                    (T[]) Array.newInstance(samples.get(0).getClass(), samples.size())
+            );
+            sampleProvider.addGBActivitySamples(sampleArray);
+
+            for (final T sample : samples) {
+                persistedFrom = Math.min(persistedFrom, sample.getTimestamp());
+                persistedTo = Math.max(persistedTo, sample.getTimestamp());
+            }
+        } catch (final Exception e) {
+            LOG.error("Failed to persist {} samples", samples.size(), e);
+            failed.set(true);
+            return;
+        }
+        LOG.debug("Persisted {} samples in {} ms", samples.size(), System.currentTimeMillis() - start);
+    }
+
+    private void deletePersisted() {
+        if (persistedFrom > persistedTo) {
+            return;
+        }
+
+        try (DBHandler handler = GBApplication.acquireDB()) {
+            final SampleProvider<?> sampleProvider = gbDevice.getDeviceCoordinator().getSampleProvider(gbDevice, handler.getDaoSession());
+            if (!(sampleProvider instanceof AbstractSampleProvider)) {
+                LOG.warn("Unable to delete the persisted samples from {}", sampleProvider);
+                return;
+            }
+            ((AbstractSampleProvider<?>) sampleProvider).deleteSamples(persistedFrom, persistedTo);
+            LOG.info("Deleted the persisted samples between {} and {}", persistedFrom, persistedTo);
+        } catch (final Exception e) {
+            LOG.error("Failed to delete the persisted samples", e);
+        }
+    }
+}
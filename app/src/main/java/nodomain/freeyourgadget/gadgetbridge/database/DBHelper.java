@@ -21,6 +21,7 @@ package nodomain.freeyourgadget.gadgetbridge.database;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
 
 import androidx.annotation.NonNull;
@@ -48,6 +49,7 @@ import de.greenrobot.dao.query.QueryBuilder;
 import de.greenrobot.dao.query.WhereCondition;
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.activities.devicesettings.DeviceSettingsPreferenceConst;
+import nodomain.freeyourgadget.gadgetbridge.database.rollup.ActivityRollupManager;
 import nodomain.freeyourgadget.gadgetbridge.devices.DeviceCoordinator;
 import nodomain.freeyourgadget.gadgetbridge.entities.ActivityDescription;
 import nodomain.freeyourgadget.gadgetbridge.entities.ActivityDescriptionDao;
@@ -69,6 +71,7 @@ import nodomain.freeyourgadget.gadgetbridge.entities.UserAttributes;
 import nodomain.freeyourgadget.gadgetbridge.entities.UserDao;
 import nodomain.freeyourgadget.gadgetbridge.entities.WorldClock;
 import nodomain.freeyourgadget.gadgetbridge.entities.WorldClockDao;
+import nodomain.freeyourgadget.gadgetbridge.externalevents.notifications.NotificationFilterIndex;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityUser;
 import nodomain.freeyourgadget.gadgetbridge.model.ValidByDate;
@@ -145,6 +148,49 @@ public class DBHelper {
         }
     }
 
+    /**
+     * Writes a consistent snapshot of the database to a new temporary file, which must be deleted
+     * by the caller. The database lock is only held while the snapshot is being created, so that
+     * it can be compressed or uploaded without blocking everything else.
+     * <p>
+     * Where SQLite supports it (3.27+), the snapshot is created with VACUUM INTO, which only needs
+     * shared access. Otherwise, the database file is copied while the database is closed.
+     */
+    public File createSnapshot() throws IOException {
+        final File snapshotFile = File.createTempFile("Gadgetbridge", ".snapshot", context.getCacheDir());
+        boolean success = false;
+        try {
+            try (DBHandler dbHandler = GBApplication.acquireDBReadOnly()) {
+                dbHandler.getDatabase().execSQL("VACUUM INTO ?", new Object[]{snapshotFile.getAbsolutePath()});
+                success = true;
+            } catch (final SQLiteException e) {
+                LOG.warn("Failed to vacuum into snapshot, falling back to copying the database", e);
+            }
+
+            if (!success) {
+                try (DBHandler dbHandler = GBApplication.acquireDB()) {
+                    final String dbPath = getClosedDBPath(dbHandler);
+                    try {
+                        FileUtils.copyFile(new File(dbPath), snapshotFile);
+                    } finally {
+                        dbHandler.openDb();
+                    }
+                }
+                success = true;
+            }
+        } catch (final IOException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new IOException("Failed to create database snapshot", e);
+        } finally {
+            if (!success && !snapshotFile.delete()) {
+                LOG.warn("Failed to delete {}", snapshotFile);
+            }
+        }
+
+        return snapshotFile;
+    }
+
     private String getDate() {
         return new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
     }
@@ -157,12 +203,23 @@ public class DBHelper {
         String dbPath = getClosedDBPath(dbHandler);
         try {
             File toFile = new File(dbPath);
+            // a leftover write-ahead log would otherwise be applied on top of the imported db
+            deleteWalFiles(dbPath);
             FileUtils.copyStreamToFile(inputStream, toFile);
         } finally {
             dbHandler.openDb();
         }
     }
 
+    private static void deleteWalFiles(String dbPath) {
+        for (String suffix : new String[]{"-wal", "-shm"}) {
+            File file = new File(dbPath + suffix);
+            if (file.exists() && !file.delete()) {
+                LOG.warn("Failed to delete {}", file);
+            }
+        }
+    }
+
     public void validateDB(SQLiteOpenHelper dbHandler) throws IOException {
         try (SQLiteDatabase db = dbHandler.getReadableDatabase()) {
             if (!db.isDatabaseIntegrityOk()) {
@@ -384,6 +441,29 @@ public class DBHelper {
         return null;
     }
 
+    /**
+     * Finds the database id of the Device entity for the given GBDevice. Unlike
+     * {@link #findDevice(GBDevice, DaoSession)}, the result is cached, so this is cheap
+     * to call before every query.
+     * @param gbDevice
+     * @param session
+     * @return the id of the corresponding Device entity, or null if none
+     */
+    @Nullable
+    public static Long findDeviceId(GBDevice gbDevice, DaoSession session) {
+        final Long cachedId = DeviceIdCache.get(session, gbDevice.getAddress());
+        if (cachedId != null) {
+            return cachedId;
+        }
+        final Device device = findDevice(gbDevice, session);
+        if (device == null) {
+            // not cached, the device may still be created later
+            return null;
+        }
+        DeviceIdCache.put(session, gbDevice.getAddress(), device.getId());
+        return device.getId();
+    }
+
     public static void updateDeviceMacAddress(final DaoSession session, final String oldAddress, final String newAddress) {
         final DeviceDao deviceDao = session.getDeviceDao();
         final Query<Device> query = deviceDao.queryBuilder().where(DeviceDao.Properties.Identifier.eq(oldAddress)).build();
@@ -396,6 +476,25 @@ public class DBHelper {
         final Device device = devices.get(0);
         device.setIdentifier(newAddress);
         session.getDeviceDao().update(device);
+        DeviceIdCache.invalidate(oldAddress);
+        DeviceIdCache.invalidate(newAddress);
+        SampleQueryCache.invalidate(oldAddress);
+        SampleQueryCache.invalidate(newAddress);
+    }
+
+    /**
+     * Invalidates the activity rollups and the cached sample queries of the days affected by
+     * samples written in the range [tsFrom, tsTo], in seconds. The sample providers take care of
+     * this, it only needs to be called by code writing samples or overlays through the daos
+     * directly. Must be called with the database lock held.
+     */
+    public static void invalidateActivityData(final DaoSession session, final GBDevice gbDevice, final int tsFrom, final int tsTo) {
+        if (tsFrom > tsTo) {
+            // nothing was written
+            return;
+        }
+        ActivityRollupManager.invalidate(session, gbDevice, tsFrom, tsTo);
+        SampleQueryCache.invalidate(gbDevice.getAddress(), tsFrom, tsTo);
     }
 
     /**
@@ -770,6 +869,9 @@ public class DBHelper {
         try (DBHandler dbHandler = GBApplication.acquireDB()) {
             DaoSession session = dbHandler.getDaoSession();
             session.clear();
+            DeviceIdCache.clear();
+            SampleQueryCache.clear();
+            NotificationFilterIndex.invalidate();
         } catch (Exception e) {
             LOG.warn("Unable to acquire database to clear the session", e);
         }
@@ -0,0 +1,115 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of how long callers had to wait for the database lock, separately for
+ * shared (read-only) and exclusive (read/write) access.
+ */
+public final class DBLockStatistics {
+    private static final Logger LOG = LoggerFactory.getLogger(DBLockStatistics.class);
+
+    /**
+     * Waits longer than this are logged, since they are noticeable in the UI.
+     */
+    private static final long SLOW_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private static final Counter READ = new Counter();
+    private static final Counter WRITE = new Counter();
+
+    private DBLockStatistics() {
+    }
+
+    public static void recordWait(final boolean readOnly, final long waitNanos) {
+        final Counter counter = readOnly ? READ : WRITE;
+        counter.acquisitions.incrementAndGet();
+        counter.totalWaitNanos.addAndGet(waitNanos);
+
+        long max = counter.maxWaitNanos.get();
+        while (waitNanos > max && !counter.maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = counter.maxWaitNanos.get();
+        }
+
+        if (waitNanos > SLOW_WAIT_NANOS) {
+            LOG.warn(
+                    "Waited {}ms for the {} database lock in {}",
+                    TimeUnit.NANOSECONDS.toMillis(waitNanos),
+                    readOnly ? "read" : "write",
+                    Thread.currentThread().getName()
+            );
+        }
+    }
+
+    public static void recordTimeout(final boolean readOnly) {
+        (readOnly ? READ : WRITE).timeouts.incrementAndGet();
+    }
+
+    public static long getAcquisitions(final boolean readOnly) {
+        return (readOnly ? READ : WRITE).acquisitions.get();
+    }
+
+    public static long getTotalWaitMillis(final boolean readOnly) {
+        return TimeUnit.NANOSECONDS.toMillis((readOnly ? READ : WRITE).totalWaitNanos.get());
+    }
+
+    public static long getMaxWaitMillis(final boolean readOnly) {
+        return TimeUnit.NANOSECONDS.toMillis((readOnly ? READ : WRITE).maxWaitNanos.get());
+    }
+
+    public static long getTimeouts(final boolean readOnly) {
+        return (readOnly ? READ : WRITE).timeouts.get();
+    }
+
+    public static void reset() {
+        READ.reset();
+        WRITE.reset();
+    }
+
+    /**
+     * @return a human-readable summary, suitable for logs and the debug screen
+     */
+    public static String getSummary() {
+        return String.format(
+                Locale.ROOT,
+                "read: %d acquisitions, %dms total wait, %dms max wait, %d timeouts\n" +
+                        "write: %d acquisitions, %dms total wait, %dms max wait, %d timeouts",
+                getAcquisitions(true), getTotalWaitMillis(true), getMaxWaitMillis(true), getTimeouts(true),
+                getAcquisitions(false), getTotalWaitMillis(false), getMaxWaitMillis(false), getTimeouts(false)
+        );
+    }
+
+    private static final class Counter {
+        private final AtomicLong acquisitions = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+
+        private void reset() {
+            acquisitions.set(0);
+            totalWaitNanos.set(0);
+            maxWaitNanos.set(0);
+            timeouts.set(0);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import android.database.sqlite.SQLiteDatabase;
 
 import nodomain.freeyourgadget.gadgetbridge.database.schema.SchemaMigration;
 import nodomain.freeyourgadget.gadgetbridge.entities.DaoMaster;
+import nodomain.freeyourgadget.gadgetbridge.util.backup.ZipBackupDatabaseDelta;
 
 public class DBOpenHelper extends DaoMaster.OpenHelper {
     private final String updaterClassNamePrefix;
@@ -32,6 +33,13 @@ public class DBOpenHelper extends DaoMaster.OpenHelper {
         this.context = context;
     }
 
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        super.onCreate(db);
+        ActivitySummaryDerivedStats.createTriggers(db);
+        ZipBackupDatabaseDelta.installDeletionTracking(db);
+    }
+
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         DaoMaster.createAllTables(db, true);
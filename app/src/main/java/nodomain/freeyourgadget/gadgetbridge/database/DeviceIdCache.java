@@ -0,0 +1,70 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
+
+/**
+ * Caches the database id of the Device entity for each device address, so that sample
+ * providers don't need to look up the Device entity before every sample query.
+ * <p>
+ * The ids are cached per database, so they are shared by all sessions of it, eg. the writer and
+ * the read-only session, and are discarded together with the database once it was closed and
+ * re-opened. Entries must be invalidated whenever a device is deleted or its address changes.
+ */
+public final class DeviceIdCache {
+    private static final Map<SQLiteDatabase, Map<String, Long>> DEVICE_IDS = new WeakHashMap<>();
+
+    private DeviceIdCache() {
+    }
+
+    @Nullable
+    public static synchronized Long get(final DaoSession session, final String address) {
+        final Map<String, Long> deviceIds = DEVICE_IDS.get(session.getDatabase());
+        if (deviceIds == null) {
+            return null;
+        }
+        return deviceIds.get(address);
+    }
+
+    public static synchronized void put(final DaoSession session, final String address, final long deviceId) {
+        Map<String, Long> deviceIds = DEVICE_IDS.get(session.getDatabase());
+        if (deviceIds == null) {
+            deviceIds = new HashMap<>();
+            DEVICE_IDS.put(session.getDatabase(), deviceIds);
+        }
+        deviceIds.put(address, deviceId);
+    }
+
+    public static synchronized void invalidate(final String address) {
+        for (final Map<String, Long> deviceIds : DEVICE_IDS.values()) {
+            deviceIds.remove(address);
+        }
+    }
+
+    public static synchronized void clear() {
+        DEVICE_IDS.clear();
+    }
+}
@@ -23,21 +23,33 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Build;
 import android.os.SystemClock;
 
+import androidx.annotation.Nullable;
+import androidx.documentfile.provider.DocumentFile;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
 
 import nodomain.freeyourgadget.gadgetbridge.BuildConfig;
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.R;
+import nodomain.freeyourgadget.gadgetbridge.util.FileUtils;
 import nodomain.freeyourgadget.gadgetbridge.util.GB;
 import nodomain.freeyourgadget.gadgetbridge.util.GBPrefs;
 import nodomain.freeyourgadget.gadgetbridge.util.PendingIntentUtils;
 import nodomain.freeyourgadget.gadgetbridge.util.Prefs;
+import nodomain.freeyourgadget.gadgetbridge.util.backup.AbstractZipBackupJob;
+import nodomain.freeyourgadget.gadgetbridge.util.backup.ZipBackupCallback;
+import nodomain.freeyourgadget.gadgetbridge.util.backup.ZipBackupExportJob;
 
 /**
  * Created by maufl on 1/4/18.
@@ -94,28 +106,39 @@ public class PeriodicExporter extends BroadcastReceiver {
         return new RefreshTask(task, context);
     }
 
-    public class RefreshTask extends DBAccess {
+    public class RefreshTask extends AsyncTask<Void, Void, Void> {
+        private final String task;
         Context localContext;
 
         public RefreshTask(String task, Context context) {
-            super(task, context);
+            this.task = task;
             localContext = context;
         }
 
         @Override
-        protected void doInBackground(DBHandler handler) {
-            LOG.info("Exporting DB in a background thread");
-            try (DBHandler dbHandler = GBApplication.acquireDB()) {
+        protected Void doInBackground(Void... params) {
+            LOG.info("{} in a background thread", task);
+            if (GBApplication.getPrefs().getBoolean(GBPrefs.AUTO_EXPORT_INCREMENTAL, false)) {
+                exportIncremental();
+                return null;
+            }
+
+            String dst = GBApplication.getPrefs().getString(GBPrefs.AUTO_EXPORT_LOCATION, null);
+            if (dst == null) {
+                LOG.warn("Unable to export DB, export location not set");
+                broadcastSuccess(false);
+                return null;
+            }
+
+            File snapshotFile = null;
+            try {
+                // the database is only locked while the snapshot is taken, not during the upload
                 DBHelper helper = new DBHelper(localContext);
-                String dst = GBApplication.getPrefs().getString(GBPrefs.AUTO_EXPORT_LOCATION, null);
-                if (dst == null) {
-                    LOG.warn("Unable to export DB, export location not set");
-                    broadcastSuccess(false);
-                    return;
-                }
+                snapshotFile = helper.createSnapshot();
+
                 Uri dstUri = Uri.parse(dst);
                 try (OutputStream out = localContext.getContentResolver().openOutputStream(dstUri)) {
-                    helper.exportDB(dbHandler, out);
+                    FileUtils.copyFileToStream(snapshotFile, out);
                     GBApplication gbApp = GBApplication.app();
                     gbApp.setLastAutoExportTimestamp(System.currentTimeMillis());
                 }
@@ -127,7 +150,62 @@ public class PeriodicExporter extends BroadcastReceiver {
                 GB.updateExportFailedNotification(localContext.getString(R.string.notif_export_failed_title), localContext);
                 LOG.info("Exception while exporting DB: ", ex);
                 broadcastSuccess(false);
+            } finally {
+                if (snapshotFile != null && !snapshotFile.delete()) {
+                    LOG.warn("Failed to delete database snapshot {}", snapshotFile);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Exports a zip backup with the changes since the previous periodic export into a new file
+         * of the chosen folder, which then holds a full backup followed by its incremental backups.
+         */
+        private void exportIncremental() {
+            String dst = GBApplication.getPrefs().getString(GBPrefs.AUTO_EXPORT_INCREMENTAL_LOCATION, null);
+            DocumentFile dstDir = dst != null ? DocumentFile.fromTreeUri(localContext, Uri.parse(dst)) : null;
+            if (dstDir == null || !dstDir.canWrite()) {
+                LOG.warn("Unable to export DB, incremental export location not set or not writable");
+                exportFailed(null);
+                return;
+            }
+
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss", Locale.US);
+            DocumentFile dstFile = dstDir.createFile("application/zip", "Gadgetbridge_" + sdf.format(new Date()) + ".zip");
+            if (dstFile == null) {
+                LOG.warn("Unable to create export file in {}", dst);
+                exportFailed(null);
+                return;
+            }
+
+            // the job posts its result to the main thread once it is done
+            new ZipBackupExportJob(localContext, new ZipBackupCallback() {
+                @Override
+                public void onProgress(final int progress, final String message) {
+                }
+
+                @Override
+                public void onSuccess(final String warnings) {
+                    GBApplication.app().setLastAutoExportTimestamp(System.currentTimeMillis());
+                    broadcastSuccess(true);
+                    LOG.info("Incremental DB export completed");
+                }
+
+                @Override
+                public void onFailure(@Nullable final String errorMessage) {
+                    LOG.warn("Incremental DB export failed: {}", errorMessage);
+                    exportFailed(dstFile);
+                }
+            }, dstFile.getUri(), true, AbstractZipBackupJob.LAST_PERIODIC_BACKUP_METADATA_FILENAME).run();
+        }
+
+        private void exportFailed(@Nullable final DocumentFile partialFile) {
+            if (partialFile != null && !partialFile.delete()) {
+                LOG.warn("Failed to delete partial export {}", partialFile.getUri());
             }
+            GB.updateExportFailedNotification(localContext.getString(R.string.notif_export_failed_title), localContext);
+            broadcastSuccess(false);
         }
 
         private void broadcastSuccess(final boolean success) {
@@ -141,9 +219,5 @@ public class PeriodicExporter extends BroadcastReceiver {
             final Intent exportedNotifyIntent = new Intent(action);
             localContext.sendBroadcast(exportedNotifyIntent);
         }
-
-        @Override
-        protected void onPostExecute(Object o) {
-        }
     }
 }
@@ -0,0 +1,268 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.database;
+
+import androidx.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import nodomain.freeyourgadget.gadgetbridge.GBApplication;
+import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySample;
+
+/**
+ * Caches the results of the activity sample queries made by the charts, so that switching between
+ * days and tabs does not query the database again. A query is served from the cache if a cached
+ * query of the same device, provider and resolution covers its range.
+ * <p>
+ * Entries are invalidated by the range of the samples and overlays written to the database, see
+ * {@link #invalidate(String, int, int)}. The sample providers do this on their own, code writing
+ * through the daos directly has to call {@link DBHelper#invalidateActivityData}. Entries covering
+ * the last hour are additionally expired after a minute, as a safety net for writers that miss it.
+ * <p>
+ * The cached sample objects are shared by every caller of {@link #query}, without being copied,
+ * so they must be treated as immutable. A caller that needs to change a sample has to create a
+ * new one instead, like the trailing samples of the charts.
+ * <p>
+ * The cache holds at most {@link #MAX_SAMPLES} samples, evicting the least recently used queries.
+ */
+public final class SampleQueryCache {
+    private static final Logger LOG = LoggerFactory.getLogger(SampleQueryCache.class);
+
+    /**
+     * About a month of per-minute samples for a couple of devices.
+     */
+    private static final int MAX_SAMPLES = 100_000;
+
+    private static final int RECENT_SECONDS = 60 * 60;
+    private static final long RECENT_MAX_AGE_MILLIS = 60 * 1000L;
+
+    /**
+     * Samples are relative to the previous sample of the same day for some devices, see
+     * AbstractSampleProvider#convertCumulativeSteps, so new samples affect the rest of their day.
+     */
+    private static final int INVALIDATION_LOOKAHEAD_SECONDS = 24 * 60 * 60;
+
+    public enum Resolution {
+        ALL,
+        HIGH_RES,
+        ACTIVITY,
+    }
+
+    public interface Loader<T extends ActivitySample> {
+        List<T> load(int tsFrom, int tsTo);
+    }
+
+    // access-ordered, the eldest entry is the least recently used
+    private static final LinkedHashMap<Entry, Entry> ENTRIES = new LinkedHashMap<>(16, 0.75f, true);
+    private static int cachedSamples = 0;
+    // incremented on every invalidation, to discard query results that may be outdated
+    private static long generation = 0;
+
+    private SampleQueryCache() {
+    }
+
+    /**
+     * Returns the samples in the range [tsFrom, tsTo], from the cache if possible, or from the
+     * loader otherwise. The returned list is a copy and may be modified by the caller, but the
+     * samples in it are shared with the cache and other callers, and must not be modified.
+     */
+    public static <T extends ActivitySample> List<T> query(final GBDevice device,
+                                                           final Class<?> providerClass,
+                                                           final Resolution resolution,
+                                                           final int tsFrom,
+                                                           final int tsTo,
+                                                           final Loader<T> loader) {
+        final String address = device.getAddress();
+        final String provider = providerClass.getName();
+
+        final long queryGeneration;
+        synchronized (SampleQueryCache.class) {
+            final List<T> cached = get(address, provider, resolution, tsFrom, tsTo);
+            if (cached != null) {
+                return cached;
+            }
+            // readers do not wait for writers, so the samples of an ongoing write may be
+            // invalidated before they are committed, and the query would miss them
+            queryGeneration = GBApplication.isDBWriteLockedByOtherThread() ? -1 : generation;
+        }
+
+        final List<T> samples = loader.load(tsFrom, tsTo);
+        if (samples == null) {
+            return null;
+        }
+
+        synchronized (SampleQueryCache.class) {
+            if (queryGeneration == generation && samples.size() <= MAX_SAMPLES) {
+                put(new Entry(address, provider, resolution, tsFrom, tsTo, new ArrayList<>(samples)));
+            }
+        }
+
+        return new ArrayList<>(samples);
+    }
+
+    /**
+     * Invalidates the cached queries of a device affected by samples in the range [tsFrom, tsTo].
+     */
+    public static synchronized void invalidate(final String address, final int tsFrom, final int tsTo) {
+        generation++;
+
+        final long invalidateTo = Math.min((long) tsTo + INVALIDATION_LOOKAHEAD_SECONDS, Integer.MAX_VALUE);
+        final Iterator<Entry> it = ENTRIES.keySet().iterator();
+        while (it.hasNext()) {
+            final Entry entry = it.next();
+            if (entry.address.equals(address) && entry.tsFrom <= invalidateTo && entry.tsTo >= tsFrom) {
+                cachedSamples -= entry.samples.size();
+                it.remove();
+            }
+        }
+    }
+
+    public static synchronized void invalidate(final String address) {
+        invalidate(address, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    public static synchronized void clear() {
+        generation++;
+        ENTRIES.clear();
+        cachedSamples = 0;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static <T extends ActivitySample> List<T> get(final String address,
+                                                          final String provider,
+                                                          final Resolution resolution,
+                                                          final int tsFrom,
+                                                          final int tsTo) {
+        final long now = System.currentTimeMillis();
+        Entry match = null;
+        final Iterator<Entry> it = ENTRIES.keySet().iterator();
+        while (it.hasNext()) {
+            final Entry entry = it.next();
+            if (entry.isRecent() && now - entry.createdMillis > RECENT_MAX_AGE_MILLIS) {
+                cachedSamples -= entry.samples.size();
+                it.remove();
+                continue;
+            }
+            if (match == null && entry.covers(address, provider, resolution, tsFrom, tsTo)) {
+                match = entry;
+            }
+        }
+        if (match == null) {
+            return null;
+        }
+
+        // mark as recently used
+        ENTRIES.get(match);
+
+        if (match.tsFrom == tsFrom && match.tsTo == tsTo) {
+            return new ArrayList<>((List<T>) match.samples);
+        }
+
+        final List<T> ret = new ArrayList<>();
+        for (final ActivitySample sample : match.samples) {
+            if (sample.getTimestamp() >= tsFrom && sample.getTimestamp() <= tsTo) {
+                ret.add((T) sample);
+            }
+        }
+        return ret;
+    }
+
+    private static void put(final Entry entry) {
+        final Entry previous = ENTRIES.remove(entry);
+        if (previous != null) {
+            cachedSamples -= previous.samples.size();
+        }
+        ENTRIES.put(entry, entry);
+        cachedSamples += entry.samples.size();
+
+        final Iterator<Entry> it = ENTRIES.keySet().iterator();
+        while (cachedSamples > MAX_SAMPLES && it.hasNext()) {
+            final Entry eldest = it.next();
+            cachedSamples -= eldest.samples.size();
+            it.remove();
+        }
+
+        LOG.trace("Cached {} samples in {} queries", cachedSamples, ENTRIES.size());
+    }
+
+    private static final class Entry {
+        private final String address;
+        private final String provider;
+        private final Resolution resolution;
+        private final int tsFrom;
+        private final int tsTo;
+        private final List<? extends ActivitySample> samples;
+        private final long createdMillis = System.currentTimeMillis();
+
+        private Entry(final String address,
+                      final String provider,
+                      final Resolution resolution,
+                      final int tsFrom,
+                      final int tsTo,
+                      final List<? extends ActivitySample> samples) {
+            this.address = address;
+            this.provider = provider;
+            this.resolution = resolution;
+            this.tsFrom = tsFrom;
+            this.tsTo = tsTo;
+            this.samples = samples;
+        }
+
+        private boolean covers(final String address,
+                               final String provider,
+                               final Resolution resolution,
+                               final int tsFrom,
+                               final int tsTo) {
+            return this.address.equals(address) &&
+                    this.provider.equals(provider) &&
+                    this.resolution == resolution &&
+                    this.tsFrom <= tsFrom &&
+                    this.tsTo >= tsTo;
+        }
+
+        private boolean isRecent() {
+            return tsTo >= createdMillis / 1000L - RECENT_SECONDS;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Entry entry = (Entry) o;
+            return tsFrom == entry.tsFrom &&
+                    tsTo == entry.tsTo &&
+                    address.equals(entry.address) &&
+                    provider.equals(entry.provider) &&
+                    resolution == entry.resolution;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(address, provider, resolution, tsFrom, tsTo);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.database.rollup;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import nodomain.freeyourgadget.gadgetbridge.model.ActivityAmount;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivityAmounts;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivityKind;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySample;
+
+/**
+ * Splits activity samples into hourly buckets, in a way that summing up consecutive buckets gives
+ * the same result as {@link nodomain.freeyourgadget.gadgetbridge.activities.charts.ActivityAnalysis}
+ * over the samples of the same range.
+ * <p>
+ * The time between two samples is attributed to the bucket of the later sample. When the earlier
+ * sample lies in a previous bucket, the time is kept separately as the lead-in, since it must only
+ * be counted if the previous bucket is part of the summed range as well.
+ */
+public class ActivityRollupCalculator {
+    public static final int BUCKET_SECONDS = 3600;
+
+    /**
+     * The kinds rolled up, in the order they are added by ActivityAnalysis.
+     */
+    static final ActivityKind[] KINDS = {
+            ActivityKind.DEEP_SLEEP,
+            ActivityKind.LIGHT_SLEEP,
+            ActivityKind.REM_SLEEP,
+            ActivityKind.AWAKE_SLEEP,
+            ActivityKind.ACTIVITY,
+            ActivityKind.NOT_WORN,
+    };
+
+    public static class Bucket {
+        public final int timestamp;
+        public long steps;
+        public long distanceCm;
+        public long activeCalories;
+        public final long[] seconds = new long[KINDS.length];
+        public boolean hasLeadIn;
+        public long leadInSeconds;
+        public ActivityKind leadInKind;
+        /**
+         * Null if the lead-in is not shared with the kind of the previous sample.
+         */
+        @Nullable
+        public ActivityKind leadInPreviousKind;
+
+        public Bucket(final int timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        public long getSeconds(final ActivityKind kind) {
+            return seconds[indexOf(kind)];
+        }
+    }
+
+    /**
+     * Calculates the buckets for all samples in [from, to). Buckets are aligned to {@code from},
+     * which should be a local midnight. Hours without samples have no bucket.
+     *
+     * @param samples the samples, sorted by timestamp. Samples before {@code from} are only used to
+     *                calculate the lead-in of the first bucket.
+     */
+    public List<Bucket> calculate(final List<? extends ActivitySample> samples, final int from, final int to) {
+        final Map<Integer, Bucket> buckets = new TreeMap<>();
+
+        ActivitySample previousSample = null;
+        int previousKindIndex = -1;
+        for (final ActivitySample sample : samples) {
+            final int timestamp = sample.getTimestamp();
+            final int kindIndex = indexOf(sample.getKind());
+
+            if (timestamp >= from && timestamp < to) {
+                final int bucketTimestamp = from + ((timestamp - from) / BUCKET_SECONDS) * BUCKET_SECONDS;
+                Bucket bucket = buckets.get(bucketTimestamp);
+                if (bucket == null) {
+                    bucket = new Bucket(bucketTimestamp);
+                    buckets.put(bucketTimestamp, bucket);
+                }
+
+                // same filters as ActivityAnalysis
+                if (sample.getSteps() > 0) {
+                    bucket.steps += sample.getSteps();
+                }
+                if (sample.getDistanceCm() >= 0) {
+                    bucket.distanceCm += sample.getDistanceCm();
+                }
+                if (sample.getActiveCalories() > 0) {
+                    bucket.activeCalories += sample.getActiveCalories();
+                }
+
+                if (previousSample != null) {
+                    final long timeDifference = timestamp - previousSample.getTimestamp();
+                    final boolean sameRawKind = previousSample.getRawKind() == sample.getRawKind();
+                    if (previousSample.getTimestamp() >= bucket.timestamp) {
+                        if (sameRawKind) {
+                            bucket.seconds[kindIndex] += timeDifference;
+                        } else {
+                            final long sharedTimeDifference = (long) (timeDifference / 2.0f);
+                            bucket.seconds[previousKindIndex] += sharedTimeDifference;
+                            bucket.seconds[kindIndex] += sharedTimeDifference;
+                        }
+                    } else {
+                        bucket.hasLeadIn = true;
+                        bucket.leadInSeconds = timeDifference;
+                        bucket.leadInKind = KINDS[kindIndex];
+                        bucket.leadInPreviousKind = sameRawKind ? null : KINDS[previousKindIndex];
+                    }
+                }
+            }
+
+            previousSample = sample;
+            previousKindIndex = kindIndex;
+        }
+
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * Sums up consecutive buckets, sorted by timestamp. The lead-in of the first bucket is
+     * ignored, since its previous sample lies outside the range.
+     */
+    public static Bucket sum(final int timestamp, final List<Bucket> buckets) {
+        final Bucket total = new Bucket(timestamp);
+        boolean first = true;
+        for (final Bucket bucket : buckets) {
+            total.steps += bucket.steps;
+            total.distanceCm += bucket.distanceCm;
+            total.activeCalories += bucket.activeCalories;
+            for (int i = 0; i < KINDS.length; i++) {
+                total.seconds[i] += bucket.seconds[i];
+            }
+            if (!first && bucket.hasLeadIn) {
+                if (bucket.leadInPreviousKind == null) {
+                    total.seconds[indexOf(bucket.leadInKind)] += bucket.leadInSeconds;
+                } else {
+                    final long sharedTimeDifference = (long) (bucket.leadInSeconds / 2.0f);
+                    total.seconds[indexOf(bucket.leadInPreviousKind)] += sharedTimeDifference;
+                    total.seconds[indexOf(bucket.leadInKind)] += sharedTimeDifference;
+                }
+            }
+            first = false;
+        }
+        return total;
+    }
+
+    /**
+     * Converts a summed up bucket to the ActivityAmounts ActivityAnalysis would have returned.
+     * Steps, distance and calories are only ever summed up by callers, so they are all
+     * attributed to the activity amount.
+     */
+    public static ActivityAmounts toActivityAmounts(final Bucket total) {
+        final ActivityAmounts result = new ActivityAmounts();
+        for (int i = 0; i < KINDS.length; i++) {
+            final ActivityAmount amount = new ActivityAmount(KINDS[i]);
+            amount.addSeconds(total.seconds[i]);
+            if (KINDS[i] == ActivityKind.ACTIVITY) {
+                amount.addSteps(total.steps);
+                amount.addDistance(total.distanceCm);
+                amount.addActiveCalories(total.activeCalories);
+                if (total.steps > 0 || total.distanceCm > 0 || total.activeCalories > 0) {
+                    result.addAmount(amount);
+                    continue;
+                }
+            }
+            if (amount.getTotalSeconds() > 0) {
+                result.addAmount(amount);
+            }
+        }
+        result.calculatePercentages();
+        return result;
+    }
+
+    static int indexOf(final ActivityKind kind) {
+        switch (kind) {
+            case DEEP_SLEEP:
+                return 0;
+            case LIGHT_SLEEP:
+                return 1;
+            case REM_SLEEP:
+                return 2;
+            case AWAKE_SLEEP:
+                return 3;
+            case NOT_WORN:
+                return 5;
+            case ACTIVITY:
+            default:
+                return 4;
+        }
+    }
+}
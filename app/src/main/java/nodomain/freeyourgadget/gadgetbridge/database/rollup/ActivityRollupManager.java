@@ -0,0 +1,410 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.database.rollup;
+
+import androidx.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import nodomain.freeyourgadget.gadgetbridge.GBApplication;
+import nodomain.freeyourgadget.gadgetbridge.GBEnvironment;
+import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
+import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
+import nodomain.freeyourgadget.gadgetbridge.devices.SampleProvider;
+import nodomain.freeyourgadget.gadgetbridge.entities.DailyActivityRollup;
+import nodomain.freeyourgadget.gadgetbridge.entities.DailyActivityRollupDao;
+import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
+import nodomain.freeyourgadget.gadgetbridge.entities.HourlyActivityRollup;
+import nodomain.freeyourgadget.gadgetbridge.entities.HourlyActivityRollupDao;
+import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivityAmounts;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivityKind;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySample;
+
+/**
+ * Maintains the {@link DailyActivityRollup} and {@link HourlyActivityRollup} tables, so that charts
+ * spanning several days don't need to load and analyze every single activity sample.
+ * <p>
+ * Only days before the current one are rolled up. A DailyActivityRollup row marks its day as
+ * complete - when samples of a day are added, that row is deleted and reads fall back to the raw
+ * samples until the day is rolled up again in the background.
+ */
+public final class ActivityRollupManager {
+    private static final Logger LOG = LoggerFactory.getLogger(ActivityRollupManager.class);
+
+    private static final int DAY_SECONDS = 24 * 60 * 60;
+
+    /**
+     * How far to look back for the sample preceding the first one of a day.
+     */
+    private static final int LOOKBACK_SECONDS = 6 * 60 * 60;
+
+    /**
+     * Number of days rolled up while holding the database lock once.
+     */
+    private static final int BACKFILL_BATCH_DAYS = 7;
+
+    private static final long BACKFILL_DELAY_SECONDS = 30;
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+            r -> new Thread(r, "ActivityRollupBackfill")
+    );
+    private static final AtomicBoolean BACKFILL_PENDING = new AtomicBoolean(false);
+
+    private ActivityRollupManager() {
+    }
+
+    /**
+     * Invalidates the rollups of all days affected by samples in the given range, and schedules
+     * them to be rolled up again. Must be called with the database lock held.
+     */
+    public static void invalidate(final DaoSession session, final GBDevice gbDevice, final int tsFrom, final int tsTo) {
+        if (tsFrom > tsTo) {
+            return;
+        }
+        final int today = startOfDay(System.currentTimeMillis() / 1000L);
+        if (tsFrom >= today) {
+            // today is never rolled up
+            return;
+        }
+        final Long deviceId = DBHelper.findDeviceId(gbDevice, session);
+        if (deviceId == null) {
+            return;
+        }
+
+        // The following day is affected as well, as its first sample follows the last sample
+        // of the range, and the sleep of a day starts on the day before
+        final int dayFrom = startOfDay(tsFrom);
+        final int dayTo = startOfDay(tsTo) + 2 * DAY_SECONDS;
+
+        session.getDailyActivityRollupDao().queryBuilder()
+                .where(
+                        DailyActivityRollupDao.Properties.DeviceId.eq(deviceId),
+                        DailyActivityRollupDao.Properties.Timestamp.ge(dayFrom),
+                        DailyActivityRollupDao.Properties.Timestamp.lt(dayTo)
+                )
+                .buildDelete()
+                .executeDeleteWithoutDetachingEntities();
+
+        scheduleBackfill();
+    }
+
+    /**
+     * Returns the activity amounts for the range [tsFrom, tsTo), as calculated by ActivityAnalysis,
+     * or null if the range is not completely rolled up.
+     */
+    @Nullable
+    public static ActivityAmounts getActivityAmounts(final DaoSession session,
+                                                     final GBDevice gbDevice,
+                                                     final int tsFrom,
+                                                     final int tsTo) {
+        if (tsTo > startOfDay(System.currentTimeMillis() / 1000L)) {
+            return null;
+        }
+        final Long deviceId = DBHelper.findDeviceId(gbDevice, session);
+        if (deviceId == null) {
+            return null;
+        }
+
+        final List<Integer> days = new ArrayList<>();
+        final Calendar day = Calendar.getInstance();
+        day.setTimeInMillis(startOfDay(tsFrom) * 1000L);
+        while (day.getTimeInMillis() / 1000L < tsTo) {
+            days.add((int) (day.getTimeInMillis() / 1000L));
+            day.add(Calendar.DATE, 1);
+        }
+        if ((tsFrom - days.get(0)) % ActivityRollupCalculator.BUCKET_SECONDS != 0) {
+            // not aligned to the buckets, eg. a time zone with a 30 minute offset and a non-midnight start
+            return null;
+        }
+
+        final List<DailyActivityRollup> dailyRollups = session.getDailyActivityRollupDao().queryBuilder()
+                .where(
+                        DailyActivityRollupDao.Properties.DeviceId.eq(deviceId),
+                        DailyActivityRollupDao.Properties.Timestamp.in(days)
+                )
+                .list();
+        if (dailyRollups.size() != days.size()) {
+            return null;
+        }
+
+        if (days.size() == 1 && tsFrom == days.get(0) && tsTo == tsFrom + DAY_SECONDS) {
+            return ActivityRollupCalculator.toActivityAmounts(toBucket(dailyRollups.get(0)));
+        }
+
+        final List<HourlyActivityRollup> hourlyRollups = session.getHourlyActivityRollupDao().queryBuilder()
+                .where(
+                        HourlyActivityRollupDao.Properties.DeviceId.eq(deviceId),
+                        HourlyActivityRollupDao.Properties.Timestamp.ge(tsFrom),
+                        HourlyActivityRollupDao.Properties.Timestamp.lt(tsTo)
+                )
+                .orderAsc(HourlyActivityRollupDao.Properties.Timestamp)
+                .list();
+        final List<ActivityRollupCalculator.Bucket> buckets = new ArrayList<>(hourlyRollups.size());
+        for (final HourlyActivityRollup hourlyRollup : hourlyRollups) {
+            buckets.add(toBucket(hourlyRollup));
+        }
+
+        return ActivityRollupCalculator.toActivityAmounts(ActivityRollupCalculator.sum(tsFrom, buckets));
+    }
+
+    /**
+     * Returns the activity amounts for the 24 hours starting at the midnight of the given day,
+     * shifted by offsetHours, or null if they are not completely rolled up.
+     */
+    @Nullable
+    public static ActivityAmounts getActivityAmountsOfDay(final DaoSession session,
+                                                          final GBDevice gbDevice,
+                                                          final Calendar day,
+                                                          final int offsetHours) {
+        final Calendar start = (Calendar) day.clone(); // do not modify the caller's argument
+        start.set(Calendar.HOUR_OF_DAY, 0);
+        start.set(Calendar.MINUTE, 0);
+        start.set(Calendar.SECOND, 0);
+        start.add(Calendar.HOUR, offsetHours);
+
+        final int startTs = (int) (start.getTimeInMillis() / 1000L);
+        return getActivityAmounts(session, gbDevice, startTs, startTs + DAY_SECONDS);
+    }
+
+    /**
+     * Rolls up a single day. Must be called with the database lock held.
+     *
+     * @param dayStart the local midnight starting the day
+     */
+    public static void updateDay(final DaoSession session,
+                                 final SampleProvider<? extends ActivitySample> sampleProvider,
+                                 final long deviceId,
+                                 final int dayStart) {
+        final Calendar nextDay = Calendar.getInstance();
+        nextDay.setTimeInMillis(dayStart * 1000L);
+        nextDay.add(Calendar.DATE, 1);
+        // days with a DST change are longer than 24h, but all totals are calculated over 24h
+        final int dayEnd = Math.max(dayStart + DAY_SECONDS, (int) (nextDay.getTimeInMillis() / 1000L));
+
+        final List<? extends ActivitySample> samples = sampleProvider.getAllActivitySamples(dayStart - LOOKBACK_SECONDS, dayEnd - 1);
+        final List<ActivityRollupCalculator.Bucket> buckets = new ActivityRollupCalculator().calculate(samples, dayStart, dayEnd);
+
+        final HourlyActivityRollupDao hourlyDao = session.getHourlyActivityRollupDao();
+        hourlyDao.queryBuilder()
+                .where(
+                        HourlyActivityRollupDao.Properties.DeviceId.eq(deviceId),
+                        HourlyActivityRollupDao.Properties.Timestamp.ge(dayStart),
+                        HourlyActivityRollupDao.Properties.Timestamp.lt(dayEnd)
+                )
+                .buildDelete()
+                .executeDeleteWithoutDetachingEntities();
+
+        final List<HourlyActivityRollup> hourlyRollups = new ArrayList<>(buckets.size());
+        final List<ActivityRollupCalculator.Bucket> bucketsOfDay = new ArrayList<>(buckets.size());
+        for (final ActivityRollupCalculator.Bucket bucket : buckets) {
+            final HourlyActivityRollup hourlyRollup = new HourlyActivityRollup();
+            hourlyRollup.setTimestamp(bucket.timestamp);
+            hourlyRollup.setDeviceId(deviceId);
+            hourlyRollup.setSteps((int) bucket.steps);
+            hourlyRollup.setDistanceCm((int) bucket.distanceCm);
+            hourlyRollup.setActiveCalories((int) bucket.activeCalories);
+            hourlyRollup.setActivitySeconds((int) bucket.getSeconds(ActivityKind.ACTIVITY));
+            hourlyRollup.setLightSleepSeconds((int) bucket.getSeconds(ActivityKind.LIGHT_SLEEP));
+            hourlyRollup.setDeepSleepSeconds((int) bucket.getSeconds(ActivityKind.DEEP_SLEEP));
+            hourlyRollup.setRemSleepSeconds((int) bucket.getSeconds(ActivityKind.REM_SLEEP));
+            hourlyRollup.setAwakeSleepSeconds((int) bucket.getSeconds(ActivityKind.AWAKE_SLEEP));
+            hourlyRollup.setNotWornSeconds((int) bucket.getSeconds(ActivityKind.NOT_WORN));
+            if (bucket.hasLeadIn) {
+                hourlyRollup.setLeadInSeconds((int) bucket.leadInSeconds);
+                hourlyRollup.setLeadInKind(bucket.leadInKind.getCode());
+                hourlyRollup.setLeadInPreviousKind(bucket.leadInPreviousKind != null ? bucket.leadInPreviousKind.getCode() : null);
+            } else {
+                hourlyRollup.setLeadInKind(ActivityKind.UNKNOWN.getCode());
+            }
+            hourlyRollups.add(hourlyRollup);
+
+            if (bucket.timestamp < dayStart + DAY_SECONDS) {
+                bucketsOfDay.add(bucket);
+            }
+        }
+        hourlyDao.insertOrReplaceInTx(hourlyRollups);
+
+        final ActivityRollupCalculator.Bucket total = ActivityRollupCalculator.sum(dayStart, bucketsOfDay);
+        final DailyActivityRollup dailyRollup = new DailyActivityRollup();
+        dailyRollup.setTimestamp(dayStart);
+        dailyRollup.setDeviceId(deviceId);
+        dailyRollup.setSteps((int) total.steps);
+        dailyRollup.setDistanceCm((int) total.distanceCm);
+        dailyRollup.setActiveCalories((int) total.activeCalories);
+        dailyRollup.setActivitySeconds((int) total.getSeconds(ActivityKind.ACTIVITY));
+        dailyRollup.setLightSleepSeconds((int) total.getSeconds(ActivityKind.LIGHT_SLEEP));
+        dailyRollup.setDeepSleepSeconds((int) total.getSeconds(ActivityKind.DEEP_SLEEP));
+        dailyRollup.setRemSleepSeconds((int) total.getSeconds(ActivityKind.REM_SLEEP));
+        dailyRollup.setAwakeSleepSeconds((int) total.getSeconds(ActivityKind.AWAKE_SLEEP));
+        dailyRollup.setNotWornSeconds((int) total.getSeconds(ActivityKind.NOT_WORN));
+        session.getDailyActivityRollupDao().insertOrReplace(dailyRollup);
+    }
+
+    /**
+     * Schedules rolling up all days that are not rolled up yet, for all known devices. Multiple
+     * calls within a short time are coalesced into a single run.
+     */
+    public static void scheduleBackfill() {
+        if (GBEnvironment.env().isTest()) {
+            return;
+        }
+        if (BACKFILL_PENDING.compareAndSet(false, true)) {
+            EXECUTOR.schedule(() -> {
+                BACKFILL_PENDING.set(false);
+                try {
+                    backfill();
+                } catch (final Exception e) {
+                    LOG.error("Failed to backfill activity rollups", e);
+                }
+            }, BACKFILL_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void backfill() throws Exception {
+        final long nanoStart = System.nanoTime();
+        int daysRolledUp = 0;
+
+        for (final GBDevice gbDevice : GBApplication.app().getDeviceManager().getDevices()) {
+            if (!gbDevice.getDeviceCoordinator().supportsActivityTracking()) {
+                continue;
+            }
+
+            final List<Integer> pendingDays = new ArrayList<>();
+            try (DBHandler handler = GBApplication.acquireDBReadOnly()) {
+                pendingDays.addAll(getPendingDays(handler.getDaoSession(), gbDevice));
+            }
+
+            for (int i = 0; i < pendingDays.size(); i += BACKFILL_BATCH_DAYS) {
+                if (BACKFILL_PENDING.get()) {
+                    // new samples arrived in the meantime, start over in the next run
+                    LOG.debug("Interrupting rollup backfill, another one is pending");
+                    return;
+                }
+                try (DBHandler handler = GBApplication.acquireDB()) {
+                    final DaoSession session = handler.getDaoSession();
+                    final Long deviceId = DBHelper.findDeviceId(gbDevice, session);
+                    if (deviceId == null) {
+                        break;
+                    }
+                    final SampleProvider<? extends ActivitySample> sampleProvider = gbDevice.getDeviceCoordinator().getSampleProvider(gbDevice, session);
+                    for (final int dayStart : pendingDays.subList(i, Math.min(i + BACKFILL_BATCH_DAYS, pendingDays.size()))) {
+                        updateDay(session, sampleProvider, deviceId, dayStart);
+                        daysRolledUp++;
+                    }
+                }
+            }
+        }
+
+        if (daysRolledUp > 0) {
+            LOG.info("Rolled up {} days of activity in {}ms", daysRolledUp, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanoStart));
+        }
+    }
+
+    private static List<Integer> getPendingDays(final DaoSession session, final GBDevice gbDevice) {
+        final Long deviceId = DBHelper.findDeviceId(gbDevice, session);
+        if (deviceId == null) {
+            return new ArrayList<>();
+        }
+        final ActivitySample firstSample = gbDevice.getDeviceCoordinator()
+                .getSampleProvider(gbDevice, session)
+                .getFirstActivitySample();
+        if (firstSample == null) {
+            return new ArrayList<>();
+        }
+
+        final Set<Integer> rolledUpDays = new HashSet<>();
+        for (final DailyActivityRollup rollup : session.getDailyActivityRollupDao().queryBuilder()
+                .where(DailyActivityRollupDao.Properties.DeviceId.eq(deviceId))
+                .list()) {
+            rolledUpDays.add(rollup.getTimestamp());
+        }
+
+        final List<Integer> pendingDays = new ArrayList<>();
+        final int today = startOfDay(System.currentTimeMillis() / 1000L);
+        final Calendar day = Calendar.getInstance();
+        day.setTimeInMillis(startOfDay(firstSample.getTimestamp()) * 1000L);
+        while (day.getTimeInMillis() / 1000L < today) {
+            final int dayStart = (int) (day.getTimeInMillis() / 1000L);
+            if (!rolledUpDays.contains(dayStart)) {
+                pendingDays.add(dayStart);
+            }
+            day.add(Calendar.DATE, 1);
+        }
+        return pendingDays;
+    }
+
+    private static ActivityRollupCalculator.Bucket toBucket(final DailyActivityRollup rollup) {
+        final ActivityRollupCalculator.Bucket bucket = new ActivityRollupCalculator.Bucket(rollup.getTimestamp());
+        bucket.steps = rollup.getSteps();
+        bucket.distanceCm = rollup.getDistanceCm();
+        bucket.activeCalories = rollup.getActiveCalories();
+        setSeconds(bucket, ActivityKind.ACTIVITY, rollup.getActivitySeconds());
+        setSeconds(bucket, ActivityKind.LIGHT_SLEEP, rollup.getLightSleepSeconds());
+        setSeconds(bucket, ActivityKind.DEEP_SLEEP, rollup.getDeepSleepSeconds());
+        setSeconds(bucket, ActivityKind.REM_SLEEP, rollup.getRemSleepSeconds());
+        setSeconds(bucket, ActivityKind.AWAKE_SLEEP, rollup.getAwakeSleepSeconds());
+        setSeconds(bucket, ActivityKind.NOT_WORN, rollup.getNotWornSeconds());
+        return bucket;
+    }
+
+    private static ActivityRollupCalculator.Bucket toBucket(final HourlyActivityRollup rollup) {
+        final ActivityRollupCalculator.Bucket bucket = new ActivityRollupCalculator.Bucket(rollup.getTimestamp());
+        bucket.steps = rollup.getSteps();
+        bucket.distanceCm = rollup.getDistanceCm();
+        bucket.activeCalories = rollup.getActiveCalories();
+        setSeconds(bucket, ActivityKind.ACTIVITY, rollup.getActivitySeconds());
+        setSeconds(bucket, ActivityKind.LIGHT_SLEEP, rollup.getLightSleepSeconds());
+        setSeconds(bucket, ActivityKind.DEEP_SLEEP, rollup.getDeepSleepSeconds());
+        setSeconds(bucket, ActivityKind.REM_SLEEP, rollup.getRemSleepSeconds());
+        setSeconds(bucket, ActivityKind.AWAKE_SLEEP, rollup.getAwakeSleepSeconds());
+        setSeconds(bucket, ActivityKind.NOT_WORN, rollup.getNotWornSeconds());
+        final ActivityKind leadInKind = ActivityKind.fromCode(rollup.getLeadInKind());
+        if (leadInKind != ActivityKind.UNKNOWN) {
+            bucket.hasLeadIn = true;
+            bucket.leadInSeconds = rollup.getLeadInSeconds();
+            bucket.leadInKind = leadInKind;
+            bucket.leadInPreviousKind = rollup.getLeadInPreviousKind() != null ? ActivityKind.fromCode(rollup.getLeadInPreviousKind()) : null;
+        }
+        return bucket;
+    }
+
+    private static void setSeconds(final ActivityRollupCalculator.Bucket bucket, final ActivityKind kind, final long seconds) {
+        bucket.seconds[ActivityRollupCalculator.indexOf(kind)] = seconds;
+    }
+
+    private static int startOfDay(final long timestamp) {
+        final Calendar day = Calendar.getInstance();
+        day.setTimeInMillis(timestamp * 1000L);
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        return (int) (day.getTimeInMillis() / 1000L);
+    }
+}
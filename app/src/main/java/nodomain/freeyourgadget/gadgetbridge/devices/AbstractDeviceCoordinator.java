@@ -45,6 +45,7 @@ import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.regex.Pattern;
 
 import de.greenrobot.dao.query.QueryBuilder;
@@ -58,6 +59,8 @@ import nodomain.freeyourgadget.gadgetbridge.capabilities.password.PasswordCapabi
 import nodomain.freeyourgadget.gadgetbridge.capabilities.widgets.WidgetManager;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
+import nodomain.freeyourgadget.gadgetbridge.database.DeviceIdCache;
+import nodomain.freeyourgadget.gadgetbridge.database.SampleQueryCache;
 import nodomain.freeyourgadget.gadgetbridge.entities.AlarmDao;
 import nodomain.freeyourgadget.gadgetbridge.entities.BatteryLevelDao;
 import nodomain.freeyourgadget.gadgetbridge.entities.CyclingSample;
@@ -107,17 +110,42 @@ public abstract class AbstractDeviceCoordinator implements DeviceCoordinator {
         return null;
     }
 
-    @Override
-    public boolean supports(GBDeviceCandidate candidate) {
+    /**
+     * This method may return the services of which a found device must advertise at least one
+     * to be supported by this coordinator, as an alternative or in addition to
+     * {@link #getSupportedDeviceName()}.
+     */
+    @NonNull
+    protected Collection<UUID> getSupportedServiceUuids() {
+        return Collections.emptyList();
+    }
+
+    @Nullable
+    Pattern getSupportedDeviceNamePattern() {
         if (supportedDeviceName == null) {
             supportedDeviceName = getSupportedDeviceName();
         }
-        if (supportedDeviceName == null) {
-            LOG.error("{} should either override getSupportedDeviceName or supports(GBDeviceCandidate)", getClass());
+        return supportedDeviceName;
+    }
+
+    @Override
+    public boolean supports(GBDeviceCandidate candidate) {
+        final Pattern pattern = getSupportedDeviceNamePattern();
+        final Collection<UUID> serviceUuids = getSupportedServiceUuids();
+        if (pattern == null && serviceUuids.isEmpty()) {
+            LOG.error("{} should either override getSupportedDeviceName, getSupportedServiceUuids or supports(GBDeviceCandidate)", getClass());
             return false;
         }
 
-        return supportedDeviceName.matcher(candidate.getName()).matches();
+        if (pattern != null && pattern.matcher(candidate.getName()).matches()) {
+            return true;
+        }
+        for (final UUID serviceUuid : serviceUuids) {
+            if (candidate.supportsService(serviceUuid)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -200,6 +228,8 @@ public abstract class AbstractDeviceCoordinator implements DeviceCoordinator {
                 QueryBuilder<?> alarmDeviceQueryBuilder = session.getAlarmDao().queryBuilder();
                 alarmDeviceQueryBuilder.where(AlarmDao.Properties.DeviceId.eq(device.getId())).buildDelete().executeDeleteWithoutDetachingEntities();
                 session.getDeviceDao().delete(device);
+                DeviceIdCache.invalidate(gbDevice.getAddress());
+                SampleQueryCache.invalidate(gbDevice.getAddress());
             } else {
                 LOG.info("device to delete not found in db: {}", gbDevice);
             }
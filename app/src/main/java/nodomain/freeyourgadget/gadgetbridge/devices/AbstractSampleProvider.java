@@ -17,6 +17,8 @@
     along with this program.  If not, see <https://www.gnu.org/licenses/>. */
 package nodomain.freeyourgadget.gadgetbridge.devices;
 
+import android.database.Cursor;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -40,10 +42,10 @@ import de.greenrobot.dao.query.WhereCondition;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
 import nodomain.freeyourgadget.gadgetbridge.entities.AbstractActivitySample;
 import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
-import nodomain.freeyourgadget.gadgetbridge.entities.Device;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityKind;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivitySample;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySampleColumns;
 
 /**
  * Base class for all sample providers. A Sample provider is device specific and provides
@@ -82,6 +84,72 @@ public abstract class AbstractSampleProvider<T extends AbstractActivitySample> i
         return getGBActivitySamplesHighRes(timestamp_from, timestamp_to);
     }
 
+    @NonNull
+    @Override
+    public ActivitySampleColumns getAllActivitySampleColumns(int timestamp_from, int timestamp_to) {
+        final Property[] properties = getSampleColumnProperties();
+        if (properties == null) {
+            // the samples are customized in code, they need to be loaded as entities
+            return SampleProvider.super.getAllActivitySampleColumns(timestamp_from, timestamp_to);
+        }
+
+        Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
+            // no device, no samples
+            return new ActivitySampleColumns(0);
+        }
+
+        final String[] columns = new String[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            // not stored for this device
+            columns[i] = properties[i] != null ? properties[i].columnName : String.valueOf(ActivitySample.NOT_MEASURED);
+        }
+        final String timestampColumn = getTimestampSampleProperty().columnName;
+        final String sql = "SELECT " + timestampColumn + ", " + String.join(", ", columns) +
+                " FROM " + getSampleDao().getTablename() +
+                " WHERE " + getDeviceIdentifierSampleProperty().columnName + " = ?" +
+                " AND " + timestampColumn + " >= ? AND " + timestampColumn + " <= ?" +
+                " ORDER BY " + timestampColumn;
+        final String[] args = {String.valueOf(deviceId), String.valueOf(timestamp_from), String.valueOf(timestamp_to)};
+
+        try (Cursor cursor = getSession().getDatabase().rawQuery(sql, args)) {
+            final ActivitySampleColumns ret = new ActivitySampleColumns(cursor.getCount());
+            while (cursor.moveToNext()) {
+                final int rawKind = getIntOrNotMeasured(cursor, 1);
+                final int rawIntensity = getIntOrNotMeasured(cursor, 2);
+                ret.add(
+                        cursor.getInt(0),
+                        rawKind,
+                        normalizeType(rawKind),
+                        normalizeIntensity(rawIntensity),
+                        getIntOrNotMeasured(cursor, 3),
+                        getIntOrNotMeasured(cursor, 4),
+                        getIntOrNotMeasured(cursor, 5),
+                        getIntOrNotMeasured(cursor, 6)
+                );
+            }
+            return ret;
+        }
+    }
+
+    private static int getIntOrNotMeasured(final Cursor cursor, final int index) {
+        return cursor.isNull(index) ? ActivitySample.NOT_MEASURED : cursor.getInt(index);
+    }
+
+    /**
+     * Returns the properties of the raw kind, raw intensity, steps, distance, active calories and
+     * heart rate, in this order, to read the samples directly from the database in
+     * {@link #getAllActivitySampleColumns(int, int)}. An entry is null if the value is not stored
+     * for the device.
+     * <p>
+     * Only to be overridden if the samples are loaded and normalized as is, without customizations
+     * in the provider or the sample entity. Otherwise, the samples are loaded as entities.
+     */
+    @Nullable
+    protected Property[] getSampleColumnProperties() {
+        return null;
+    }
+
     @Override
     public boolean hasHighResData() {
         return false;
@@ -101,24 +169,65 @@ public abstract class AbstractSampleProvider<T extends AbstractActivitySample> i
     @Override
     public void addGBActivitySample(T activitySample) {
         getSampleDao().insertOrReplace(activitySample);
+        onSamplesAdded(activitySample.getTimestamp(), activitySample.getTimestamp());
     }
 
     @Override
     public void addGBActivitySamples(T[] activitySamples) {
         getSampleDao().insertOrReplaceInTx(activitySamples);
+        if (activitySamples.length > 0) {
+            int tsFrom = Integer.MAX_VALUE;
+            int tsTo = Integer.MIN_VALUE;
+            for (T sample : activitySamples) {
+                tsFrom = Math.min(tsFrom, sample.getTimestamp());
+                tsTo = Math.max(tsTo, sample.getTimestamp());
+            }
+            onSamplesAdded(tsFrom, tsTo);
+        }
+    }
+
+    /**
+     * Must be called by subclasses persisting samples on their own, so that the activity
+     * rollups and cached queries of the affected days are updated.
+     * @param tsFrom the timestamp of the first added sample
+     * @param tsTo the timestamp of the last added sample
+     */
+    protected void onSamplesAdded(int tsFrom, int tsTo) {
+        DBHelper.invalidateActivityData(getSession(), getDevice(), tsFrom, tsTo);
+    }
+
+    /**
+     * Deletes the samples of the device within the given time span, e.g. the ones of an
+     * aborted transfer.
+     * @param timestamp_from the start timestamp
+     * @param timestamp_to the end timestamp
+     */
+    public void deleteSamples(int timestamp_from, int timestamp_to) {
+        Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
+            // no device, no samples
+            return;
+        }
+        getSampleDao().queryBuilder()
+                .where(getDeviceIdentifierSampleProperty().eq(deviceId),
+                        getTimestampSampleProperty().ge(timestamp_from),
+                        getTimestampSampleProperty().le(timestamp_to))
+                .buildDelete()
+                .executeDeleteWithoutDetachingEntities();
+        DBHelper.invalidateActivityData(getSession(), getDevice(), timestamp_from, timestamp_to);
     }
 
     @Nullable
     @Override
     public T getLatestActivitySample() {
         QueryBuilder<T> qb = getSampleDao().queryBuilder();
-        Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null) {
+        Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
             // no device, no sample
             return null;
         }
         Property deviceProperty = getDeviceIdentifierSampleProperty();
-        qb.where(deviceProperty.eq(dbDevice.getId())).orderDesc(getTimestampSampleProperty()).limit(1);
+        qb.where(deviceProperty.eq(deviceId)).orderDesc(getTimestampSampleProperty()).limit(1);
         List<T> samples = qb.build().list();
         if (samples.isEmpty()) {
             return null;
@@ -132,15 +241,15 @@ public abstract class AbstractSampleProvider<T extends AbstractActivitySample> i
     @Override
     public T getLatestActivitySample(final int until) {
         QueryBuilder<T> qb = getSampleDao().queryBuilder();
-        Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null) {
+        Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
             // no device, no sample
             return null;
         }
         Property deviceProperty = getDeviceIdentifierSampleProperty();
         Property timestampProperty = getTimestampSampleProperty();
         qb.where(timestampProperty.le(until))
-                .where(deviceProperty.eq(dbDevice.getId()))
+                .where(deviceProperty.eq(deviceId))
                 .orderDesc(timestampProperty).limit(1);
         List<T> samples = qb.build().list();
         if (samples.isEmpty()) {
@@ -155,13 +264,13 @@ public abstract class AbstractSampleProvider<T extends AbstractActivitySample> i
     @Override
     public T getFirstActivitySample() {
         QueryBuilder<T> qb = getSampleDao().queryBuilder();
-        Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null) {
+        Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
             // no device, no sample
             return null;
         }
         Property deviceProperty = getDeviceIdentifierSampleProperty();
-        qb.where(deviceProperty.eq(dbDevice.getId())).orderAsc(getTimestampSampleProperty()).limit(1);
+        qb.where(deviceProperty.eq(deviceId)).orderAsc(getTimestampSampleProperty()).limit(1);
         List<T> samples = qb.build().list();
         if (samples.isEmpty()) {
             return null;
@@ -180,13 +289,13 @@ public abstract class AbstractSampleProvider<T extends AbstractActivitySample> i
     protected List<T> getGBActivitySamples(int timestamp_from, int timestamp_to) {
         QueryBuilder<T> qb = getSampleDao().queryBuilder();
         Property timestampProperty = getTimestampSampleProperty();
-        Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null) {
+        Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
             // no device, no samples
             return Collections.emptyList();
         }
         Property deviceProperty = getDeviceIdentifierSampleProperty();
-        qb.where(deviceProperty.eq(dbDevice.getId()), timestampProperty.ge(timestamp_from))
+        qb.where(deviceProperty.eq(deviceId), timestampProperty.ge(timestamp_from))
             .where(timestampProperty.le(timestamp_to));
         List<T> samples = qb.build().list();
         for (T sample : samples) {
@@ -301,15 +410,15 @@ public abstract class AbstractSampleProvider<T extends AbstractActivitySample> i
 
     @Nullable
     public T getLastSampleWithStepsBefore(final int timestampTo, final Property stepsSampleProperty) {
-        final Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null) {
+        final Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
             // no device, no sample
             return null;
         }
 
         final List<T> samples = getSampleDao().queryBuilder()
                 .where(
-                        getDeviceIdentifierSampleProperty().eq(dbDevice.getId()),
+                        getDeviceIdentifierSampleProperty().eq(deviceId),
                         getTimestampSampleProperty().le(timestampTo),
                         stepsSampleProperty.gt(-1)
                 ).orderDesc(getTimestampSampleProperty())
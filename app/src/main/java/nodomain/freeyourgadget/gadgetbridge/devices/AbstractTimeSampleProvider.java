@@ -69,13 +69,13 @@ public abstract class AbstractTimeSampleProvider<T extends AbstractTimeSample> i
     public List<T> getAllSamples(final long timestampFrom, final long timestampTo) {
         final QueryBuilder<T> qb = getSampleDao().queryBuilder();
         final Property timestampProperty = getTimestampSampleProperty();
-        final Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null) {
+        final Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
             // no device, no samples
             return Collections.emptyList();
         }
         final Property deviceProperty = getDeviceIdentifierSampleProperty();
-        qb.where(deviceProperty.eq(dbDevice.getId()), timestampProperty.ge(timestampFrom))
+        qb.where(deviceProperty.eq(deviceId), timestampProperty.ge(timestampFrom))
                 .where(timestampProperty.le(timestampTo));
         final List<T> samples = qb.build().list();
         detachFromSession();
@@ -85,24 +85,44 @@ public abstract class AbstractTimeSampleProvider<T extends AbstractTimeSample> i
     @Override
     public void addSample(final T activitySample) {
         getSampleDao().insertOrReplace(activitySample);
+        onSamplesAdded(activitySample.getTimestamp(), activitySample.getTimestamp());
     }
 
     @Override
     public void addSamples(final List<T> activitySamples) {
         getSampleDao().insertOrReplaceInTx(activitySamples);
+        if (!activitySamples.isEmpty()) {
+            long tsFrom = Long.MAX_VALUE;
+            long tsTo = Long.MIN_VALUE;
+            for (final T sample : activitySamples) {
+                tsFrom = Math.min(tsFrom, sample.getTimestamp());
+                tsTo = Math.max(tsTo, sample.getTimestamp());
+            }
+            onSamplesAdded(tsFrom, tsTo);
+        }
+    }
+
+    /**
+     * The activity sample providers of many devices overlay other samples, such as sleep stages
+     * or heart rate, so the activity data of the affected days is invalidated for all of them.
+     * @param tsFrom the timestamp of the first added sample, in milliseconds
+     * @param tsTo the timestamp of the last added sample, in milliseconds
+     */
+    protected void onSamplesAdded(final long tsFrom, final long tsTo) {
+        DBHelper.invalidateActivityData(getSession(), getDevice(), (int) (tsFrom / 1000L), (int) (tsTo / 1000L));
     }
 
     @Nullable
     @Override
     public T getLatestSample() {
         final QueryBuilder<T> qb = getSampleDao().queryBuilder();
-        final Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null) {
+        final Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
             // no device, no sample
             return null;
         }
         final Property deviceProperty = getDeviceIdentifierSampleProperty();
-        qb.where(deviceProperty.eq(dbDevice.getId())).orderDesc(getTimestampSampleProperty()).limit(1);
+        qb.where(deviceProperty.eq(deviceId)).orderDesc(getTimestampSampleProperty()).limit(1);
         final List<T> samples = qb.build().list();
         if (samples.isEmpty()) {
             return null;
@@ -114,14 +134,14 @@ public abstract class AbstractTimeSampleProvider<T extends AbstractTimeSample> i
     @Override
     public T getLatestSample(final long until) {
         final QueryBuilder<T> qb = getSampleDao().queryBuilder();
-        final Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null) {
+        final Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
             // no device, no sample
             return null;
         }
         final Property deviceProperty = getDeviceIdentifierSampleProperty();
         qb.where(getTimestampSampleProperty().le(until))
-                .where(deviceProperty.eq(dbDevice.getId()))
+                .where(deviceProperty.eq(deviceId))
                 .orderDesc(getTimestampSampleProperty()).limit(1);
         final List<T> samples = qb.build().list();
         if (samples.isEmpty()) {
@@ -132,8 +152,8 @@ public abstract class AbstractTimeSampleProvider<T extends AbstractTimeSample> i
 
     @Nullable
     public T getLastSampleBefore(final long timestampTo) {
-        final Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null) {
+        final Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
             // no device, no sample
             return null;
         }
@@ -141,7 +161,7 @@ public abstract class AbstractTimeSampleProvider<T extends AbstractTimeSample> i
         final Property deviceIdSampleProp = getDeviceIdentifierSampleProperty();
         final Property timestampSampleProp = getTimestampSampleProperty();
         final List<T> samples = getSampleDao().queryBuilder()
-                .where(deviceIdSampleProp.eq(dbDevice.getId()),
+                .where(deviceIdSampleProp.eq(deviceId),
                         timestampSampleProp.le(timestampTo))
                 .orderDesc(getTimestampSampleProperty())
                 .limit(1)
@@ -152,8 +172,8 @@ public abstract class AbstractTimeSampleProvider<T extends AbstractTimeSample> i
 
     @Nullable
     public T getNextSampleAfter(final long timestampFrom) {
-        final Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null) {
+        final Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
             // no device, no sample
             return null;
         }
@@ -161,7 +181,7 @@ public abstract class AbstractTimeSampleProvider<T extends AbstractTimeSample> i
         final Property deviceIdSampleProp = getDeviceIdentifierSampleProperty();
         final Property timestampSampleProp = getTimestampSampleProperty();
         final List<T> samples = getSampleDao().queryBuilder()
-                .where(deviceIdSampleProp.eq(dbDevice.getId()),
+                .where(deviceIdSampleProp.eq(deviceId),
                         timestampSampleProp.ge(timestampFrom))
                 .orderAsc(getTimestampSampleProperty())
                 .limit(1)
@@ -174,13 +194,13 @@ public abstract class AbstractTimeSampleProvider<T extends AbstractTimeSample> i
     @Override
     public T getFirstSample() {
         final QueryBuilder<T> qb = getSampleDao().queryBuilder();
-        final Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null) {
+        final Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
             // no device, no sample
             return null;
         }
         final Property deviceProperty = getDeviceIdentifierSampleProperty();
-        qb.where(deviceProperty.eq(dbDevice.getId())).orderAsc(getTimestampSampleProperty()).limit(1);
+        qb.where(deviceProperty.eq(deviceId)).orderAsc(getTimestampSampleProperty()).limit(1);
         final List<T> samples = qb.build().list();
         if (samples.isEmpty()) {
             return null;
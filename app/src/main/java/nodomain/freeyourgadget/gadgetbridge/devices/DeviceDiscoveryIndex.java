@@ -0,0 +1,251 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.devices;
+
+import android.os.ParcelUuid;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import nodomain.freeyourgadget.gadgetbridge.impl.GBDeviceCandidate;
+import nodomain.freeyourgadget.gadgetbridge.model.DeviceType;
+
+/**
+ * Resolves the device type of a discovered device without asking every coordinator.
+ * <p>
+ * The device types are indexed by the literal prefixes of their supported device name patterns
+ * and by their supported service uuids. Only the coordinators of the device types found in the
+ * index for the name and services of a candidate, and the ones that implement a custom
+ * {@link DeviceCoordinator#supports(GBDeviceCandidate)} or whose pattern has no literal prefix,
+ * are asked whether they support it, in the order of their priority. The result is therefore
+ * the same as asking every coordinator in that order.
+ */
+public class DeviceDiscoveryIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(DeviceDiscoveryIndex.class);
+
+    private static final String REGEX_META_CHARACTERS = "\\.[](){}*+?^$|";
+
+    // sorted by priority, the bits of the sets below are indexes into this array
+    private final DeviceType[] orderedDeviceTypes;
+    private final NameNode names = new NameNode();
+    // lower case prefixes of the case insensitive patterns
+    private final NameNode namesIgnoreCase = new NameNode();
+    private final Map<UUID, BitSet> services = new HashMap<>();
+    private final BitSet unindexed = new BitSet();
+
+    public DeviceDiscoveryIndex(final DeviceType[] deviceTypes) {
+        orderedDeviceTypes = Arrays.copyOf(deviceTypes, deviceTypes.length);
+        // stable, so device types of the same priority keep their declaration order
+        Arrays.sort(orderedDeviceTypes, Comparator.comparingInt(type -> type.getDeviceCoordinator().getOrderPriority()));
+
+        for (int i = 0; i < orderedDeviceTypes.length; i++) {
+            final DeviceCoordinator coordinator = orderedDeviceTypes[i].getDeviceCoordinator();
+            if (!(coordinator instanceof AbstractDeviceCoordinator) || overridesSupports(coordinator)) {
+                unindexed.set(i);
+                continue;
+            }
+
+            final AbstractDeviceCoordinator abstractCoordinator = (AbstractDeviceCoordinator) coordinator;
+            final Pattern pattern = abstractCoordinator.getSupportedDeviceNamePattern();
+            final Collection<UUID> serviceUuids = abstractCoordinator.getSupportedServiceUuids();
+            if (pattern == null && serviceUuids.isEmpty()) {
+                LOG.error("{} should either override getSupportedDeviceName, getSupportedServiceUuids or supports(GBDeviceCandidate)", coordinator.getClass());
+                continue;
+            }
+
+            if (pattern != null) {
+                final List<String> prefixes = getLiteralPrefixes(pattern);
+                if (prefixes == null) {
+                    unindexed.set(i);
+                    continue;
+                }
+                final boolean ignoreCase = (pattern.flags() & Pattern.CASE_INSENSITIVE) != 0;
+                for (final String prefix : prefixes) {
+                    (ignoreCase ? namesIgnoreCase : names).add(prefix, ignoreCase, i);
+                }
+            }
+            for (final UUID serviceUuid : serviceUuids) {
+                BitSet types = services.get(serviceUuid);
+                if (types == null) {
+                    types = new BitSet();
+                    services.put(serviceUuid, types);
+                }
+                types.set(i);
+            }
+        }
+
+        LOG.debug("Indexed {} device types, {} need to be checked for every device", orderedDeviceTypes.length, unindexed.cardinality());
+    }
+
+    @NonNull
+    public DeviceType resolve(final GBDeviceCandidate candidate) {
+        final BitSet candidates = (BitSet) unindexed.clone();
+        names.collect(candidate.getName(), false, candidates);
+        namesIgnoreCase.collect(candidate.getName(), true, candidates);
+        final ParcelUuid[] serviceUuids = candidate.getServiceUuids();
+        if (serviceUuids != null) {
+            for (final ParcelUuid serviceUuid : serviceUuids) {
+                if (serviceUuid == null) {
+                    continue;
+                }
+                final BitSet types = services.get(serviceUuid.getUuid());
+                if (types != null) {
+                    candidates.or(types);
+                }
+            }
+        }
+
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (orderedDeviceTypes[i].getDeviceCoordinator().supports(candidate)) {
+                return orderedDeviceTypes[i];
+            }
+        }
+        return DeviceType.UNKNOWN;
+    }
+
+    private static boolean overridesSupports(final DeviceCoordinator coordinator) {
+        try {
+            return coordinator.getClass().getMethod("supports", GBDeviceCandidate.class).getDeclaringClass() != AbstractDeviceCoordinator.class;
+        } catch (final NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Determines the literal prefixes of which a name matching the pattern must start with one.
+     *
+     * @return the prefixes, or null if some names matching the pattern may not start with a
+     * literal prefix
+     */
+    @Nullable
+    static List<String> getLiteralPrefixes(final Pattern pattern) {
+        if ((pattern.flags() & ~Pattern.CASE_INSENSITIVE) != 0) {
+            // with UNICODE_CASE, characters may match that are not equal when lower cased
+            return null;
+        }
+
+        final List<String> prefixes = new ArrayList<>();
+        for (final String alternative : splitAlternatives(pattern.pattern())) {
+            final String prefix = getLiteralPrefix(alternative);
+            if (prefix.isEmpty()) {
+                return null;
+            }
+            prefixes.add(prefix);
+        }
+        return prefixes;
+    }
+
+    /**
+     * Splits the regex at the alternations that are not within a group or character class.
+     */
+    private static List<String> splitAlternatives(final String regex) {
+        final List<String> alternatives = new ArrayList<>();
+        int depth = 0;
+        boolean inCharacterClass = false;
+        int start = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inCharacterClass) {
+                inCharacterClass = c != ']';
+            } else if (c == '[') {
+                inCharacterClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                alternatives.add(regex.substring(start, i));
+                start = i + 1;
+            }
+        }
+        alternatives.add(regex.substring(start));
+        return alternatives;
+    }
+
+    private static String getLiteralPrefix(final String alternative) {
+        int i = alternative.startsWith("^") ? 1 : 0;
+        final StringBuilder prefix = new StringBuilder();
+        for (; i < alternative.length(); i++) {
+            final char c = alternative.charAt(i);
+            if (REGEX_META_CHARACTERS.indexOf(c) >= 0) {
+                break;
+            }
+            prefix.append(c);
+        }
+        if (prefix.length() > 0 && i < alternative.length() && "*?{".indexOf(alternative.charAt(i)) >= 0) {
+            // the last character may not be there at all
+            prefix.setLength(prefix.length() - 1);
+        }
+        return prefix.toString();
+    }
+
+    private static final class NameNode {
+        private final Map<Character, NameNode> children = new HashMap<>();
+        @Nullable
+        private BitSet deviceTypes;
+
+        void add(final String prefix, final boolean ignoreCase, final int deviceType) {
+            NameNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                final char c = ignoreCase ? Character.toLowerCase(prefix.charAt(i)) : prefix.charAt(i);
+                NameNode child = node.children.get(c);
+                if (child == null) {
+                    child = new NameNode();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            if (node.deviceTypes == null) {
+                node.deviceTypes = new BitSet();
+            }
+            node.deviceTypes.set(deviceType);
+        }
+
+        /**
+         * Adds the device types of all prefixes of the name to the result.
+         */
+        void collect(final String name, final boolean ignoreCase, final BitSet result) {
+            NameNode node = this;
+            for (int i = 0; i < name.length(); i++) {
+                final char c = name.charAt(i);
+                node = node.children.get(ignoreCase ? Character.toLowerCase(c) : c);
+                if (node == null) {
+                    return;
+                }
+                if (node.deviceTypes != null) {
+                    result.or(node.deviceTypes);
+                }
+            }
+        }
+    }
+}
@@ -23,6 +23,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import nodomain.freeyourgadget.gadgetbridge.entities.AbstractActivitySample;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityKind;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySampleColumns;
 
 /**
  * Interface to retrieve samples from the database, and also create and add samples to the database.
@@ -62,6 +63,15 @@ public interface SampleProvider<T extends AbstractActivitySample> {
      */
     List<T> getAllActivitySamplesHighRes(int timestamp_from, int timestamp_to);
 
+    /**
+     * Same as {@link #getAllActivitySamples(int, int)}, but returns the samples as primitive
+     * columns, which is much more compact for long ranges.
+     */
+    @NonNull
+    default ActivitySampleColumns getAllActivitySampleColumns(int timestamp_from, int timestamp_to) {
+        return ActivitySampleColumns.of(getAllActivitySamples(timestamp_from, timestamp_to));
+    }
+
     /**
      * Specifies that the sample provider has higher resolution data. Set to true if the sample
      * provider can provide more than one sample a minute.
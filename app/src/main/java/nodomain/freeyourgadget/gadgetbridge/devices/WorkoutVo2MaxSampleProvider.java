@@ -37,7 +37,6 @@ import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
 import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummary;
 import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummaryDao;
 import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
-import nodomain.freeyourgadget.gadgetbridge.entities.Device;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityKind;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivitySummaryData;
@@ -64,8 +63,8 @@ public class WorkoutVo2MaxSampleProvider implements Vo2MaxSampleProvider<Vo2MaxS
     @Override
     public List<Vo2MaxSample> getAllSamples(final long timestampFrom, final long timestampTo) {
         final BaseActivitySummaryDao summaryDao = session.getBaseActivitySummaryDao();
-        final Device dbDevice = DBHelper.findDevice(device, session);
-        if (dbDevice == null) {
+        final Long deviceId = DBHelper.findDeviceId(device, session);
+        if (deviceId == null) {
             // no device, no samples
             return Collections.emptyList();
         }
@@ -73,7 +72,7 @@ public class WorkoutVo2MaxSampleProvider implements Vo2MaxSampleProvider<Vo2MaxS
         final DeviceCoordinator coordinator = device.getDeviceCoordinator();
 
         final QueryBuilder<BaseActivitySummary> qb = summaryDao.queryBuilder();
-        qb.where(BaseActivitySummaryDao.Properties.DeviceId.eq(dbDevice.getId()))
+        qb.where(BaseActivitySummaryDao.Properties.DeviceId.eq(deviceId))
                 .where(BaseActivitySummaryDao.Properties.StartTime.gt(new Date(timestampFrom)))
                 .where(BaseActivitySummaryDao.Properties.StartTime.lt(new Date(timestampTo)))
                 .orderAsc(BaseActivitySummaryDao.Properties.StartTime);
@@ -107,8 +106,8 @@ public class WorkoutVo2MaxSampleProvider implements Vo2MaxSampleProvider<Vo2MaxS
     @Override
     public Vo2MaxSample getLatestSample(final Vo2MaxSample.Type type, final long until) {
         final BaseActivitySummaryDao summaryDao = session.getBaseActivitySummaryDao();
-        final Device dbDevice = DBHelper.findDevice(device, session);
-        if (dbDevice == null) {
+        final Long deviceId = DBHelper.findDeviceId(device, session);
+        if (deviceId == null) {
             // no device, no samples
             return null;
         }
@@ -122,7 +121,7 @@ public class WorkoutVo2MaxSampleProvider implements Vo2MaxSampleProvider<Vo2MaxS
             qb.where(BaseActivitySummaryDao.Properties.StartTime.le(new Date(until)));
         }
 
-        qb.where(BaseActivitySummaryDao.Properties.DeviceId.eq(dbDevice.getId()))
+        qb.where(BaseActivitySummaryDao.Properties.DeviceId.eq(deviceId))
                 .orderDesc(BaseActivitySummaryDao.Properties.StartTime)
                 .limit(1);
 
@@ -183,14 +182,14 @@ public class WorkoutVo2MaxSampleProvider implements Vo2MaxSampleProvider<Vo2MaxS
     @Override
     public Vo2MaxSample getFirstSample() {
         final BaseActivitySummaryDao summaryDao = session.getBaseActivitySummaryDao();
-        final Device dbDevice = DBHelper.findDevice(device, session);
-        if (dbDevice == null) {
+        final Long deviceId = DBHelper.findDeviceId(device, session);
+        if (deviceId == null) {
             // no device, no samples
             return null;
         }
 
         final QueryBuilder<BaseActivitySummary> qb = summaryDao.queryBuilder();
-        qb.where(BaseActivitySummaryDao.Properties.DeviceId.eq(dbDevice.getId()))
+        qb.where(BaseActivitySummaryDao.Properties.DeviceId.eq(deviceId))
                 .orderAsc(BaseActivitySummaryDao.Properties.StartTime)
                 .limit(1);
 
@@ -29,6 +29,7 @@ import androidx.annotation.Nullable;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.UUID;
 
 import nodomain.freeyourgadget.gadgetbridge.GBException;
 import nodomain.freeyourgadget.gadgetbridge.R;
@@ -39,7 +40,6 @@ import nodomain.freeyourgadget.gadgetbridge.devices.binary_sensor.activity.DataA
 import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
 import nodomain.freeyourgadget.gadgetbridge.entities.Device;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
-import nodomain.freeyourgadget.gadgetbridge.impl.GBDeviceCandidate;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivitySample;
 import nodomain.freeyourgadget.gadgetbridge.model.DeviceType;
 import nodomain.freeyourgadget.gadgetbridge.service.DeviceSupport;
@@ -63,13 +63,8 @@ public class BinarySensorCoordinator extends AbstractBLEDeviceCoordinator {
 
     @NonNull
     @Override
-    public boolean supports(GBDeviceCandidate candidate) {
-        for(ParcelUuid service : candidate.getServiceUuids()){
-            if(service.getUuid().toString().equals(BinarySensorSupport.BINARY_SENSOR_SERVICE_UUID)){
-                return true;
-            };
-        }
-        return false;
+    protected Collection<UUID> getSupportedServiceUuids() {
+        return Collections.singletonList(UUID.fromString(BinarySensorSupport.BINARY_SENSOR_SERVICE_UUID));
     }
 
     @Override
@@ -6,6 +6,10 @@ import android.net.Uri;
 
 import androidx.annotation.NonNull;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+
 import nodomain.freeyourgadget.gadgetbridge.GBException;
 import nodomain.freeyourgadget.gadgetbridge.R;
 import nodomain.freeyourgadget.gadgetbridge.devices.AbstractBLEDeviceCoordinator;
@@ -18,7 +22,6 @@ import nodomain.freeyourgadget.gadgetbridge.entities.CyclingSampleDao;
 import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
 import nodomain.freeyourgadget.gadgetbridge.entities.Device;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
-import nodomain.freeyourgadget.gadgetbridge.impl.GBDeviceCandidate;
 import nodomain.freeyourgadget.gadgetbridge.service.DeviceSupport;
 import nodomain.freeyourgadget.gadgetbridge.service.devices.cycling_sensor.support.CyclingSensorSupport;
 
@@ -32,9 +35,10 @@ public class CyclingSensorCoordinator extends AbstractBLEDeviceCoordinator {
                 .buildDelete().executeDeleteWithoutDetachingEntities();
     }
 
+    @NonNull
     @Override
-    public boolean supports(GBDeviceCandidate candidate) {
-        return candidate.supportsService(CyclingSensorSupport.UUID_CYCLING_SENSOR_SERVICE);
+    protected Collection<UUID> getSupportedServiceUuids() {
+        return Collections.singletonList(CyclingSensorSupport.UUID_CYCLING_SENSOR_SERVICE);
     }
 
     @Override
@@ -31,31 +31,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Alarms;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.AccountRelated;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.App;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Calls;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.CameraRemote;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Contacts;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.DataSync;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Earphones;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.EphemerisFileUpload;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.FileDownloadService0A;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.FileDownloadService2C;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.GpsAndTime;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.HrRriTest;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.OTA;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.P2P;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Watchface;
 import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Weather;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Workout;
 import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.DeviceConfig;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.FindPhone;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.FitnessData;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.MusicControl;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Notifications;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.FileUpload;
-import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Ephemeris;
 import nodomain.freeyourgadget.gadgetbridge.util.CheckSums;
 
 public class HuaweiPacket {
@@ -406,8 +383,16 @@ public class HuaweiPacket {
             }
         }
 
-        this.serviceId = newPayload[0];
-        this.commandId = newPayload[1];
+        parseCompletePayload(newPayload);
+    }
+
+    private void parseCompletePayload(byte[] data) throws ParseException {
+        if (data.length < 2) {
+            throw new LengthMismatchException("Payload length mismatch : " + data.length + " < 2");
+        }
+
+        this.serviceId = data[0];
+        this.commandId = data[1];
         this.complete = true;
 
         if (
@@ -417,12 +402,12 @@ public class HuaweiPacket {
                 (serviceId == 0x1c && commandId == 0x05)
         ) {
             // TODO: this doesn't seem to be TLV
-            this.payload = newPayload;
+            this.payload = data;
             return;
         }
 
         this.tlv = new HuaweiTLV();
-        this.tlv.parse(newPayload, 2, newPayload.length - 2);
+        this.tlv.parse(data, 2, data.length - 2);
     }
 
     public HuaweiPacket parse(byte[] data) throws ParseException {
@@ -432,374 +417,29 @@ public class HuaweiPacket {
         if (!this.complete)
             return this;
 
-        switch (this.serviceId) {
-            case DeviceConfig.id:
-                switch (this.commandId) {
-                    case DeviceConfig.LinkParams.id:
-                        return new DeviceConfig.LinkParams.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.SupportedServices.id:
-                        return new DeviceConfig.SupportedServices.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.SupportedCommands.id:
-                        return new DeviceConfig.SupportedCommands.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.TimeRequest.id:
-                        return new DeviceConfig.TimeRequest.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.ProductInfo.id:
-                        return new DeviceConfig.ProductInfo.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.BondParams.id:
-                        return new DeviceConfig.BondParams.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.PhoneInfo.id:
-                        return new DeviceConfig.PhoneInfo.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.Auth.id:
-                        return new DeviceConfig.Auth.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.BatteryLevel.id:
-                    case DeviceConfig.BatteryLevel.id_change:
-                        return new DeviceConfig.BatteryLevel.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.DeviceStatus.id:
-                        return new DeviceConfig.DeviceStatus.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.DndLiftWristType.id:
-                        return new DeviceConfig.DndLiftWristType.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.GetDefaultSwitch.id:
-                        return new DeviceConfig.GetDefaultSwitch.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.HiChain.id:
-                        return new DeviceConfig.HiChain.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.PinCode.id:
-                        return new DeviceConfig.PinCode.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.ExpandCapability.id:
-                        return new DeviceConfig.ExpandCapability.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.ActivityType.id:
-                        return new DeviceConfig.ActivityType.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.SettingRelated.id:
-                        return new DeviceConfig.SettingRelated.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.PermissionCheck.id:
-                        return new DeviceConfig.PermissionCheck.PermissionCheckRequest(paramsProvider).fromPacket(this);
-                    case DeviceConfig.SecurityNegotiation.id:
-                        return new DeviceConfig.SecurityNegotiation.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.WearStatus.id:
-                        return new DeviceConfig.WearStatus.Response(paramsProvider).fromPacket(this);
-                    case DeviceConfig.ReverseCapabilities.id:
-                        return new DeviceConfig.ReverseCapabilities.Response(paramsProvider).fromPacket(this);
-
-                    // Camera remote has same ID as DeviceConfig
-                    case CameraRemote.CameraRemoteStatus.id:
-                        return new CameraRemote.CameraRemoteStatus.Response(paramsProvider).fromPacket(this);
+        return fromCompletePacket();
+    }
 
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case Notifications.id:
-                switch (this.commandId) {
-                    case Notifications.NotificationConstraints.id:
-                        return new Notifications.NotificationConstraints.Response(paramsProvider).fromPacket(this);
-                    case Notifications.NotificationCapabilities.id:
-                        return new Notifications.NotificationCapabilities.Response(paramsProvider).fromPacket(this);
-                    case Notifications.NotificationReply.id:
-                        return new Notifications.NotificationReply.ReplyResponse(paramsProvider).fromPacket(this);
-                    default:
-                        return this;
-                }
-            case Contacts.id:
-                switch (this.commandId) {
-                    case Contacts.ContactsSet.id:
-                        return new Contacts.ContactsSet.Response(paramsProvider).fromPacket(this);
-                    case Contacts.ContactsCount.id:
-                        return new Contacts.ContactsCount.Response(paramsProvider).fromPacket(this);
-                }
-                this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                return this;
-            case Calls.id:
-                if (this.commandId == Calls.AnswerCallResponse.id)
-                    return new Calls.AnswerCallResponse(paramsProvider).fromPacket(this);
-                this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                return this;
-            case FitnessData.id:
-                switch (this.commandId) {
-                    case FitnessData.FitnessTotals.id:
-                        return new FitnessData.FitnessTotals.Response(paramsProvider).fromPacket(this);
-                    case FitnessData.MessageCount.stepId:
-                        return new FitnessData.MessageCount.Response(paramsProvider).fromPacket(this);
-                    case FitnessData.MessageData.stepId:
-                        return new FitnessData.MessageData.StepResponse(paramsProvider).fromPacket(this);
-                    case FitnessData.MessageCount.sleepId:
-                        return new FitnessData.MessageCount.Response(paramsProvider).fromPacket(this);
-                    case FitnessData.MessageData.sleepId:
-                        return new FitnessData.MessageData.SleepResponse(paramsProvider).fromPacket(this);
-                    case FitnessData.RunPaceConfig.id:
-                        return new FitnessData.RunPaceConfig.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case Alarms.id:
-                switch (this.commandId) {
-                    case Alarms.EventAlarmsList.id:
-                        return new Alarms.EventAlarmsList.Response(paramsProvider).fromPacket(this);
-                    case Alarms.SmartAlarmList.id:
-                        return new Alarms.SmartAlarmList.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case FileDownloadService0A.id:
-                switch (this.commandId) {
-                    case FileDownloadService0A.FileDownloadInit.id:
-                        return new FileDownloadService0A.FileDownloadInit.Response(paramsProvider).fromPacket(this);
-                    case FileDownloadService0A.FileParameters.id:
-                        return new FileDownloadService0A.FileParameters.Response(paramsProvider).fromPacket(this);
-                    case FileDownloadService0A.FileInfo.id:
-                        return new FileDownloadService0A.FileInfo.Response(paramsProvider).fromPacket(this);
-                    case FileDownloadService0A.RequestBlock.id:
-                        return new FileDownloadService0A.RequestBlock.Response(paramsProvider).fromPacket(this);
-                    case FileDownloadService0A.BlockResponse.id:
-                        return new FileDownloadService0A.BlockResponse(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt();
-                        return this;
-                }
-            case FindPhone.id:
-                if (this.commandId == FindPhone.Response.id)
-                    return new FindPhone.Response(paramsProvider).fromPacket(this);
-                this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                return this;
-            case Weather.id:
-                switch (this.commandId) {
-                    case Weather.WeatherSupport.id:
-                        return new Weather.WeatherSupport.Response(paramsProvider).fromPacket(this);
-                    case Weather.WeatherExtendedSupport.id:
-                        return new Weather.WeatherExtendedSupport.Response(paramsProvider).fromPacket(this);
-                    case Weather.WeatherStart.id:
-                        return new Weather.WeatherStart.Response(paramsProvider).fromPacket(this);
-                    case Weather.WeatherSunMoonSupport.id:
-                        return new Weather.WeatherSunMoonSupport.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case Workout.id:
-                switch (this.commandId) {
-                    case Workout.WorkoutCount.id:
-                        return new Workout.WorkoutCount.Response(paramsProvider).fromPacket(this);
-                    case Workout.WorkoutTotals.id:
-                        return new Workout.WorkoutTotals.Response(paramsProvider).fromPacket(this);
-                    case Workout.WorkoutData.id:
-                        return new Workout.WorkoutData.Response(paramsProvider).fromPacket(this);
-                    case Workout.WorkoutPace.id:
-                        return new Workout.WorkoutPace.Response(paramsProvider).fromPacket(this);
-                    case Workout.WorkoutSwimSegments.id:
-                        return new Workout.WorkoutSwimSegments.Response(paramsProvider).fromPacket(this);
-                    case Workout.WorkoutSpO2.id:
-                        return new Workout.WorkoutSpO2.Response(paramsProvider).fromPacket(this);
-                    case Workout.WorkoutCapability.id:
-                        return new Workout.WorkoutCapability.Response(paramsProvider).fromPacket(this);
-                    case Workout.WorkoutSections.id:
-                        return new Workout.WorkoutSections.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case GpsAndTime.id:
-                switch (this.commandId) {
-                    case GpsAndTime.GpsParameters.id:
-                        return new GpsAndTime.GpsParameters.Response(paramsProvider).fromPacket(this);
-                    case GpsAndTime.GpsStatus.id:
-                        return new GpsAndTime.GpsStatus.Response(paramsProvider).fromPacket(this);
-                    case GpsAndTime.GpsData.id:
-                        return new GpsAndTime.GpsData.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case HrRriTest.id:
-                switch (this.commandId) {
-                    case HrRriTest.RriData.id:
-                        return new HrRriTest.RriData.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case MusicControl.id:
-                switch (this.commandId) {
-                    case MusicControl.MusicStatusResponse.id:
-                        return new MusicControl.MusicStatusResponse(paramsProvider).fromPacket(this);
-                    case MusicControl.MusicInfo.id:
-                        return new MusicControl.MusicInfo.Response(paramsProvider).fromPacket(this);
-                    case MusicControl.Control.id:
-                        return new MusicControl.Control.Response(paramsProvider).fromPacket(this);
-                    case MusicControl.MusicInfoParams.id:
-                        return new MusicControl.MusicInfoParams.Response(paramsProvider).fromPacket(this);
-                    case MusicControl.MusicList.id:
-                        return new MusicControl.MusicList.Response(paramsProvider).fromPacket(this);
-                    case MusicControl.MusicPlaylists.id:
-                        return new MusicControl.MusicPlaylists.Response(paramsProvider).fromPacket(this);
-                    case MusicControl.MusicPlaylistMusics.id:
-                        return new MusicControl.MusicPlaylistMusics.Response(paramsProvider).fromPacket(this);
-                    case MusicControl.MusicOperation.id:
-                        return new MusicControl.MusicOperation.Response(paramsProvider).fromPacket(this);
-                    case MusicControl.UploadMusicFileInfo.id:
-                        return new MusicControl.UploadMusicFileInfo.UploadMusicFileInfoRequest(paramsProvider).fromPacket(this);
-                    case MusicControl.ExtendedMusicInfoParams.id:
-                        return new MusicControl.ExtendedMusicInfoParams.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case AccountRelated.id:
-                switch(this.commandId) {
-                    case AccountRelated.SendAccountToDevice.id:
-                        return new AccountRelated.SendAccountToDevice.Response(paramsProvider).fromPacket(this);
-                    case AccountRelated.SendExtendedAccountToDevice.id:
-                        return new AccountRelated.SendExtendedAccountToDevice.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case FileUpload.id:
-                switch(this.commandId) {
-                    case FileUpload.FileInfoSend.id:
-                        return new FileUpload.FileInfoSend.Response(paramsProvider).fromPacket(this);
-                    case FileUpload.FileHashSend.id:
-                        return new FileUpload.FileHashSend.Response(paramsProvider).fromPacket(this);
-                    case FileUpload.FileUploadConsultAck.id:
-                        return new FileUpload.FileUploadConsultAck.Response(paramsProvider).fromPacket(this);
-                    case FileUpload.FileNextChunkParams.id:
-                        return new FileUpload.FileNextChunkParams(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case Watchface.id:
-                switch (this.commandId) {
-                    case Watchface.WatchfaceParams.id:
-                        return new Watchface.WatchfaceParams.Response(paramsProvider).fromPacket(this);
-                    case Watchface.DeviceWatchInfo.id:
-                        return new Watchface.DeviceWatchInfo.Response(paramsProvider).fromPacket(this);
-                    case Watchface.WatchfaceConfirm.id:
-                        return new Watchface.WatchfaceConfirm.Response(paramsProvider).fromPacket(this);
-                    case Watchface.WatchfaceNameInfo.id:
-                        return new Watchface.WatchfaceNameInfo.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case Earphones.id:
-                switch (this.commandId) {
-                    case Earphones.InEarStateResponse.id:
-                        return new Earphones.InEarStateResponse(paramsProvider).fromPacket(this);
-                    case Earphones.GetAudioModeRequest.id:
-                        return new Earphones.GetAudioModeRequest.Response(paramsProvider).fromPacket(this);
-                }
-            case FileDownloadService2C.id:
-                switch (this.commandId) {
-                    case FileDownloadService2C.FileDownloadInit.id:
-                        return new FileDownloadService2C.FileDownloadInit.Response(paramsProvider).fromPacket(this);
-                    case FileDownloadService2C.FileRequestHash.id:
-                        return new FileDownloadService2C.FileRequestHash.Response(paramsProvider).fromPacket(this);
-                    case FileDownloadService2C.FileInfo.id:
-                        return new FileDownloadService2C.FileInfo.Response(paramsProvider).fromPacket(this);
-                    case FileDownloadService2C.BlockResponse.id:
-                        return new FileDownloadService2C.BlockResponse(paramsProvider).fromPacket(this);
-                    case FileDownloadService2C.IncomingInitRequest.id:
-                        return new FileDownloadService2C.IncomingInitRequest.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case App.id:
-                switch (this.commandId) {
-                    case App.AppNames.id:
-                        return new App.AppNames.Response(paramsProvider).fromPacket(this);
-                    case App.AppInfoParams.id:
-                        return new App.AppInfoParams.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case P2P.id:
-                    switch (this.commandId) {
-                        case P2P.P2PCommand.id:
-                            return new P2P.P2PCommand.Response(paramsProvider).fromPacket(this);
-                        default:
-                            this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                            return this;
-                    }
-            case Ephemeris.id:
-                switch (this.commandId) {
-                    case Ephemeris.OperatorData.id:
-                        return new Ephemeris.OperatorData.OperatorIncomingRequest(paramsProvider).fromPacket(this);
-                    case Ephemeris.ParameterConsult.id:
-                        return new Ephemeris.ParameterConsult.Response(paramsProvider).fromPacket(this);
-                    case Ephemeris.FileStatus.id:
-                        return new Ephemeris.FileStatus.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case EphemerisFileUpload.id:
-                switch (this.commandId) {
-                    case EphemerisFileUpload.FileList.id:
-                        return new EphemerisFileUpload.FileList.FileListIncomingRequest(paramsProvider).fromPacket(this);
-                    case EphemerisFileUpload.FileConsult.id:
-                        return new EphemerisFileUpload.FileConsult.FileConsultIncomingRequest(paramsProvider).fromPacket(this);
-                    case EphemerisFileUpload.QuerySingleFileInfo.id:
-                        return new EphemerisFileUpload.QuerySingleFileInfo.QuerySingleFileInfoIncomingRequest(paramsProvider).fromPacket(this);
-                    case EphemerisFileUpload.DataRequest.id:
-                        return new EphemerisFileUpload.DataRequest.DataRequestIncomingRequest(paramsProvider).fromPacket(this);
-                    case EphemerisFileUpload.UploadData.id:
-                        return new EphemerisFileUpload.UploadData.UploadDataResponse(paramsProvider).fromPacket(this);
-                    case EphemerisFileUpload.UploadDone.id:
-                        return new EphemerisFileUpload.UploadDone.UploadDoneIncomingRequest(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case DataSync.id:
-                switch (this.commandId) {
-                    case DataSync.ConfigCommand.id:
-                        return new DataSync.ConfigCommand.Response(paramsProvider).fromPacket(this);
-                    case DataSync.EventCommand.id:
-                        return new DataSync.EventCommand.Response(paramsProvider).fromPacket(this);
-                    case DataSync.DataCommand.id:
-                        return new DataSync.DataCommand.Response(paramsProvider).fromPacket(this);
-                    case DataSync.DictDataCommand.id:
-                        return new DataSync.DictDataCommand.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            case OTA.id:
-                switch (this.commandId) {
-                    case OTA.StartQuery.id:
-                        return new OTA.StartQuery.Response(paramsProvider).fromPacket(this);
-                    case OTA.DataParams.id:
-                        return new OTA.DataParams.Response(paramsProvider).fromPacket(this);
-                    case OTA.DataChunkRequest.id:
-                        return new OTA.DataChunkRequest.Response(paramsProvider).fromPacket(this);
-                    case OTA.SizeReport.id:
-                        return new OTA.SizeReport.Response(paramsProvider).fromPacket(this);
-                    case OTA.UpdateResult.id:
-                        return new OTA.UpdateResult.Response(paramsProvider).fromPacket(this);
-                    case OTA.DeviceError.id:
-                        return new OTA.DeviceError.Response(paramsProvider).fromPacket(this);
-                    case OTA.SetAutoUpdate.id:
-                        return new OTA.SetAutoUpdate.Response(paramsProvider).fromPacket(this);
-                    case OTA.NotifyNewVersion.id:
-                        return new OTA.NotifyNewVersion.Response(paramsProvider).fromPacket(this);
-                    case OTA.DeviceRequest.id:
-                        return new OTA.DeviceRequest.Response(paramsProvider).fromPacket(this);
-                    case OTA.GetMode.id:
-                        return new OTA.GetMode.Response(paramsProvider).fromPacket(this);
-                    case OTA.SetChangeLog.id:
-                        return new OTA.SetChangeLog.Response(paramsProvider).fromPacket(this);
-                    case OTA.GetChangeLog.id:
-                        return new OTA.GetChangeLog.Response(paramsProvider).fromPacket(this);
-                    default:
-                        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                        return this;
-                }
-            default:
-                this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
-                return this;
-        }
+    /**
+     * Parses a complete payload, as reassembled by the {@link HuaweiStreamReassembler}.
+     * The data is not referenced after this call returns.
+     */
+    public HuaweiPacket parsePayload(byte[] data, int offset, int length) throws ParseException {
+        this.isEncrypted = false; // Will be changed if decrypt has been performed
+
+        // The TLV values are views on the payload, so it must not change afterwards
+        parseCompletePayload(Arrays.copyOfRange(data, offset, offset + length));
+
+        return fromCompletePacket();
+    }
+
+    private HuaweiPacket fromCompletePacket() throws ParseException {
+        HuaweiResponseRegistry.Factory factory = HuaweiResponseRegistry.get(this.serviceId, this.commandId);
+        if (factory != null)
+            return factory.create(paramsProvider).fromPacket(this);
+
+        this.isEncrypted = this.attemptDecrypt(); // Helps with debugging
+        return this;
     }
 
     public HuaweiPacket parseOutgoing(byte[] data) throws ParseException {
@@ -0,0 +1,223 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.devices.huawei;
+
+import androidx.annotation.Nullable;
+
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.AccountRelated;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Alarms;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.App;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Calls;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.CameraRemote;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Contacts;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.DataSync;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.DeviceConfig;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Earphones;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Ephemeris;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.EphemerisFileUpload;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.FileDownloadService0A;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.FileDownloadService2C;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.FileUpload;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.FindPhone;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.FitnessData;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.GpsAndTime;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.HrRriTest;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.MusicControl;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Notifications;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.OTA;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.P2P;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Watchface;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Weather;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.packets.Workout;
+
+/**
+ * Maps the service and command ids of received packets to the classes parsing them.
+ * <p>
+ * Lookups go through a table indexed by the ids, so dispatching a packet does not allocate.
+ */
+final class HuaweiResponseRegistry {
+    interface Factory {
+        HuaweiPacket create(HuaweiPacket.ParamsProvider paramsProvider);
+    }
+
+    private static final Factory[][] FACTORIES = new Factory[256][];
+
+    static {
+        register(DeviceConfig.id, DeviceConfig.LinkParams.id, DeviceConfig.LinkParams.Response::new);
+        register(DeviceConfig.id, DeviceConfig.SupportedServices.id, DeviceConfig.SupportedServices.Response::new);
+        register(DeviceConfig.id, DeviceConfig.SupportedCommands.id, DeviceConfig.SupportedCommands.Response::new);
+        register(DeviceConfig.id, DeviceConfig.TimeRequest.id, DeviceConfig.TimeRequest.Response::new);
+        register(DeviceConfig.id, DeviceConfig.ProductInfo.id, DeviceConfig.ProductInfo.Response::new);
+        register(DeviceConfig.id, DeviceConfig.BondParams.id, DeviceConfig.BondParams.Response::new);
+        register(DeviceConfig.id, DeviceConfig.PhoneInfo.id, DeviceConfig.PhoneInfo.Response::new);
+        register(DeviceConfig.id, DeviceConfig.Auth.id, DeviceConfig.Auth.Response::new);
+        register(DeviceConfig.id, DeviceConfig.BatteryLevel.id, DeviceConfig.BatteryLevel.Response::new);
+        register(DeviceConfig.id, DeviceConfig.BatteryLevel.id_change, DeviceConfig.BatteryLevel.Response::new);
+        register(DeviceConfig.id, DeviceConfig.DeviceStatus.id, DeviceConfig.DeviceStatus.Response::new);
+        register(DeviceConfig.id, DeviceConfig.DndLiftWristType.id, DeviceConfig.DndLiftWristType.Response::new);
+        register(DeviceConfig.id, DeviceConfig.GetDefaultSwitch.id, DeviceConfig.GetDefaultSwitch.Response::new);
+        register(DeviceConfig.id, DeviceConfig.HiChain.id, DeviceConfig.HiChain.Response::new);
+        register(DeviceConfig.id, DeviceConfig.PinCode.id, DeviceConfig.PinCode.Response::new);
+        register(DeviceConfig.id, DeviceConfig.ExpandCapability.id, DeviceConfig.ExpandCapability.Response::new);
+        register(DeviceConfig.id, DeviceConfig.ActivityType.id, DeviceConfig.ActivityType.Response::new);
+        register(DeviceConfig.id, DeviceConfig.SettingRelated.id, DeviceConfig.SettingRelated.Response::new);
+        register(DeviceConfig.id, DeviceConfig.PermissionCheck.id, DeviceConfig.PermissionCheck.PermissionCheckRequest::new);
+        register(DeviceConfig.id, DeviceConfig.SecurityNegotiation.id, DeviceConfig.SecurityNegotiation.Response::new);
+        register(DeviceConfig.id, DeviceConfig.WearStatus.id, DeviceConfig.WearStatus.Response::new);
+        register(DeviceConfig.id, DeviceConfig.ReverseCapabilities.id, DeviceConfig.ReverseCapabilities.Response::new);
+        register(DeviceConfig.id, CameraRemote.CameraRemoteStatus.id, CameraRemote.CameraRemoteStatus.Response::new);
+
+        register(Notifications.id, Notifications.NotificationConstraints.id, Notifications.NotificationConstraints.Response::new);
+        register(Notifications.id, Notifications.NotificationCapabilities.id, Notifications.NotificationCapabilities.Response::new);
+        register(Notifications.id, Notifications.NotificationReply.id, Notifications.NotificationReply.ReplyResponse::new);
+
+        register(Contacts.id, Contacts.ContactsSet.id, Contacts.ContactsSet.Response::new);
+        register(Contacts.id, Contacts.ContactsCount.id, Contacts.ContactsCount.Response::new);
+
+        register(Calls.id, Calls.AnswerCallResponse.id, Calls.AnswerCallResponse::new);
+
+        register(FitnessData.id, FitnessData.FitnessTotals.id, FitnessData.FitnessTotals.Response::new);
+        register(FitnessData.id, FitnessData.MessageCount.stepId, FitnessData.MessageCount.Response::new);
+        register(FitnessData.id, FitnessData.MessageData.stepId, FitnessData.MessageData.StepResponse::new);
+        register(FitnessData.id, FitnessData.MessageCount.sleepId, FitnessData.MessageCount.Response::new);
+        register(FitnessData.id, FitnessData.MessageData.sleepId, FitnessData.MessageData.SleepResponse::new);
+        register(FitnessData.id, FitnessData.RunPaceConfig.id, FitnessData.RunPaceConfig.Response::new);
+
+        register(Alarms.id, Alarms.EventAlarmsList.id, Alarms.EventAlarmsList.Response::new);
+        register(Alarms.id, Alarms.SmartAlarmList.id, Alarms.SmartAlarmList.Response::new);
+
+        register(FileDownloadService0A.id, FileDownloadService0A.FileDownloadInit.id, FileDownloadService0A.FileDownloadInit.Response::new);
+        register(FileDownloadService0A.id, FileDownloadService0A.FileParameters.id, FileDownloadService0A.FileParameters.Response::new);
+        register(FileDownloadService0A.id, FileDownloadService0A.FileInfo.id, FileDownloadService0A.FileInfo.Response::new);
+        register(FileDownloadService0A.id, FileDownloadService0A.RequestBlock.id, FileDownloadService0A.RequestBlock.Response::new);
+        register(FileDownloadService0A.id, FileDownloadService0A.BlockResponse.id, FileDownloadService0A.BlockResponse::new);
+
+        register(FindPhone.id, FindPhone.Response.id, FindPhone.Response::new);
+
+        register(Weather.id, Weather.WeatherSupport.id, Weather.WeatherSupport.Response::new);
+        register(Weather.id, Weather.WeatherExtendedSupport.id, Weather.WeatherExtendedSupport.Response::new);
+        register(Weather.id, Weather.WeatherStart.id, Weather.WeatherStart.Response::new);
+        register(Weather.id, Weather.WeatherSunMoonSupport.id, Weather.WeatherSunMoonSupport.Response::new);
+
+        register(Workout.id, Workout.WorkoutCount.id, Workout.WorkoutCount.Response::new);
+        register(Workout.id, Workout.WorkoutTotals.id, Workout.WorkoutTotals.Response::new);
+        register(Workout.id, Workout.WorkoutData.id, Workout.WorkoutData.Response::new);
+        register(Workout.id, Workout.WorkoutPace.id, Workout.WorkoutPace.Response::new);
+        register(Workout.id, Workout.WorkoutSwimSegments.id, Workout.WorkoutSwimSegments.Response::new);
+        register(Workout.id, Workout.WorkoutSpO2.id, Workout.WorkoutSpO2.Response::new);
+        register(Workout.id, Workout.WorkoutCapability.id, Workout.WorkoutCapability.Response::new);
+        register(Workout.id, Workout.WorkoutSections.id, Workout.WorkoutSections.Response::new);
+
+        register(GpsAndTime.id, GpsAndTime.GpsParameters.id, GpsAndTime.GpsParameters.Response::new);
+        register(GpsAndTime.id, GpsAndTime.GpsStatus.id, GpsAndTime.GpsStatus.Response::new);
+        register(GpsAndTime.id, GpsAndTime.GpsData.id, GpsAndTime.GpsData.Response::new);
+
+        register(HrRriTest.id, HrRriTest.RriData.id, HrRriTest.RriData.Response::new);
+
+        register(MusicControl.id, MusicControl.MusicStatusResponse.id, MusicControl.MusicStatusResponse::new);
+        register(MusicControl.id, MusicControl.MusicInfo.id, MusicControl.MusicInfo.Response::new);
+        register(MusicControl.id, MusicControl.Control.id, MusicControl.Control.Response::new);
+        register(MusicControl.id, MusicControl.MusicInfoParams.id, MusicControl.MusicInfoParams.Response::new);
+        register(MusicControl.id, MusicControl.MusicList.id, MusicControl.MusicList.Response::new);
+        register(MusicControl.id, MusicControl.MusicPlaylists.id, MusicControl.MusicPlaylists.Response::new);
+        register(MusicControl.id, MusicControl.MusicPlaylistMusics.id, MusicControl.MusicPlaylistMusics.Response::new);
+        register(MusicControl.id, MusicControl.MusicOperation.id, MusicControl.MusicOperation.Response::new);
+        register(MusicControl.id, MusicControl.UploadMusicFileInfo.id, MusicControl.UploadMusicFileInfo.UploadMusicFileInfoRequest::new);
+        register(MusicControl.id, MusicControl.ExtendedMusicInfoParams.id, MusicControl.ExtendedMusicInfoParams.Response::new);
+
+        register(AccountRelated.id, AccountRelated.SendAccountToDevice.id, AccountRelated.SendAccountToDevice.Response::new);
+        register(AccountRelated.id, AccountRelated.SendExtendedAccountToDevice.id, AccountRelated.SendExtendedAccountToDevice.Response::new);
+
+        register(FileUpload.id, FileUpload.FileInfoSend.id, FileUpload.FileInfoSend.Response::new);
+        register(FileUpload.id, FileUpload.FileHashSend.id, FileUpload.FileHashSend.Response::new);
+        register(FileUpload.id, FileUpload.FileUploadConsultAck.id, FileUpload.FileUploadConsultAck.Response::new);
+        register(FileUpload.id, FileUpload.FileNextChunkParams.id, FileUpload.FileNextChunkParams::new);
+
+        register(Watchface.id, Watchface.WatchfaceParams.id, Watchface.WatchfaceParams.Response::new);
+        register(Watchface.id, Watchface.DeviceWatchInfo.id, Watchface.DeviceWatchInfo.Response::new);
+        register(Watchface.id, Watchface.WatchfaceConfirm.id, Watchface.WatchfaceConfirm.Response::new);
+        register(Watchface.id, Watchface.WatchfaceNameInfo.id, Watchface.WatchfaceNameInfo.Response::new);
+
+        register(Earphones.id, Earphones.InEarStateResponse.id, Earphones.InEarStateResponse::new);
+        register(Earphones.id, Earphones.GetAudioModeRequest.id, Earphones.GetAudioModeRequest.Response::new);
+
+        register(FileDownloadService2C.id, FileDownloadService2C.FileDownloadInit.id, FileDownloadService2C.FileDownloadInit.Response::new);
+        register(FileDownloadService2C.id, FileDownloadService2C.FileRequestHash.id, FileDownloadService2C.FileRequestHash.Response::new);
+        register(FileDownloadService2C.id, FileDownloadService2C.FileInfo.id, FileDownloadService2C.FileInfo.Response::new);
+        register(FileDownloadService2C.id, FileDownloadService2C.BlockResponse.id, FileDownloadService2C.BlockResponse::new);
+        register(FileDownloadService2C.id, FileDownloadService2C.IncomingInitRequest.id, FileDownloadService2C.IncomingInitRequest.Response::new);
+
+        register(App.id, App.AppNames.id, App.AppNames.Response::new);
+        register(App.id, App.AppInfoParams.id, App.AppInfoParams.Response::new);
+
+        register(P2P.id, P2P.P2PCommand.id, P2P.P2PCommand.Response::new);
+
+        register(Ephemeris.id, Ephemeris.OperatorData.id, Ephemeris.OperatorData.OperatorIncomingRequest::new);
+        register(Ephemeris.id, Ephemeris.ParameterConsult.id, Ephemeris.ParameterConsult.Response::new);
+        register(Ephemeris.id, Ephemeris.FileStatus.id, Ephemeris.FileStatus.Response::new);
+
+        register(EphemerisFileUpload.id, EphemerisFileUpload.FileList.id, EphemerisFileUpload.FileList.FileListIncomingRequest::new);
+        register(EphemerisFileUpload.id, EphemerisFileUpload.FileConsult.id, EphemerisFileUpload.FileConsult.FileConsultIncomingRequest::new);
+        register(EphemerisFileUpload.id, EphemerisFileUpload.QuerySingleFileInfo.id, EphemerisFileUpload.QuerySingleFileInfo.QuerySingleFileInfoIncomingRequest::new);
+        register(EphemerisFileUpload.id, EphemerisFileUpload.DataRequest.id, EphemerisFileUpload.DataRequest.DataRequestIncomingRequest::new);
+        register(EphemerisFileUpload.id, EphemerisFileUpload.UploadData.id, EphemerisFileUpload.UploadData.UploadDataResponse::new);
+        register(EphemerisFileUpload.id, EphemerisFileUpload.UploadDone.id, EphemerisFileUpload.UploadDone.UploadDoneIncomingRequest::new);
+
+        register(DataSync.id, DataSync.ConfigCommand.id, DataSync.ConfigCommand.Response::new);
+        register(DataSync.id, DataSync.EventCommand.id, DataSync.EventCommand.Response::new);
+        register(DataSync.id, DataSync.DataCommand.id, DataSync.DataCommand.Response::new);
+        register(DataSync.id, DataSync.DictDataCommand.id, DataSync.DictDataCommand.Response::new);
+
+        register(OTA.id, OTA.StartQuery.id, OTA.StartQuery.Response::new);
+        register(OTA.id, OTA.DataParams.id, OTA.DataParams.Response::new);
+        register(OTA.id, OTA.DataChunkRequest.id, OTA.DataChunkRequest.Response::new);
+        register(OTA.id, OTA.SizeReport.id, OTA.SizeReport.Response::new);
+        register(OTA.id, OTA.UpdateResult.id, OTA.UpdateResult.Response::new);
+        register(OTA.id, OTA.DeviceError.id, OTA.DeviceError.Response::new);
+        register(OTA.id, OTA.SetAutoUpdate.id, OTA.SetAutoUpdate.Response::new);
+        register(OTA.id, OTA.NotifyNewVersion.id, OTA.NotifyNewVersion.Response::new);
+        register(OTA.id, OTA.DeviceRequest.id, OTA.DeviceRequest.Response::new);
+        register(OTA.id, OTA.GetMode.id, OTA.GetMode.Response::new);
+        register(OTA.id, OTA.SetChangeLog.id, OTA.SetChangeLog.Response::new);
+        register(OTA.id, OTA.GetChangeLog.id, OTA.GetChangeLog.Response::new);
+    }
+
+    private HuaweiResponseRegistry() {
+    }
+
+    @Nullable
+    static Factory get(final byte serviceId, final byte commandId) {
+        final Factory[] commands = FACTORIES[serviceId & 0xff];
+        if (commands == null) {
+            return null;
+        }
+        return commands[commandId & 0xff];
+    }
+
+    private static void register(final int serviceId, final int commandId, final Factory factory) {
+        Factory[] commands = FACTORIES[serviceId & 0xff];
+        if (commands == null) {
+            commands = new Factory[256];
+            FACTORIES[serviceId & 0xff] = commands;
+        }
+        if (commands[commandId & 0xff] != null) {
+            throw new IllegalStateException("Duplicate response for service " + Integer.toHexString(serviceId & 0xff)
+                    + ", command " + Integer.toHexString(commandId & 0xff));
+        }
+        commands[commandId & 0xff] = factory;
+    }
+}
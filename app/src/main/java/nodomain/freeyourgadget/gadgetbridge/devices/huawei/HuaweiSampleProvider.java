@@ -30,7 +30,6 @@ import de.greenrobot.dao.query.QueryBuilder;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
 import nodomain.freeyourgadget.gadgetbridge.devices.AbstractSampleProvider;
 import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
-import nodomain.freeyourgadget.gadgetbridge.entities.Device;
 import nodomain.freeyourgadget.gadgetbridge.entities.HuaweiActivitySample;
 import nodomain.freeyourgadget.gadgetbridge.entities.HuaweiActivitySampleDao;
 import nodomain.freeyourgadget.gadgetbridge.entities.HuaweiWorkoutDataSample;
@@ -130,13 +129,13 @@ public class HuaweiSampleProvider extends AbstractSampleProvider<HuaweiActivityS
     }
 
     private int getLastFetchTimestamp(QueryBuilder<HuaweiActivitySample> qb) {
-        Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null)
+        Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null)
             return 0;
         Property deviceProperty = HuaweiActivitySampleDao.Properties.DeviceId;
         Property timestampProperty = HuaweiActivitySampleDao.Properties.Timestamp;
 
-        qb.where(deviceProperty.eq(dbDevice.getId()))
+        qb.where(deviceProperty.eq(deviceId))
                 .orderDesc(timestampProperty)
                 .limit(1);
 
@@ -222,6 +221,7 @@ public class HuaweiSampleProvider extends AbstractSampleProvider<HuaweiActivityS
 
         getSampleDao().insertOrReplace(start);
         getSampleDao().insertOrReplace(end);
+        onSamplesAdded(Math.min(start.getTimestamp(), end.getTimestamp()), Math.max(start.getTimestamp(), end.getTimestamp()));
     }
 
     @Override
@@ -242,6 +242,15 @@ public class HuaweiSampleProvider extends AbstractSampleProvider<HuaweiActivityS
             newSamples.add(end);
         }
         getSampleDao().insertOrReplaceInTx(newSamples);
+        if (!newSamples.isEmpty()) {
+            int tsFrom = Integer.MAX_VALUE;
+            int tsTo = Integer.MIN_VALUE;
+            for (HuaweiActivitySample sample : newSamples) {
+                tsFrom = Math.min(tsFrom, sample.getTimestamp());
+                tsTo = Math.max(tsTo, sample.getTimestamp());
+            }
+            onSamplesAdded(tsFrom, tsTo);
+        }
     }
 
     /**
@@ -254,13 +263,13 @@ public class HuaweiSampleProvider extends AbstractSampleProvider<HuaweiActivityS
         QueryBuilder<HuaweiActivitySample> qb = getSampleDao().queryBuilder();
         Property timestampProperty = getTimestampSampleProperty();
         Property otherTimestampProperty = getOthertimestampSampleProperty();
-        Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null) {
+        Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null) {
             // no device, no samples
             return Collections.emptyList();
         }
         Property deviceProperty = getDeviceIdentifierSampleProperty();
-        qb.where(deviceProperty.eq(dbDevice.getId()), otherTimestampProperty.ge(timestampFrom))
+        qb.where(deviceProperty.eq(deviceId), otherTimestampProperty.ge(timestampFrom))
                 .where(timestampProperty.le(timestampTo))
                 .orderAsc(timestampProperty);
         List<HuaweiActivitySample> samples = qb.build().list();
@@ -272,8 +281,8 @@ public class HuaweiSampleProvider extends AbstractSampleProvider<HuaweiActivityS
     }
 
     private List<HuaweiWorkoutDataSample> getRawOrderedWorkoutSamplesWithHeartRate(int timestampFrom, int timestampTo) {
-        Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null)
+        Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null)
             return Collections.emptyList();
 
         QueryBuilder<HuaweiWorkoutDataSample> qb = getSession().getHuaweiWorkoutDataSampleDao().queryBuilder();
@@ -281,7 +290,7 @@ public class HuaweiSampleProvider extends AbstractSampleProvider<HuaweiActivityS
         Property heartRateProperty = HuaweiWorkoutDataSampleDao.Properties.HeartRate;
         Property deviceProperty = HuaweiWorkoutSummarySampleDao.Properties.DeviceId;
         qb.join(HuaweiWorkoutDataSampleDao.Properties.WorkoutId, HuaweiWorkoutSummarySample.class, HuaweiWorkoutSummarySampleDao.Properties.WorkoutId)
-                .where(deviceProperty.eq(dbDevice.getId()));
+                .where(deviceProperty.eq(deviceId));
         qb.where(
                 timestampProperty.ge(timestampFrom),
                 timestampProperty.le(timestampTo),
@@ -92,12 +92,12 @@ public class HuaweiSpo2SampleProvider extends AbstractTimeSampleProvider<HuaweiS
     @Override
     public HuaweiSpo2Sample getLatestSample() {
         QueryBuilder<HuaweiActivitySample> qb = this.huaweiSampleProvider.getSampleDao().queryBuilder();
-        final Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null)
+        final Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null)
             return null;
         final Property deviceProperty = this.huaweiSampleProvider.getDeviceIdentifierSampleProperty();
         qb
-                .where(deviceProperty.eq(dbDevice.getId()))
+                .where(deviceProperty.eq(deviceId))
                 .where(HuaweiActivitySampleDao.Properties.Spo.notEq(-1))
                 .orderDesc(this.huaweiSampleProvider.getTimestampSampleProperty())
                 .limit(1);
@@ -111,12 +111,12 @@ public class HuaweiSpo2SampleProvider extends AbstractTimeSampleProvider<HuaweiS
     @Override
     public HuaweiSpo2Sample getFirstSample() {
         QueryBuilder<HuaweiActivitySample> qb = this.huaweiSampleProvider.getSampleDao().queryBuilder();
-        final Device dbDevice = DBHelper.findDevice(getDevice(), getSession());
-        if (dbDevice == null)
+        final Long deviceId = DBHelper.findDeviceId(getDevice(), getSession());
+        if (deviceId == null)
             return null;
         final Property deviceProperty = this.huaweiSampleProvider.getDeviceIdentifierSampleProperty();
         qb
-                .where(deviceProperty.eq(dbDevice.getId()))
+                .where(deviceProperty.eq(deviceId))
                 .where(HuaweiActivitySampleDao.Properties.Spo.notEq(-1))
                 .orderAsc(this.huaweiSampleProvider.getTimestampSampleProperty())
                 .limit(1);
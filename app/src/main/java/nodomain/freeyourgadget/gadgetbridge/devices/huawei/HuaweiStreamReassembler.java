@@ -0,0 +1,214 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.devices.huawei;
+
+import static nodomain.freeyourgadget.gadgetbridge.devices.huawei.HuaweiConstants.HUAWEI_MAGIC;
+
+import nodomain.freeyourgadget.gadgetbridge.util.CheckSums;
+
+/**
+ * Reassembles the packets of a connection from the received chunks of data.
+ * <p>
+ * Received data is appended to a growable ring buffer, so partial frames are not copied again
+ * with every chunk. The CRC16 of the current frame is updated as its bytes arrive, and the
+ * payloads of sliced frames are appended to a single reusable buffer. A complete payload is
+ * exposed as a view into that buffer, which is only valid until the next call to {@link #next()}.
+ */
+public class HuaweiStreamReassembler {
+    private static final int INITIAL_CAPACITY = 1024; // must be a power of two
+
+    private static final int HEADER_LENGTH = 3; // magic + (short) body length
+    private static final int FOOTER_LENGTH = 2; // CRC16
+
+    private byte[] ring = new byte[INITIAL_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+
+    // CRC16 of the first frameCrcLength bytes of the frame at the head of the ring
+    private int frameCrc = 0x0000;
+    private int frameCrcLength = 0;
+
+    private byte[] payload = new byte[INITIAL_CAPACITY];
+    private int payloadLength = 0;
+    private boolean payloadComplete = false;
+
+    public void feed(final byte[] data) {
+        feed(data, 0, data.length);
+    }
+
+    public void feed(final byte[] data, final int offset, final int length) {
+        ensureCapacity(size + length);
+        final int tail = (head + size) & (ring.length - 1);
+        final int firstLength = Math.min(length, ring.length - tail);
+        System.arraycopy(data, offset, ring, tail, firstLength);
+        System.arraycopy(data, offset + firstLength, ring, 0, length - firstLength);
+        size += length;
+    }
+
+    /**
+     * Consumes the buffered frames until a payload is complete.
+     * <p>
+     * On a parse exception, all buffered data is discarded so that the next packet may be parsed
+     * correctly.
+     *
+     * @return true if a complete payload is available, false if more data is needed
+     */
+    public boolean next() throws HuaweiPacket.ParseException {
+        if (payloadComplete) {
+            payloadComplete = false;
+            payloadLength = 0;
+        }
+
+        while (size > 0) {
+            final byte magic = peek(0);
+            if (magic != HUAWEI_MAGIC) {
+                reset();
+                throw new HuaweiPacket.MagicMismatchException("Magic mismatch : "
+                        + Integer.toHexString(magic)
+                        + " != 0x5A");
+            }
+
+            if (size < HEADER_LENGTH) {
+                return false;
+            }
+
+            final short expectedSize = (short) (((peek(1) & 0xff) << 8) | (peek(2) & 0xff));
+            if (expectedSize < 1) {
+                reset();
+                throw new HuaweiPacket.LengthMismatchException("Expected length mismatch : " + expectedSize);
+            }
+
+            final int frameLength = HEADER_LENGTH + expectedSize + FOOTER_LENGTH;
+            updateCrc(Math.min(size, frameLength - FOOTER_LENGTH));
+            if (size < frameLength) {
+                return false;
+            }
+
+            final int expectedChecksum = ((peek(frameLength - 2) & 0xff) << 8) | (peek(frameLength - 1) & 0xff);
+            if (frameCrc != expectedChecksum) {
+                final int actualChecksum = frameCrc;
+                reset();
+                throw new HuaweiPacket.ChecksumIncorrectException("Checksum mismatch : "
+                        + (short) actualChecksum
+                        + " != "
+                        + (short) expectedChecksum);
+            }
+
+            final int sliceFlag = peek(HEADER_LENGTH);
+            final boolean isSliced = sliceFlag == 1 || sliceFlag == 2 || sliceFlag == 3;
+            final int addLen = isSliced ? 2 : 1;
+            if (expectedSize < addLen) {
+                reset();
+                throw new HuaweiPacket.LengthMismatchException("Expected length mismatch : " + expectedSize);
+            }
+
+            if (!isSliced) {
+                // An unsliced frame is a complete payload on its own
+                payloadLength = 0;
+            }
+            appendPayload(HEADER_LENGTH + addLen, expectedSize - addLen);
+            skip(frameLength);
+
+            if (!isSliced || sliceFlag == 3) {
+                payloadComplete = true;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * The buffer holding the complete payload, starting at offset 0. May be larger than the
+     * payload, see {@link #getPayloadLength()}.
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * The number of received bytes that were not consumed yet.
+     */
+    public int getBuffered() {
+        return size;
+    }
+
+    public void reset() {
+        head = 0;
+        size = 0;
+        frameCrc = 0x0000;
+        frameCrcLength = 0;
+        payloadLength = 0;
+        payloadComplete = false;
+    }
+
+    private byte peek(final int index) {
+        return ring[(head + index) & (ring.length - 1)];
+    }
+
+    private void skip(final int length) {
+        head = (head + length) & (ring.length - 1);
+        size -= length;
+        frameCrc = 0x0000;
+        frameCrcLength = 0;
+    }
+
+    private void updateCrc(final int length) {
+        if (frameCrcLength >= length) {
+            return;
+        }
+        final int start = (head + frameCrcLength) & (ring.length - 1);
+        final int count = length - frameCrcLength;
+        final int firstLength = Math.min(count, ring.length - start);
+        frameCrc = CheckSums.getCRC16(ring, start, firstLength, frameCrc);
+        frameCrc = CheckSums.getCRC16(ring, 0, count - firstLength, frameCrc);
+        frameCrcLength = length;
+    }
+
+    private void appendPayload(final int index, final int length) {
+        if (payloadLength + length > payload.length) {
+            final byte[] newPayload = new byte[Math.max(payload.length * 2, payloadLength + length)];
+            System.arraycopy(payload, 0, newPayload, 0, payloadLength);
+            payload = newPayload;
+        }
+        final int start = (head + index) & (ring.length - 1);
+        final int firstLength = Math.min(length, ring.length - start);
+        System.arraycopy(ring, start, payload, payloadLength, firstLength);
+        System.arraycopy(ring, 0, payload, payloadLength + firstLength, length - firstLength);
+        payloadLength += length;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity <= ring.length) {
+            return;
+        }
+        int newLength = ring.length;
+        while (newLength < capacity) {
+            newLength *= 2;
+        }
+        final byte[] newRing = new byte[newLength];
+        final int firstLength = Math.min(size, ring.length - head);
+        System.arraycopy(ring, head, newRing, 0, firstLength);
+        System.arraycopy(ring, 0, newRing, firstLength, size - firstLength);
+        ring = newRing;
+        head = 0;
+    }
+}
@@ -46,13 +46,30 @@ public class HuaweiTLV {
         return Objects.equals(valueMap, huaweiTLV.valueMap);
     }
 
+    /**
+     * A single tag and value. Parsed values are views on the parsed buffer, and are only copied
+     * into their own array when requested with {@link #getValue()}.
+     */
     public static class TLV {
         private final byte tag;
-        private final byte[] value;
+        private byte[] value;
+        private final byte[] buffer;
+        private final int offset;
+        private final int size;
 
         public TLV(byte tag, byte[] value) {
             this.tag = tag;
             this.value = value;
+            this.buffer = value;
+            this.offset = 0;
+            this.size = value.length;
+        }
+
+        TLV(byte tag, byte[] buffer, int offset, int size) {
+            this.tag = tag;
+            this.buffer = buffer;
+            this.offset = offset;
+            this.size = size;
         }
 
         public byte getTag() {
@@ -60,24 +77,57 @@ public class HuaweiTLV {
         }
 
         public byte[] getValue() {
+            if (value == null)
+                value = Arrays.copyOfRange(buffer, offset, offset + size);
             return value;
         }
 
+        public int size() {
+            return size;
+        }
+
+        // The materialized value takes precedence, as the caller may have modified it
+        private byte[] array() {
+            return value != null ? value : buffer;
+        }
+
+        private int start() {
+            return value != null ? 0 : offset;
+        }
+
+        byte getByte(int index) {
+            if (index >= size)
+                throw new ArrayIndexOutOfBoundsException(index);
+            return array()[start() + index];
+        }
+
+        ByteBuffer wrap() {
+            return ByteBuffer.wrap(array(), start(), size);
+        }
+
+        String getString() {
+            return new String(array(), start(), size, StandardCharsets.UTF_8);
+        }
+
+        HuaweiTLV getObject() {
+            return new HuaweiTLV().parse(array(), start(), size);
+        }
+
         public int length() {
-            return 1 + VarInt.getVarIntSize(value.length) + value.length;
+            return 1 + VarInt.getVarIntSize(size) + size;
         }
 
         public byte[] serialize() {
             return ByteBuffer.allocate(this.length())
                     .put(tag)
-                    .put(VarInt.putVarIntValue(value.length))
-                    .put(value)
+                    .put(VarInt.putVarIntValue(size))
+                    .put(array(), start(), size)
                     .array();
         }
 
         @NonNull
         public String toString() {
-            return "{tag: " + Integer.toHexString(tag & 0xFF) + " - Value: " + StringUtils.bytesToHex(value) + "} - ";
+            return "{tag: " + Integer.toHexString(tag & 0xFF) + " - Value: " + StringUtils.bytesToHex(getValue()) + "} - ";
         }
 
         @Override
@@ -85,7 +135,7 @@ public class HuaweiTLV {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
             TLV tlv = (TLV) o;
-            return tag == tlv.tag && Arrays.equals(value, tlv.value);
+            return tag == tlv.tag && Arrays.equals(getValue(), tlv.getValue());
         }
     }
 
@@ -106,6 +156,7 @@ public class HuaweiTLV {
 
     /**
      * Parse byte buffer into this HuaweiTLV
+     * The values are not copied, so the buffer must not be modified afterwards.
      * @param buffer The buffer to parse
      * @param offset The offset to start parsing at
      * @param length The length to parse
@@ -129,15 +180,14 @@ public class HuaweiTLV {
             if (parsed == length && tag == 0)
                 break;
             // Size is a VarInt >= 1 byte
-            VarInt varInt = new VarInt(buffer, offset + parsed);
-            int size = varInt.dValue;
-            parsed += varInt.size;
-            byte[] value = new byte[size];
-            System.arraycopy(buffer, offset + parsed, value, 0, size);
-            put(tag, value);
+            int size = VarInt.getVarIntValue(buffer, offset + parsed);
+            parsed += VarInt.getVarIntSize(size);
+            if (offset + parsed + size > buffer.length)
+                throw new ArrayIndexOutOfBoundsException(offset + parsed + size);
+            valueMap.add(new TLV(tag, buffer, offset + parsed, size));
             parsed += size;
         }
-        LOG.debug("Parsed TLV: " + this);
+        LOG.debug("Parsed TLV: {}", this);
         return this;
     }
 
@@ -155,7 +205,7 @@ public class HuaweiTLV {
         ByteBuffer buffer = ByteBuffer.allocate(length);
         for (TLV entry : valueMap)
             buffer.put(entry.serialize());
-        LOG.debug("Serialized TLV: " + this);
+        LOG.debug("Serialized TLV: {}", this);
         return buffer.array();
     }
 
@@ -215,13 +265,17 @@ public class HuaweiTLV {
         return this.valueMap;
     }
 
-    public byte[] getBytes(int tag) throws HuaweiPacket.MissingTagException {
+    private TLV find(int tag) throws HuaweiPacket.MissingTagException {
         for (TLV item : valueMap)
             if (item.getTag() == (byte) tag)
-                return item.getValue();
+                return item;
         throw new HuaweiPacket.MissingTagException(tag);
     }
 
+    public byte[] getBytes(int tag) throws HuaweiPacket.MissingTagException {
+        return find(tag).getValue();
+    }
+
     public byte[] getBytes(int tag, byte[] defaultValue) {
         try {
             return getBytes(tag);
@@ -231,7 +285,7 @@ public class HuaweiTLV {
     }
 
     public Byte getByte(int tag) throws HuaweiPacket.MissingTagException {
-        return getBytes(tag)[0];
+        return find(tag).getByte(0);
     }
 
     public Byte getByte(int tag, Byte defaultValue) {
@@ -243,7 +297,7 @@ public class HuaweiTLV {
     }
 
     public Boolean getBoolean(int tag) throws HuaweiPacket.MissingTagException {
-        return getBytes(tag)[0] == 1;
+        return find(tag).getByte(0) == 1;
     }
 
     public Boolean getBoolean(int tag, Boolean defaultValue) {
@@ -255,7 +309,7 @@ public class HuaweiTLV {
     }
 
     public Integer getInteger(int tag) throws HuaweiPacket.MissingTagException {
-        return ByteBuffer.wrap(getBytes(tag)).getInt();
+        return find(tag).wrap().getInt();
     }
 
     public Integer getInteger(int tag, Integer defaultResult) {
@@ -267,7 +321,7 @@ public class HuaweiTLV {
     }
 
     public Short getShort(int tag) throws HuaweiPacket.MissingTagException {
-        return ByteBuffer.wrap(getBytes(tag)).getShort();
+        return find(tag).wrap().getShort();
     }
 
     public Short getShort(int tag, Short defaultValue) {
@@ -279,45 +333,44 @@ public class HuaweiTLV {
     }
 
     public Long getLong(int tag) throws HuaweiPacket.MissingTagException {
-        return ByteBuffer.wrap(getBytes(tag)).getLong();
+        return find(tag).wrap().getLong();
     }
 
     public Integer getAsInteger(int tag) throws HuaweiPacket.MissingTagException {
-        byte[] bytes = getBytes(tag);
-        if(bytes.length == 1) {
-            return bytes[0] & 0xFF;
-        } else if(bytes.length == 2) {
-            return ByteBuffer.wrap(getBytes(tag)).getShort() & 0xFFFF;
+        TLV item = find(tag);
+        if(item.size() == 1) {
+            return item.getByte(0) & 0xFF;
+        } else if(item.size() == 2) {
+            return item.wrap().getShort() & 0xFFFF;
         }
-        return ByteBuffer.wrap(getBytes(tag)).getInt();
+        return item.wrap().getInt();
     }
 
     public Long getAsLong(int tag) throws HuaweiPacket.MissingTagException {
-        byte[] bytes = getBytes(tag);
-        if(bytes.length == 1) {
-            return (long) (bytes[0] & 0xFF);
-        } else if(bytes.length == 2) {
-            return (long) (ByteBuffer.wrap(getBytes(tag)).getShort() & 0xFFFF);
-        } else if(bytes.length == 4) {
-            return (long) (ByteBuffer.wrap(getBytes(tag)).getInt());
+        TLV item = find(tag);
+        if(item.size() == 1) {
+            return (long) (item.getByte(0) & 0xFF);
+        } else if(item.size() == 2) {
+            return (long) (item.wrap().getShort() & 0xFFFF);
+        } else if(item.size() == 4) {
+            return (long) (item.wrap().getInt());
         }
-        return ByteBuffer.wrap(getBytes(tag)).getLong();
+        return item.wrap().getLong();
     }
 
     public String getString(int tag) throws HuaweiPacket.MissingTagException {
-        return new String(getBytes(tag), StandardCharsets.UTF_8);
+        return find(tag).getString();
     }
 
     public HuaweiTLV getObject(int tag) throws HuaweiPacket.MissingTagException {
-        byte[] bytes = getBytes(tag);
-        return new HuaweiTLV().parse(bytes, 0, bytes.length);
+        return find(tag).getObject();
     }
 
     public List<HuaweiTLV> getObjects(int tag) {
         List<HuaweiTLV> returnValue = new ArrayList<>();
         for (TLV tlv : valueMap) {
             if (tlv.getTag() == (byte) tag)
-                returnValue.add(new HuaweiTLV().parse(tlv.getValue()));
+                returnValue.add(tlv.getObject());
         }
         return returnValue;
     }
@@ -25,6 +25,7 @@ import android.os.ParcelUuid;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.UUID;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -36,7 +37,6 @@ import nodomain.freeyourgadget.gadgetbridge.devices.SampleProvider;
 import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
 import nodomain.freeyourgadget.gadgetbridge.entities.Device;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
-import nodomain.freeyourgadget.gadgetbridge.impl.GBDeviceCandidate;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivitySample;
 import nodomain.freeyourgadget.gadgetbridge.model.DeviceType;
 import nodomain.freeyourgadget.gadgetbridge.service.DeviceSupport;
@@ -57,11 +57,8 @@ public class ID115Coordinator extends AbstractBLEDeviceCoordinator {
 
     @NonNull
     @Override
-    public boolean supports(GBDeviceCandidate candidate) {
-        if (candidate.supportsService(ID115Constants.UUID_SERVICE_ID115)) {
-            return true;
-        }
-        return false;
+    protected Collection<UUID> getSupportedServiceUuids() {
+        return Collections.singletonList(ID115Constants.UUID_SERVICE_ID115);
     }
 
     @Override
@@ -55,6 +55,18 @@ public class ID115SampleProvider extends AbstractSampleProvider<ID115ActivitySam
         return ID115ActivitySampleDao.Properties.DeviceId;
     }
 
+    @Override
+    protected Property[] getSampleColumnProperties() {
+        return new Property[]{
+                ID115ActivitySampleDao.Properties.RawKind,
+                null, // raw intensity
+                ID115ActivitySampleDao.Properties.Steps,
+                null, // distance
+                null, // active calories
+                null // heart rate
+        };
+    }
+
     @Override
     public ActivityKind normalizeType(int rawType) {
         return ActivityKind.fromCode(rawType);
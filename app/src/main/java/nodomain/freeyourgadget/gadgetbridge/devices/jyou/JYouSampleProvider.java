@@ -84,4 +84,16 @@ public class JYouSampleProvider extends AbstractSampleProvider<JYouActivitySampl
     protected Property getDeviceIdentifierSampleProperty() {
         return JYouActivitySampleDao.Properties.DeviceId;
     }
+
+    @Override
+    protected Property[] getSampleColumnProperties() {
+        return new Property[]{
+                JYouActivitySampleDao.Properties.RawKind,
+                null, // raw intensity
+                JYouActivitySampleDao.Properties.Steps,
+                null, // distance
+                null, // active calories
+                JYouActivitySampleDao.Properties.HeartRate
+        };
+    }
 }
@@ -75,4 +75,16 @@ public class MakibesHR3SampleProvider extends AbstractSampleProvider<MakibesHR3A
     protected Property getDeviceIdentifierSampleProperty() {
         return MakibesHR3ActivitySampleDao.Properties.DeviceId;
     }
+
+    @Override
+    protected Property[] getSampleColumnProperties() {
+        return new Property[]{
+                MakibesHR3ActivitySampleDao.Properties.RawKind,
+                null, // raw intensity
+                MakibesHR3ActivitySampleDao.Properties.Steps,
+                null, // distance
+                null, // active calories
+                MakibesHR3ActivitySampleDao.Properties.HeartRate
+        };
+    }
 }
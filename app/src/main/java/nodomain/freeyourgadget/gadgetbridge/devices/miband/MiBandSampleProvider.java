@@ -17,7 +17,9 @@
     along with this program.  If not, see <https://www.gnu.org/licenses/>. */
 package nodomain.freeyourgadget.gadgetbridge.devices.miband;
 
+import de.greenrobot.dao.Property;
 import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
+import nodomain.freeyourgadget.gadgetbridge.entities.MiBandActivitySampleDao;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityKind;
 
@@ -41,6 +43,18 @@ public class MiBandSampleProvider extends AbstractMiBandSampleProvider {
         super(device, session);
     }
 
+    @Override
+    protected Property[] getSampleColumnProperties() {
+        return new Property[]{
+                MiBandActivitySampleDao.Properties.RawKind,
+                MiBandActivitySampleDao.Properties.RawIntensity,
+                MiBandActivitySampleDao.Properties.Steps,
+                null, // distance
+                null, // active calories
+                MiBandActivitySampleDao.Properties.HeartRate
+        };
+    }
+
     @Override
     public ActivityKind normalizeType(int rawType) {
         switch (rawType) {
@@ -81,4 +81,16 @@ public class No1F1SampleProvider extends AbstractSampleProvider<No1F1ActivitySam
     protected Property getDeviceIdentifierSampleProperty() {
         return No1F1ActivitySampleDao.Properties.DeviceId;
     }
+
+    @Override
+    protected Property[] getSampleColumnProperties() {
+        return new Property[]{
+                No1F1ActivitySampleDao.Properties.RawKind,
+                No1F1ActivitySampleDao.Properties.RawIntensity,
+                No1F1ActivitySampleDao.Properties.Steps,
+                null, // distance
+                null, // active calories
+                No1F1ActivitySampleDao.Properties.HeartRate
+        };
+    }
 }
@@ -177,6 +177,18 @@ public class VivomoveHrSampleProvider extends AbstractSampleProvider<VivomoveHrA
         return VivomoveHrActivitySampleDao.Properties.DeviceId;
     }
 
+    @Override
+    protected Property[] getSampleColumnProperties() {
+        return new Property[]{
+                VivomoveHrActivitySampleDao.Properties.RawKind,
+                VivomoveHrActivitySampleDao.Properties.RawIntensity,
+                VivomoveHrActivitySampleDao.Properties.Steps,
+                null, // distance
+                null, // active calories
+                VivomoveHrActivitySampleDao.Properties.HeartRate
+        };
+    }
+
     public static String rawKindToString(int rawType) {
         if (rawType == RAW_NOT_WORN) {
             return "not worn";
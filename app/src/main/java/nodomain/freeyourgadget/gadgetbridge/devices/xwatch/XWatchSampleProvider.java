@@ -77,4 +77,16 @@ public class XWatchSampleProvider extends AbstractSampleProvider<XWatchActivityS
     protected Property getDeviceIdentifierSampleProperty() {
         return XWatchActivitySampleDao.Properties.DeviceId;
     }
+
+    @Override
+    protected Property[] getSampleColumnProperties() {
+        return new Property[]{
+                XWatchActivitySampleDao.Properties.RawKind,
+                XWatchActivitySampleDao.Properties.RawIntensity,
+                XWatchActivitySampleDao.Properties.Steps,
+                null, // distance
+                null, // active calories
+                XWatchActivitySampleDao.Properties.HeartRate
+        };
+    }
 }
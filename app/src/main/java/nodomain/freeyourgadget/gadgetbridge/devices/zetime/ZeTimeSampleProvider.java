@@ -82,4 +82,16 @@ public class ZeTimeSampleProvider extends AbstractSampleProvider<ZeTimeActivityS
     protected Property getDeviceIdentifierSampleProperty() {
         return ZeTimeActivitySampleDao.Properties.DeviceId;
     }
+
+    @Override
+    protected Property[] getSampleColumnProperties() {
+        return new Property[]{
+                ZeTimeActivitySampleDao.Properties.RawKind,
+                ZeTimeActivitySampleDao.Properties.RawIntensity,
+                ZeTimeActivitySampleDao.Properties.Steps,
+                null, // distance
+                null, // active calories
+                ZeTimeActivitySampleDao.Properties.HeartRate
+        };
+    }
 }
@@ -27,6 +27,8 @@ import android.content.IntentFilter;
 import android.database.ContentObserver;
 import android.net.Uri;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
 import android.provider.CalendarContract;
 import android.widget.Toast;
 
@@ -37,10 +39,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.concurrent.TimeUnit;
-import java.util.Hashtable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import de.greenrobot.dao.query.QueryBuilder;
 import nodomain.freeyourgadget.gadgetbridge.BuildConfig;
@@ -52,6 +57,7 @@ import nodomain.freeyourgadget.gadgetbridge.entities.CalendarSyncStateDao;
 import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.model.CalendarEventSpec;
+import nodomain.freeyourgadget.gadgetbridge.model.DeviceService;
 import nodomain.freeyourgadget.gadgetbridge.util.calendar.CalendarEvent;
 import nodomain.freeyourgadget.gadgetbridge.util.calendar.CalendarManager;
 import nodomain.freeyourgadget.gadgetbridge.util.GB;
@@ -61,48 +67,38 @@ public class CalendarReceiver extends ContentObserver {
 
     private static final String ACTION_FORCE_SYNC = "FORCE_CALENDAR_SYNC";
 
-    private final Hashtable<Long, EventSyncState> eventState = new Hashtable<>();
+    // wait for a burst of changes to settle, but not forever
+    private static final long SYNC_DELAY_MILLIS = 2500L;
+    private static final long SYNC_MAX_DELAY_MILLIS = 15000L;
+
+    // greenDAO in() queries must stay below the SQLite variable limit
+    private static final int DELETE_CHUNK_SIZE = 500;
+
+    /**
+     * The events last sent to the device, to detect changes that do not change the hash.
+     */
+    private final Map<Long, CalendarEvent> syncedEvents = new HashMap<>();
 
     private final Context mContext;
     private final GBDevice mGBDevice;
+    private final HandlerThread mSyncThread;
     private final Handler mSyncHandler;
+    private final Runnable mSyncRunnable = this::runScheduledSync;
     private final BroadcastReceiver mForceSyncReceiver;
 
-    private static class EventSyncState {
-        private int state;
-        private final CalendarEvent event;
-
-        EventSyncState(CalendarEvent event, int state) {
-            this.state = state;
-            this.event = event;
-        }
-
-        public int getState() {
-            return state;
-        }
-
-        public void setState(int state) {
-            this.state = state;
-        }
-
-        public CalendarEvent getEvent() {
-            return event;
-        }
-    }
-
-    private static class EventState {
-        private static final int NOT_SYNCED = 0;
-        private static final int SYNCED = 1;
-        private static final int NEEDS_UPDATE = 2;
-        private static final int NEEDS_DELETE = 3;
-    }
+    // separate from the sync itself, which locks the receiver while it runs
+    private final Object mScheduleLock = new Object();
+    private long firstPendingChange = 0;
 
     public CalendarReceiver(final Context context, final GBDevice gbDevice) {
         super(new Handler());
         LOG.info("Created calendar receiver");
         mContext = context;
         mGBDevice = gbDevice;
-        mSyncHandler = new Handler();
+        // reading the calendar and syncing the events must not block the main thread
+        mSyncThread = new HandlerThread("CalendarSync " + gbDevice.getAddress());
+        mSyncThread.start();
+        mSyncHandler = new Handler(mSyncThread.getLooper());
         mForceSyncReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(final Context context, final Intent intent) {
@@ -135,8 +131,22 @@ public class CalendarReceiver extends ContentObserver {
 
     public void scheduleSync() {
         LOG.debug("Scheduling calendar sync for {}", mGBDevice);
-        mSyncHandler.removeCallbacksAndMessages(null);
-        mSyncHandler.postDelayed(this::syncCalendar, 2500L);
+        synchronized (mScheduleLock) {
+            final long now = SystemClock.elapsedRealtime();
+            if (firstPendingChange == 0) {
+                firstPendingChange = now;
+            }
+            final long delay = Math.max(0, Math.min(SYNC_DELAY_MILLIS, firstPendingChange + SYNC_MAX_DELAY_MILLIS - now));
+            mSyncHandler.removeCallbacks(mSyncRunnable);
+            mSyncHandler.postDelayed(mSyncRunnable, delay);
+        }
+    }
+
+    private void runScheduledSync() {
+        synchronized (mScheduleLock) {
+            firstPendingChange = 0;
+        }
+        syncCalendar();
     }
 
     public void syncCalendar() {
@@ -154,122 +164,107 @@ public class CalendarReceiver extends ContentObserver {
         }
     }
 
-    public void syncCalendar(List<CalendarEvent> eventList, DaoSession session) {
+    /**
+     * Sync the events with the device, by comparing them with the sync states of the device in a
+     * single pass. Only added, changed and removed events are sent to the device.
+     */
+    public synchronized void syncCalendar(List<CalendarEvent> eventList, DaoSession session) {
         LOG.info("Syncing with calendar.");
-        Hashtable<Long, CalendarEvent> eventTable = new Hashtable<>();
-        Long deviceId = DBHelper.getDevice(mGBDevice, session).getId();
-        QueryBuilder<CalendarSyncState> qb = session.getCalendarSyncStateDao().queryBuilder();
-
-        for (CalendarEvent e : eventList) {
-            long id = e.getId();
-            eventTable.put(id, e);
-            if (!eventState.containsKey(e.getId())) {
-                qb = session.getCalendarSyncStateDao().queryBuilder();
-
-                CalendarSyncState calendarSyncState = qb.where(qb.and(CalendarSyncStateDao.Properties.DeviceId.eq(deviceId), CalendarSyncStateDao.Properties.CalendarEntryId.eq(id)))
-                        .build().unique();
-                if (calendarSyncState == null) {
-                    eventState.put(id, new EventSyncState(e, EventState.NOT_SYNCED));
-                    LOG.info("event id={} is yet unknown to device id={}", id, deviceId);
-                } else if (calendarSyncState.getHash() == e.hashCode()) {
-                    eventState.put(id, new EventSyncState(e, EventState.SYNCED));
-                    LOG.info("event id={} is up to date on device id={}", id, deviceId);
-                } else {
-                    eventState.put(id, new EventSyncState(e, EventState.NEEDS_UPDATE));
-                    LOG.info("event id={} is not up to date on device id={}", id, deviceId);
-                }
-            }
-        }
-
-        // add all missing calendar ids on the device to sync status (so that they are deleted later)
-        List<CalendarSyncState> CalendarSyncStateList = qb.where(CalendarSyncStateDao.Properties.DeviceId.eq(deviceId)).build().list();
-        for (CalendarSyncState CalendarSyncState : CalendarSyncStateList) {
-            if (!eventState.containsKey(CalendarSyncState.getCalendarEntryId())) {
-                eventState.put(CalendarSyncState.getCalendarEntryId(), new EventSyncState(null, EventState.NEEDS_DELETE));
-                LOG.info("insert null event for orphaned calendar id={} for device={}", CalendarSyncState.getCalendarEntryId(), mGBDevice.getName());
-            }
+        final long start = System.currentTimeMillis();
+        final Long deviceId = DBHelper.getDevice(mGBDevice, session).getId();
+        final CalendarSyncStateDao syncStateDao = session.getCalendarSyncStateDao();
+
+        final Map<Long, Integer> syncedHashes = new HashMap<>();
+        final List<CalendarSyncState> syncStates = syncStateDao.queryBuilder()
+                .where(CalendarSyncStateDao.Properties.DeviceId.eq(deviceId))
+                .list();
+        for (final CalendarSyncState syncState : syncStates) {
+            syncedHashes.put(syncState.getCalendarEntryId(), syncState.getHash());
         }
 
-        Enumeration<Long> ids = eventState.keys();
-        while (ids.hasMoreElements()) {
-            qb = session.getCalendarSyncStateDao().queryBuilder();
-            Long i = ids.nextElement();
-            EventSyncState es = eventState.get(i);
-            if (es == null) {
-                LOG.error("Failed to get event state for {}", i);
-                continue;
-            }
-            if (eventTable.containsKey(i)) {
-                if (es.getState() == EventState.SYNCED) {
-                    if (!es.getEvent().equals(eventTable.get(i))) {
-                        eventState.put(i, new EventSyncState(eventTable.get(i), EventState.NEEDS_UPDATE));
-                    }
-                }
+        final Map<Long, CalendarEvent> added = new LinkedHashMap<>();
+        final Map<Long, CalendarEvent> updated = new LinkedHashMap<>();
+        final Set<Long> deleted = new HashSet<>(syncedHashes.keySet());
+        for (final CalendarEvent event : eventList) {
+            final long id = event.getId();
+            deleted.remove(id);
+            final Integer syncedHash = syncedHashes.get(id);
+            if (syncedHash == null) {
+                added.put(id, event);
+            } else if (syncedHash != event.hashCode()) {
+                updated.put(id, event);
             } else {
-                if (es.getState() == EventState.NOT_SYNCED) {
-                    // delete for current device only
-                    qb.where(qb.and(CalendarSyncStateDao.Properties.DeviceId.eq(deviceId), CalendarSyncStateDao.Properties.CalendarEntryId.eq(i)))
-                            .buildDelete().executeDeleteWithoutDetachingEntities();
-                    eventState.remove(i);
-                } else {
-                    es.setState(EventState.NEEDS_DELETE);
-                    eventState.put(i, es);
+                final CalendarEvent syncedEvent = syncedEvents.get(id);
+                if (syncedEvent != null && !syncedEvent.equals(event)) {
+                    updated.put(id, event);
                 }
             }
-            updateEvents(deviceId, session);
         }
-    }
 
-    private void updateEvents(Long deviceId, DaoSession session) {
-        Enumeration<Long> ids = eventState.keys();
-        while (ids.hasMoreElements()) {
-            Long i = ids.nextElement();
-            EventSyncState es = eventState.get(i);
-            if (es == null) {
-                LOG.error("Failed to get event state {} for sync", i);
-                continue;
-            }
-            int syncState = es.getState();
-            if (syncState == EventState.NOT_SYNCED || syncState == EventState.NEEDS_UPDATE) {
-                CalendarEvent calendarEvent = es.getEvent();
-                CalendarEventSpec calendarEventSpec = new CalendarEventSpec();
-                calendarEventSpec.id = i;
-                calendarEventSpec.title = calendarEvent.getTitle();
-                calendarEventSpec.allDay = calendarEvent.isAllDay();
-                calendarEventSpec.reminders = new ArrayList<>(calendarEvent.getRemindersAbsoluteTs());
-                calendarEventSpec.timestamp = calendarEvent.getBeginSeconds();
-                calendarEventSpec.durationInSeconds = calendarEvent.getDurationSeconds(); //FIXME: leads to problems right now
-                if (calendarEvent.isAllDay()) {
-                    // As per the CalendarContract, for all-day events, the start timestamp is always in UTC
-                    // and corresponds to the midnight boundary
-                    final int numDays = (int) TimeUnit.DAYS.convert(
-                            calendarEvent.getEnd() - calendarEvent.getBegin(),
-                            TimeUnit.MILLISECONDS
-                    );
-                    calendarEventSpec.durationInSeconds = 24 * 60 * 60 * numDays;
-                }
-                calendarEventSpec.description = calendarEvent.getDescription();
-                calendarEventSpec.location = calendarEvent.getLocation();
-                calendarEventSpec.type = CalendarEventSpec.TYPE_UNKNOWN;
-                calendarEventSpec.calName = calendarEvent.getUniqueCalName();
-                calendarEventSpec.color = calendarEvent.getColor();
-                if (syncState == EventState.NEEDS_UPDATE) {
-                    GBApplication.deviceService(mGBDevice).onDeleteCalendarEvent(CalendarEventSpec.TYPE_UNKNOWN, i);
-                }
-                GBApplication.deviceService(mGBDevice).onAddCalendarEvent(calendarEventSpec);
-                es.setState(EventState.SYNCED);
-                eventState.put(i, es);
-                // update db
-                session.insertOrReplace(new CalendarSyncState(null, deviceId, i, es.event.hashCode()));
-            } else if (syncState == EventState.NEEDS_DELETE) {
-                GBApplication.deviceService(mGBDevice).onDeleteCalendarEvent(CalendarEventSpec.TYPE_UNKNOWN, i);
-                eventState.remove(i);
-                // delete from db for current device only
-                QueryBuilder<CalendarSyncState> qb = session.getCalendarSyncStateDao().queryBuilder();
-                qb.where(qb.and(CalendarSyncStateDao.Properties.DeviceId.eq(deviceId), CalendarSyncStateDao.Properties.CalendarEntryId.eq(i)))
+        final DeviceService deviceService = GBApplication.deviceService(mGBDevice);
+        for (final Long id : deleted) {
+            deviceService.onDeleteCalendarEvent(CalendarEventSpec.TYPE_UNKNOWN, id);
+            syncedEvents.remove(id);
+        }
+        for (final Map.Entry<Long, CalendarEvent> entry : updated.entrySet()) {
+            deviceService.onDeleteCalendarEvent(CalendarEventSpec.TYPE_UNKNOWN, entry.getKey());
+            deviceService.onAddCalendarEvent(createEventSpec(entry.getValue()));
+            syncedEvents.put(entry.getKey(), entry.getValue());
+        }
+        for (final Map.Entry<Long, CalendarEvent> entry : added.entrySet()) {
+            deviceService.onAddCalendarEvent(createEventSpec(entry.getValue()));
+            syncedEvents.put(entry.getKey(), entry.getValue());
+        }
+
+        final List<CalendarSyncState> changedStates = new ArrayList<>(added.size() + updated.size());
+        for (final CalendarEvent event : added.values()) {
+            changedStates.add(new CalendarSyncState(null, deviceId, event.getId(), event.hashCode()));
+        }
+        for (final CalendarEvent event : updated.values()) {
+            changedStates.add(new CalendarSyncState(null, deviceId, event.getId(), event.hashCode()));
+        }
+        final List<Long> deletedIds = new ArrayList<>(deleted);
+        session.runInTx(() -> {
+            for (int i = 0; i < deletedIds.size(); i += DELETE_CHUNK_SIZE) {
+                final List<Long> chunk = deletedIds.subList(i, Math.min(deletedIds.size(), i + DELETE_CHUNK_SIZE));
+                final QueryBuilder<CalendarSyncState> qb = syncStateDao.queryBuilder();
+                // delete for current device only
+                qb.where(CalendarSyncStateDao.Properties.DeviceId.eq(deviceId), CalendarSyncStateDao.Properties.CalendarEntryId.in(chunk))
                         .buildDelete().executeDeleteWithoutDetachingEntities();
             }
+            // replaces the previous state, thanks to the unique index on device and event
+            syncStateDao.insertOrReplaceInTx(changedStates);
+        });
+
+        LOG.info(
+                "Synced {} calendar events with device id={}: {} added, {} updated, {} deleted in {} ms",
+                eventList.size(), deviceId, added.size(), updated.size(), deleted.size(), System.currentTimeMillis() - start
+        );
+    }
+
+    private static CalendarEventSpec createEventSpec(final CalendarEvent calendarEvent) {
+        CalendarEventSpec calendarEventSpec = new CalendarEventSpec();
+        calendarEventSpec.id = calendarEvent.getId();
+        calendarEventSpec.title = calendarEvent.getTitle();
+        calendarEventSpec.allDay = calendarEvent.isAllDay();
+        calendarEventSpec.reminders = new ArrayList<>(calendarEvent.getRemindersAbsoluteTs());
+        calendarEventSpec.timestamp = calendarEvent.getBeginSeconds();
+        calendarEventSpec.durationInSeconds = calendarEvent.getDurationSeconds(); //FIXME: leads to problems right now
+        if (calendarEvent.isAllDay()) {
+            // As per the CalendarContract, for all-day events, the start timestamp is always in UTC
+            // and corresponds to the midnight boundary
+            final int numDays = (int) TimeUnit.DAYS.convert(
+                    calendarEvent.getEnd() - calendarEvent.getBegin(),
+                    TimeUnit.MILLISECONDS
+            );
+            calendarEventSpec.durationInSeconds = 24 * 60 * 60 * numDays;
         }
+        calendarEventSpec.description = calendarEvent.getDescription();
+        calendarEventSpec.location = calendarEvent.getLocation();
+        calendarEventSpec.type = CalendarEventSpec.TYPE_UNKNOWN;
+        calendarEventSpec.calName = calendarEvent.getUniqueCalName();
+        calendarEventSpec.color = calendarEvent.getColor();
+        return calendarEventSpec;
     }
 
     public void registerBroadcastReceivers() {
@@ -282,6 +277,7 @@ public class CalendarReceiver extends ContentObserver {
         mContext.getContentResolver().unregisterContentObserver(this);
         mContext.unregisterReceiver(mForceSyncReceiver);
         mSyncHandler.removeCallbacksAndMessages(null);
+        mSyncThread.quitSafely();
     }
 
     public static void forceSync(@Nullable final GBDevice device) {
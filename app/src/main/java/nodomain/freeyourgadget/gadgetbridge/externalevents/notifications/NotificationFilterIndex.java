@@ -0,0 +1,239 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.externalevents.notifications;
+
+import static nodomain.freeyourgadget.gadgetbridge.activities.NotificationFilterActivity.NOTIFICATION_FILTER_MODE_BLACKLIST;
+import static nodomain.freeyourgadget.gadgetbridge.activities.NotificationFilterActivity.NOTIFICATION_FILTER_MODE_WHITELIST;
+import static nodomain.freeyourgadget.gadgetbridge.activities.NotificationFilterActivity.NOTIFICATION_FILTER_SUBMODE_ALL;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.ahocorasick.trie.Emit;
+import org.ahocorasick.trie.Trie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nodomain.freeyourgadget.gadgetbridge.GBApplication;
+import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
+import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
+import nodomain.freeyourgadget.gadgetbridge.entities.NotificationFilter;
+import nodomain.freeyourgadget.gadgetbridge.entities.NotificationFilterEntry;
+
+/**
+ * Holds the notification content filters of all apps, compiled into one matcher per app, so that
+ * the filters of a posted notification can be applied without querying the database.
+ * <p>
+ * The index is loaded on first use and is immutable afterwards. It must be invalidated with
+ * {@link #invalidate()} whenever the filters in the database change.
+ */
+public final class NotificationFilterIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(NotificationFilterIndex.class);
+
+    // null until loaded, keyed by the lower case app identifier
+    private static volatile Map<String, CompiledFilter> filters = null;
+    // incremented on every invalidation, to discard indexes that were loaded from outdated filters
+    private static long generation = 0;
+
+    private NotificationFilterIndex() {
+    }
+
+    /**
+     * @return the filter of the app, or null if the app has no filter or the filters could not be
+     * loaded
+     */
+    @Nullable
+    public static CompiledFilter get(@NonNull final String appIdentifier) {
+        Map<String, CompiledFilter> current = filters;
+        if (current == null) {
+            current = load();
+            if (current == null) {
+                return null;
+            }
+        }
+        return current.get(appIdentifier.toLowerCase());
+    }
+
+    public static synchronized void invalidate() {
+        filters = null;
+        generation++;
+    }
+
+    @Nullable
+    private static Map<String, CompiledFilter> load() {
+        final long loadGeneration;
+        synchronized (NotificationFilterIndex.class) {
+            loadGeneration = generation;
+        }
+
+        final long start = System.currentTimeMillis();
+        final Map<String, CompiledFilter> loaded = new HashMap<>();
+        try (DBHandler db = GBApplication.acquireDBReadOnly()) {
+            final DaoSession session = db.getDaoSession();
+
+            final Map<Long, List<String>> wordsByFilter = new HashMap<>();
+            for (final NotificationFilterEntry entry : session.getNotificationFilterEntryDao().loadAll()) {
+                List<String> words = wordsByFilter.get(entry.getNotificationFilterId());
+                if (words == null) {
+                    words = new ArrayList<>();
+                    wordsByFilter.put(entry.getNotificationFilterId(), words);
+                }
+                words.add(entry.getNotificationFilterContent());
+            }
+
+            for (final NotificationFilter filter : session.getNotificationFilterDao().loadAll()) {
+                final List<String> words = wordsByFilter.get(filter.getId());
+                loaded.put(
+                        filter.getAppIdentifier().toLowerCase(),
+                        CompiledFilter.compile(
+                                filter.getNotificationFilterMode(),
+                                filter.getNotificationFilterSubMode(),
+                                words != null ? words : Collections.emptyList()
+                        )
+                );
+            }
+        } catch (final Exception e) {
+            LOG.error("Could not load the notification filters", e);
+            return null;
+        }
+
+        LOG.debug("Loaded {} notification filters in {} ms", loaded.size(), System.currentTimeMillis() - start);
+
+        final Map<String, CompiledFilter> index = Collections.unmodifiableMap(loaded);
+        synchronized (NotificationFilterIndex.class) {
+            if (generation == loadGeneration) {
+                filters = index;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The filter of an app, with its words compiled into an Aho-Corasick automaton so that a
+     * notification is scanned once, regardless of the number of words.
+     */
+    public static final class CompiledFilter {
+        private final int mode;
+        private final int subMode;
+        private final List<String> words;
+        @Nullable
+        private final Trie trie;
+        private final int distinctWords;
+        private final boolean hasEmptyWord;
+
+        private CompiledFilter(final int mode, final int subMode, final List<String> words,
+                               @Nullable final Trie trie, final int distinctWords, final boolean hasEmptyWord) {
+            this.mode = mode;
+            this.subMode = subMode;
+            this.words = words;
+            this.trie = trie;
+            this.distinctWords = distinctWords;
+            this.hasEmptyWord = hasEmptyWord;
+        }
+
+        public static CompiledFilter compile(final int mode, final int subMode, @NonNull final Collection<String> words) {
+            final Set<String> keywords = new LinkedHashSet<>();
+            boolean hasEmptyWord = false;
+            for (final String word : words) {
+                if (word.isEmpty()) {
+                    hasEmptyWord = true;
+                } else {
+                    keywords.add(word);
+                }
+            }
+
+            Trie trie = null;
+            if (!keywords.isEmpty()) {
+                final Trie.TrieBuilder builder = Trie.builder();
+                for (final String keyword : keywords) {
+                    builder.addKeyword(keyword);
+                }
+                trie = builder.build();
+            }
+
+            return new CompiledFilter(
+                    mode,
+                    subMode,
+                    Collections.unmodifiableList(new ArrayList<>(words)),
+                    trie,
+                    keywords.size(),
+                    hasEmptyWord
+            );
+        }
+
+        public int getMode() {
+            return mode;
+        }
+
+        public int getSubMode() {
+            return subMode;
+        }
+
+        public List<String> getWords() {
+            return words;
+        }
+
+        /**
+         * @return true if the notification with this body should be processed further
+         */
+        public boolean shouldContinue(@NonNull final String body) {
+            switch (mode) {
+                case NOTIFICATION_FILTER_MODE_BLACKLIST:
+                    return !matches(body);
+                case NOTIFICATION_FILTER_MODE_WHITELIST:
+                    return matches(body);
+                default:
+                    return true;
+            }
+        }
+
+        /**
+         * Matches case sensitive substrings. Like the previous word by word matching, an empty
+         * list of words matches every body in ALL mode and none in ANY mode.
+         */
+        private boolean matches(final String body) {
+            if (subMode == NOTIFICATION_FILTER_SUBMODE_ALL) {
+                if (trie == null) {
+                    return true;
+                }
+                final Set<String> found = new HashSet<>();
+                for (final Emit emit : trie.parseText(body)) {
+                    found.add(emit.getKeyword());
+                    if (found.size() == distinctWords) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            if (body.isEmpty()) {
+                return false;
+            }
+            return hasEmptyWord || (trie != null && trie.containsMatch(body));
+        }
+    }
+}
@@ -49,6 +49,7 @@ import nodomain.freeyourgadget.gadgetbridge.model.NotificationSpec;
 import nodomain.freeyourgadget.gadgetbridge.model.Reminder;
 import nodomain.freeyourgadget.gadgetbridge.model.WeatherSpec;
 import nodomain.freeyourgadget.gadgetbridge.model.WorldClock;
+import nodomain.freeyourgadget.gadgetbridge.service.DeviceCommand;
 import nodomain.freeyourgadget.gadgetbridge.service.DeviceCommunicationService;
 import nodomain.freeyourgadget.gadgetbridge.util.RtlUtils;
 
@@ -116,6 +117,24 @@ public class GBDeviceService implements DeviceService {
         if (mDevice != null) {
             intent.putExtra(GBDevice.EXTRA_DEVICE, mDevice);
         }
+        if (DeviceCommunicationService.dispatchInProcess(intent)) {
+            return;
+        }
+        startService(intent);
+    }
+
+    /**
+     * Hands a frequent command directly to the running service, without converting it to an
+     * Intent. Its texts must already be fixed for RTL, see {@link #fixRtl(String)}.
+     */
+    protected void invokeService(DeviceCommand command) {
+        if (DeviceCommunicationService.dispatchInProcess(command)) {
+            return;
+        }
+        startService(command.toIntent(createIntent()));
+    }
+
+    private void startService(Intent intent) {
         try {
             mContext.startService(intent);
         } catch (IllegalStateException e) {
@@ -123,6 +142,10 @@ public class GBDeviceService implements DeviceService {
         }
     }
 
+    private static String fixRtl(String text) {
+        return RtlUtils.rtlSupport() ? RtlUtils.fixRtl(text) : text;
+    }
+
     protected void stopService(Intent intent) {
         mContext.stopService(intent);
     }
@@ -164,26 +187,25 @@ public class GBDeviceService implements DeviceService {
         boolean hideMessageDetails = messagePrivacyMode.equals(GBApplication.getContext().getString(R.string.p_message_privacy_mode_complete));
         boolean hideMessageBodyOnly = messagePrivacyMode.equals(GBApplication.getContext().getString(R.string.p_message_privacy_mode_bodyonly));
 
-        Intent intent = createIntent().setAction(ACTION_NOTIFICATION)
-                .putExtra(EXTRA_NOTIFICATION_FLAGS, notificationSpec.flags)
-                .putExtra(EXTRA_NOTIFICATION_PHONENUMBER, hideMessageDetails ? null : notificationSpec.phoneNumber)
-                .putExtra(EXTRA_NOTIFICATION_SENDER, hideMessageDetails ? null : coalesce(notificationSpec.sender, getContactDisplayNameByNumber(notificationSpec.phoneNumber)))
-                .putExtra(EXTRA_NOTIFICATION_SUBJECT, hideMessageDetails ? null : notificationSpec.subject)
-                .putExtra(EXTRA_NOTIFICATION_TITLE, hideMessageDetails ? null : notificationSpec.title)
-                .putExtra(EXTRA_NOTIFICATION_BODY, hideMessageDetails || hideMessageBodyOnly ? null : notificationSpec.body)
-                .putExtra(EXTRA_NOTIFICATION_ID, notificationSpec.getId())
-                .putExtra(EXTRA_NOTIFICATION_KEY, notificationSpec.key)
-                .putExtra(EXTRA_NOTIFICATION_TYPE, notificationSpec.type)
-                .putExtra(EXTRA_NOTIFICATION_ACTIONS, notificationSpec.attachedActions)
-                .putExtra(EXTRA_NOTIFICATION_SOURCENAME, notificationSpec.sourceName)
-                .putExtra(EXTRA_NOTIFICATION_PEBBLE_COLOR, notificationSpec.pebbleColor)
-                .putExtra(EXTRA_NOTIFICATION_SOURCEAPPID, notificationSpec.sourceAppId)
-                .putExtra(EXTRA_NOTIFICATION_ICONID, notificationSpec.iconId)
-                .putExtra(NOTIFICATION_PICTURE_PATH, notificationSpec.picturePath)
-                .putExtra(EXTRA_NOTIFICATION_DNDSUPPRESSED, notificationSpec.dndSuppressed)
-                .putExtra(EXTRA_NOTIFICATION_CHANNEL_ID, notificationSpec.channelId)
-                .putExtra(EXTRA_NOTIFICATION_CATEGORY, notificationSpec.category);
-        invokeService(intent);
+        NotificationSpec spec = new NotificationSpec(notificationSpec.getId());
+        spec.flags = notificationSpec.flags;
+        spec.phoneNumber = hideMessageDetails ? null : notificationSpec.phoneNumber;
+        spec.sender = hideMessageDetails ? null : fixRtl(coalesce(notificationSpec.sender, getContactDisplayNameByNumber(notificationSpec.phoneNumber)));
+        spec.subject = hideMessageDetails ? null : fixRtl(notificationSpec.subject);
+        spec.title = hideMessageDetails ? null : fixRtl(notificationSpec.title);
+        spec.body = hideMessageDetails || hideMessageBodyOnly ? null : fixRtl(notificationSpec.body);
+        spec.key = notificationSpec.key;
+        spec.type = notificationSpec.type;
+        spec.attachedActions = notificationSpec.attachedActions != null ? new ArrayList<>(notificationSpec.attachedActions) : null;
+        spec.sourceName = fixRtl(notificationSpec.sourceName);
+        spec.pebbleColor = notificationSpec.pebbleColor;
+        spec.sourceAppId = notificationSpec.sourceAppId;
+        spec.iconId = notificationSpec.iconId;
+        spec.picturePath = notificationSpec.picturePath;
+        spec.dndSuppressed = notificationSpec.dndSuppressed;
+        spec.channelId = notificationSpec.channelId;
+        spec.category = notificationSpec.category;
+        invokeService(new DeviceCommand.NotificationCommand(mDevice, spec));
     }
 
     @Override
@@ -245,13 +267,7 @@ public class GBDeviceService implements DeviceService {
 
     @Override
     public void onSetMusicState(MusicStateSpec stateSpec) {
-        Intent intent = createIntent().setAction(ACTION_SETMUSICSTATE)
-                .putExtra(EXTRA_MUSIC_REPEAT, stateSpec.repeat)
-                .putExtra(EXTRA_MUSIC_RATE, stateSpec.playRate)
-                .putExtra(EXTRA_MUSIC_STATE, stateSpec.state)
-                .putExtra(EXTRA_MUSIC_SHUFFLE, stateSpec.shuffle)
-                .putExtra(EXTRA_MUSIC_POSITION, stateSpec.position);
-        invokeService(intent);
+        invokeService(new DeviceCommand.MusicStateCommand(mDevice, new MusicStateSpec(stateSpec)));
     }
 
     @Override
@@ -298,14 +314,11 @@ public class GBDeviceService implements DeviceService {
 
     @Override
     public void onSetMusicInfo(MusicSpec musicSpec) {
-        Intent intent = createIntent().setAction(ACTION_SETMUSICINFO)
-                .putExtra(EXTRA_MUSIC_ARTIST, musicSpec.artist)
-                .putExtra(EXTRA_MUSIC_ALBUM, musicSpec.album)
-                .putExtra(EXTRA_MUSIC_TRACK, musicSpec.track)
-                .putExtra(EXTRA_MUSIC_DURATION, musicSpec.duration)
-                .putExtra(EXTRA_MUSIC_TRACKCOUNT, musicSpec.trackCount)
-                .putExtra(EXTRA_MUSIC_TRACKNR, musicSpec.trackNr);
-        invokeService(intent);
+        MusicSpec spec = new MusicSpec(musicSpec);
+        spec.artist = fixRtl(musicSpec.artist);
+        spec.album = fixRtl(musicSpec.album);
+        spec.track = fixRtl(musicSpec.track);
+        invokeService(new DeviceCommand.MusicInfoCommand(mDevice, spec));
     }
 
     @Override
@@ -394,9 +407,7 @@ public class GBDeviceService implements DeviceService {
 
     @Override
     public void onFindDevice(boolean start) {
-        Intent intent = createIntent().setAction(ACTION_FIND_DEVICE)
-                .putExtra(EXTRA_FIND_START, start);
-        invokeService(intent);
+        invokeService(new DeviceCommand.FindDeviceCommand(mDevice, start));
     }
 
     @Override
@@ -494,9 +505,7 @@ public class GBDeviceService implements DeviceService {
 
     @Override
     public void onSendWeather(ArrayList<WeatherSpec> weatherSpecs) {
-        Intent intent = createIntent().setAction(ACTION_SEND_WEATHER)
-                .putExtra(EXTRA_WEATHER, weatherSpecs);
-        invokeService(intent);
+        invokeService(new DeviceCommand.WeatherCommand(mDevice, new ArrayList<>(weatherSpecs)));
     }
 
     /**
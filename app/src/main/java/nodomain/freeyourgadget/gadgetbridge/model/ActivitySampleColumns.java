@@ -0,0 +1,175 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.model;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Activity samples stored column by column in primitive arrays, with the activity kind and
+ * intensity already normalized. Much more compact than a list of sample entities for long ranges,
+ * and avoids normalizing the same sample over and over.
+ *
+ * @see nodomain.freeyourgadget.gadgetbridge.devices.SampleProvider#getAllActivitySampleColumns(int, int)
+ */
+public class ActivitySampleColumns {
+    private int size;
+    private int[] timestamps;
+    private int[] rawKinds;
+    private ActivityKind[] kinds;
+    private float[] intensities;
+    private int[] steps;
+    private int[] distancesCm;
+    private int[] activeCalories;
+    private int[] heartRates;
+    @Nullable
+    private boolean[] synthetic;
+
+    public ActivitySampleColumns(final int initialCapacity) {
+        final int capacity = Math.max(initialCapacity, 16);
+        timestamps = new int[capacity];
+        rawKinds = new int[capacity];
+        kinds = new ActivityKind[capacity];
+        intensities = new float[capacity];
+        steps = new int[capacity];
+        distancesCm = new int[capacity];
+        activeCalories = new int[capacity];
+        heartRates = new int[capacity];
+    }
+
+    public static ActivitySampleColumns of(final List<? extends ActivitySample> samples) {
+        return of(samples, null);
+    }
+
+    /**
+     * @param isSynthetic matches samples that were not measured, but added to fill a chart
+     */
+    public static ActivitySampleColumns of(final List<? extends ActivitySample> samples,
+                                           @Nullable final Predicate<ActivitySample> isSynthetic) {
+        final ActivitySampleColumns columns = new ActivitySampleColumns(samples.size());
+        for (final ActivitySample sample : samples) {
+            columns.add(
+                    sample.getTimestamp(),
+                    sample.getRawKind(),
+                    sample.getKind(),
+                    sample.getIntensity(),
+                    sample.getSteps(),
+                    sample.getDistanceCm(),
+                    sample.getActiveCalories(),
+                    sample.getHeartRate()
+            );
+            if (isSynthetic != null && isSynthetic.test(sample)) {
+                columns.setSynthetic(columns.size() - 1);
+            }
+        }
+        return columns;
+    }
+
+    public void add(final int timestamp,
+                    final int rawKind,
+                    final ActivityKind kind,
+                    final float intensity,
+                    final int steps,
+                    final int distanceCm,
+                    final int activeCalories,
+                    final int heartRate) {
+        if (size == timestamps.length) {
+            grow();
+        }
+        this.timestamps[size] = timestamp;
+        this.rawKinds[size] = rawKind;
+        this.kinds[size] = kind;
+        this.intensities[size] = intensity;
+        this.steps[size] = steps;
+        this.distancesCm[size] = distanceCm;
+        this.activeCalories[size] = activeCalories;
+        this.heartRates[size] = heartRate;
+        size++;
+    }
+
+    private void grow() {
+        final int capacity = timestamps.length * 2;
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        rawKinds = Arrays.copyOf(rawKinds, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        intensities = Arrays.copyOf(intensities, capacity);
+        steps = Arrays.copyOf(steps, capacity);
+        distancesCm = Arrays.copyOf(distancesCm, capacity);
+        activeCalories = Arrays.copyOf(activeCalories, capacity);
+        heartRates = Arrays.copyOf(heartRates, capacity);
+        if (synthetic != null) {
+            synthetic = Arrays.copyOf(synthetic, capacity);
+        }
+    }
+
+    private void setSynthetic(final int index) {
+        if (synthetic == null) {
+            synthetic = new boolean[timestamps.length];
+        }
+        synthetic[index] = true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getTimestamp(final int index) {
+        return timestamps[index];
+    }
+
+    public int getRawKind(final int index) {
+        return rawKinds[index];
+    }
+
+    public ActivityKind getKind(final int index) {
+        return kinds[index];
+    }
+
+    public float getIntensity(final int index) {
+        return intensities[index];
+    }
+
+    public int getSteps(final int index) {
+        return steps[index];
+    }
+
+    public int getDistanceCm(final int index) {
+        return distancesCm[index];
+    }
+
+    public int getActiveCalories(final int index) {
+        return activeCalories[index];
+    }
+
+    public int getHeartRate(final int index) {
+        return heartRates[index];
+    }
+
+    /**
+     * Returns true if the sample was not measured, but added to fill a chart.
+     */
+    public boolean isSynthetic(final int index) {
+        return synthetic != null && synthetic[index];
+    }
+}
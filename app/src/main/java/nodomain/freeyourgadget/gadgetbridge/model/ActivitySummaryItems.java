@@ -18,13 +18,20 @@ package nodomain.freeyourgadget.gadgetbridge.model;
 
 import android.content.Context;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.List;
 
+import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.adapter.ActivitySummariesAdapter;
+import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
 import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummary;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 
 public class ActivitySummaryItems {
+    private static final Logger LOG = LoggerFactory.getLogger(ActivitySummaryItems.class);
+
     ActivitySummariesAdapter itemsAdapter;
     private int current_position = 0;
 
@@ -36,7 +43,8 @@ public class ActivitySummaryItems {
     public BaseActivitySummary getItem(int position) {
         if (position == 0) return null;
         current_position = position;
-        return itemsAdapter.getItem(position);
+        itemsAdapter.ensureLoaded(position);
+        return loadSummary(itemsAdapter.getItem(position));
     }
 
     public int getPosition(BaseActivitySummary item) {
@@ -44,10 +52,11 @@ public class ActivitySummaryItems {
     }
 
     public BaseActivitySummary getNextItem() {
+        itemsAdapter.ensureLoaded(current_position + 1);
         // last one is empty to avoid items behind fab
         if (current_position + 2 < itemsAdapter.getItemCount()) {
             current_position += 1;
-            return itemsAdapter.getItem(current_position);
+            return loadSummary(itemsAdapter.getItem(current_position));
         }
         return null;
     }
@@ -55,8 +64,23 @@ public class ActivitySummaryItems {
     public BaseActivitySummary getPrevItem() {
         if (current_position - 1 >= 1) { //0 is empty item for summary dashboard
             current_position -= 1;
-            return itemsAdapter.getItem(current_position);
+            return loadSummary(itemsAdapter.getItem(current_position));
         }
         return null;
     }
+
+    /**
+     * The adapter only loads the columns shown in the list, so load the complete summary.
+     */
+    private static BaseActivitySummary loadSummary(final BaseActivitySummary listItem) {
+        if (listItem == null || listItem.getId() == null) {
+            return null;
+        }
+        try (DBHandler handler = GBApplication.acquireDB()) {
+            return handler.getDaoSession().getBaseActivitySummaryDao().load(listItem.getId());
+        } catch (final Exception e) {
+            LOG.error("Failed to load activity summary {}", listItem.getId(), e);
+            return null;
+        }
+    }
 }
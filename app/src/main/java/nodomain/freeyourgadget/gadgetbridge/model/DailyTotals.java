@@ -27,6 +27,7 @@ import java.util.List;
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.activities.charts.ActivityAnalysis;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
+import nodomain.freeyourgadget.gadgetbridge.database.rollup.ActivityRollupManager;
 import nodomain.freeyourgadget.gadgetbridge.devices.AbstractTimeSampleProvider;
 import nodomain.freeyourgadget.gadgetbridge.devices.DefaultRestingMetabolicRateProvider;
 import nodomain.freeyourgadget.gadgetbridge.devices.DeviceCoordinator;
@@ -88,12 +89,11 @@ public class DailyTotals implements Serializable {
     }
 
     public static DailyTotals getDailyTotalsForDevice(GBDevice device, Calendar day, DBHandler handler) {
-        ActivityAnalysis analysis = new ActivityAnalysis();
         ActivityAmounts totalAmounts;
         ActivityAmounts amountsSleep;
 
-        totalAmounts = analysis.calculateActivityAmounts(getSamplesOfDay(handler, day, 0, device));
-        amountsSleep = analysis.calculateActivityAmounts(getSamplesOfDay(handler, day, -12, device));
+        totalAmounts = getActivityAmountsOfDay(handler, day, 0, device);
+        amountsSleep = getActivityAmountsOfDay(handler, day, -12, device);
 
         long[] sleep = getTotalsSleepForActivityAmounts(amountsSleep);
 
@@ -135,7 +135,18 @@ public class DailyTotals implements Serializable {
         return new long[]{totalMinutesLightSleep, totalMinutesDeepSleep, totalMinutesRemSleep, totalMinutesAwakeSleep};
     }
 
-    private static List<? extends ActivitySample> getSamplesOfDay(DBHandler db, Calendar day, int offsetHours, GBDevice device) {
+    private static ActivityAmounts getActivityAmountsOfDay(DBHandler db, Calendar day, int offsetHours, GBDevice device) {
+        // past days are served from the pre-aggregated rollups, if available
+        ActivityAmounts amounts = ActivityRollupManager.getActivityAmountsOfDay(db.getDaoSession(), device, day, offsetHours);
+        if (amounts != null) {
+            return amounts;
+        }
+
+        ActivityAnalysis analysis = new ActivityAnalysis();
+        return analysis.calculateActivityAmounts(getSampleColumnsOfDay(db, day, offsetHours, device));
+    }
+
+    private static ActivitySampleColumns getSampleColumnsOfDay(DBHandler db, Calendar day, int offsetHours, GBDevice device) {
         int startTs;
         int endTs;
 
@@ -148,7 +159,7 @@ public class DailyTotals implements Serializable {
         startTs = (int) (day.getTimeInMillis() / 1000);
         endTs = startTs + 24 * 60 * 60 - 1;
 
-        return getSamples(db, device, startTs, endTs);
+        return getProvider(db, device).getAllActivitySampleColumns(startTs, endTs);
     }
 
     private static int getRestingCaloriesOfDay(DBHandler db, Calendar day, GBDevice device) {
@@ -25,16 +25,22 @@ import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import nodomain.freeyourgadget.gadgetbridge.GBApplication;
+
 public class Weather {
     private static final Logger LOG = LoggerFactory.getLogger(Weather.class);
 
@@ -50,18 +56,30 @@ public class Weather {
 
     @Nullable
     public WeatherSpec getWeatherSpec() {
-        if (weatherSpecs.isEmpty()) {
-            return null;
-        }
+        // the cache is loaded in the background during startup, outside of the lock
+        GBApplication.ensureWeatherCacheLoaded();
+
+        synchronized (this) {
+            if (weatherSpecs.isEmpty()) {
+                return null;
+            }
 
-        return weatherSpecs.get(0);
+            return weatherSpecs.get(0);
+        }
     }
 
+    /**
+     * @return a snapshot of the current weather specs
+     */
     public List<WeatherSpec> getWeatherSpecs() {
-        return weatherSpecs;
+        GBApplication.ensureWeatherCacheLoaded();
+
+        synchronized (this) {
+            return new ArrayList<>(weatherSpecs);
+        }
     }
 
-    public void setWeatherSpec(final List<WeatherSpec> newWeatherSpecs) {
+    public synchronized void setWeatherSpec(final List<WeatherSpec> newWeatherSpecs) {
         weatherSpecs.clear();
         weatherSpecs.addAll(newWeatherSpecs);
         saveToCache();
@@ -1154,29 +1172,14 @@ public class Weather {
      * @param cacheDir the cache directory, where the cache file will be created
      * @param enabled whether caching is enabled
      */
-    public void setCacheFile(final File cacheDir, final boolean enabled) {
-        // FIXME: Do not use serializable for this
-
+    public synchronized void setCacheFile(final File cacheDir, final boolean enabled) {
         cacheFile = new File(cacheDir, "weatherCache.bin");
 
         if (enabled) {
             LOG.info("Setting weather cache file to {}", cacheFile.getPath());
 
             if (cacheFile.isFile() && weatherSpecs.isEmpty()) {
-                try (final ObjectInputStream o = new ObjectInputStream(new FileInputStream(cacheFile))) {
-                    final ArrayList<WeatherSpec> cachedSpecs = (ArrayList<WeatherSpec>) o.readObject();
-                    weatherSpecs.addAll(cachedSpecs);
-                } catch (final ObjectStreamException e) {
-                    LOG.error("Failed to deserialize weather from cache", e);
-                    // keep cacheFile set - it's most likely an older version
-                } catch (final IOException e) {
-                    LOG.error("Failed to read weather cache file", e);
-                    // Something is wrong with the file
-                    cacheFile = null;
-                } catch (final Throwable e) {
-                    LOG.error("Failed to read weather from cache", e);
-                    // keep cacheFile set - it's most likely an older version
-                }
+                loadFromCache();
             } else if (!weatherSpecs.isEmpty()) {
                 saveToCache();
             }
@@ -1194,18 +1197,59 @@ public class Weather {
         }
     }
 
+    private void loadFromCache() {
+        final long start = System.currentTimeMillis();
+        boolean legacyFormat = false;
+
+        try (final InputStream in = new BufferedInputStream(new FileInputStream(cacheFile))) {
+            in.mark(4);
+            final int magic = new DataInputStream(in).readInt();
+            in.reset();
+
+            if (magic == WeatherSpecCodec.MAGIC) {
+                weatherSpecs.addAll(WeatherSpecCodec.readList(in));
+            } else {
+                // Written by an older version with Java serialization, migrated below
+                legacyFormat = true;
+                try (final ObjectInputStream o = new ObjectInputStream(in)) {
+                    final ArrayList<WeatherSpec> cachedSpecs = (ArrayList<WeatherSpec>) o.readObject();
+                    weatherSpecs.addAll(cachedSpecs);
+                }
+            }
+        } catch (final ObjectStreamException e) {
+            LOG.error("Failed to deserialize weather from cache", e);
+            // keep cacheFile set - it's most likely an older version
+            return;
+        } catch (final IOException e) {
+            LOG.error("Failed to read weather cache file", e);
+            // Something is wrong with the file
+            cacheFile = null;
+            return;
+        } catch (final Throwable e) {
+            LOG.error("Failed to read weather from cache", e);
+            // keep cacheFile set - it's most likely an older version
+            return;
+        }
+
+        LOG.debug("Loaded {} weather specs from cache in {} ms", weatherSpecs.size(), System.currentTimeMillis() - start);
+
+        if (legacyFormat) {
+            saveToCache();
+        }
+    }
+
     /**
      * Save the current weather to cache, if a cache file is enabled and the weather is not null.
      */
-    public void saveToCache() {
+    public synchronized void saveToCache() {
         if (weatherSpecs.isEmpty() || cacheFile == null) {
             return;
         }
 
-        LOG.info("Loading weather from cache {}", cacheFile.getPath());
+        LOG.info("Saving weather to cache {}", cacheFile.getPath());
 
-        try (ObjectOutputStream o = new ObjectOutputStream(new FileOutputStream(cacheFile))) {
-            o.writeObject(weatherSpecs);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(cacheFile))) {
+            WeatherSpecCodec.writeList(out, weatherSpecs);
         } catch (final Throwable e) {
             LOG.error("Failed to save weather to cache", e);
         }
@@ -0,0 +1,93 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the last payload encoded from a weather spec, per key, so that the same weather sent
+ * to several devices of the same family, or requested repeatedly by a device, is encoded once.
+ * <p>
+ * The key identifies the device family and the kind of payload, as well as anything else besides
+ * the spec and the default time zone that the payload depends on. Payloads that depend on state
+ * which can not be part of the key, such as the current location or time, must not be cached.
+ * Payloads must not be modified by their users.
+ */
+public final class WeatherPayloadCache {
+    private static final Logger LOG = LoggerFactory.getLogger(WeatherPayloadCache.class);
+
+    private static final int MAX_ENTRIES = 64;
+
+    private static final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private WeatherPayloadCache() {
+    }
+
+    /**
+     * Get the payload for the spec, encoding it if the spec or the default time zone changed since
+     * the last call with the same key.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(final String key, final WeatherSpec spec, final Supplier<T> encoder) {
+        // specs are mutable, so compare the content rather than the instance
+        final byte[] specBytes = WeatherSpecCodec.encode(spec);
+        final int specHash = Arrays.hashCode(specBytes);
+        // dates are usually formatted in local time
+        final String timeZone = TimeZone.getDefault().getID();
+
+        synchronized (entries) {
+            final Entry entry = entries.get(key);
+            if (entry != null && entry.specHash == specHash && entry.timeZone.equals(timeZone) &&
+                    Arrays.equals(entry.specBytes, specBytes)) {
+                LOG.debug("Reusing weather payload {}", key);
+                return (T) entry.payload;
+            }
+        }
+
+        final T payload = encoder.get();
+        synchronized (entries) {
+            entries.put(key, new Entry(specBytes, specHash, timeZone, payload));
+        }
+        return payload;
+    }
+
+    private static final class Entry {
+        private final byte[] specBytes;
+        private final int specHash;
+        private final String timeZone;
+        private final Object payload;
+
+        private Entry(final byte[] specBytes, final int specHash, final String timeZone, final Object payload) {
+            this.specBytes = specBytes;
+            this.specHash = specHash;
+            this.timeZone = timeZone;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.model;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary format for weather specs, used for the weather cache and to tell whether two
+ * specs are identical.
+ * <p>
+ * The format starts with a magic number and a version. New fields must only be appended, and read
+ * conditionally on the version, so that older cache files remain readable.
+ */
+public final class WeatherSpecCodec {
+    /**
+     * "GBWC", which can not be confused with the start of a Java serialization stream (0xACED).
+     */
+    public static final int MAGIC = 0x47425743;
+    public static final int VERSION = 1;
+
+    private WeatherSpecCodec() {
+    }
+
+    public static void writeList(final OutputStream out, final List<WeatherSpec> specs) throws IOException {
+        final DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(MAGIC);
+        dos.writeInt(VERSION);
+        dos.writeInt(specs.size());
+        for (final WeatherSpec spec : specs) {
+            write(dos, spec);
+        }
+        dos.flush();
+    }
+
+    /**
+     * @throws IOException if the stream is not in this format, or in a newer version of it
+     */
+    public static List<WeatherSpec> readList(final InputStream in) throws IOException {
+        final DataInputStream dis = new DataInputStream(in);
+        if (dis.readInt() != MAGIC) {
+            throw new IOException("Not a weather cache");
+        }
+        final int version = dis.readInt();
+        if (version > VERSION) {
+            throw new IOException("Unsupported weather cache version " + version);
+        }
+        final int count = dis.readInt();
+        final List<WeatherSpec> specs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            specs.add(read(dis, version));
+        }
+        return specs;
+    }
+
+    /**
+     * Encodes a single spec, without header. Two specs with the same encoding are identical.
+     */
+    public static byte[] encode(final WeatherSpec spec) {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(512);
+        try {
+            write(new DataOutputStream(baos), spec);
+        } catch (final IOException e) {
+            // can not happen with a ByteArrayOutputStream
+            throw new IllegalStateException("Failed to encode weather spec", e);
+        }
+        return baos.toByteArray();
+    }
+
+    private static void write(final DataOutputStream out, final WeatherSpec spec) throws IOException {
+        out.writeInt(spec.timestamp);
+        writeString(out, spec.location);
+        out.writeInt(spec.currentTemp);
+        out.writeInt(spec.currentConditionCode);
+        writeString(out, spec.currentCondition);
+        out.writeInt(spec.currentHumidity);
+        out.writeInt(spec.todayMaxTemp);
+        out.writeInt(spec.todayMinTemp);
+        out.writeFloat(spec.windSpeed);
+        out.writeInt(spec.windDirection);
+        out.writeFloat(spec.uvIndex);
+        out.writeInt(spec.precipProbability);
+        out.writeInt(spec.dewPoint);
+        out.writeFloat(spec.pressure);
+        out.writeInt(spec.cloudCover);
+        out.writeFloat(spec.visibility);
+        out.writeInt(spec.sunRise);
+        out.writeInt(spec.sunSet);
+        out.writeInt(spec.moonRise);
+        out.writeInt(spec.moonSet);
+        out.writeInt(spec.moonPhase);
+        out.writeFloat(spec.latitude);
+        out.writeFloat(spec.longitude);
+        out.writeInt(spec.feelsLikeTemp);
+        out.writeInt(spec.isCurrentLocation);
+        writeAirQuality(out, spec.airQuality);
+
+        final List<WeatherSpec.Daily> forecasts = spec.forecasts != null ? spec.forecasts : new ArrayList<>();
+        out.writeShort(forecasts.size());
+        for (final WeatherSpec.Daily daily : forecasts) {
+            out.writeInt(daily.minTemp);
+            out.writeInt(daily.maxTemp);
+            out.writeInt(daily.conditionCode);
+            out.writeInt(daily.humidity);
+            out.writeFloat(daily.windSpeed);
+            out.writeInt(daily.windDirection);
+            out.writeFloat(daily.uvIndex);
+            out.writeInt(daily.precipProbability);
+            out.writeInt(daily.sunRise);
+            out.writeInt(daily.sunSet);
+            out.writeInt(daily.moonRise);
+            out.writeInt(daily.moonSet);
+            out.writeInt(daily.moonPhase);
+            writeAirQuality(out, daily.airQuality);
+        }
+
+        final List<WeatherSpec.Hourly> hourly = spec.hourly != null ? spec.hourly : new ArrayList<>();
+        out.writeShort(hourly.size());
+        for (final WeatherSpec.Hourly hour : hourly) {
+            out.writeInt(hour.timestamp);
+            out.writeInt(hour.temp);
+            out.writeInt(hour.conditionCode);
+            out.writeInt(hour.humidity);
+            out.writeFloat(hour.windSpeed);
+            out.writeInt(hour.windDirection);
+            out.writeFloat(hour.uvIndex);
+            out.writeInt(hour.precipProbability);
+        }
+    }
+
+    @SuppressWarnings("unused") // version is for fields added later
+    private static WeatherSpec read(final DataInputStream in, final int version) throws IOException {
+        final WeatherSpec spec = new WeatherSpec();
+        spec.timestamp = in.readInt();
+        spec.location = readString(in);
+        spec.currentTemp = in.readInt();
+        spec.currentConditionCode = in.readInt();
+        spec.currentCondition = readString(in);
+        spec.currentHumidity = in.readInt();
+        spec.todayMaxTemp = in.readInt();
+        spec.todayMinTemp = in.readInt();
+        spec.windSpeed = in.readFloat();
+        spec.windDirection = in.readInt();
+        spec.uvIndex = in.readFloat();
+        spec.precipProbability = in.readInt();
+        spec.dewPoint = in.readInt();
+        spec.pressure = in.readFloat();
+        spec.cloudCover = in.readInt();
+        spec.visibility = in.readFloat();
+        spec.sunRise = in.readInt();
+        spec.sunSet = in.readInt();
+        spec.moonRise = in.readInt();
+        spec.moonSet = in.readInt();
+        spec.moonPhase = in.readInt();
+        spec.latitude = in.readFloat();
+        spec.longitude = in.readFloat();
+        spec.feelsLikeTemp = in.readInt();
+        spec.isCurrentLocation = in.readInt();
+        spec.airQuality = readAirQuality(in);
+
+        final int forecastCount = in.readUnsignedShort();
+        for (int i = 0; i < forecastCount; i++) {
+            final WeatherSpec.Daily daily = new WeatherSpec.Daily();
+            daily.minTemp = in.readInt();
+            daily.maxTemp = in.readInt();
+            daily.conditionCode = in.readInt();
+            daily.humidity = in.readInt();
+            daily.windSpeed = in.readFloat();
+            daily.windDirection = in.readInt();
+            daily.uvIndex = in.readFloat();
+            daily.precipProbability = in.readInt();
+            daily.sunRise = in.readInt();
+            daily.sunSet = in.readInt();
+            daily.moonRise = in.readInt();
+            daily.moonSet = in.readInt();
+            daily.moonPhase = in.readInt();
+            daily.airQuality = readAirQuality(in);
+            spec.forecasts.add(daily);
+        }
+
+        final int hourlyCount = in.readUnsignedShort();
+        for (int i = 0; i < hourlyCount; i++) {
+            final WeatherSpec.Hourly hour = new WeatherSpec.Hourly();
+            hour.timestamp = in.readInt();
+            hour.temp = in.readInt();
+            hour.conditionCode = in.readInt();
+            hour.humidity = in.readInt();
+            hour.windSpeed = in.readFloat();
+            hour.windDirection = in.readInt();
+            hour.uvIndex = in.readFloat();
+            hour.precipProbability = in.readInt();
+            spec.hourly.add(hour);
+        }
+
+        return spec;
+    }
+
+    private static void writeAirQuality(final DataOutputStream out, @Nullable final WeatherSpec.AirQuality airQuality) throws IOException {
+        out.writeBoolean(airQuality != null);
+        if (airQuality == null) {
+            return;
+        }
+        out.writeInt(airQuality.aqi);
+        out.writeFloat(airQuality.co);
+        out.writeFloat(airQuality.no2);
+        out.writeFloat(airQuality.o3);
+        out.writeFloat(airQuality.pm10);
+        out.writeFloat(airQuality.pm25);
+        out.writeFloat(airQuality.so2);
+        out.writeInt(airQuality.coAqi);
+        out.writeInt(airQuality.no2Aqi);
+        out.writeInt(airQuality.o3Aqi);
+        out.writeInt(airQuality.pm10Aqi);
+        out.writeInt(airQuality.pm25Aqi);
+        out.writeInt(airQuality.so2Aqi);
+    }
+
+    @Nullable
+    private static WeatherSpec.AirQuality readAirQuality(final DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        final WeatherSpec.AirQuality airQuality = new WeatherSpec.AirQuality();
+        airQuality.aqi = in.readInt();
+        airQuality.co = in.readFloat();
+        airQuality.no2 = in.readFloat();
+        airQuality.o3 = in.readFloat();
+        airQuality.pm10 = in.readFloat();
+        airQuality.pm25 = in.readFloat();
+        airQuality.so2 = in.readFloat();
+        airQuality.coAqi = in.readInt();
+        airQuality.no2Aqi = in.readInt();
+        airQuality.o3Aqi = in.readInt();
+        airQuality.pm10Aqi = in.readInt();
+        airQuality.pm25Aqi = in.readInt();
+        airQuality.so2Aqi = in.readInt();
+        return airQuality;
+    }
+
+    private static void writeString(final DataOutputStream out, @Nullable final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    private static String readString(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,367 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.service;
+
+import static nodomain.freeyourgadget.gadgetbridge.model.DeviceService.*;
+
+import android.content.Intent;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.function.UnaryOperator;
+
+import nodomain.freeyourgadget.gadgetbridge.GBApplication;
+import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
+import nodomain.freeyourgadget.gadgetbridge.model.MusicSpec;
+import nodomain.freeyourgadget.gadgetbridge.model.MusicStateSpec;
+import nodomain.freeyourgadget.gadgetbridge.model.NotificationSpec;
+import nodomain.freeyourgadget.gadgetbridge.model.NotificationType;
+import nodomain.freeyourgadget.gadgetbridge.model.WeatherSpec;
+import nodomain.freeyourgadget.gadgetbridge.util.Prefs;
+
+/**
+ * A frequent command for the devices, which {@link nodomain.freeyourgadget.gadgetbridge.impl.GBDeviceService}
+ * hands to the running {@link DeviceCommunicationService} as is, instead of as an Intent. Intents
+ * of external callers with the same action are converted once, see {@link #fromIntent(Intent, GBDevice)}.
+ * <p>
+ * A command takes ownership of the specs it is created with, the caller must not modify them
+ * afterwards. Each device gets specs of its own, with its texts sanitized and transliterated.
+ */
+public abstract class DeviceCommand {
+    private final String action;
+    @Nullable
+    private final GBDevice device;
+
+    protected DeviceCommand(final String action, @Nullable final GBDevice device) {
+        this.action = action;
+        this.device = device;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * @return the device to send the command to, or null for all initialized devices
+     */
+    @Nullable
+    public GBDevice getDevice() {
+        return device;
+    }
+
+    /**
+     * @return the key of the commands that supersede each other while pending, or null
+     */
+    @Nullable
+    public String getCoalescingKey() {
+        return null;
+    }
+
+    /**
+     * Sends the command to one device.
+     *
+     * @param textFilter sanitizes and transliterates the texts for the device
+     */
+    public abstract void execute(GBDevice device, DeviceSupport deviceSupport, UnaryOperator<String> textFilter);
+
+    /**
+     * Converts the command to an Intent, to start the service if it is not running.
+     */
+    public Intent toIntent(final Intent intent) {
+        intent.setAction(action);
+        if (device != null) {
+            intent.putExtra(GBDevice.EXTRA_DEVICE, device);
+        }
+        return intent;
+    }
+
+    /**
+     * @return the command of an Intent, or null if its action is not one of the typed commands
+     */
+    @Nullable
+    public static DeviceCommand fromIntent(final Intent intent, @Nullable final GBDevice device) {
+        final String action = intent.getAction();
+        if (action == null) {
+            return null;
+        }
+        switch (action) {
+            case ACTION_NOTIFICATION:
+                return NotificationCommand.fromIntent(intent, device);
+            case ACTION_SETMUSICSTATE:
+                return MusicStateCommand.fromIntent(intent, device);
+            case ACTION_SETMUSICINFO:
+                return MusicInfoCommand.fromIntent(intent, device);
+            case ACTION_SEND_WEATHER:
+                return WeatherCommand.fromIntent(intent, device);
+            case ACTION_FIND_DEVICE:
+                return new FindDeviceCommand(device, intent.getBooleanExtra(EXTRA_FIND_START, false));
+            default:
+                return null;
+        }
+    }
+
+    public static class NotificationCommand extends DeviceCommand {
+        private final NotificationSpec notificationSpec;
+
+        public NotificationCommand(@Nullable final GBDevice device, final NotificationSpec notificationSpec) {
+            super(ACTION_NOTIFICATION, device);
+            this.notificationSpec = notificationSpec;
+        }
+
+        public int getId() {
+            return notificationSpec.getId();
+        }
+
+        @Override
+        public void execute(final GBDevice device, final DeviceSupport deviceSupport, final UnaryOperator<String> textFilter) {
+            final NotificationSpec spec = new NotificationSpec(notificationSpec.getId());
+            spec.flags = notificationSpec.flags;
+            spec.key = notificationSpec.key;
+            spec.phoneNumber = notificationSpec.phoneNumber;
+            spec.sender = textFilter.apply(notificationSpec.sender);
+            spec.subject = textFilter.apply(notificationSpec.subject);
+            spec.title = textFilter.apply(notificationSpec.title);
+            if (spec.title == null) {
+                spec.title = "";
+            }
+            spec.body = textFilter.apply(notificationSpec.body);
+            if (spec.body == null) {
+                spec.body = "";
+            }
+            spec.sourceName = textFilter.apply(notificationSpec.sourceName);
+            spec.type = notificationSpec.type;
+            spec.attachedActions = notificationSpec.attachedActions;
+            spec.pebbleColor = notificationSpec.pebbleColor;
+            spec.sourceAppId = notificationSpec.sourceAppId;
+            spec.iconId = notificationSpec.iconId;
+            spec.picturePath = notificationSpec.picturePath;
+            spec.dndSuppressed = notificationSpec.dndSuppressed;
+            spec.channelId = notificationSpec.channelId;
+            spec.category = notificationSpec.category;
+
+            if (spec.type == NotificationType.GENERIC_SMS && spec.phoneNumber != null) {
+                GBApplication.getIDSenderLookup().add(spec.getId(), spec.phoneNumber);
+            }
+
+            //TODO: check if at least one of the attached actions is a reply action instead?
+            if ((spec.attachedActions != null && spec.attachedActions.size() > 0)
+                    || (spec.type == NotificationType.GENERIC_SMS && spec.phoneNumber != null)) {
+                // NOTE: maybe not where it belongs
+                // I would rather like to save that as an array in SharedPreferences
+                // this would work but I dont know how to do the same in the Settings Activity's xml
+                final Prefs devicePrefs = new Prefs(GBApplication.getDeviceSpecificSharedPrefs(device.getAddress()));
+                ArrayList<String> replies = new ArrayList<>();
+                for (int i = 1; i <= 16; i++) {
+                    String reply = devicePrefs.getString("canned_reply_" + i, null);
+                    if (reply != null && !reply.equals("")) {
+                        replies.add(reply);
+                    }
+                }
+                spec.cannedReplies = replies.toArray(new String[0]);
+            }
+
+            deviceSupport.onNotification(spec);
+        }
+
+        @Override
+        public Intent toIntent(final Intent intent) {
+            return super.toIntent(intent)
+                    .putExtra(EXTRA_NOTIFICATION_FLAGS, notificationSpec.flags)
+                    .putExtra(EXTRA_NOTIFICATION_PHONENUMBER, notificationSpec.phoneNumber)
+                    .putExtra(EXTRA_NOTIFICATION_SENDER, notificationSpec.sender)
+                    .putExtra(EXTRA_NOTIFICATION_SUBJECT, notificationSpec.subject)
+                    .putExtra(EXTRA_NOTIFICATION_TITLE, notificationSpec.title)
+                    .putExtra(EXTRA_NOTIFICATION_BODY, notificationSpec.body)
+                    .putExtra(EXTRA_NOTIFICATION_ID, notificationSpec.getId())
+                    .putExtra(EXTRA_NOTIFICATION_KEY, notificationSpec.key)
+                    .putExtra(EXTRA_NOTIFICATION_TYPE, notificationSpec.type)
+                    .putExtra(EXTRA_NOTIFICATION_ACTIONS, notificationSpec.attachedActions)
+                    .putExtra(EXTRA_NOTIFICATION_SOURCENAME, notificationSpec.sourceName)
+                    .putExtra(EXTRA_NOTIFICATION_PEBBLE_COLOR, notificationSpec.pebbleColor)
+                    .putExtra(EXTRA_NOTIFICATION_SOURCEAPPID, notificationSpec.sourceAppId)
+                    .putExtra(EXTRA_NOTIFICATION_ICONID, notificationSpec.iconId)
+                    .putExtra(NOTIFICATION_PICTURE_PATH, notificationSpec.picturePath)
+                    .putExtra(EXTRA_NOTIFICATION_DNDSUPPRESSED, notificationSpec.dndSuppressed)
+                    .putExtra(EXTRA_NOTIFICATION_CHANNEL_ID, notificationSpec.channelId)
+                    .putExtra(EXTRA_NOTIFICATION_CATEGORY, notificationSpec.category);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static NotificationCommand fromIntent(final Intent intent, @Nullable final GBDevice device) {
+            final NotificationSpec notificationSpec = new NotificationSpec(intent.getIntExtra(EXTRA_NOTIFICATION_ID, -1));
+            notificationSpec.phoneNumber = intent.getStringExtra(EXTRA_NOTIFICATION_PHONENUMBER);
+            notificationSpec.sender = intent.getStringExtra(EXTRA_NOTIFICATION_SENDER);
+            notificationSpec.subject = intent.getStringExtra(EXTRA_NOTIFICATION_SUBJECT);
+            notificationSpec.title = intent.getStringExtra(EXTRA_NOTIFICATION_TITLE);
+            notificationSpec.key = intent.getStringExtra(EXTRA_NOTIFICATION_KEY);
+            notificationSpec.body = intent.getStringExtra(EXTRA_NOTIFICATION_BODY);
+            notificationSpec.sourceName = intent.getStringExtra(EXTRA_NOTIFICATION_SOURCENAME);
+            notificationSpec.type = (NotificationType) intent.getSerializableExtra(EXTRA_NOTIFICATION_TYPE);
+            notificationSpec.attachedActions = (ArrayList<NotificationSpec.Action>) intent.getSerializableExtra(EXTRA_NOTIFICATION_ACTIONS);
+            notificationSpec.pebbleColor = intent.getByteExtra(EXTRA_NOTIFICATION_PEBBLE_COLOR, (byte) 0);
+            notificationSpec.flags = intent.getIntExtra(EXTRA_NOTIFICATION_FLAGS, 0);
+            notificationSpec.sourceAppId = intent.getStringExtra(EXTRA_NOTIFICATION_SOURCEAPPID);
+            notificationSpec.iconId = intent.getIntExtra(EXTRA_NOTIFICATION_ICONID, 0);
+            notificationSpec.picturePath = intent.getStringExtra(NOTIFICATION_PICTURE_PATH);
+            notificationSpec.dndSuppressed = intent.getIntExtra(EXTRA_NOTIFICATION_DNDSUPPRESSED, 0);
+            notificationSpec.channelId = intent.getStringExtra(EXTRA_NOTIFICATION_CHANNEL_ID);
+            notificationSpec.category = intent.getStringExtra(EXTRA_NOTIFICATION_CATEGORY);
+            return new NotificationCommand(device, notificationSpec);
+        }
+    }
+
+    public static class MusicStateCommand extends DeviceCommand {
+        private final MusicStateSpec stateSpec;
+
+        public MusicStateCommand(@Nullable final GBDevice device, final MusicStateSpec stateSpec) {
+            super(ACTION_SETMUSICSTATE, device);
+            this.stateSpec = stateSpec;
+        }
+
+        @Override
+        public String getCoalescingKey() {
+            return ACTION_SETMUSICSTATE;
+        }
+
+        @Override
+        public void execute(final GBDevice device, final DeviceSupport deviceSupport, final UnaryOperator<String> textFilter) {
+            deviceSupport.onSetMusicState(new MusicStateSpec(stateSpec));
+        }
+
+        @Override
+        public Intent toIntent(final Intent intent) {
+            return super.toIntent(intent)
+                    .putExtra(EXTRA_MUSIC_REPEAT, stateSpec.repeat)
+                    .putExtra(EXTRA_MUSIC_RATE, stateSpec.playRate)
+                    .putExtra(EXTRA_MUSIC_STATE, stateSpec.state)
+                    .putExtra(EXTRA_MUSIC_SHUFFLE, stateSpec.shuffle)
+                    .putExtra(EXTRA_MUSIC_POSITION, stateSpec.position);
+        }
+
+        private static MusicStateCommand fromIntent(final Intent intent, @Nullable final GBDevice device) {
+            final MusicStateSpec stateSpec = new MusicStateSpec();
+            stateSpec.shuffle = intent.getByteExtra(EXTRA_MUSIC_SHUFFLE, (byte) 0);
+            stateSpec.repeat = intent.getByteExtra(EXTRA_MUSIC_REPEAT, (byte) 0);
+            stateSpec.position = intent.getIntExtra(EXTRA_MUSIC_POSITION, 0);
+            stateSpec.playRate = intent.getIntExtra(EXTRA_MUSIC_RATE, 0);
+            stateSpec.state = intent.getByteExtra(EXTRA_MUSIC_STATE, (byte) 0);
+            return new MusicStateCommand(device, stateSpec);
+        }
+    }
+
+    public static class MusicInfoCommand extends DeviceCommand {
+        private final MusicSpec musicSpec;
+
+        public MusicInfoCommand(@Nullable final GBDevice device, final MusicSpec musicSpec) {
+            super(ACTION_SETMUSICINFO, device);
+            this.musicSpec = musicSpec;
+        }
+
+        @Override
+        public String getCoalescingKey() {
+            return ACTION_SETMUSICINFO;
+        }
+
+        @Override
+        public void execute(final GBDevice device, final DeviceSupport deviceSupport, final UnaryOperator<String> textFilter) {
+            final MusicSpec spec = new MusicSpec(musicSpec);
+            spec.artist = textFilter.apply(musicSpec.artist);
+            spec.album = textFilter.apply(musicSpec.album);
+            spec.track = textFilter.apply(musicSpec.track);
+            deviceSupport.onSetMusicInfo(spec);
+        }
+
+        @Override
+        public Intent toIntent(final Intent intent) {
+            return super.toIntent(intent)
+                    .putExtra(EXTRA_MUSIC_ARTIST, musicSpec.artist)
+                    .putExtra(EXTRA_MUSIC_ALBUM, musicSpec.album)
+                    .putExtra(EXTRA_MUSIC_TRACK, musicSpec.track)
+                    .putExtra(EXTRA_MUSIC_DURATION, musicSpec.duration)
+                    .putExtra(EXTRA_MUSIC_TRACKCOUNT, musicSpec.trackCount)
+                    .putExtra(EXTRA_MUSIC_TRACKNR, musicSpec.trackNr);
+        }
+
+        private static MusicInfoCommand fromIntent(final Intent intent, @Nullable final GBDevice device) {
+            final MusicSpec musicSpec = new MusicSpec();
+            musicSpec.artist = intent.getStringExtra(EXTRA_MUSIC_ARTIST);
+            musicSpec.album = intent.getStringExtra(EXTRA_MUSIC_ALBUM);
+            musicSpec.track = intent.getStringExtra(EXTRA_MUSIC_TRACK);
+            musicSpec.duration = intent.getIntExtra(EXTRA_MUSIC_DURATION, 0);
+            musicSpec.trackCount = intent.getIntExtra(EXTRA_MUSIC_TRACKCOUNT, 0);
+            musicSpec.trackNr = intent.getIntExtra(EXTRA_MUSIC_TRACKNR, 0);
+            return new MusicInfoCommand(device, musicSpec);
+        }
+    }
+
+    /**
+     * Sends weather to the devices. The weather specs are shared by all devices, like the cached
+     * weather they usually come from, so the device supports must not modify them.
+     */
+    public static class WeatherCommand extends DeviceCommand {
+        private final ArrayList<WeatherSpec> weatherSpecs;
+
+        public WeatherCommand(@Nullable final GBDevice device, final ArrayList<WeatherSpec> weatherSpecs) {
+            super(ACTION_SEND_WEATHER, device);
+            this.weatherSpecs = weatherSpecs;
+        }
+
+        @Override
+        public String getCoalescingKey() {
+            return ACTION_SEND_WEATHER;
+        }
+
+        @Override
+        public void execute(final GBDevice device, final DeviceSupport deviceSupport, final UnaryOperator<String> textFilter) {
+            if (weatherSpecs != null && !weatherSpecs.isEmpty()) {
+                deviceSupport.onSendWeather(new ArrayList<>(weatherSpecs));
+            }
+        }
+
+        @Override
+        public Intent toIntent(final Intent intent) {
+            return super.toIntent(intent)
+                    .putExtra(EXTRA_WEATHER, weatherSpecs);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static WeatherCommand fromIntent(final Intent intent, @Nullable final GBDevice device) {
+            return new WeatherCommand(device, (ArrayList<WeatherSpec>) intent.getSerializableExtra(EXTRA_WEATHER));
+        }
+    }
+
+    public static class FindDeviceCommand extends DeviceCommand {
+        private final boolean start;
+
+        public FindDeviceCommand(@Nullable final GBDevice device, final boolean start) {
+            super(ACTION_FIND_DEVICE, device);
+            this.start = start;
+        }
+
+        @Override
+        public void execute(final GBDevice device, final DeviceSupport deviceSupport, final UnaryOperator<String> textFilter) {
+            deviceSupport.onFindDevice(start);
+        }
+
+        @Override
+        public Intent toIntent(final Intent intent) {
+            return super.toIntent(intent)
+                    .putExtra(EXTRA_FIND_START, start);
+        }
+    }
+}
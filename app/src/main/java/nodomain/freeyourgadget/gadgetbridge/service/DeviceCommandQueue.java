@@ -0,0 +1,102 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.service;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import androidx.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Executes the commands for one device in order, on a thread of its own, so that the commands
+ * neither wait for the main thread nor for the commands of other devices.
+ * <p>
+ * A command submitted with a coalescing key replaces the pending command with the same key, if
+ * that did not start yet. For example, only the latest of a burst of music state updates is sent
+ * to the device.
+ */
+public class DeviceCommandQueue {
+    private static final Logger LOG = LoggerFactory.getLogger(DeviceCommandQueue.class);
+
+    private final String name;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Map<String, Runnable> pendingByKey = new HashMap<>();
+    private long coalescedCount = 0;
+
+    public DeviceCommandQueue(final String name) {
+        this.name = name;
+        this.thread = new HandlerThread(name);
+        this.thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    public void submit(@Nullable final String coalescingKey, final Runnable command) {
+        if (coalescingKey == null) {
+            handler.post(command);
+            return;
+        }
+
+        final Runnable coalescable = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (pendingByKey) {
+                    if (pendingByKey.get(coalescingKey) == this) {
+                        pendingByKey.remove(coalescingKey);
+                    }
+                }
+                command.run();
+            }
+        };
+
+        synchronized (pendingByKey) {
+            final Runnable superseded = pendingByKey.put(coalescingKey, coalescable);
+            if (superseded != null) {
+                // no-op if it already started, it then simply runs before this one
+                handler.removeCallbacks(superseded);
+                if (++coalescedCount % 100 == 0) {
+                    LOG.debug("{}: {} superseded commands skipped", name, coalescedCount);
+                }
+            }
+            handler.post(coalescable);
+        }
+    }
+
+    /**
+     * Stops the thread after the pending commands. Commands submitted afterwards are dropped.
+     */
+    public void quit() {
+        thread.quitSafely();
+    }
+
+    /**
+     * Stops the thread after the pending commands, without waiting for them. Commands submitted
+     * afterwards are dropped.
+     *
+     * @param cleanup runs on the thread of the queue, right after the pending commands
+     */
+    public void quit(final Runnable cleanup) {
+        handler.post(cleanup);
+        thread.quitSafely();
+    }
+}
@@ -41,6 +41,8 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.Parcel;
 import android.widget.Toast;
 
 import androidx.annotation.Nullable;
@@ -51,12 +53,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.GBException;
@@ -94,13 +98,8 @@ import nodomain.freeyourgadget.gadgetbridge.model.CalendarEventSpec;
 import nodomain.freeyourgadget.gadgetbridge.model.CallSpec;
 import nodomain.freeyourgadget.gadgetbridge.model.CannedMessagesSpec;
 import nodomain.freeyourgadget.gadgetbridge.model.Contact;
-import nodomain.freeyourgadget.gadgetbridge.model.MusicSpec;
-import nodomain.freeyourgadget.gadgetbridge.model.MusicStateSpec;
 import nodomain.freeyourgadget.gadgetbridge.model.NavigationInfoSpec;
-import nodomain.freeyourgadget.gadgetbridge.model.NotificationSpec;
-import nodomain.freeyourgadget.gadgetbridge.model.NotificationType;
 import nodomain.freeyourgadget.gadgetbridge.model.Reminder;
-import nodomain.freeyourgadget.gadgetbridge.model.WeatherSpec;
 import nodomain.freeyourgadget.gadgetbridge.model.WorldClock;
 import nodomain.freeyourgadget.gadgetbridge.service.btle.BLEScanService;
 import nodomain.freeyourgadget.gadgetbridge.service.receivers.AutoConnectIntervalReceiver;
@@ -244,9 +243,38 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
     @SuppressLint("StaticFieldLeak") // only used for test cases
     private static DeviceSupportFactory DEVICE_SUPPORT_FACTORY = null;
 
+    @SuppressLint("StaticFieldLeak") // cleared in onDestroy
+    private static volatile DeviceCommunicationService runningInstance = null;
+
+    /**
+     * Actions that change the set of connected devices, which are always handled on the main
+     * thread.
+     */
+    private static final Set<String> LIFECYCLE_ACTIONS = new HashSet<>(Arrays.asList(
+            ACTION_CONNECT,
+            ACTION_DISCONNECT
+    ));
+
+    /**
+     * Actions whose pending commands are superseded by a newer one of the same action.
+     */
+    private static final Set<String> COALESCING_ACTIONS = new HashSet<>(Arrays.asList(
+            ACTION_SET_PHONE_VOLUME
+    ));
+
     private DeviceSupportFactory mFactory;
-    private final ArrayList<DeviceStruct> deviceStructs = new ArrayList<>(1);
-    private final HashMap<String, ArrayList<Intent>> cachedNotifications = new HashMap<>();
+    // also read by the command queues of the devices
+    private final List<DeviceStruct> deviceStructs = new CopyOnWriteArrayList<>();
+    private final HashMap<String, DeviceCommandQueue> commandQueues = new HashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object mainThreadCommandsLock = new Object();
+    /**
+     * In-process commands posted to the main thread and not handled yet, guarded by
+     * mainThreadCommandsLock. While there are any, the following commands are posted as well, so
+     * that they are not handled before them.
+     */
+    private int pendingMainThreadCommands = 0;
+    private final HashMap<String, ArrayList<DeviceCommand.NotificationCommand>> cachedNotifications = new HashMap<>();
 
     private PhoneCallReceiver mPhoneCallReceiver = null;
     private SMSReceiver mSMSReceiver = null;
@@ -534,6 +562,7 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
         LOG.debug("DeviceCommunicationService is being created");
         super.onCreate();
         mFactory = getDeviceSupportFactory();
+        runningInstance = this;
 
         registerInternalReceivers();
         registerExternalReceivers();
@@ -699,7 +728,7 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
     }
 
     @Override
-    public synchronized int onStartCommand(Intent intent, int flags, int startId) {
+    public int onStartCommand(Intent intent, int flags, int startId) {
         if (intent == null) {
             LOG.info("no intent");
             return START_STICKY;
@@ -714,11 +743,131 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
 
         LOG.debug("Service startcommand: " + action);
 
+        dispatch(intent, action);
+        return START_STICKY;
+    }
+
+    /**
+     * Dispatches a command of {@link GBDeviceService} directly to the running service, without
+     * the round-trip through the activity manager.
+     * <p>
+     * The intent is copied through a parcel, like an intent sent with startService, so that the
+     * commands do not share the extras with the caller, which may still modify them. Connect and
+     * disconnect are posted to the main thread, and so are the commands following them until they
+     * were handled, so that all commands are handled in the order they were sent.
+     *
+     * @return false if the command must be sent with {@link Context#startService(Intent)}
+     * instead, because the service is not running
+     */
+    public static boolean dispatchInProcess(final Intent intent) {
+        final DeviceCommunicationService service = runningInstance;
+        final String action = intent.getAction();
+        if (service == null || action == null) {
+            return false;
+        }
+
+        final Intent copy = copyIntent(intent);
+        final boolean postToMainThread;
+        synchronized (service.mainThreadCommandsLock) {
+            postToMainThread = LIFECYCLE_ACTIONS.contains(action) || service.pendingMainThreadCommands > 0;
+            if (postToMainThread) {
+                service.pendingMainThreadCommands++;
+            }
+        }
+
+        if (!postToMainThread) {
+            service.dispatch(copy, action);
+            return true;
+        }
+
+        service.mainHandler.post(() -> {
+            try {
+                if (runningInstance == service) {
+                    service.dispatch(copy, action);
+                } else {
+                    // the service was destroyed in the meantime
+                    service.getApplicationContext().startService(copy);
+                }
+            } catch (final Exception e) {
+                LOG.error("Failed to dispatch {}", action, e);
+            } finally {
+                synchronized (service.mainThreadCommandsLock) {
+                    service.pendingMainThreadCommands--;
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Dispatches a typed command of {@link GBDeviceService} directly to the running service. Unlike
+     * {@link #dispatchInProcess(Intent)}, the command is neither converted to an Intent nor copied.
+     *
+     * @return false if the command must be sent with {@link Context#startService(Intent)}
+     * instead, because the service is not running
+     */
+    public static boolean dispatchInProcess(final DeviceCommand command) {
+        final DeviceCommunicationService service = runningInstance;
+        if (service == null) {
+            return false;
+        }
+
+        final boolean postToMainThread;
+        synchronized (service.mainThreadCommandsLock) {
+            postToMainThread = service.pendingMainThreadCommands > 0;
+            if (postToMainThread) {
+                service.pendingMainThreadCommands++;
+            }
+        }
+
+        if (!postToMainThread) {
+            service.dispatch(command);
+            return true;
+        }
+
+        service.mainHandler.post(() -> {
+            try {
+                if (runningInstance == service) {
+                    service.dispatch(command);
+                } else {
+                    // the service was destroyed in the meantime
+                    service.getApplicationContext().startService(command.toIntent(new Intent(service.getApplicationContext(), DeviceCommunicationService.class)));
+                }
+            } catch (final Exception e) {
+                LOG.error("Failed to dispatch {}", command.getAction(), e);
+            } finally {
+                synchronized (service.mainThreadCommandsLock) {
+                    service.pendingMainThreadCommands--;
+                }
+            }
+        });
+        return true;
+    }
+
+    private static Intent copyIntent(final Intent intent) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            intent.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            final Intent copy = Intent.CREATOR.createFromParcel(parcel);
+            copy.setExtrasClassLoader(DeviceCommunicationService.class.getClassLoader());
+            return copy;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private synchronized void dispatch(final Intent intent, final String action) {
         // when we get past this, we should have valid mDeviceSupport and mGBDevice instances
 
         GBDevice targetDevice = intent.getParcelableExtra(GBDevice.EXTRA_DEVICE);
 
-        Prefs prefs = getPrefs();
+        final DeviceCommand command = DeviceCommand.fromIntent(intent, targetDevice);
+        if (command != null) {
+            dispatch(command);
+            return;
+        }
+
         switch (action) {
             case ACTION_CONNECT:
                 boolean firstTime = intent.getBooleanExtra(EXTRA_CONNECT_FIRST_TIME, false);
@@ -732,23 +881,13 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
                     for(GBDevice device : getGBDevices()){
                         if(isDeviceInitialized(device)){
                             targetedDevices.add(device);
-                        } else if (isDeviceReconnecting(device) && action.equals(ACTION_NOTIFICATION) && GBApplication.getPrefs().getBoolean("notification_cache_while_disconnected", false)) {
-                            if (!cachedNotifications.containsKey(device.getAddress())) {
-                                cachedNotifications.put(device.getAddress(), new ArrayList<>());
-                            }
-                            ArrayList<Intent> notifCache = cachedNotifications.get(device.getAddress());
-                            notifCache.add(intent);
-                            if (notifCache.size() > NOTIFICATIONS_CACHE_MAX) {
-                                // remove the oldest notification if the maximum is reached
-                                notifCache.remove(0);
-                            }
                         } else if (action.equals(ACTION_DELETE_NOTIFICATION)) {
-                            ArrayList<Intent> notifCache = cachedNotifications.get(device.getAddress());
+                            ArrayList<DeviceCommand.NotificationCommand> notifCache = cachedNotifications.get(device.getAddress());
                             if (notifCache != null) {
                                 int notifId = intent.getIntExtra(EXTRA_NOTIFICATION_ID, -1);
-                                ArrayList<Intent> toRemove = new ArrayList<>();
-                                for (Intent cached : notifCache) {
-                                    if (notifId == cached.getIntExtra(EXTRA_NOTIFICATION_ID, -1)) {
+                                ArrayList<DeviceCommand.NotificationCommand> toRemove = new ArrayList<>();
+                                for (DeviceCommand.NotificationCommand cached : notifCache) {
+                                    if (notifId == cached.getId()) {
                                         toRemove.add(cached);
                                     }
                                 }
@@ -760,17 +899,102 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
                     }
                 }
                 for (GBDevice device1 : targetedDevices) {
-                    try {
-                        handleAction(intent, action, device1);
-                    } catch (DeviceNotFoundException e) {
-                        e.printStackTrace();
-                    } catch (Exception e) {
-                        LOG.error("An exception was raised while handling the action {} for the device {}: ", action, device1, e);
+                    if (ACTION_DISCONNECT.equals(action)) {
+                        handleActionSafely(intent, action, device1);
+                    } else {
+                        getCommandQueue(device1).submit(
+                                COALESCING_ACTIONS.contains(action) ? action : null,
+                                () -> handleActionSafely(intent, action, device1)
+                        );
                     }
                 }
                 break;
         }
-        return START_STICKY;
+    }
+
+    private synchronized void dispatch(final DeviceCommand command) {
+        final List<GBDevice> targetedDevices = new ArrayList<>();
+        if (command.getDevice() != null) {
+            targetedDevices.add(command.getDevice());
+        } else {
+            for (GBDevice device : getGBDevices()) {
+                if (isDeviceInitialized(device)) {
+                    targetedDevices.add(device);
+                } else if (isDeviceReconnecting(device) && command instanceof DeviceCommand.NotificationCommand && GBApplication.getPrefs().getBoolean("notification_cache_while_disconnected", false)) {
+                    if (!cachedNotifications.containsKey(device.getAddress())) {
+                        cachedNotifications.put(device.getAddress(), new ArrayList<>());
+                    }
+                    ArrayList<DeviceCommand.NotificationCommand> notifCache = cachedNotifications.get(device.getAddress());
+                    notifCache.add((DeviceCommand.NotificationCommand) command);
+                    if (notifCache.size() > NOTIFICATIONS_CACHE_MAX) {
+                        // remove the oldest notification if the maximum is reached
+                        notifCache.remove(0);
+                    }
+                }
+            }
+        }
+        for (GBDevice device : targetedDevices) {
+            getCommandQueue(device).submit(command.getCoalescingKey(), () -> executeSafely(command, device));
+        }
+    }
+
+    private void executeSafely(final DeviceCommand command, final GBDevice device) {
+        try {
+            final DeviceSupport deviceSupport = getDeviceSupport(device);
+            final DeviceCoordinator coordinator = getDeviceCoordinator(device);
+            final Transliterator transliterator = LanguageUtils.getTransliterator(device);
+            command.execute(device, deviceSupport, text -> {
+                if (text == null) {
+                    return null;
+                }
+                // Ensure the text is sanitized (eg. emoji converted to ascii) before applying the transliterators
+                // otherwise the emoji are removed before converting them
+                final String sanitizedText = sanitizeNotifText(text, deviceSupport, coordinator);
+                return transliterator != null ? transliterator.transliterate(sanitizedText) : sanitizedText;
+            });
+        } catch (DeviceNotFoundException e) {
+            e.printStackTrace();
+        } catch (Exception e) {
+            LOG.error("An exception was raised while handling the action {} for the device {}: ", command.getAction(), device, e);
+        }
+    }
+
+    private void handleActionSafely(final Intent intent, final String action, final GBDevice device) {
+        try {
+            handleAction(intent, action, device);
+        } catch (DeviceNotFoundException e) {
+            e.printStackTrace();
+        } catch (Exception e) {
+            LOG.error("An exception was raised while handling the action {} for the device {}: ", action, device, e);
+        }
+    }
+
+    private DeviceCommandQueue getCommandQueue(final GBDevice device) {
+        synchronized (commandQueues) {
+            DeviceCommandQueue queue = commandQueues.get(device.getAddress());
+            if (queue == null) {
+                queue = new DeviceCommandQueue("DeviceCommands-" + device.getAddress());
+                commandQueues.put(device.getAddress(), queue);
+            }
+            return queue;
+        }
+    }
+
+    /**
+     * Stops the command queue of the device, once its pending commands are done.
+     *
+     * @param cleanup runs after the pending commands, see {@link DeviceCommandQueue#quit(Runnable)}
+     */
+    private void quitCommandQueue(final GBDevice device, final Runnable cleanup) {
+        final DeviceCommandQueue queue;
+        synchronized (commandQueues) {
+            queue = commandQueues.remove(device.getAddress());
+        }
+        if (queue != null) {
+            queue.quit(cleanup);
+        } else {
+            cleanup.run();
+        }
     }
 
     /**
@@ -781,9 +1005,16 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
         if (text == null || text.length() == 0)
             return text;
 
-        text = getDeviceSupport(device).customStringFilter(text);
+        return sanitizeNotifText(text, getDeviceSupport(device), getDeviceCoordinator(device));
+    }
+
+    private String sanitizeNotifText(String text, DeviceSupport deviceSupport, DeviceCoordinator coordinator) {
+        if (text == null || text.length() == 0)
+            return text;
+
+        text = deviceSupport.customStringFilter(text);
 
-        if (!getDeviceCoordinator(device).supportsUnicodeEmojis()) {
+        if (!coordinator.supportsUnicodeEmojis()) {
             return EmojiConverter.convertUnicodeEmojiToAscii(text, getApplicationContext());
         }
 
@@ -817,8 +1048,6 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
 
         DeviceSupport deviceSupport = getDeviceSupport(device);
 
-        Prefs devicePrefs = new Prefs(GBApplication.getDeviceSpecificSharedPrefs(device.getAddress()));
-
         final Transliterator transliterator = LanguageUtils.getTransliterator(device);
 
         // Copy the incoming intent to make sure we don't modify it before it gets passed to other devices
@@ -840,56 +1069,6 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
             case ACTION_REQUEST_DEVICEINFO:
                 device.sendDeviceUpdateIntent(this, GBDevice.DeviceUpdateSubject.NOTHING);
                 break;
-            case ACTION_NOTIFICATION: {
-                int desiredId = intentCopy.getIntExtra(EXTRA_NOTIFICATION_ID, -1);
-                NotificationSpec notificationSpec = new NotificationSpec(desiredId);
-                notificationSpec.phoneNumber = intentCopy.getStringExtra(EXTRA_NOTIFICATION_PHONENUMBER);
-                notificationSpec.sender = intentCopy.getStringExtra(EXTRA_NOTIFICATION_SENDER);
-                notificationSpec.subject = intentCopy.getStringExtra(EXTRA_NOTIFICATION_SUBJECT);
-                notificationSpec.title = intentCopy.getStringExtra(EXTRA_NOTIFICATION_TITLE);
-                if(notificationSpec.title == null) {
-                    notificationSpec.title = "";
-                }
-                notificationSpec.key = intentCopy.getStringExtra(EXTRA_NOTIFICATION_KEY);
-                notificationSpec.body = intentCopy.getStringExtra(EXTRA_NOTIFICATION_BODY);
-                if(notificationSpec.body == null) {
-                    notificationSpec.body = "";
-                }
-                notificationSpec.sourceName = intentCopy.getStringExtra(EXTRA_NOTIFICATION_SOURCENAME);
-                notificationSpec.type = (NotificationType) intentCopy.getSerializableExtra(EXTRA_NOTIFICATION_TYPE);
-                notificationSpec.attachedActions = (ArrayList<NotificationSpec.Action>) intentCopy.getSerializableExtra(EXTRA_NOTIFICATION_ACTIONS);
-                notificationSpec.pebbleColor = (byte) intentCopy.getSerializableExtra(EXTRA_NOTIFICATION_PEBBLE_COLOR);
-                notificationSpec.flags = intentCopy.getIntExtra(EXTRA_NOTIFICATION_FLAGS, 0);
-                notificationSpec.sourceAppId = intentCopy.getStringExtra(EXTRA_NOTIFICATION_SOURCEAPPID);
-                notificationSpec.iconId = intentCopy.getIntExtra(EXTRA_NOTIFICATION_ICONID, 0);
-                notificationSpec.picturePath = intent.getStringExtra(NOTIFICATION_PICTURE_PATH);
-                notificationSpec.dndSuppressed = intentCopy.getIntExtra(EXTRA_NOTIFICATION_DNDSUPPRESSED, 0);
-                notificationSpec.channelId = intentCopy.getStringExtra(EXTRA_NOTIFICATION_CHANNEL_ID);
-                notificationSpec.category = intentCopy.getStringExtra(EXTRA_NOTIFICATION_CATEGORY);
-
-                if (notificationSpec.type == NotificationType.GENERIC_SMS && notificationSpec.phoneNumber != null) {
-                    GBApplication.getIDSenderLookup().add(notificationSpec.getId(), notificationSpec.phoneNumber);
-                }
-
-                //TODO: check if at least one of the attached actions is a reply action instead?
-                if ((notificationSpec.attachedActions != null && notificationSpec.attachedActions.size() > 0)
-                        || (notificationSpec.type == NotificationType.GENERIC_SMS && notificationSpec.phoneNumber != null)) {
-                    // NOTE: maybe not where it belongs
-                    // I would rather like to save that as an array in SharedPreferences
-                    // this would work but I dont know how to do the same in the Settings Activity's xml
-                    ArrayList<String> replies = new ArrayList<>();
-                    for (int i = 1; i <= 16; i++) {
-                        String reply = devicePrefs.getString("canned_reply_" + i, null);
-                        if (reply != null && !reply.equals("")) {
-                            replies.add(reply);
-                        }
-                    }
-                    notificationSpec.cannedReplies = replies.toArray(new String[0]);
-                }
-
-                deviceSupport.onNotification(notificationSpec);
-                break;
-            }
             case ACTION_DELETE_NOTIFICATION: {
                 deviceSupport.onDeleteNotification(intentCopy.getIntExtra(EXTRA_NOTIFICATION_ID, -1));
                 break;
@@ -930,11 +1109,6 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
                 deviceSupport.onFetchRecordedData(dataTypes);
                 break;
             }
-            case ACTION_FIND_DEVICE: {
-                boolean start = intentCopy.getBooleanExtra(EXTRA_FIND_START, false);
-                deviceSupport.onFindDevice(start);
-                break;
-            }
             case ACTION_PHONE_FOUND: {
                 final boolean start = intentCopy.getBooleanExtra(EXTRA_FIND_START, false);
                 deviceSupport.onFindPhone(start);
@@ -967,16 +1141,6 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
             case ACTION_SETTIME:
                 deviceSupport.onSetTime();
                 break;
-            case ACTION_SETMUSICINFO:
-                MusicSpec musicSpec = new MusicSpec();
-                musicSpec.artist = intentCopy.getStringExtra(EXTRA_MUSIC_ARTIST);
-                musicSpec.album = intentCopy.getStringExtra(EXTRA_MUSIC_ALBUM);
-                musicSpec.track = intentCopy.getStringExtra(EXTRA_MUSIC_TRACK);
-                musicSpec.duration = intentCopy.getIntExtra(EXTRA_MUSIC_DURATION, 0);
-                musicSpec.trackCount = intentCopy.getIntExtra(EXTRA_MUSIC_TRACKCOUNT, 0);
-                musicSpec.trackNr = intentCopy.getIntExtra(EXTRA_MUSIC_TRACKNR, 0);
-                deviceSupport.onSetMusicInfo(musicSpec);
-                break;
             case ACTION_SET_PHONE_VOLUME:
                 float phoneVolume = intentCopy.getFloatExtra(EXTRA_PHONE_VOLUME, 0);
                 deviceSupport.onSetPhoneVolume(phoneVolume);
@@ -985,15 +1149,6 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
                 final int ringerMode = intentCopy.getIntExtra(EXTRA_PHONE_RINGER_MODE, -1);
                 deviceSupport.onChangePhoneSilentMode(ringerMode);
                 break;
-            case ACTION_SETMUSICSTATE:
-                MusicStateSpec stateSpec = new MusicStateSpec();
-                stateSpec.shuffle = intentCopy.getByteExtra(EXTRA_MUSIC_SHUFFLE, (byte) 0);
-                stateSpec.repeat = intentCopy.getByteExtra(EXTRA_MUSIC_REPEAT, (byte) 0);
-                stateSpec.position = intentCopy.getIntExtra(EXTRA_MUSIC_POSITION, 0);
-                stateSpec.playRate = intentCopy.getIntExtra(EXTRA_MUSIC_RATE, 0);
-                stateSpec.state = intentCopy.getByteExtra(EXTRA_MUSIC_STATE, (byte) 0);
-                deviceSupport.onSetMusicState(stateSpec);
-                break;
             case ACTION_SETNAVIGATIONINFO:
                 NavigationInfoSpec navigationInfoSpec = new NavigationInfoSpec();
                 navigationInfoSpec.instruction = intentCopy.getStringExtra(EXTRA_NAVIGATION_INSTRUCTION);
@@ -1100,13 +1255,6 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
                 deviceSupport.onTestNewFunction();
                 break;
             }
-            case ACTION_SEND_WEATHER: {
-                ArrayList<WeatherSpec> weatherSpecs = (ArrayList<WeatherSpec>) intentCopy.getSerializableExtra(EXTRA_WEATHER);
-                if (weatherSpecs != null && !weatherSpecs.isEmpty()) {
-                    deviceSupport.onSendWeather(weatherSpecs);
-                }
-                break;
-            }
             case ACTION_SET_LED_COLOR:
                 int color = intentCopy.getIntExtra(EXTRA_LED_COLOR, 0);
                 if (color != 0) {
@@ -1171,10 +1319,14 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
 
     private void removeDeviceSupport(GBDevice device) throws DeviceNotFoundException {
         DeviceStruct struct = getDeviceStruct(device);
-        if(struct.getDeviceSupport() != null){
-            struct.getDeviceSupport().dispose();
-        }
+        final DeviceSupport deviceSupport = struct.getDeviceSupport();
+        // the pending commands are skipped from now on, but the running one may still use it
         struct.setDeviceSupport(null);
+        quitCommandQueue(device, () -> {
+            if (deviceSupport != null) {
+                deviceSupport.dispose();
+            }
+        });
     }
 
     private DeviceStruct getDeviceStructOrNull(GBDevice device){
@@ -1531,15 +1683,13 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
         }
     }
 
-    private void sendCachedNotifications(GBDevice device) {
-        ArrayList<Intent> notifCache = cachedNotifications.get(device.getAddress());
+    private synchronized void sendCachedNotifications(GBDevice device) {
+        ArrayList<DeviceCommand.NotificationCommand> notifCache = cachedNotifications.get(device.getAddress());
         if (notifCache == null) return;
-        try {
-            while (notifCache.size() > 0) {
-                handleAction(notifCache.remove(0), ACTION_NOTIFICATION, device);
-            }
-        } catch (DeviceNotFoundException e) {
-            LOG.error("Error while sending cached notifications to "+device.getAliasOrName(), e);
+        final DeviceCommandQueue queue = getCommandQueue(device);
+        while (notifCache.size() > 0) {
+            final DeviceCommand.NotificationCommand cached = notifCache.remove(0);
+            queue.submit(null, () -> executeSafely(cached, device));
         }
     }
 
@@ -1550,6 +1700,7 @@ public class DeviceCommunicationService extends Service implements SharedPrefere
         }
 
         LOG.debug("DeviceCommunicationService is being destroyed");
+        runningInstance = null;
         super.onDestroy();
 
         LocalBroadcastManager.getInstance(this).unregisterReceiver(mReceiver);
@@ -39,7 +39,9 @@ import java.util.UUID;
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.service.DeviceSupport;
-import nodomain.freeyourgadget.gadgetbridge.util.GB;
+import nodomain.freeyourgadget.gadgetbridge.service.btbr.actions.WriteAction;
+import nodomain.freeyourgadget.gadgetbridge.service.trace.ProtocolTraceRecorder;
+import nodomain.freeyourgadget.gadgetbridge.util.LazyHexdump;
 
 public final class BtBRQueue {
     private static final Logger LOG = LoggerFactory.getLogger(BtBRQueue.class);
@@ -56,6 +58,7 @@ public final class BtBRQueue {
 
     private final Context mContext;
     private final int mBufferSize;
+    private final ProtocolTraceRecorder mTraceRecorder;
 
     private final Handler mWriteHandler;
     private final HandlerThread mWriteHandlerThread = new HandlerThread("Write Thread", Process.THREAD_PRIORITY_BACKGROUND);
@@ -81,7 +84,10 @@ public final class BtBRQueue {
                     break;
                 }
 
-                LOG.debug("Received {} bytes: {}", nRead, GB.hexdump(buffer, 0, nRead));
+                LOG.debug("Received {} bytes: {}", nRead, LazyHexdump.hexdump(buffer, 0, nRead));
+                if (mTraceRecorder != null) {
+                    mTraceRecorder.record(ProtocolTraceRecorder.DIRECTION_RX, null, buffer, 0, nRead);
+                }
 
                 try {
                     mCallback.onSocketRead(Arrays.copyOf(buffer, nRead));
@@ -102,6 +108,7 @@ public final class BtBRQueue {
         mCallback = socketCallback;
         mService = supportedService;
         mBufferSize = bufferSize;
+        mTraceRecorder = ProtocolTraceRecorder.createIfEnabled(gbDevice);
 
         mWriteHandlerThread.start();
 
@@ -159,6 +166,9 @@ public final class BtBRQueue {
 
                                 if (action.run(mBtSocket)) {
                                     LOG.debug("Action ok: {}", action);
+                                    if (mTraceRecorder != null && action instanceof WriteAction) {
+                                        mTraceRecorder.recordTx(null, ((WriteAction) action).getValue());
+                                    }
                                 } else {
                                     LOG.error("Action returned false, cancelling further actions in transaction: {}", action);
                                     break;
@@ -273,6 +283,9 @@ public final class BtBRQueue {
 
         mDisposed = true;
         disconnect();
+        if (mTraceRecorder != null) {
+            mTraceRecorder.close();
+        }
 
         if (readThread != null && readThread.isAlive()) {
             readThread.interrupt();
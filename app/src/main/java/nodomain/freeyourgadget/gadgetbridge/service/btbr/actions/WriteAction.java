@@ -24,8 +24,8 @@ import java.io.OutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import nodomain.freeyourgadget.gadgetbridge.Logging;
 import nodomain.freeyourgadget.gadgetbridge.service.btbr.BtBRAction;
+import nodomain.freeyourgadget.gadgetbridge.util.LazyHexdump;
 
 /**
  * Invokes a write operation on a given socket.
@@ -59,7 +59,7 @@ public class WriteAction extends BtBRAction {
 
     protected boolean writeValue(byte[] value) {
         if (LOG.isDebugEnabled()) {
-            LOG.debug("writing to socket: " + Logging.formatBytes(value));
+            LOG.debug("writing to socket: {}", LazyHexdump.formatBytes(value));
         }
         try {
             mOutputStream.write(value);
@@ -71,7 +71,7 @@ public class WriteAction extends BtBRAction {
         return false;
     }
 
-    protected final byte[] getValue() {
+    public final byte[] getValue() {
         return value;
     }
 
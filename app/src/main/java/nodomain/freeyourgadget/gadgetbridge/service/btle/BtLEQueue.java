@@ -48,11 +48,13 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
-import nodomain.freeyourgadget.gadgetbridge.Logging;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice.State;
 import nodomain.freeyourgadget.gadgetbridge.service.DeviceSupport;
 import nodomain.freeyourgadget.gadgetbridge.service.btle.actions.WriteAction;
+import nodomain.freeyourgadget.gadgetbridge.service.btle.actions.WriteWithoutResponseAction;
+import nodomain.freeyourgadget.gadgetbridge.service.trace.ProtocolTraceRecorder;
+import nodomain.freeyourgadget.gadgetbridge.util.LazyHexdump;
 
 /**
  * One queue/thread per connectable device.
@@ -61,7 +63,19 @@ import nodomain.freeyourgadget.gadgetbridge.service.btle.actions.WriteAction;
 public final class BtLEQueue {
     private static final Logger LOG = LoggerFactory.getLogger(BtLEQueue.class);
 
+    /**
+     * How long to wait for the bluetooth stack to confirm a write without response.
+     */
+    private static final long WRITE_CONFIRMATION_TIMEOUT_MILLIS = 5000;
+    /**
+     * How often to retry a write without response rejected by the busy bluetooth stack.
+     */
+    private static final int MAX_BUSY_WRITE_RETRIES = 50;
+    private static final long BUSY_WRITE_RETRY_DELAY_MILLIS = 10;
+
     private final Object mGattMonitor = new Object();
+    private final Object mPauseMonitor = new Object();
+    private final Object mWriteWindowMonitor = new Object();
     private final GBDevice mGbDevice;
     private final BluetoothAdapter mBluetoothAdapter;
     private BluetoothGatt mBluetoothGatt;
@@ -74,6 +88,8 @@ public final class BtLEQueue {
     private volatile boolean mAbortTransaction;
     private volatile boolean mAbortServerTransaction;
     private volatile boolean mPauseTransaction = false;
+    // writes without response not yet confirmed by the bluetooth stack, guarded by mWriteWindowMonitor
+    private int mUnconfirmedWrites = 0;
 
     private final Context mContext;
     private CountDownLatch mWaitForActionResultLatch;
@@ -86,6 +102,7 @@ public final class BtLEQueue {
     private boolean scanReconnect;
     private boolean mImplicitGattCallbackModify = true;
     private boolean mSendWriteRequestResponse = false;
+    private final ProtocolTraceRecorder mTraceRecorder;
 
     private Thread dispatchThread = new Thread("Gadgetbridge GATT Dispatcher") {
 
@@ -149,20 +166,28 @@ public final class BtLEQueue {
                             internalGattCallback.setTransactionGattCallback(transaction.getGattCallback());
                         }
                         mAbortTransaction = false;
+                        resetWriteWindow();
+                        final TransferStatistics statistics = transaction.getTransferStatistics();
+                        statistics.onStart();
                         // Run all actions of the transaction until one doesn't succeed
                         for (BtLEAction action : transaction.getActions()) {
                             if (mAbortTransaction) { // got disconnected
                                 LOG.info("Aborting running transaction");
                                 break;
                             }
-                            while ((action instanceof WriteAction) && mPauseTransaction && !mAbortTransaction) {
-                              LOG.info("Pausing WriteAction");
-                              try {
-                                  Thread.sleep(100);
-                              } catch (Exception e) {
-                                  LOG.info("Exception during pause: {}", e);
-                                  break;
-                              }
+                            if (action instanceof WriteAction) {
+                                waitWhilePaused();
+                            }
+                            if (action instanceof WriteWithoutResponseAction) {
+                                if (!runWithoutResponse((WriteWithoutResponseAction) action, transaction.getWriteWindow(), statistics)) {
+                                    LOG.error("Action returned false: {}", action);
+                                    break; // abort the transaction
+                                }
+                                continue;
+                            }
+                            // any other action only runs once the previous writes were confirmed
+                            if (!awaitWriteWindow(0)) {
+                                break;
                             }
                             mWaitCharacteristic = action.getCharacteristic();
                             mWaitForActionResultLatch = new CountDownLatch(1);
@@ -175,6 +200,10 @@ public final class BtLEQueue {
                                 internalGattCallback.setTransactionGattCallback(((GattListenerAction) action).getGattCallback());
                             }
                             if (action.run(mBluetoothGatt)) {
+                                if (action instanceof WriteAction) {
+                                    statistics.onWrite(((WriteAction) action).getValue().length);
+                                    traceTx(action.getCharacteristic(), ((WriteAction) action).getValue());
+                                }
                                 // check again, maybe due to some condition, action did not need to write, so we can't wait
                                 boolean waitForResult = action.expectsResult();
                                 if (waitForResult) {
@@ -189,6 +218,11 @@ public final class BtLEQueue {
                                 break; // abort the transaction
                             }
                         }
+                        awaitWriteWindow(0);
+                        statistics.onEnd();
+                        if (statistics.getWrites() > 1) {
+                            LOG.debug("Transaction {} finished: {}", transaction.getTaskName(), statistics);
+                        }
                     }
                 } catch (InterruptedException ignored) {
                     mConnectionLatch = null;
@@ -213,10 +247,17 @@ public final class BtLEQueue {
         internalGattServerCallback = new InternalGattServerCallback(externalGattServerCallback);
         mContext = context;
         mSupportedServerServices = supportedServerServices;
+        mTraceRecorder = ProtocolTraceRecorder.createIfEnabled(gbDevice);
 
         dispatchThread.start();
     }
 
+    private void traceTx(final BluetoothGattCharacteristic characteristic, final byte[] value) {
+        if (mTraceRecorder != null) {
+            mTraceRecorder.recordTx(characteristic != null ? characteristic.getUuid() : null, value);
+        }
+    }
+
     public void setAutoReconnect(boolean enable) {
         mAutoReconnect = enable;
     }
@@ -250,7 +291,7 @@ public final class BtLEQueue {
      * @return <code>true</code> whether the connection attempt was successfully triggered and <code>false</code> if that failed or if there is already a connection
      */
     public boolean connect() {
-        mPauseTransaction = false;
+        setPaused(false);
         if (isConnected()) {
             LOG.warn("Ingoring connect() because already connected.");
             return false;
@@ -316,7 +357,7 @@ public final class BtLEQueue {
                 gatt.close();
                 setDeviceConnectionState(State.NOT_CONNECTED);
             }
-            mPauseTransaction = false;
+            setPaused(false);
             BluetoothGattServer gattServer = mBluetoothGattServer;
             if (gattServer != null) {
                 mBluetoothGattServer = null;
@@ -330,9 +371,10 @@ public final class BtLEQueue {
         LOG.debug("handleDisconnected: {}", status);
         internalGattCallback.reset();
         mTransactions.clear();
-        mPauseTransaction = false;
         mAbortTransaction = true;
         mAbortServerTransaction = true;
+        setPaused(false);
+        resetWriteWindow();
         if (mWaitForActionResultLatch != null) {
             mWaitForActionResultLatch.countDown();
         }
@@ -370,7 +412,7 @@ public final class BtLEQueue {
 
             LOG.info("Enabling automatic ble reconnect...");
             boolean result = mBluetoothGatt.connect();
-            mPauseTransaction = false;
+            setPaused(false);
             if (result) {
                 setDeviceConnectionState(State.WAITING_FOR_RECONNECT);
             }
@@ -380,7 +422,121 @@ public final class BtLEQueue {
     }
 
     public void setPaused(boolean paused) {
-      mPauseTransaction = paused;
+        synchronized (mPauseMonitor) {
+            mPauseTransaction = paused;
+            mPauseMonitor.notifyAll();
+        }
+    }
+
+    private void waitWhilePaused() throws InterruptedException {
+        synchronized (mPauseMonitor) {
+            if (mPauseTransaction && !mAbortTransaction) {
+                LOG.info("Pausing WriteAction");
+            }
+            while (mPauseTransaction && !mAbortTransaction) {
+                mPauseMonitor.wait();
+            }
+        }
+    }
+
+    /**
+     * Runs a write without response as soon as there is room in the write window, without waiting
+     * for it to be confirmed.
+     *
+     * @return false if the write failed, timed out, or the transaction was aborted
+     */
+    private boolean runWithoutResponse(final WriteWithoutResponseAction action,
+                                       final int writeWindow,
+                                       final TransferStatistics statistics) throws InterruptedException {
+        mWaitCharacteristic = null;
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("About to run action: " + action);
+        }
+
+        synchronized (mWriteWindowMonitor) {
+            if (mUnconfirmedWrites >= writeWindow) {
+                statistics.onStall();
+                if (!awaitWriteWindow(writeWindow - 1)) {
+                    return false;
+                }
+            }
+        }
+
+        for (int attempt = 0; !mAbortTransaction; attempt++) {
+            synchronized (mWriteWindowMonitor) {
+                // counted before running, so that a fast confirmation is not missed
+                mUnconfirmedWrites++;
+            }
+            if (action.run(mBluetoothGatt)) {
+                statistics.onWrite(action.getValue().length);
+                traceTx(action.getCharacteristic(), action.getValue());
+                return true;
+            }
+
+            synchronized (mWriteWindowMonitor) {
+                mUnconfirmedWrites--;
+                if (attempt >= MAX_BUSY_WRITE_RETRIES) {
+                    return false;
+                }
+                // Android only accepts the next write once the previous one was confirmed
+                statistics.onStall();
+                if (mUnconfirmedWrites > 0) {
+                    if (!awaitWriteWindow(mUnconfirmedWrites - 1)) {
+                        return false;
+                    }
+                } else {
+                    mWriteWindowMonitor.wait(BUSY_WRITE_RETRY_DELAY_MILLIS);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Waits until at most the given number of writes without response are unconfirmed.
+     *
+     * @return false if the writes were not confirmed in time, or the transaction was aborted
+     */
+    private boolean awaitWriteWindow(final int maxUnconfirmedWrites) throws InterruptedException {
+        synchronized (mWriteWindowMonitor) {
+            final long deadline = System.currentTimeMillis() + WRITE_CONFIRMATION_TIMEOUT_MILLIS;
+            while (mUnconfirmedWrites > maxUnconfirmedWrites && !mAbortTransaction) {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    LOG.error("Timed out waiting for {} writes to be confirmed", mUnconfirmedWrites);
+                    mUnconfirmedWrites = 0;
+                    return false;
+                }
+                mWriteWindowMonitor.wait(remaining);
+            }
+            return !mAbortTransaction;
+        }
+    }
+
+    /**
+     * @return true if the confirmation was for a write without response
+     */
+    private boolean confirmWrite(final int status) {
+        synchronized (mWriteWindowMonitor) {
+            if (mUnconfirmedWrites == 0) {
+                return false;
+            }
+            mUnconfirmedWrites--;
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                LOG.debug("failed write without response, aborting transaction");
+                mAbortTransaction = true;
+            }
+            mWriteWindowMonitor.notifyAll();
+            return true;
+        }
+    }
+
+    private void resetWriteWindow() {
+        synchronized (mWriteWindowMonitor) {
+            mUnconfirmedWrites = 0;
+            mWriteWindowMonitor.notifyAll();
+        }
     }
 
     public void dispose() {
@@ -392,6 +548,9 @@ public final class BtLEQueue {
         disconnect();
         dispatchThread.interrupt();
         dispatchThread = null;
+        if (mTraceRecorder != null) {
+            mTraceRecorder.close();
+        }
 //            dispatchThread.join();
 //        } catch (InterruptedException ex) {
 //            LOG.error("Exception while disposing BtLEQueue", ex);
@@ -415,6 +574,10 @@ public final class BtLEQueue {
      */
     public void abortCurrentTransaction() {
         mAbortTransaction = true;
+        resetWriteWindow();
+        synchronized (mPauseMonitor) {
+            mPauseMonitor.notifyAll();
+        }
         if (mWaitForActionResultLatch != null) {
             mWaitForActionResultLatch.countDown();
         }
@@ -589,7 +752,9 @@ public final class BtLEQueue {
             if (getCallbackToUse() != null) {
                 getCallbackToUse().onCharacteristicWrite(gatt, characteristic, status);
             }
-            checkWaitingCharacteristic(characteristic, status);
+            if (!confirmWrite(status)) {
+                checkWaitingCharacteristic(characteristic, status);
+            }
         }
 
 
@@ -614,11 +779,15 @@ public final class BtLEQueue {
                                          BluetoothGattCharacteristic characteristic,
                                          int status) {
             LOG.debug(
-                    "characteristic read: {}{}{}",
+                    "characteristic read: {}{}{}{}",
                     characteristic.getUuid(),
                     getStatusString(status),
-                    status == BluetoothGatt.GATT_SUCCESS ? ": " + Logging.formatBytes(characteristic.getValue()) : ""
+                    status == BluetoothGatt.GATT_SUCCESS ? ": " : "",
+                    status == BluetoothGatt.GATT_SUCCESS ? LazyHexdump.formatBytes(characteristic.getValue()) : ""
             );
+            if (status == BluetoothGatt.GATT_SUCCESS && mTraceRecorder != null) {
+                mTraceRecorder.recordRx(characteristic.getUuid(), characteristic.getValue());
+            }
             if (!checkCorrectGattInstance(gatt, "characteristic read")) {
                 return;
             }
@@ -667,9 +836,9 @@ public final class BtLEQueue {
         @Override
         public void onCharacteristicChanged(BluetoothGatt gatt,
                                             BluetoothGattCharacteristic characteristic) {
-            if (LOG.isDebugEnabled()) {
-                String content = Logging.formatBytes(characteristic.getValue());
-                LOG.debug("characteristic changed: {} value: {}", characteristic.getUuid(), content);
+            LOG.debug("characteristic changed: {} value: {}", characteristic.getUuid(), LazyHexdump.formatBytes(characteristic.getValue()));
+            if (mTraceRecorder != null) {
+                mTraceRecorder.recordRx(characteristic.getUuid(), characteristic.getValue());
             }
             if (!checkCorrectGattInstance(gatt, "characteristic changed")) {
                 return;
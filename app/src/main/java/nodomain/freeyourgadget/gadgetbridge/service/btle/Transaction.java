@@ -30,7 +30,14 @@ import androidx.annotation.Nullable;
  * @author TREND
  */
 public class Transaction extends AbstractTransaction {
+    /**
+     * Default number of writes without response that may be in flight at once.
+     */
+    public static final int DEFAULT_WRITE_WINDOW = 4;
+
     private final List<BtLEAction> mActions = new ArrayList<>(4);
+    private final TransferStatistics mTransferStatistics = new TransferStatistics();
+    private int mWriteWindow = DEFAULT_WRITE_WINDOW;
 
     private
     @Nullable
@@ -76,6 +83,28 @@ public class Transaction extends AbstractTransaction {
         return modifyGattCallback;
     }
 
+    /**
+     * Sets how many writes without response the queue issues before waiting for the bluetooth
+     * stack to confirm the oldest one.
+     */
+    public void setWriteWindow(int writeWindow) {
+        if (writeWindow < 1) {
+            throw new IllegalArgumentException("Write window must be at least 1: " + writeWindow);
+        }
+        mWriteWindow = writeWindow;
+    }
+
+    public int getWriteWindow() {
+        return mWriteWindow;
+    }
+
+    /**
+     * Returns the throughput of the writes of this transaction, once it was run by the queue.
+     */
+    public TransferStatistics getTransferStatistics() {
+        return mTransferStatistics;
+    }
+
     @Override
     public int getActionCount() {
         return mActions.size();
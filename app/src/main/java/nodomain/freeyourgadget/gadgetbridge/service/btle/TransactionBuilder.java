@@ -37,6 +37,7 @@ import nodomain.freeyourgadget.gadgetbridge.service.btle.actions.RequestConnecti
 import nodomain.freeyourgadget.gadgetbridge.service.btle.actions.RequestMtuAction;
 import nodomain.freeyourgadget.gadgetbridge.service.btle.actions.WaitAction;
 import nodomain.freeyourgadget.gadgetbridge.service.btle.actions.WriteAction;
+import nodomain.freeyourgadget.gadgetbridge.service.btle.actions.WriteWithoutResponseAction;
 
 public class TransactionBuilder {
     private static final Logger LOG = LoggerFactory.getLogger(TransactionBuilder.class);
@@ -77,6 +78,39 @@ public class TransactionBuilder {
         return this;
     }
 
+    /**
+     * Writes without waiting for a response, which allows the queue to keep several writes in
+     * flight. Falls back to a regular write if the characteristic does not support it.
+     */
+    public TransactionBuilder writeWithoutResponse(BluetoothGattCharacteristic characteristic, byte[] data) {
+        if (characteristic == null) {
+            LOG.warn("Unable to write characteristic: null");
+            return this;
+        }
+        if ((characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) == 0) {
+            return write(characteristic, data);
+        }
+        return add(new WriteWithoutResponseAction(characteristic, data));
+    }
+
+    public TransactionBuilder writeChunkedDataWithoutResponse(BluetoothGattCharacteristic characteristic, byte[] data, int chunkSize) {
+        for (int start = 0; start < data.length; start += chunkSize) {
+            int end = start + chunkSize;
+            if (end > data.length) end = data.length;
+            writeWithoutResponse(characteristic, Arrays.copyOfRange(data, start, end));
+        }
+
+        return this;
+    }
+
+    /**
+     * @see Transaction#setWriteWindow(int)
+     */
+    public TransactionBuilder setWriteWindow(int writeWindow) {
+        mTransaction.setWriteWindow(writeWindow);
+        return this;
+    }
+
     public TransactionBuilder requestMtu(int mtu){
         return add(
                 new RequestMtuAction(mtu)
@@ -0,0 +1,84 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.service.btle;
+
+import java.util.Locale;
+
+/**
+ * Throughput of the writes of a single transaction, as measured by the {@link BtLEQueue}.
+ */
+public class TransferStatistics {
+    private long startMillis;
+    private long endMillis;
+    private long bytes;
+    private int writes;
+    private int stalls;
+
+    void onStart() {
+        startMillis = System.currentTimeMillis();
+    }
+
+    void onWrite(final int length) {
+        bytes += length;
+        writes++;
+    }
+
+    /**
+     * The queue had to wait before being able to write, either because the write window was full,
+     * or because the bluetooth stack was still busy with a previous write.
+     */
+    void onStall() {
+        stalls++;
+    }
+
+    void onEnd() {
+        endMillis = System.currentTimeMillis();
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getWrites() {
+        return writes;
+    }
+
+    public int getStalls() {
+        return stalls;
+    }
+
+    public long getDurationMillis() {
+        return Math.max(0, endMillis - startMillis);
+    }
+
+    public long getBytesPerSecond() {
+        final long durationMillis = getDurationMillis();
+        if (durationMillis == 0) {
+            return 0;
+        }
+        return bytes * 1000 / durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                Locale.ROOT,
+                "%d bytes in %d writes, %d ms, %d B/s, %d stalls",
+                bytes, writes, getDurationMillis(), getBytesPerSecond(), stalls
+        );
+    }
+}
@@ -23,8 +23,8 @@ import android.bluetooth.BluetoothGattServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import nodomain.freeyourgadget.gadgetbridge.Logging;
 import nodomain.freeyourgadget.gadgetbridge.service.btle.BtLEServerAction;
+import nodomain.freeyourgadget.gadgetbridge.util.LazyHexdump;
 
 /**
  * Invokes a response on a given GATT characteristic read.
@@ -54,7 +54,7 @@ public class ServerResponseAction extends BtLEServerAction {
 
     protected boolean writeValue(BluetoothGattServer gattServer, BluetoothDevice device, int requestId, int status, int offset, byte[] value) {
         if (LOG.isDebugEnabled()) {
-            LOG.debug("writing to server: " + device.getAddress() + ": " + Logging.formatBytes(value));
+            LOG.debug("writing to server: {}: {}", device.getAddress(), LazyHexdump.formatBytes(value));
         }
 
         return gattServer.sendResponse(device, requestId, 0, offset, value);
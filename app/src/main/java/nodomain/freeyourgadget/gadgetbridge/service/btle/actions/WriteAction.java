@@ -24,8 +24,8 @@ import android.bluetooth.BluetoothGattCharacteristic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import nodomain.freeyourgadget.gadgetbridge.Logging;
 import nodomain.freeyourgadget.gadgetbridge.service.btle.BtLEAction;
+import nodomain.freeyourgadget.gadgetbridge.util.LazyHexdump;
 
 /**
  * Invokes a write operation on a given GATT characteristic.
@@ -55,7 +55,7 @@ public class WriteAction extends BtLEAction {
 
     protected boolean writeValue(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, byte[] value) {
         if (LOG.isDebugEnabled()) {
-            LOG.debug("writing to characteristic: " + characteristic.getUuid() + ": " + Logging.formatBytes(value));
+            LOG.debug("writing to characteristic: {}: {}", characteristic.getUuid(), LazyHexdump.formatBytes(value));
         }
         if (characteristic.setValue(value)) {
             return gatt.writeCharacteristic(characteristic);
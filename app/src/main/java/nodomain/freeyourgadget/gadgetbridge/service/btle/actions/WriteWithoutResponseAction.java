@@ -0,0 +1,73 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.service.btle.actions;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import nodomain.freeyourgadget.gadgetbridge.util.LazyHexdump;
+
+/**
+ * Invokes a write without response on a given GATT characteristic. The queue does not wait for
+ * the write to complete before running the next write without response, up to the write window
+ * of the transaction.
+ *
+ * @see nodomain.freeyourgadget.gadgetbridge.service.btle.Transaction#setWriteWindow(int)
+ */
+public class WriteWithoutResponseAction extends WriteAction {
+    private static final Logger LOG = LoggerFactory.getLogger(WriteWithoutResponseAction.class);
+
+    public WriteWithoutResponseAction(final BluetoothGattCharacteristic characteristic, final byte[] value) {
+        super(characteristic, value);
+    }
+
+    @Override
+    public boolean run(final BluetoothGatt gatt) {
+        final BluetoothGattCharacteristic characteristic = getCharacteristic();
+        if ((characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) == 0) {
+            LOG.error("Characteristic {} does not support write without response", characteristic.getUuid());
+            return false;
+        }
+        return writeValue(gatt, characteristic, getValue());
+    }
+
+    @Override
+    protected boolean writeValue(final BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic, final byte[] value) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("writing without response to characteristic: {}: {}", characteristic.getUuid(), LazyHexdump.formatBytes(value));
+        }
+        if (!characteristic.setValue(value)) {
+            return false;
+        }
+        // The characteristic is shared with the other actions, restore its write type for them
+        final int previousWriteType = characteristic.getWriteType();
+        characteristic.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+        try {
+            return gatt.writeCharacteristic(characteristic);
+        } finally {
+            characteristic.setWriteType(previousWriteType);
+        }
+    }
+
+    @Override
+    public boolean expectsResult() {
+        return false;
+    }
+}
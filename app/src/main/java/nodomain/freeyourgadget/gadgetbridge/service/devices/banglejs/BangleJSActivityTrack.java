@@ -142,7 +142,7 @@ class BangleJSActivityTrack {
         } else { // We received a lines of the csv, now we append it to the file in storage.
 
             String lines = json.getString("lines");
-            LOG.debug(lines);
+            LOG.debug("Got {} chars of recorder log {}", lines.length(), log);
 
             writeToRecorderCSV(lines, dir, filename);
 
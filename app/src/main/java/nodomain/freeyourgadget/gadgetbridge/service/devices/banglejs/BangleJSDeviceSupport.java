@@ -163,10 +163,10 @@ public class BangleJSDeviceSupport extends AbstractBTLEDeviceSupport {
     private int mtuSize = 20;
     int bangleCommandSeq = 0; // to attempt to stop duplicate packets when sending Local Intents
 
-    /// Current line of data received from Bangle.js
-    private String receivedLine = "";
+    /// Splits the data received from Bangle.js into lines
+    private final BangleJSLineFramer lineFramer = new BangleJSLineFramer(this::handleUartRxLine);
     /// All characters received from Bangle.js for debug purposes (limited to MAX_RECEIVE_HISTORY_CHARS). Can be dumped with 'Fetch Device Debug Logs' from Debug menu
-    private String receiveHistory = "";
+    private final StringBuilder receiveHistory = new StringBuilder();
     private boolean realtimeHRM = false;
     private boolean realtimeStep = false;
     /// How often should activity data be sent - in seconds
@@ -186,6 +186,8 @@ public class BangleJSDeviceSupport extends AbstractBTLEDeviceSupport {
 
     /// Maximum amount of characters to store in receiveHistory
     public static final int MAX_RECEIVE_HISTORY_CHARS = 100000;
+    /// Lines longer than this (bulk transfers) are only logged in part
+    private static final int MAX_LOGGED_LINE_CHARS = 200;
     /// Used to avoid spamming logs with ACTION_DEVICE_CHANGED messages
     static String lastStateString;
 
@@ -242,9 +244,10 @@ public class BangleJSDeviceSupport extends AbstractBTLEDeviceSupport {
     }
 
     private void addReceiveHistory(String s) {
-        receiveHistory += s;
-        if (receiveHistory.length() > MAX_RECEIVE_HISTORY_CHARS)
-            receiveHistory = receiveHistory.substring(receiveHistory.length() - MAX_RECEIVE_HISTORY_CHARS);
+        receiveHistory.append(s);
+        // trim only once in a while, so that the history is not copied for every packet
+        if (receiveHistory.length() > 2 * MAX_RECEIVE_HISTORY_CHARS)
+            receiveHistory.delete(0, receiveHistory.length() - MAX_RECEIVE_HISTORY_CHARS);
     }
 
     private void registerLocalIntents() {
@@ -339,6 +342,9 @@ public class BangleJSDeviceSupport extends AbstractBTLEDeviceSupport {
         gbDevice.setState(GBDevice.State.INITIALIZING);
         gbDevice.sendDeviceUpdateIntent(getContext());
 
+        // drop a partial line from a previous connection
+        lineFramer.reset();
+
         rxCharacteristic = getCharacteristic(BangleJSConstants.UUID_CHARACTERISTIC_NORDIC_UART_RX);
         txCharacteristic = getCharacteristic(BangleJSConstants.UUID_CHARACTERISTIC_NORDIC_UART_TX);
         if (rxCharacteristic==null || txCharacteristic==null) {
@@ -510,7 +516,11 @@ public class BangleJSDeviceSupport extends AbstractBTLEDeviceSupport {
 
 
     private void handleUartRxLine(String line) {
-        LOG.info("UART RX LINE: " + line);
+        if (line.length() > MAX_LOGGED_LINE_CHARS) {
+            LOG.info("UART RX LINE ({} chars): {}...", line.length(), line.substring(0, MAX_LOGGED_LINE_CHARS));
+        } else {
+            LOG.info("UART RX LINE: {}", line);
+        }
         if (line.length()==0) return;
         if (">Uncaught ReferenceError: \"GB\" is not defined".equals(line))
           GB.toast(getContext(), "'Android Integration' plugin not installed on Bangle.js", Toast.LENGTH_LONG, GB.ERROR);
@@ -1214,17 +1224,11 @@ public class BangleJSDeviceSupport extends AbstractBTLEDeviceSupport {
                 }
             }
             String packetStr = new String(chars, StandardCharsets.ISO_8859_1);
-            LOG.debug("RX: " + packetStr);
+            LOG.debug("RX: {}", packetStr);
             // logging
             addReceiveHistory(packetStr);
             // split into input lines
-            receivedLine += packetStr;
-            while (receivedLine.contains("\n")) {
-                int p = receivedLine.indexOf("\n");
-                String line = receivedLine.substring(0,(p>0) ? (p-1) : 0);
-                receivedLine = receivedLine.substring(p+1);
-                handleUartRxLine(line);
-            }
+            lineFramer.feed(chars);
             // Send an intent with new data
             Intent intent = new Intent(BangleJSDeviceSupport.BANGLEJS_COMMAND_RX);
             intent.putExtra("DATA", packetStr);
@@ -1682,9 +1686,9 @@ public class BangleJSDeviceSupport extends AbstractBTLEDeviceSupport {
             LOG.warn("Writing log to "+outputFile.toString());
             try {
                 BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile));
-                writer.write(receiveHistory);
+                writer.write(receiveHistory.substring(Math.max(0, receiveHistory.length() - MAX_RECEIVE_HISTORY_CHARS)));
                 writer.close();
-                receiveHistory = "";
+                receiveHistory.setLength(0);
                 GB.toast(getContext(), "Log written to "+filename, Toast.LENGTH_LONG, GB.INFO);
             } catch (IOException e) {
                 LOG.warn("Could not write to file", e);
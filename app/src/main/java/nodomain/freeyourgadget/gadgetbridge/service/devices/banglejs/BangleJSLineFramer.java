@@ -0,0 +1,107 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.service.devices.banglejs;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits the data received from the Bangle.js UART into lines, without copying the data received
+ * so far for every packet. Bulk transfers such as activity tracks or files are sent as single
+ * lines of several kB, so this matters.
+ * <p>
+ * Lines end with "\n", an optional "\r" before it is removed. Lines are decoded as ISO-8859-1, as
+ * Espruino sends single byte characters.
+ */
+public class BangleJSLineFramer {
+    public interface LineHandler {
+        void onLine(String line);
+    }
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    // do not keep a large buffer around after a bulk transfer
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private final LineHandler handler;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length = 0;
+
+    public BangleJSLineFramer(final LineHandler handler) {
+        this.handler = handler;
+    }
+
+    public void feed(final byte[] data) {
+        feed(data, 0, data.length);
+    }
+
+    public void feed(final byte[] data, final int offset, final int count) {
+        final int end = offset + count;
+        int lineStart = offset;
+        for (int i = offset; i < end; i++) {
+            if (data[i] != '\n') {
+                continue;
+            }
+            if (length == 0) {
+                // the whole line is in this packet
+                emit(data, lineStart, i - lineStart);
+            } else {
+                append(data, lineStart, i - lineStart);
+                emit(buffer, 0, length);
+                clear();
+            }
+            lineStart = i + 1;
+        }
+        append(data, lineStart, end - lineStart);
+    }
+
+    /**
+     * @return the number of bytes of the incomplete line received so far
+     */
+    public int getPendingLength() {
+        return length;
+    }
+
+    public void reset() {
+        clear();
+    }
+
+    private void emit(final byte[] bytes, final int offset, int count) {
+        if (count > 0 && bytes[offset + count - 1] == '\r') {
+            count--;
+        }
+        handler.onLine(new String(bytes, offset, count, StandardCharsets.ISO_8859_1));
+    }
+
+    private void append(final byte[] data, final int offset, final int count) {
+        if (count == 0) {
+            return;
+        }
+        if (length + count > buffer.length) {
+            final byte[] grown = new byte[Math.max(buffer.length * 2, length + count)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+        System.arraycopy(data, offset, buffer, length, count);
+        length += count;
+    }
+
+    private void clear() {
+        length = 0;
+        if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+        }
+    }
+}
@@ -20,6 +20,7 @@ import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
 import android.content.SharedPreferences;
 import android.os.Handler;
+import android.os.Looper;
 import android.widget.Toast;
 
 import org.slf4j.Logger;
@@ -85,10 +86,10 @@ public class CasioGBX100DeviceSupport extends Casio2C2DSupport implements Shared
     private final ArrayList<Integer> mSyncedNotificationIDs = new ArrayList<>();
     private int mLastCallId = new AtomicInteger((int) (System.currentTimeMillis()/1000)).incrementAndGet();
     private int mFakeRingDurationCounter = 0;
-    private final Handler mFindPhoneHandler = new Handler();
-    private final Handler mFakeRingDurationHandler = new Handler();
-    private final Handler mAutoRemoveMessageHandler = new Handler();
-    private final Handler mReconnectHandler = new Handler();
+    private final Handler mFindPhoneHandler = new Handler(Looper.getMainLooper());
+    private final Handler mFakeRingDurationHandler = new Handler(Looper.getMainLooper());
+    private final Handler mAutoRemoveMessageHandler = new Handler(Looper.getMainLooper());
+    private final Handler mReconnectHandler = new Handler(Looper.getMainLooper());
     private boolean mNeedsGetConfiguration = false;
 
     public CasioGBX100DeviceSupport() {
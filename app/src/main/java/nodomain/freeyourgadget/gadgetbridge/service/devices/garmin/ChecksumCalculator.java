@@ -47,4 +47,15 @@ public final class ChecksumCalculator {
         }
         return crc;
     }
+
+    public static int computeCrc(int initialCrc, ByteBuffer byteBuffer, int offset, int length) {
+        // absolute reads, the position of the buffer is left untouched
+        int crc = initialCrc;
+        for (int i = offset; i < offset + length; ++i) {
+            int b = byteBuffer.get(i);
+            crc = (((crc >> 4) & 4095) ^ CONSTANTS[crc & 15]) ^ CONSTANTS[b & 15];
+            crc = (((crc >> 4) & 4095) ^ CONSTANTS[crc & 15]) ^ CONSTANTS[(b >> 4) & 15];
+        }
+        return crc;
+    }
 }
@@ -11,6 +11,10 @@ public class GarminByteBufferReader {
         this.byteBuffer = ByteBuffer.wrap(data);
     }
 
+    public GarminByteBufferReader(ByteBuffer byteBuffer) {
+        this.byteBuffer = byteBuffer;
+    }
+
     public int remaining() {
         return byteBuffer.remaining();
     }
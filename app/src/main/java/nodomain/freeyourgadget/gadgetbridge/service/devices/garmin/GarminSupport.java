@@ -107,6 +107,8 @@ public class GarminSupport extends AbstractBTLEDeviceSupport implements ICommuni
     private MediaManager mediaManager;
     private boolean mFirstConnect = false;
     private boolean isBusyFetching;
+    @Nullable
+    private FitAsyncProcessor fitAsyncProcessor;
 
     final Map<UUID, GdiInstalledAppsService.InstalledAppsService.InstalledApp> installedApps = new HashMap<>();
 
@@ -135,6 +137,11 @@ public class GarminSupport extends AbstractBTLEDeviceSupport implements ICommuni
     public void dispose() {
         LOG.info("Garmin dispose()");
         GBLocationService.stop(getContext(), getDevice());
+        if (fitAsyncProcessor != null) {
+            // the remaining files stay pending, and are processed on the next connection
+            fitAsyncProcessor.cancel();
+            fitAsyncProcessor = null;
+        }
         super.dispose();
     }
 
@@ -663,7 +670,7 @@ public class GarminSupport extends AbstractBTLEDeviceSupport implements ICommuni
             // isBusyFetching so we do not start multiple processors
             isBusyFetching = false;
 
-            final FitAsyncProcessor fitAsyncProcessor = new FitAsyncProcessor(getContext(), getDevice());
+            fitAsyncProcessor = new FitAsyncProcessor(getContext(), getDevice());
             final long[] lastNotificationUpdateTs = new long[]{System.currentTimeMillis()};
             fitAsyncProcessor.process(filesToProcess, new FitAsyncProcessor.Callback() {
                 @Override
@@ -681,6 +688,7 @@ public class GarminSupport extends AbstractBTLEDeviceSupport implements ICommuni
 
                 @Override
                 public void onFinish() {
+                    fitAsyncProcessor = null;
                     getDevice().unsetBusyTask();
                     GB.signalActivityDataFinish(getDevice());
                     GB.updateTransferNotification(null, "", false, 100, getContext());
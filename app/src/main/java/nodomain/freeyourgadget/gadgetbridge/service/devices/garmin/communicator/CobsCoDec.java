@@ -1,16 +1,47 @@
 package nodomain.freeyourgadget.gadgetbridge.service.devices.garmin.communicator;
 
-import java.nio.ByteBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * COBS framing of the GFDI messages. The decoder works on the received stream byte by byte, so
+ * frames may span any number of chunks, and a single chunk may complete several frames.
+ */
 public class CobsCoDec {
+    private static final Logger LOG = LoggerFactory.getLogger(CobsCoDec.class);
+
     private static final long BUFFER_TIMEOUT = 1500L; // turn this value up while debugging
-    private final ByteBuffer byteBuffer = ByteBuffer.allocate(10_000);
+
+    private enum State {
+        /** Waiting for the leading 0 of a frame, discarding anything else. */
+        WAITING_FOR_START,
+        /** Waiting for the first code byte of a frame, after its leading 0. */
+        FRAME_START,
+        /** Decoding a frame, until its trailing 0. */
+        IN_FRAME,
+    }
+
+    private State state = State.WAITING_FOR_START;
+    // bytes left in the current block, after which a new code byte is expected
+    private int blockRemaining;
+    // whether a 0 has to be appended before the next block, if there is one
+    private boolean blockEndsWithZero;
+
+    // decoded bytes of the current frame, reused across frames
+    private byte[] frameBuffer = new byte[1024];
+    private int frameLength;
+
+    private final Queue<byte[]> decodedMessages = new ArrayDeque<>();
     private long lastUpdate;
-    private byte[] cobsDecodedMessage;
 
     /**
-     * Accumulates received bytes in a local buffer, clearing it after a timeout, and attempts to
-     * parse it.
+     * Decodes the received bytes, queuing each complete message for {@link #retrieveMessage()}.
+     * A partial frame is discarded if no data was received for a while.
      *
      * @param bytes
      */
@@ -21,61 +52,89 @@ public class CobsCoDec {
         }
         lastUpdate = now;
 
-        byteBuffer.put(bytes);
-        decode();
+        for (final byte b : bytes) {
+            decode(b);
+        }
     }
 
     private void reset() {
-        cobsDecodedMessage = null;
-        byteBuffer.clear();
+        if (state == State.IN_FRAME) {
+            LOG.warn("Discarding partial frame of {} bytes", frameLength);
+        }
+        state = State.WAITING_FOR_START;
+        frameLength = 0;
     }
 
+    /**
+     * @return the oldest decoded message, or null if there is none
+     */
     public byte[] retrieveMessage() {
-        final byte[] resultPacket = cobsDecodedMessage;
-        cobsDecodedMessage = null;
-        return resultPacket;
+        return decodedMessages.poll();
     }
 
     /**
      * COBS decoding algorithm variant, which relies on a leading and a trailing 0 byte (the former
-     * is not part of default implementations).
-     * This function removes the complete message from the internal buffer, if it could be decoded.
+     * is not part of default implementations). The trailing 0 of a frame may also serve as the
+     * leading 0 of the next one.
      */
-    private void decode() {
-        if (cobsDecodedMessage != null) {
-            // packet is waiting, unable to parse more
-            return;
+    private void decode(final byte b) {
+        switch (state) {
+            case WAITING_FOR_START:
+                if (b == 0) {
+                    state = State.FRAME_START;
+                }
+                return;
+            case FRAME_START:
+                if (b == 0) {
+                    // empty frame, or the leading 0 after the trailing 0 of the previous frame
+                    return;
+                }
+                frameLength = 0;
+                startBlock(b);
+                state = State.IN_FRAME;
+                return;
+            case IN_FRAME:
+                if (b == 0) {
+                    endFrame();
+                    return;
+                }
+                if (blockRemaining > 0) {
+                    append(b);
+                    blockRemaining--;
+                    return;
+                }
+                if (blockEndsWithZero) {
+                    append((byte) 0);
+                }
+                startBlock(b);
         }
-        if (byteBuffer.position() < 4) {
-            // minimal payload length including the padding
+    }
+
+    private void startBlock(final byte code) {
+        final int codeValue = code & 0xFF;
+        blockRemaining = codeValue - 1;
+        blockEndsWithZero = codeValue != 0xFF;
+    }
+
+    private void append(final byte b) {
+        if (frameLength == frameBuffer.length) {
+            frameBuffer = Arrays.copyOf(frameBuffer, frameBuffer.length * 2);
+        }
+        frameBuffer[frameLength++] = b;
+    }
+
+    private void endFrame() {
+        // the trailing 0 may be the leading 0 of the next frame
+        state = State.FRAME_START;
+
+        if (blockRemaining > 0) {
+            LOG.warn("Discarding truncated frame, {} bytes missing", blockRemaining);
             return;
         }
-        if (0 != byteBuffer.get(byteBuffer.position() - 1))
-            return; //no 0x00 at the end, hence no full packet
-        byteBuffer.position(byteBuffer.position() - 1); //don't process the trailing 0
-        byteBuffer.flip();
-        if (0 != byteBuffer.get())
-            return; //no 0x00 at the start
-        ByteBuffer decodedBytesBuffer = ByteBuffer.allocate(byteBuffer.limit()); //leading and trailing 0x00 bytes
-        while (byteBuffer.hasRemaining()) {
-            byte code = byteBuffer.get();
-            if (code == 0) {
-                break;
-            }
-            int codeValue = code & 0xFF;
-            int payloadSize = codeValue - 1;
-            for (int i = 0; i < payloadSize; i++) {
-                decodedBytesBuffer.put(byteBuffer.get());
-            }
-            if (codeValue != 0xFF && byteBuffer.hasRemaining()) {
-                decodedBytesBuffer.put((byte) 0); // Append a zero byte after the payload
-            }
+        if (frameLength == 0) {
+            return;
         }
-
-        decodedBytesBuffer.flip();
-        cobsDecodedMessage = new byte[decodedBytesBuffer.remaining()];
-        decodedBytesBuffer.get(cobsDecodedMessage);
-        byteBuffer.compact();
+        decodedMessages.add(Arrays.copyOf(frameBuffer, frameLength));
     }
 
     // this implementation of COBS relies on a leading and a trailing 0 byte (the former is not part of default implementations)
@@ -94,7 +94,11 @@ public class CommunicatorV1 implements ICommunicator {
     public boolean onCharacteristicChanged(final BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic) {
         if (characteristic.getUuid().equals(characteristicReceive.getUuid())) {
             this.cobsCoDec.receivedBytes(characteristic.getValue());
-            this.mSupport.onMessage(this.cobsCoDec.retrieveMessage());
+
+            byte[] decoded;
+            while ((decoded = this.cobsCoDec.retrieveMessage()) != null) {
+                this.mSupport.onMessage(decoded);
+            }
 
             return true;
         }
@@ -318,7 +318,10 @@ public class CommunicatorV2 implements ICommunicator {
         message.get(partial);
         this.cobsCoDec.receivedBytes(partial);
 
-        this.mSupport.onMessage(this.cobsCoDec.retrieveMessage());
+        byte[] decoded;
+        while ((decoded = this.cobsCoDec.retrieveMessage()) != null) {
+            this.mSupport.onMessage(decoded);
+        }
     }
 
     private void processRealtimeHeartRate(final ByteBuffer buf) {
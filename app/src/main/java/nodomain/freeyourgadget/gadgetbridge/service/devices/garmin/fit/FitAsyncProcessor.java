@@ -3,11 +3,21 @@ package nodomain.freeyourgadget.gadgetbridge.service.devices.garmin.fit;
 import android.content.Context;
 import android.os.Handler;
 
+import androidx.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
@@ -15,12 +25,22 @@ import nodomain.freeyourgadget.gadgetbridge.devices.PendingFileProvider;
 import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 
+/**
+ * Imports fit files in a pipeline: files are parsed in parallel by a small pool of workers, while a
+ * single writer persists them in the original order, committing several files per transaction.
+ */
 public class FitAsyncProcessor {
     private static final Logger LOG = LoggerFactory.getLogger(FitAsyncProcessor.class);
 
+    /**
+     * Maximum number of files persisted in a single transaction.
+     */
+    private static final int MAX_FILES_PER_TRANSACTION = 8;
+
     private final Context context;
     private final GBDevice gbDevice;
     private final Handler handler;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
 
     public FitAsyncProcessor(final Context context, final GBDevice gbDevice) {
         this.context = context;
@@ -32,42 +52,144 @@ public class FitAsyncProcessor {
      * Process a list of files asynchronously. Callback is executed on the UI thread.
      */
     public void process(final List<File> files, final Callback callback) {
-        LOG.debug("Starting processor for {} files", files.size());
+        // leave one core for the writer and the UI
+        final int numWorkers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+        // parsed files are kept in memory until they are persisted, so do not parse too far ahead
+        final int maxFilesInFlight = numWorkers * 2;
 
-        new Thread(() -> {
-            try {
-                int i = 0;
-                for (final File file : files) {
-                    i++;
-                    LOG.debug("Parsing {}", file);
+        LOG.debug("Starting processor for {} files with {} workers", files.size(), numWorkers);
 
-                    final int finalI = i;
-                    FitAsyncProcessor.this.handler.post(() -> callback.onProgress(finalI));
+        new Thread(() -> {
+            final ExecutorService workers = Executors.newFixedThreadPool(numWorkers);
+            final Deque<ParsedFile> inFlight = new ArrayDeque<>();
+            int numSubmitted = 0;
+            int numProcessed = 0;
 
-                    try {
-                        final FitImporter fitImporter = new FitImporter(context, gbDevice);
-                        fitImporter.importFile(file);
-                    } catch (final Exception ex) {
-                        LOG.error("Exception while importing {}", file, ex);
-                        continue; // do not remove from pending files
+            try {
+                while (!cancelled.get() && (numSubmitted < files.size() || !inFlight.isEmpty())) {
+                    while (numSubmitted < files.size() && inFlight.size() < maxFilesInFlight) {
+                        final File file = files.get(numSubmitted++);
+                        inFlight.add(new ParsedFile(file, workers.submit(() -> parse(file))));
                     }
 
-                    try (DBHandler handler = GBApplication.acquireDB()) {
-                        final DaoSession session = handler.getDaoSession();
+                    // Wait for the oldest file, and persist it along with the following ones that
+                    // are already parsed, so that the files are persisted in the original order
+                    final List<ParsedFile> batch = new ArrayList<>();
+                    batch.add(inFlight.poll());
+                    while (batch.size() < MAX_FILES_PER_TRANSACTION && !inFlight.isEmpty() && inFlight.peek().future.isDone()) {
+                        batch.add(inFlight.poll());
+                    }
+                    persist(batch);
 
-                        final PendingFileProvider pendingFileProvider = new PendingFileProvider(gbDevice, session);
+                    numProcessed += batch.size();
+                    final int finalNumProcessed = numProcessed;
+                    FitAsyncProcessor.this.handler.post(() -> callback.onProgress(finalNumProcessed));
+                }
 
-                        pendingFileProvider.removePendingFile(file.getPath());
-                    } catch (final Exception e) {
-                        LOG.error("Exception while removing pending file {}", file, e);
-                    }
+                if (cancelled.get()) {
+                    LOG.info("Processing cancelled after {} of {} files", numProcessed, files.size());
                 }
             } catch (final Exception e) {
                 LOG.error("Failed to parse from storage", e);
+            } finally {
+                workers.shutdownNow();
             }
 
             FitAsyncProcessor.this.handler.post(callback::onFinish);
-        }).start();
+        }, "FitAsyncProcessor").start();
+    }
+
+    /**
+     * Stops processing after the files currently being persisted. Files that were not persisted
+     * remain pending. The callback is still finished.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * Parses a file, returning null if there is nothing to persist.
+     */
+    @Nullable
+    private FitImporter parse(final File file) throws Exception {
+        LOG.debug("Parsing {}", file);
+
+        final FitImporter fitImporter = new FitImporter(context, gbDevice);
+        if (!fitImporter.parseFile(file)) {
+            return null;
+        }
+        return fitImporter;
+    }
+
+    private void persist(final List<ParsedFile> batch) throws InterruptedException {
+        final List<ParsedFile> parsedFiles = new ArrayList<>(batch.size());
+        for (final ParsedFile parsedFile : batch) {
+            try {
+                parsedFile.importer = parsedFile.future.get();
+                parsedFiles.add(parsedFile);
+            } catch (final ExecutionException e) {
+                // do not remove from pending files
+                LOG.error("Exception while importing {}", parsedFile.file, e.getCause());
+            }
+        }
+        if (parsedFiles.isEmpty()) {
+            return;
+        }
+
+        try (DBHandler handler = GBApplication.acquireDB()) {
+            final DaoSession session = handler.getDaoSession();
+
+            try {
+                session.callInTx(() -> {
+                    for (final ParsedFile parsedFile : parsedFiles) {
+                        persist(session, parsedFile);
+                    }
+                    return null;
+                });
+            } catch (final Exception e) {
+                LOG.warn("Failed to persist {} files at once, persisting them one by one", parsedFiles.size(), e);
+
+                // the entities cached by the session may not match the rolled back database
+                session.clear();
+
+                for (final ParsedFile parsedFile : parsedFiles) {
+                    try {
+                        session.callInTx(() -> {
+                            persist(session, parsedFile);
+                            return null;
+                        });
+                    } catch (final Exception e1) {
+                        // do not remove from pending files
+                        LOG.error("Exception while persisting {}", parsedFile.file, e1);
+                        session.clear();
+                    }
+                }
+            }
+        } catch (final Exception e) {
+            LOG.error("Exception while persisting {} files", parsedFiles.size(), e);
+        }
+    }
+
+    private void persist(final DaoSession session, final ParsedFile parsedFile) throws Exception {
+        if (parsedFile.importer != null) {
+            parsedFile.importer.persist(session);
+        }
+
+        // removed in the same transaction, so that the file is processed again if persisting fails
+        final PendingFileProvider pendingFileProvider = new PendingFileProvider(gbDevice, session);
+        pendingFileProvider.removePendingFile(parsedFile.file.getPath());
+    }
+
+    private static class ParsedFile {
+        private final File file;
+        private final Future<FitImporter> future;
+        @Nullable
+        private FitImporter importer;
+
+        private ParsedFile(final File file, final Future<FitImporter> future) {
+            this.file = file;
+            this.future = future;
+        }
     }
 
     public interface Callback {
@@ -5,12 +5,12 @@ import androidx.annotation.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -40,35 +40,56 @@ public class FitFile {
         this.canGenerateOutput = true;
     }
 
-    private static byte[] readFileToByteArray(File file) throws IOException {
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream(); InputStream inputStream = new FileInputStream(file)) {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, length);
-            }
-            return outputStream.toByteArray();
-        }
+    /**
+     * Receives the data records of a FIT file as they are parsed.
+     */
+    public interface RecordListener {
+        void onRecord(RecordData record);
     }
 
     public static FitFile parseIncoming(File file) throws IOException, FitParseException {
-        return parseIncoming(readFileToByteArray(file));
+        final List<RecordData> dataRecords = new ArrayList<>();
+        final Header header = parseIncoming(file, dataRecords::add);
+        return new FitFile(header, dataRecords);
+    }
+
+    /**
+     * Parses a FIT file without reading it into memory, passing each data record to the listener
+     * as soon as it is decoded. The records are not retained by the parser.
+     * <p>
+     * The CRC of the file can only be verified once its end is reached, so listeners should not
+     * persist anything before this method returns.
+     */
+    public static Header parseIncoming(File file, RecordListener listener) throws IOException, FitParseException {
+        try (FileInputStream inputStream = new FileInputStream(file); FileChannel channel = inputStream.getChannel()) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return parseIncoming(buffer, listener);
+        }
     }
 
-    //TODO: process file in chunks??
     public static FitFile parseIncoming(byte[] fileContents) throws FitParseException {
+        final List<RecordData> dataRecords = new ArrayList<>();
+        final Header header = parseIncoming(ByteBuffer.wrap(fileContents), dataRecords::add);
+        return new FitFile(header, dataRecords);
+    }
 
-        final GarminByteBufferReader garminByteBufferReader = new GarminByteBufferReader(fileContents);
+    private static Header parseIncoming(ByteBuffer buffer, RecordListener listener) throws FitParseException {
+        final GarminByteBufferReader garminByteBufferReader = new GarminByteBufferReader(buffer);
         garminByteBufferReader.setByteOrder(ByteOrder.LITTLE_ENDIAN);
 
         final Header header = Header.parseIncomingHeader(garminByteBufferReader);
 
+        // the CRC is computed as we go, to avoid a second pass over the whole file
+        int actualCrc = ChecksumCalculator.computeCrc(0, buffer, 0, garminByteBufferReader.getPosition());
+
         // needed because the headers can be redefined in the file. The last header for a local message number wins
         Map<Integer, RecordDefinition> recordDefinitionMap = new HashMap<>();
-        List<RecordData> dataRecords = new ArrayList<>();
+        // only the field descriptions are kept, they are needed for developer data definitions
+        List<RecordData> fieldDescriptionRecords = new ArrayList<>();
         Long referenceTimestamp = null;
 
         while (garminByteBufferReader.getPosition() < header.getHeaderSize() + header.getDataSize()) {
+            final int recordStart = garminByteBufferReader.getPosition();
             byte rawRecordHeader = (byte) garminByteBufferReader.readByte();
             RecordHeader recordHeader = new RecordHeader(rawRecordHeader);
             final Integer timeOffset = recordHeader.getTimeOffset();
@@ -87,9 +108,8 @@ public class FitFile {
                 final RecordDefinition recordDefinition = RecordDefinition.parseIncoming(garminByteBufferReader, recordHeader);
                 if (recordDefinition != null) {
                     if (recordHeader.isDeveloperData())
-                        for (RecordData rd : dataRecords) {
-                            if (GlobalFITMessage.FIELD_DESCRIPTION.equals(rd.getGlobalFITMessage()))
-                                recordDefinition.populateDevFields(rd);
+                        for (RecordData rd : fieldDescriptionRecords) {
+                            recordDefinition.populateDevFields(rd);
                         }
                     recordDefinitionMap.put(recordHeader.getLocalMessageType(), recordDefinition);
                 }
@@ -97,20 +117,22 @@ public class FitFile {
                 final RecordDefinition referenceRecordDefinition = recordDefinitionMap.get(recordHeader.getLocalMessageType());
                 if (referenceRecordDefinition != null) {
                     final RecordData runningData = FitRecordDataFactory.create(referenceRecordDefinition, recordHeader);
-                    dataRecords.add(runningData);
                     Long newTimestamp = runningData.parseDataMessage(garminByteBufferReader, referenceTimestamp);
                     if (newTimestamp != null)
                         referenceTimestamp = newTimestamp;
+                    if (GlobalFITMessage.FIELD_DESCRIPTION.equals(runningData.getGlobalFITMessage()))
+                        fieldDescriptionRecords.add(runningData);
+                    listener.onRecord(runningData);
                 }
             }
+            actualCrc = ChecksumCalculator.computeCrc(actualCrc, buffer, recordStart, garminByteBufferReader.getPosition() - recordStart);
         }
         garminByteBufferReader.setByteOrder(ByteOrder.LITTLE_ENDIAN);
         final int fileCrc = garminByteBufferReader.readShort();
-        final int actualCrc = ChecksumCalculator.computeCrc(fileContents, 0, fileContents.length - 2);
         if (fileCrc != actualCrc) {
             throw new FitParseException("Wrong CRC for FIT file: got " + actualCrc + " expected " + fileCrc);
         }
-        return new FitFile(header, dataRecords);
+        return header;
     }
 
     public List<RecordData> getRecordsByGlobalMessage(GlobalFITMessage globalFITMessage) {
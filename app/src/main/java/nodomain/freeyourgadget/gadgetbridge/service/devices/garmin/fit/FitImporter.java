@@ -112,6 +112,8 @@ public class FitImporter {
     private FitSleepDataInfo fitSleepDataInfo = null;
     private final List<FitSleepDataRaw> fitSleepDataRawSamples = new ArrayList<>();
     private FitFileId fileId = null;
+    private Long lastMonitoringTimestamp = null;
+    private File exportFile = null;
 
     private final GarminWorkoutParser workoutParser;
 
@@ -121,238 +123,39 @@ public class FitImporter {
         this.workoutParser = new GarminWorkoutParser(context);
     }
 
-    /**
-     * @noinspection StatementWithEmptyBody
-     */
     public void importFile(final File file) throws IOException, FitParseException {
-        reset();
-
-        final FitFile fitFile = FitFile.parseIncoming(file);
-
-        Long lastMonitoringTimestamp = null;
-
-        for (final RecordData record : fitFile.getRecords()) {
-            if (fileId != null && fileId.getType() == FileType.FILETYPE.ACTIVITY) {
-                if (workoutParser.handleRecord(record)) {
-                    continue;
-                }
-            }
-
-            final Long ts = record.getComputedTimestamp();
-
-            if (record instanceof FitFileId) {
-                final FitFileId newFileId = (FitFileId) record;
-                LOG.debug("File ID: {}", newFileId);
-                if (fileId != null) {
-                    // Should not happen
-                    LOG.warn("Already had a file ID: {}", fileId);
-                }
-                fileId = newFileId;
-            } else if (record instanceof FitStressLevel) {
-                final FitStressLevel stressRecord = (FitStressLevel) record;
-                final Integer stress = stressRecord.getStressLevelValue();
-                if (stress != null && stress >= 0) {
-                    LOG.trace("Stress at {}: {}", ts, stress);
-                    final GarminStressSample sample = new GarminStressSample();
-                    sample.setTimestamp(ts * 1000L);
-                    sample.setStress(stress);
-                    stressSamples.add(sample);
-                }
-
-                final Integer energy = stressRecord.getBodyEnergy();
-                if (energy != null) {
-                    LOG.trace("Body energy at {}: {}", ts, energy);
-                    final GarminBodyEnergySample sample = new GarminBodyEnergySample();
-                    sample.setTimestamp(ts * 1000L);
-                    sample.setEnergy(energy);
-                    bodyEnergySamples.add(sample);
-                }
-            } else if (record instanceof FitSleepDataInfo) {
-                final FitSleepDataInfo newFitSleepDataInfo = (FitSleepDataInfo) record;
-                LOG.debug("Sleep Data Info: {}", newFitSleepDataInfo);
-                if (fitSleepDataInfo != null) {
-                    // Should not happen
-                    LOG.warn("Already had sleep data info: {}", fitSleepDataInfo);
-                }
-                fitSleepDataInfo = newFitSleepDataInfo;
-            } else if (record instanceof FitSleepDataRaw) {
-                final FitSleepDataRaw fitSleepDataRaw = (FitSleepDataRaw) record;
-                //LOG.debug("Sleep Data Raw: {}", fitSleepDataRaw);
-                fitSleepDataRawSamples.add(fitSleepDataRaw);
-            } else if (record instanceof FitSleepStats) {
-                final Integer score = ((FitSleepStats) record).getOverallSleepScore();
-                if (score == null) {
-                    continue;
-                }
-                LOG.trace("Sleep stats at {}: {}", ts, record);
-                final GarminSleepStatsSample sample = new GarminSleepStatsSample();
-                sample.setTimestamp(ts * 1000L);
-                sample.setSleepScore(score);
-                sleepStatsSamples.add(sample);
-            } else if (record instanceof FitSleepStage) {
-                final FieldDefinitionSleepStage.SleepStage stage = ((FitSleepStage) record).getSleepStage();
-                if (stage == null) {
-                    continue;
-                }
-                LOG.trace("Sleep stage at {}: {}", ts, record);
-                final GarminSleepStageSample sample = new GarminSleepStageSample();
-                sample.setTimestamp(ts * 1000L);
-                sample.setStage(stage.getId());
-                sleepStageSamples.add(sample);
-            } else if (record instanceof FitNap) {
-                final FitNap nap = (FitNap) record;
-                if (nap.getStartTimestamp() == null || nap.getEndTimestamp() == null) {
-                    continue;
-                }
-                LOG.trace("Nap at {}: from {} to {}", ts, nap.getStartTimestamp(), nap.getEndTimestamp());
-                final GarminNapSample sample = new GarminNapSample();
-                sample.setTimestamp(nap.getStartTimestamp() * 1000L);
-                sample.setEndTimestamp(nap.getEndTimestamp() * 1000L);
-                napSamples.add(sample);
-            } else if (record instanceof FitMonitoring) {
-                LOG.trace("Monitoring at {}: {}", ts, record);
-                final FitMonitoring monitoringRecord = (FitMonitoring) record;
-                final Long currentMonitoringTimestamp = monitoringRecord.computeTimestamp(lastMonitoringTimestamp);
-                if (!activitySamplesPerTimestamp.containsKey(currentMonitoringTimestamp)) {
-                    activitySamplesPerTimestamp.put(currentMonitoringTimestamp, new ArrayList<>());
-                }
-                Objects.requireNonNull(activitySamplesPerTimestamp.get(currentMonitoringTimestamp)).add(monitoringRecord);
-                lastMonitoringTimestamp = currentMonitoringTimestamp;
-            } else if (record instanceof FitSpo2) {
-                final Integer spo2 = ((FitSpo2) record).getReadingSpo2();
-                if (spo2 == null || spo2 <= 0) {
-                    continue;
-                }
-                LOG.trace("SpO2 at {}: {}", ts, spo2);
-                final GarminSpo2Sample sample = new GarminSpo2Sample();
-                sample.setTimestamp(ts * 1000L);
-                sample.setSpo2(spo2);
-                spo2samples.add(sample);
-            } else if (record instanceof FitRespirationRate) {
-                final Float respiratoryRate = ((FitRespirationRate) record).getRespirationRate();
-                if (respiratoryRate == null || respiratoryRate <= 0) {
-                    continue;
-                }
-                LOG.trace("Respiratory rate at {}: {}", ts, respiratoryRate);
-                final GarminRespiratoryRateSample sample = new GarminRespiratoryRateSample();
-                sample.setTimestamp(ts * 1000L);
-                sample.setRespiratoryRate(respiratoryRate);
-                respiratoryRateSamples.add(sample);
-            } else if (record instanceof FitEvent) {
-                final FitEvent event = (FitEvent) record;
-                if (event.getEvent() == null) {
-                    LOG.warn("Event in {} is null", event);
-                    continue;
-                }
+        if (!parseFile(file)) {
+            return;
+        }
 
-                LOG.trace("Event at {}: {}", ts, event);
+        try (DBHandler handler = GBApplication.acquireDB()) {
+            persist(handler.getDaoSession());
+        } catch (final Exception e) {
+            GB.toast(context, "Error saving samples", Toast.LENGTH_LONG, GB.ERROR, e);
+        }
+    }
 
-                final GarminEventSample sample = new GarminEventSample();
-                sample.setTimestamp(ts * 1000L);
-                sample.setEvent(event.getEvent());
-                if (event.getEventType() != null) {
-                    sample.setEventType(event.getEventType());
-                }
-                if (event.getData() != null) {
-                    sample.setData(event.getData());
-                }
-                events.add(sample);
-            } else if (record instanceof FitRecord) {
-                // handled in workout parser
-            } else if (record instanceof FitSession) {
-                // handled in workout parser
-            } else if (record instanceof FitPhysiologicalMetrics) {
-                // handled in workout parser
-            } else if (record instanceof FitSport) {
-                // handled in workout parser
-            } else if (record instanceof FitTimeInZone) {
-                // handled in workout parser
-            } else if (record instanceof FitUserProfile) {
-                // handled in workout parser
-            } else if (record instanceof FitHrvSummary) {
-                final FitHrvSummary hrvSummary = (FitHrvSummary) record;
-                LOG.trace("HRV summary at {}: {}", ts, record);
-                final GarminHrvSummarySample sample = new GarminHrvSummarySample();
-                sample.setTimestamp(ts * 1000L);
-                if (hrvSummary.getWeeklyAverage() != null) {
-                    sample.setWeeklyAverage(Math.round(hrvSummary.getWeeklyAverage()));
-                }
-                if (hrvSummary.getLastNightAverage() != null) {
-                    sample.setLastNightAverage(Math.round(hrvSummary.getLastNightAverage()));
-                }
-                if (hrvSummary.getLastNight5MinHigh() != null) {
-                    sample.setLastNight5MinHigh(Math.round(hrvSummary.getLastNight5MinHigh()));
-                }
-                if (hrvSummary.getBaselineLowUpper() != null) {
-                    sample.setBaselineLowUpper(Math.round(hrvSummary.getBaselineLowUpper()));
-                }
-                if (hrvSummary.getBaselineBalancedLower() != null) {
-                    sample.setBaselineBalancedLower(Math.round(hrvSummary.getBaselineBalancedLower()));
-                }
-                if (hrvSummary.getBaselineBalancedUpper() != null) {
-                    sample.setBaselineBalancedUpper(Math.round(hrvSummary.getBaselineBalancedUpper()));
-                }
-                final FieldDefinitionHrvStatus.HrvStatus status = hrvSummary.getStatus();
-                if (status != null) {
-                    sample.setStatusNum(status.getId());
-                }
-                hrvSummarySamples.add(sample);
-            } else if (record instanceof FitHrvValue) {
-                final FitHrvValue hrvValue = (FitHrvValue) record;
-                if (hrvValue.getValue() == null) {
-                    LOG.warn("HRV value at {} is null", ts);
-                    continue;
-                }
-                LOG.trace("HRV value at {}: {}", ts, hrvValue.getValue());
-                final GarminHrvValueSample sample = new GarminHrvValueSample();
-                sample.setTimestamp(ts * 1000L);
-                sample.setValue(Math.round(hrvValue.getValue()));
-                hrvValueSamples.add(sample);
-            } else if (record instanceof FitMonitoringInfo) {
-                final FitMonitoringInfo monitoringInfo = (FitMonitoringInfo) record;
-                if (monitoringInfo.getRestingMetabolicRate() == null) {
-                    continue;
-                }
-                LOG.trace("Monitoring info at {}: {}", ts, record);
-                final GarminRestingMetabolicRateSample sample = new GarminRestingMetabolicRateSample();
-                sample.setTimestamp(ts * 1000L);
-                sample.setRestingMetabolicRate(monitoringInfo.getRestingMetabolicRate());
-                restingMetabolicRateSamples.add(sample);
-            } else if (record instanceof FitMonitoringHrData) {
-                final FitMonitoringHrData monitoringHrData = (FitMonitoringHrData) record;
-                if (monitoringHrData.getRestingHeartRate() == null) {
-                    LOG.warn("Resting HR at {} is null", ts);
-                    continue;
-                }
-                LOG.trace("Resting HR at {}: {}", ts, monitoringHrData.getRestingHeartRate());
-                final GarminHeartRateRestingSample sample = new GarminHeartRateRestingSample();
-                sample.setTimestamp(ts * 1000L);
-                sample.setHeartRate(monitoringHrData.getRestingHeartRate());
-                restingHrSamples.add(sample);
-            } else {
-                LOG.trace("Unknown record: {}", record);
+    /**
+     * Parses a file without touching the database, so that it can be done in parallel with other
+     * files. Returns false if the file has nothing to persist.
+     */
+    public boolean parseFile(final File file) throws IOException, FitParseException {
+        reset();
 
-                if (!unknownRecords.containsKey(record.getGlobalFITMessage().getNumber())) {
-                    unknownRecords.put(record.getGlobalFITMessage().getNumber(), 0);
-                }
-                unknownRecords.put(
-                        record.getGlobalFITMessage().getNumber(),
-                        Objects.requireNonNull(unknownRecords.get(record.getGlobalFITMessage().getNumber())) + 1
-                );
-            }
-        }
+        // records are handled as they are parsed, without keeping the whole file in memory
+        FitFile.parseIncoming(file, this::handleRecord);
 
         if (fileId == null) {
             LOG.error("Got no file ID");
-            return;
+            return false;
         }
         if (fileId.getType() == null) {
             LOG.error("File has no type");
-            return;
+            return false;
         }
 
         // If the file is not yet on the export directory (eg. we're importing from phone storage), copy it
-        File finalExportFile = file;
+        exportFile = file;
         try {
             final File exportDirectory = gbDevice.getDeviceCoordinator().getWritableExportDirectory(gbDevice);
             if (!file.getAbsolutePath().startsWith(exportDirectory.getAbsolutePath())) {
@@ -363,68 +166,73 @@ public class FitImporter {
                 }
                 sb.append(".fit");
 
-                final File exportFile = new File(exportDirectory, sb.toString());
-                if (exportFile.isFile()) {
+                final File newExportFile = new File(exportDirectory, sb.toString());
+                if (newExportFile.isFile()) {
                     // Prevent overwrite
-                    LOG.warn("Fit file {} already exists as {}", file, exportFile);
+                    LOG.warn("Fit file {} already exists as {}", file, newExportFile);
                 } else {
-                    LOG.debug("Copying {} to {}", file, exportFile);
+                    LOG.debug("Copying {} to {}", file, newExportFile);
 
-                    FileUtils.copyFile(file, exportFile);
-                    exportFile.setLastModified(file.lastModified());
+                    FileUtils.copyFile(file, newExportFile);
+                    newExportFile.setLastModified(file.lastModified());
                 }
 
-                finalExportFile = exportFile;
+                exportFile = newExportFile;
             }
         } catch (final Exception e) {
             LOG.error("Failed to copy file to export directory", e);
         }
 
-        try (DBHandler handler = GBApplication.acquireDB()) {
-            final DaoSession session = handler.getDaoSession();
-
-            switch (fileId.getType()) {
-                case ACTIVITY:
-                    persistWorkout(finalExportFile, session);
-                    break;
-                case MONITOR:
-                    persistActivitySamples(session);
-                    persistAbstractSamples(spo2samples, new GarminSpo2SampleProvider(gbDevice, session));
-                    persistAbstractSamples(respiratoryRateSamples, new GarminRespiratoryRateSampleProvider(gbDevice, session));
-                    persistAbstractSamples(restingHrSamples, new GarminHeartRateRestingSampleProvider(gbDevice, session));
-                    persistAbstractSamples(stressSamples, new GarminStressSampleProvider(gbDevice, session));
-                    persistAbstractSamples(bodyEnergySamples, new GarminBodyEnergySampleProvider(gbDevice, session));
-                    persistAbstractSamples(restingMetabolicRateSamples, new GarminRestingMetabolicRateSampleProvider(gbDevice, session));
-                    break;
-                case SLEEP:
-                    persistAbstractSamples(events, new GarminEventSampleProvider(gbDevice, session));
-                    persistAbstractSamples(sleepStatsSamples, new GarminSleepStatsSampleProvider(gbDevice, session));
-                    persistAbstractSamples(napSamples, new GarminNapSampleProvider(gbDevice, session));
-
-                    // We may have samples, but not sleep samples - #4048
-                    // 0 unmeasurable, 1 awake
-                    final boolean anySleepSample = sleepStageSamples.stream()
-                            .anyMatch(s -> s.getStage() != 0 && s.getStage() != 1);
-                    if (anySleepSample) {
-                        persistAbstractSamples(sleepStageSamples, new GarminSleepStageSampleProvider(gbDevice, session));
-                    }
-
-                    processRawSleepSamples(session);
-                    break;
-                case HRV_STATUS:
-                    persistAbstractSamples(hrvSummarySamples, new GarminHrvSummarySampleProvider(gbDevice, session));
-                    persistAbstractSamples(hrvValueSamples, new GarminHrvValueSampleProvider(gbDevice, session));
-                    break;
-                default:
-                    LOG.warn("Unable to handle fit file of type {}", fileId.getType());
-            }
-        } catch (final Exception e) {
-            GB.toast(context, "Error saving samples", Toast.LENGTH_LONG, GB.ERROR, e);
-        }
-
         for (final Map.Entry<Integer, Integer> e : unknownRecords.entrySet()) {
             LOG.warn("Unknown record of global number {} seen {} times", e.getKey(), e.getValue());
         }
+
+        return true;
+    }
+
+    /**
+     * Persists the data of the last file parsed by {@link #parseFile(File)}. Must be called with
+     * the database lock held.
+     * <p>
+     * Failures are not handled here but thrown, so that a transaction wrapping this call is rolled
+     * back as a whole, instead of nested transactions making it fail silently.
+     */
+    public void persist(final DaoSession session) throws Exception {
+        switch (fileId.getType()) {
+            case ACTIVITY:
+                persistWorkout(exportFile, session);
+                break;
+            case MONITOR:
+                persistActivitySamples(session);
+                persistAbstractSamples(spo2samples, new GarminSpo2SampleProvider(gbDevice, session));
+                persistAbstractSamples(respiratoryRateSamples, new GarminRespiratoryRateSampleProvider(gbDevice, session));
+                persistAbstractSamples(restingHrSamples, new GarminHeartRateRestingSampleProvider(gbDevice, session));
+                persistAbstractSamples(stressSamples, new GarminStressSampleProvider(gbDevice, session));
+                persistAbstractSamples(bodyEnergySamples, new GarminBodyEnergySampleProvider(gbDevice, session));
+                persistAbstractSamples(restingMetabolicRateSamples, new GarminRestingMetabolicRateSampleProvider(gbDevice, session));
+                break;
+            case SLEEP:
+                persistAbstractSamples(events, new GarminEventSampleProvider(gbDevice, session));
+                persistAbstractSamples(sleepStatsSamples, new GarminSleepStatsSampleProvider(gbDevice, session));
+                persistAbstractSamples(napSamples, new GarminNapSampleProvider(gbDevice, session));
+
+                // We may have samples, but not sleep samples - #4048
+                // 0 unmeasurable, 1 awake
+                final boolean anySleepSample = sleepStageSamples.stream()
+                        .anyMatch(s -> s.getStage() != 0 && s.getStage() != 1);
+                if (anySleepSample) {
+                    persistAbstractSamples(sleepStageSamples, new GarminSleepStageSampleProvider(gbDevice, session));
+                }
+
+                processRawSleepSamples(session);
+                break;
+            case HRV_STATUS:
+                persistAbstractSamples(hrvSummarySamples, new GarminHrvSummarySampleProvider(gbDevice, session));
+                persistAbstractSamples(hrvValueSamples, new GarminHrvValueSampleProvider(gbDevice, session));
+                break;
+            default:
+                LOG.warn("Unable to handle fit file of type {}", fileId.getType());
+        }
     }
 
     private void persistWorkout(final File file, final DaoSession session) {
@@ -433,31 +241,236 @@ public class FitImporter {
         final BaseActivitySummary summary;
 
         // This ensures idempotency when re-processing
-        try {
-            summary = ActivitySummaryParser.findOrCreateBaseActivitySummary(
-                    session,
-                    gbDevice,
-                    Objects.requireNonNull(fileId.getTimeCreated()).intValue()
-            );
-        } catch (final Exception e) {
-            GB.toast(context, "Error finding base summary", Toast.LENGTH_LONG, GB.ERROR, e);
-            return;
-        }
+        summary = ActivitySummaryParser.findOrCreateBaseActivitySummary(
+                session,
+                gbDevice,
+                Objects.requireNonNull(fileId.getTimeCreated()).intValue()
+        );
 
         workoutParser.updateSummary(summary);
 
         summary.setRawDetailsPath(file.getAbsolutePath());
 
-        try {
-            final Device device = DBHelper.getDevice(gbDevice, session);
-            final User user = DBHelper.getUser(session);
+        final Device device = DBHelper.getDevice(gbDevice, session);
+        final User user = DBHelper.getUser(session);
 
-            summary.setDevice(device);
-            summary.setUser(user);
+        summary.setDevice(device);
+        summary.setUser(user);
 
-            session.getBaseActivitySummaryDao().insertOrReplace(summary);
-        } catch (final Exception e) {
-            GB.toast(context, "Error saving workout", Toast.LENGTH_LONG, GB.ERROR, e);
+        session.getBaseActivitySummaryDao().insertOrReplace(summary);
+    }
+
+    /**
+     * @noinspection StatementWithEmptyBody
+     */
+    private void handleRecord(final RecordData record) {
+        if (fileId != null && fileId.getType() == FileType.FILETYPE.ACTIVITY) {
+            if (workoutParser.handleRecord(record)) {
+                return;
+            }
+        }
+
+        final Long ts = record.getComputedTimestamp();
+
+        if (record instanceof FitFileId) {
+            final FitFileId newFileId = (FitFileId) record;
+            LOG.debug("File ID: {}", newFileId);
+            if (fileId != null) {
+                // Should not happen
+                LOG.warn("Already had a file ID: {}", fileId);
+            }
+            fileId = newFileId;
+        } else if (record instanceof FitStressLevel) {
+            final FitStressLevel stressRecord = (FitStressLevel) record;
+            final Integer stress = stressRecord.getStressLevelValue();
+            if (stress != null && stress >= 0) {
+                LOG.trace("Stress at {}: {}", ts, stress);
+                final GarminStressSample sample = new GarminStressSample();
+                sample.setTimestamp(ts * 1000L);
+                sample.setStress(stress);
+                stressSamples.add(sample);
+            }
+
+            final Integer energy = stressRecord.getBodyEnergy();
+            if (energy != null) {
+                LOG.trace("Body energy at {}: {}", ts, energy);
+                final GarminBodyEnergySample sample = new GarminBodyEnergySample();
+                sample.setTimestamp(ts * 1000L);
+                sample.setEnergy(energy);
+                bodyEnergySamples.add(sample);
+            }
+        } else if (record instanceof FitSleepDataInfo) {
+            final FitSleepDataInfo newFitSleepDataInfo = (FitSleepDataInfo) record;
+            LOG.debug("Sleep Data Info: {}", newFitSleepDataInfo);
+            if (fitSleepDataInfo != null) {
+                // Should not happen
+                LOG.warn("Already had sleep data info: {}", fitSleepDataInfo);
+            }
+            fitSleepDataInfo = newFitSleepDataInfo;
+        } else if (record instanceof FitSleepDataRaw) {
+            final FitSleepDataRaw fitSleepDataRaw = (FitSleepDataRaw) record;
+            //LOG.debug("Sleep Data Raw: {}", fitSleepDataRaw);
+            fitSleepDataRawSamples.add(fitSleepDataRaw);
+        } else if (record instanceof FitSleepStats) {
+            final Integer score = ((FitSleepStats) record).getOverallSleepScore();
+            if (score == null) {
+                return;
+            }
+            LOG.trace("Sleep stats at {}: {}", ts, record);
+            final GarminSleepStatsSample sample = new GarminSleepStatsSample();
+            sample.setTimestamp(ts * 1000L);
+            sample.setSleepScore(score);
+            sleepStatsSamples.add(sample);
+        } else if (record instanceof FitSleepStage) {
+            final FieldDefinitionSleepStage.SleepStage stage = ((FitSleepStage) record).getSleepStage();
+            if (stage == null) {
+                return;
+            }
+            LOG.trace("Sleep stage at {}: {}", ts, record);
+            final GarminSleepStageSample sample = new GarminSleepStageSample();
+            sample.setTimestamp(ts * 1000L);
+            sample.setStage(stage.getId());
+            sleepStageSamples.add(sample);
+        } else if (record instanceof FitNap) {
+            final FitNap nap = (FitNap) record;
+            if (nap.getStartTimestamp() == null || nap.getEndTimestamp() == null) {
+                return;
+            }
+            LOG.trace("Nap at {}: from {} to {}", ts, nap.getStartTimestamp(), nap.getEndTimestamp());
+            final GarminNapSample sample = new GarminNapSample();
+            sample.setTimestamp(nap.getStartTimestamp() * 1000L);
+            sample.setEndTimestamp(nap.getEndTimestamp() * 1000L);
+            napSamples.add(sample);
+        } else if (record instanceof FitMonitoring) {
+            LOG.trace("Monitoring at {}: {}", ts, record);
+            final FitMonitoring monitoringRecord = (FitMonitoring) record;
+            final Long currentMonitoringTimestamp = monitoringRecord.computeTimestamp(lastMonitoringTimestamp);
+            if (!activitySamplesPerTimestamp.containsKey(currentMonitoringTimestamp)) {
+                activitySamplesPerTimestamp.put(currentMonitoringTimestamp, new ArrayList<>());
+            }
+            Objects.requireNonNull(activitySamplesPerTimestamp.get(currentMonitoringTimestamp)).add(monitoringRecord);
+            lastMonitoringTimestamp = currentMonitoringTimestamp;
+        } else if (record instanceof FitSpo2) {
+            final Integer spo2 = ((FitSpo2) record).getReadingSpo2();
+            if (spo2 == null || spo2 <= 0) {
+                return;
+            }
+            LOG.trace("SpO2 at {}: {}", ts, spo2);
+            final GarminSpo2Sample sample = new GarminSpo2Sample();
+            sample.setTimestamp(ts * 1000L);
+            sample.setSpo2(spo2);
+            spo2samples.add(sample);
+        } else if (record instanceof FitRespirationRate) {
+            final Float respiratoryRate = ((FitRespirationRate) record).getRespirationRate();
+            if (respiratoryRate == null || respiratoryRate <= 0) {
+                return;
+            }
+            LOG.trace("Respiratory rate at {}: {}", ts, respiratoryRate);
+            final GarminRespiratoryRateSample sample = new GarminRespiratoryRateSample();
+            sample.setTimestamp(ts * 1000L);
+            sample.setRespiratoryRate(respiratoryRate);
+            respiratoryRateSamples.add(sample);
+        } else if (record instanceof FitEvent) {
+            final FitEvent event = (FitEvent) record;
+            if (event.getEvent() == null) {
+                LOG.warn("Event in {} is null", event);
+                return;
+            }
+
+            LOG.trace("Event at {}: {}", ts, event);
+
+            final GarminEventSample sample = new GarminEventSample();
+            sample.setTimestamp(ts * 1000L);
+            sample.setEvent(event.getEvent());
+            if (event.getEventType() != null) {
+                sample.setEventType(event.getEventType());
+            }
+            if (event.getData() != null) {
+                sample.setData(event.getData());
+            }
+            events.add(sample);
+        } else if (record instanceof FitRecord) {
+            // handled in workout parser
+        } else if (record instanceof FitSession) {
+            // handled in workout parser
+        } else if (record instanceof FitPhysiologicalMetrics) {
+            // handled in workout parser
+        } else if (record instanceof FitSport) {
+            // handled in workout parser
+        } else if (record instanceof FitTimeInZone) {
+            // handled in workout parser
+        } else if (record instanceof FitUserProfile) {
+            // handled in workout parser
+        } else if (record instanceof FitHrvSummary) {
+            final FitHrvSummary hrvSummary = (FitHrvSummary) record;
+            LOG.trace("HRV summary at {}: {}", ts, record);
+            final GarminHrvSummarySample sample = new GarminHrvSummarySample();
+            sample.setTimestamp(ts * 1000L);
+            if (hrvSummary.getWeeklyAverage() != null) {
+                sample.setWeeklyAverage(Math.round(hrvSummary.getWeeklyAverage()));
+            }
+            if (hrvSummary.getLastNightAverage() != null) {
+                sample.setLastNightAverage(Math.round(hrvSummary.getLastNightAverage()));
+            }
+            if (hrvSummary.getLastNight5MinHigh() != null) {
+                sample.setLastNight5MinHigh(Math.round(hrvSummary.getLastNight5MinHigh()));
+            }
+            if (hrvSummary.getBaselineLowUpper() != null) {
+                sample.setBaselineLowUpper(Math.round(hrvSummary.getBaselineLowUpper()));
+            }
+            if (hrvSummary.getBaselineBalancedLower() != null) {
+                sample.setBaselineBalancedLower(Math.round(hrvSummary.getBaselineBalancedLower()));
+            }
+            if (hrvSummary.getBaselineBalancedUpper() != null) {
+                sample.setBaselineBalancedUpper(Math.round(hrvSummary.getBaselineBalancedUpper()));
+            }
+            final FieldDefinitionHrvStatus.HrvStatus status = hrvSummary.getStatus();
+            if (status != null) {
+                sample.setStatusNum(status.getId());
+            }
+            hrvSummarySamples.add(sample);
+        } else if (record instanceof FitHrvValue) {
+            final FitHrvValue hrvValue = (FitHrvValue) record;
+            if (hrvValue.getValue() == null) {
+                LOG.warn("HRV value at {} is null", ts);
+                return;
+            }
+            LOG.trace("HRV value at {}: {}", ts, hrvValue.getValue());
+            final GarminHrvValueSample sample = new GarminHrvValueSample();
+            sample.setTimestamp(ts * 1000L);
+            sample.setValue(Math.round(hrvValue.getValue()));
+            hrvValueSamples.add(sample);
+        } else if (record instanceof FitMonitoringInfo) {
+            final FitMonitoringInfo monitoringInfo = (FitMonitoringInfo) record;
+            if (monitoringInfo.getRestingMetabolicRate() == null) {
+                return;
+            }
+            LOG.trace("Monitoring info at {}: {}", ts, record);
+            final GarminRestingMetabolicRateSample sample = new GarminRestingMetabolicRateSample();
+            sample.setTimestamp(ts * 1000L);
+            sample.setRestingMetabolicRate(monitoringInfo.getRestingMetabolicRate());
+            restingMetabolicRateSamples.add(sample);
+        } else if (record instanceof FitMonitoringHrData) {
+            final FitMonitoringHrData monitoringHrData = (FitMonitoringHrData) record;
+            if (monitoringHrData.getRestingHeartRate() == null) {
+                LOG.warn("Resting HR at {} is null", ts);
+                return;
+            }
+            LOG.trace("Resting HR at {}: {}", ts, monitoringHrData.getRestingHeartRate());
+            final GarminHeartRateRestingSample sample = new GarminHeartRateRestingSample();
+            sample.setTimestamp(ts * 1000L);
+            sample.setHeartRate(monitoringHrData.getRestingHeartRate());
+            restingHrSamples.add(sample);
+        } else {
+            LOG.trace("Unknown record: {}", record);
+
+            if (!unknownRecords.containsKey(record.getGlobalFITMessage().getNumber())) {
+                unknownRecords.put(record.getGlobalFITMessage().getNumber(), 0);
+            }
+            unknownRecords.put(
+                    record.getGlobalFITMessage().getNumber(),
+                    Objects.requireNonNull(unknownRecords.get(record.getGlobalFITMessage().getNumber())) + 1
+            );
         }
     }
 
@@ -479,6 +492,8 @@ public class FitImporter {
         fitSleepDataInfo = null;
         fitSleepDataRawSamples.clear();
         fileId = null;
+        lastMonitoringTimestamp = null;
+        exportFile = null;
         workoutParser.reset();
     }
 
@@ -607,27 +622,19 @@ public class FitImporter {
 
         LOG.debug("Will persist {} activity samples", activitySamples.size());
 
-        try {
-            final Device device = DBHelper.getDevice(gbDevice, session);
-            final User user = DBHelper.getUser(session);
+        final Device device = DBHelper.getDevice(gbDevice, session);
+        final User user = DBHelper.getUser(session);
 
-            final GarminActivitySampleProvider sampleProvider = new GarminActivitySampleProvider(gbDevice, session);
+        final GarminActivitySampleProvider sampleProvider = new GarminActivitySampleProvider(gbDevice, session);
 
-            for (final GarminActivitySample sample : activitySamples) {
-                sample.setDevice(device);
-                sample.setUser(user);
-            }
-
-            sampleProvider.addGBActivitySamples(activitySamples.toArray(new GarminActivitySample[0]));
-        } catch (final Exception e) {
-            GB.toast(context, "Error saving activity samples", Toast.LENGTH_LONG, GB.ERROR, e);
+        for (final GarminActivitySample sample : activitySamples) {
+            sample.setDevice(device);
+            sample.setUser(user);
         }
 
-        try {
-            persistAbstractSamples(intensityMinutesSamples, new GarminIntensityMinutesSampleProvider(gbDevice, session));
-        } catch (final Exception e) {
-            GB.toast(context, "Error saving intensity minutes samples", Toast.LENGTH_LONG, GB.ERROR, e);
-        }
+        sampleProvider.addGBActivitySamples(activitySamples.toArray(new GarminActivitySample[0]));
+
+        persistAbstractSamples(intensityMinutesSamples, new GarminIntensityMinutesSampleProvider(gbDevice, session));
     }
 
     /**
@@ -654,37 +661,52 @@ public class FitImporter {
         LOG.debug("Got {} raw sleep samples - faking sleep events from {} to {}", fitSleepDataRawSamples.size(), asleepTimeMillis, wakeTimeMillis);
 
         // We only need to fake sleep start and end times, the sample provider will take care of the rest
-        try {
-            final Device device = DBHelper.getDevice(gbDevice, session);
-            final User user = DBHelper.getUser(session);
-
-            final GarminEventSampleProvider sampleProvider = new GarminEventSampleProvider(gbDevice, session);
-
-            final GarminEventSample sampleFallAsleep = new GarminEventSample();
-            sampleFallAsleep.setTimestamp(asleepTimeMillis);
-            sampleFallAsleep.setEvent(74); // sleep
-            sampleFallAsleep.setEventType(0); // sleep start
-            sampleFallAsleep.setData(-1L); // in actual samples they're a garmin epoch, this way we can identify them
-            sampleFallAsleep.setDevice(device);
-            sampleFallAsleep.setUser(user);
-
-            final GarminEventSample sampleWakeUp = new GarminEventSample();
-            sampleWakeUp.setTimestamp(wakeTimeMillis);
-            sampleWakeUp.setEvent(74); // sleep
-            sampleWakeUp.setEventType(1); // sleep end
-            sampleWakeUp.setData(-1L); // in actual samples they're a garmin epoch, this way we can identify them
-            sampleWakeUp.setDevice(device);
-            sampleWakeUp.setUser(user);
-
-            sampleProvider.addSample(sampleFallAsleep);
-            sampleProvider.addSample(sampleWakeUp);
-        } catch (final Exception e) {
-            GB.toast(context, "Error faking event samples", Toast.LENGTH_LONG, GB.ERROR, e);
-        }
+        final Device device = DBHelper.getDevice(gbDevice, session);
+        final User user = DBHelper.getUser(session);
+
+        final GarminEventSampleProvider sampleProvider = new GarminEventSampleProvider(gbDevice, session);
+
+        final GarminEventSample sampleFallAsleep = new GarminEventSample();
+        sampleFallAsleep.setTimestamp(asleepTimeMillis);
+        sampleFallAsleep.setEvent(74); // sleep
+        sampleFallAsleep.setEventType(0); // sleep start
+        sampleFallAsleep.setData(-1L); // in actual samples they're a garmin epoch, this way we can identify them
+        sampleFallAsleep.setDevice(device);
+        sampleFallAsleep.setUser(user);
+
+        final GarminEventSample sampleWakeUp = new GarminEventSample();
+        sampleWakeUp.setTimestamp(wakeTimeMillis);
+        sampleWakeUp.setEvent(74); // sleep
+        sampleWakeUp.setEventType(1); // sleep end
+        sampleWakeUp.setData(-1L); // in actual samples they're a garmin epoch, this way we can identify them
+        sampleWakeUp.setDevice(device);
+        sampleWakeUp.setUser(user);
+
+        sampleProvider.addSample(sampleFallAsleep);
+        sampleProvider.addSample(sampleWakeUp);
     }
 
     private <T extends AbstractTimeSample> void persistAbstractSamples(final List<T> samples,
                                                                        final AbstractTimeSampleProvider<T> sampleProvider) {
-        sampleProvider.persistForDevice(context, gbDevice, samples);
+        if (samples.isEmpty()) {
+            return;
+        }
+
+        LOG.debug(
+                "Will persist {} {} samples",
+                samples.size(),
+                sampleProvider.getClass().getSimpleName().replace("SampleProvider", "")
+        );
+
+        // not persistForDevice, it only logs failures
+        final Device device = DBHelper.getDevice(gbDevice, sampleProvider.getSession());
+        final User user = DBHelper.getUser(sampleProvider.getSession());
+
+        for (final T sample : samples) {
+            sample.setDevice(device);
+            sample.setUser(user);
+        }
+
+        sampleProvider.addSamples(samples);
     }
 }
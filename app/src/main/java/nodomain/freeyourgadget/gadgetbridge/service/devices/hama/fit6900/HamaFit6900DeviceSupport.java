@@ -26,6 +26,7 @@ import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
 import android.content.SharedPreferences;
 import android.os.Handler;
+import android.os.Looper;
 
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.R;
@@ -70,7 +71,7 @@ public final class HamaFit6900DeviceSupport extends AbstractBTLEDeviceSupport {
     private BluetoothGattCharacteristic writeCharacteristic;
 
     private int notificationCount = 0;
-    private final Handler findPhoneStopNotificationHandler = new Handler();
+    private final Handler findPhoneStopNotificationHandler = new Handler(Looper.getMainLooper());
 
     public HamaFit6900DeviceSupport() {
         super(LOG);
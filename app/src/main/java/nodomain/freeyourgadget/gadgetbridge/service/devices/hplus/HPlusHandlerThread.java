@@ -300,7 +300,8 @@ class HPlusHandlerThread extends GBDeviceIoThread {
                     }
                 }
 
-                provider.getSampleDao().insertOrReplaceInTx(samples);
+                // also invalidates the activity data of the days, including the not worn overlays below
+                provider.addGBActivitySamples(samples.toArray(new HPlusHealthActivitySample[0]));
                 mDaySlotRecords.clear();
 
                 //Create an overlay with unused slots
@@ -383,6 +384,9 @@ class HPlusHandlerThread extends GBDeviceIoThread {
             }
 
             overlayDao.insertOrReplaceInTx(overlayList);
+            if (!intervals.isEmpty()) {
+                DBHelper.invalidateActivityData(session, getDevice(), intervals.get(0).timestampFrom, intervals.get(intervals.size() - 1).timestampTo);
+            }
 
             //Store the data
             HPlusHealthActivitySample sample = createSample(dbHandler, record.timestamp);
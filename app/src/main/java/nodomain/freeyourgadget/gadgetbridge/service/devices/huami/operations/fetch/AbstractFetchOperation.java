@@ -34,6 +34,7 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.Logging;
@@ -173,6 +174,24 @@ public abstract class AbstractFetchOperation extends AbstractHuamiOperation {
 
     protected abstract boolean processBufferedData();
 
+    /**
+     * Processes the data received in the current round. Operations that persist the data in the
+     * background override this, so that the ack is only sent once the data is persisted, without
+     * blocking the BLE thread.
+     *
+     * @param callback called with true on success, may be called on any thread
+     */
+    protected void processBufferedData(final Consumer<Boolean> callback) {
+        callback.accept(processBufferedData());
+    }
+
+    /**
+     * Discards the data received in the current round, because the transfer failed.
+     */
+    protected void discardBufferedData() {
+        buffer.reset();
+    }
+
     protected void handleActivityData(final byte[] value) {
         LOG.debug("{} data: {}", getName(), Logging.formatBytes(value));
 
@@ -208,12 +227,14 @@ public abstract class AbstractFetchOperation extends AbstractHuamiOperation {
     private void handleActivityMetadata(byte[] value) {
         if (value.length < 3) {
             LOG.warn("Activity metadata too short: {}", Logging.formatBytes(value));
+            discardBufferedData();
             onOperationFinished();
             return;
         }
 
         if (value[0] != HuamiService.RESPONSE) {
             LOG.warn("Activity metadata not a response: {}", Logging.formatBytes(value));
+            discardBufferedData();
             onOperationFinished();
             return;
         }
@@ -231,6 +252,7 @@ public abstract class AbstractFetchOperation extends AbstractHuamiOperation {
                 return;
             default:
                 LOG.warn("Unexpected activity metadata: {}", Logging.formatBytes(value));
+                discardBufferedData();
                 onOperationFinished();
         }
     }
@@ -238,6 +260,7 @@ public abstract class AbstractFetchOperation extends AbstractHuamiOperation {
     private void handleStartDateResponse(final byte[] value) {
         if (value[2] != HuamiService.SUCCESS) {
             LOG.warn("Start date unsuccessful response: {}", Logging.formatBytes(value));
+            discardBufferedData();
             onOperationFinished();
             return;
         }
@@ -245,6 +268,7 @@ public abstract class AbstractFetchOperation extends AbstractHuamiOperation {
         // it's 16 on the MB7, with a 0 at the end
         if (value.length != 15 && (value.length != 16 && value[15] != 0x00)) {
             LOG.warn("Start date response length: {}", Logging.formatBytes(value));
+            discardBufferedData();
             onOperationFinished();
             return;
         }
@@ -278,6 +302,7 @@ public abstract class AbstractFetchOperation extends AbstractHuamiOperation {
             performImmediately(step2builder);
         } catch (final IOException e) {
             GB.toast(getContext(), "Error starting fetch step 2: " + e.getMessage(), Toast.LENGTH_LONG, GB.ERROR, e);
+            discardBufferedData();
             onOperationFinished();
         }
     }
@@ -285,18 +310,21 @@ public abstract class AbstractFetchOperation extends AbstractHuamiOperation {
     private void handleFetchDataResponse(final byte[] value) {
         if (value[2] != HuamiService.SUCCESS) {
             LOG.warn("Fetch data unsuccessful response: {}", Logging.formatBytes(value));
+            discardBufferedData();
             onOperationFinished();
             return;
         }
 
         if (value.length != 3 && value.length != 7) {
             LOG.warn("Fetch data unexpected metadata length: {}", Logging.formatBytes(value));
+            discardBufferedData();
             onOperationFinished();
             return;
         }
 
         if (value.length == 7 && !validChecksum(BLETypeConversions.toUint32(value, 3))) {
             LOG.warn("Data checksum invalid");
+            discardBufferedData();
             // If we're on Zepp OS, ack but keep data on device
             if (isZeppOs()) {
                 sendAck(true);
@@ -307,8 +335,16 @@ public abstract class AbstractFetchOperation extends AbstractHuamiOperation {
             return;
         }
 
-        final boolean success = operationValid && processBufferedData();
+        if (!operationValid) {
+            discardBufferedData();
+            onBufferedDataProcessed(false);
+            return;
+        }
+
+        processBufferedData(this::onBufferedDataProcessed);
+    }
 
+    private void onBufferedDataProcessed(final boolean success) {
         final boolean keepActivityDataOnDevice = !success || HuamiCoordinator.getKeepActivityDataOnDevice(getDevice().getAddress());
         if (isZeppOs() || !keepActivityDataOnDevice) {
             sendAck(keepActivityDataOnDevice);
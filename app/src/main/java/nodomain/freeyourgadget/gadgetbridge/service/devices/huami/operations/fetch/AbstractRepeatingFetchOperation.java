@@ -16,6 +16,8 @@
     along with this program.  If not, see <https://www.gnu.org/licenses/>. */
 package nodomain.freeyourgadget.gadgetbridge.service.devices.huami.operations.fetch;
 
+import androidx.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,6 +28,8 @@ import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
 
 import nodomain.freeyourgadget.gadgetbridge.service.btle.TransactionBuilder;
 import nodomain.freeyourgadget.gadgetbridge.service.devices.huami.HuamiSupport;
@@ -42,6 +46,14 @@ public abstract class AbstractRepeatingFetchOperation extends AbstractFetchOpera
 
     protected final HuamiFetchDataType dataType;
 
+    // state of the current fetch round when decoding records while receiving, see createActivityRecordHandler
+    private ActivityRecordHandler recordHandler;
+    private final CRC32 streamChecksum = new CRC32();
+    private GregorianCalendar streamTimestamp;
+    private byte[] pendingRecord;
+    private int pendingRecordLength;
+    private int streamedBytes;
+
     public AbstractRepeatingFetchOperation(final HuamiSupport support, final HuamiFetchDataType dataType) {
         super(support);
         this.dataType = dataType;
@@ -50,6 +62,16 @@ public abstract class AbstractRepeatingFetchOperation extends AbstractFetchOpera
 
     @Override
     protected void startFetching(final TransactionBuilder builder) {
+        if (recordHandler != null) {
+            // should have been finished or discarded at the end of the previous round
+            recordHandler.abort();
+        }
+        recordHandler = createActivityRecordHandler();
+        streamChecksum.reset();
+        streamTimestamp = null;
+        pendingRecordLength = 0;
+        streamedBytes = 0;
+
         final GregorianCalendar sinceWhen = getLastSuccessfulSyncTime();
         LOG.info("start {} since {}", getName(), DateTimeUtils.formatIso8601(sinceWhen.getTime()));
         startFetching(builder, dataType.getCode(), sinceWhen);
@@ -65,6 +87,144 @@ public abstract class AbstractRepeatingFetchOperation extends AbstractFetchOpera
      */
     protected abstract boolean handleActivityData(GregorianCalendar timestamp, byte[] bytes);
 
+    /**
+     * Operations whose data consists of fixed size records, one per minute, may decode them while
+     * they are received instead of buffering the whole transfer.
+     *
+     * @return a new handler for the records of a fetch round, or null to buffer the data and pass
+     * it to {@link #handleActivityData(GregorianCalendar, byte[])} at the end of the transfer
+     */
+    @Nullable
+    protected ActivityRecordHandler createActivityRecordHandler() {
+        return null;
+    }
+
+    /**
+     * Handles the records of one fetch round while they are received. All methods are called on
+     * the BLE thread, so they must not block, in particular not on the database.
+     */
+    protected interface ActivityRecordHandler {
+        int getRecordSize();
+
+        /**
+         * Handle complete records.
+         *
+         * @param timestamp The timestamp of the first record. This function must advance it by one
+         *                  minute per record.
+         */
+        void handleRecords(GregorianCalendar timestamp, byte[] bytes, int offset, int length);
+
+        /**
+         * Called at the end of a successful transfer.
+         *
+         * @param callback to be called with true once all records were handled successfully
+         */
+        void finish(Consumer<Boolean> callback);
+
+        /**
+         * Called instead of {@link #finish(Consumer)} if the transfer failed, to discard the
+         * records that were already handled.
+         */
+        void abort();
+    }
+
+    @Override
+    protected void bufferActivityData(final byte[] value) {
+        if (recordHandler == null) {
+            super.bufferActivityData(value);
+            return;
+        }
+
+        final int recordSize = recordHandler.getRecordSize();
+        if (streamTimestamp == null) {
+            streamTimestamp = (GregorianCalendar) startTimestamp.clone();
+            if (pendingRecord == null || pendingRecord.length != recordSize) {
+                pendingRecord = new byte[recordSize];
+            }
+        }
+
+        // skip the counter
+        int offset = 1;
+        streamChecksum.update(value, offset, value.length - offset);
+        streamedBytes += value.length - offset;
+
+        // complete the record split across the previous packets
+        if (pendingRecordLength > 0) {
+            final int missing = Math.min(recordSize - pendingRecordLength, value.length - offset);
+            System.arraycopy(value, offset, pendingRecord, pendingRecordLength, missing);
+            pendingRecordLength += missing;
+            offset += missing;
+            if (pendingRecordLength < recordSize) {
+                return;
+            }
+            recordHandler.handleRecords(streamTimestamp, pendingRecord, 0, recordSize);
+            pendingRecordLength = 0;
+        }
+
+        final int completeLength = (value.length - offset) / recordSize * recordSize;
+        if (completeLength > 0) {
+            recordHandler.handleRecords(streamTimestamp, value, offset, completeLength);
+            offset += completeLength;
+        }
+
+        pendingRecordLength = value.length - offset;
+        System.arraycopy(value, offset, pendingRecord, 0, pendingRecordLength);
+    }
+
+    @Override
+    protected boolean validChecksum(final int crc32) {
+        if (recordHandler != null) {
+            return crc32 == (int) streamChecksum.getValue();
+        }
+        return super.validChecksum(crc32);
+    }
+
+    @Override
+    protected void discardBufferedData() {
+        if (recordHandler != null) {
+            recordHandler.abort();
+            recordHandler = null;
+        }
+        super.discardBufferedData();
+    }
+
+    @Override
+    protected void processBufferedData(final Consumer<Boolean> callback) {
+        if (recordHandler == null) {
+            super.processBufferedData(callback);
+            return;
+        }
+
+        LOG.info("{} has finished round {}, decoded {} bytes while receiving", getName(), fetchCount, streamedBytes);
+
+        final ActivityRecordHandler handler = recordHandler;
+        recordHandler = null;
+
+        if (pendingRecordLength != 0) {
+            LOG.error("{} got {} bytes, not a multiple of the record size {}", getName(), streamedBytes, handler.getRecordSize());
+            handler.abort();
+            callback.accept(false);
+            return;
+        }
+
+        handler.finish(success -> {
+            if (!success || streamedBytes == 0) {
+                callback.accept(success);
+                return;
+            }
+
+            // already advanced past the last record
+            final GregorianCalendar timestamp = (GregorianCalendar) streamTimestamp.clone();
+            saveLastSyncTimestamp(timestamp);
+
+            if (needsAnotherFetch(timestamp)) {
+                getSupport().getFetchOperationQueue().add(0, this);
+            }
+
+            callback.accept(true);
+        });
+    }
+
     @Override
     protected boolean processBufferedData() {
         LOG.info("{} has finished round {}, got {} bytes in buffer", getName(), fetchCount, buffer.size());
@@ -29,9 +29,11 @@ import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Consumer;
 
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.R;
+import nodomain.freeyourgadget.gadgetbridge.database.BackgroundSampleWriter;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
 import nodomain.freeyourgadget.gadgetbridge.devices.DeviceCoordinator;
@@ -52,6 +54,9 @@ import nodomain.freeyourgadget.gadgetbridge.util.GB;
 public class FetchActivityOperation extends AbstractRepeatingFetchOperation {
     private static final Logger LOG = LoggerFactory.getLogger(FetchActivityOperation.class);
 
+    // one day of samples per transaction
+    private static final int WRITE_BATCH_SIZE = 60 * 24;
+
     private final int sampleSize;
 
     public FetchActivityOperation(final HuamiSupport support) {
@@ -74,20 +79,7 @@ public class FetchActivityOperation extends AbstractRepeatingFetchOperation {
         final List<MiBandActivitySample> samples = new ArrayList<>(60 * 24); // 1day per default
 
         for (int i = 0; i < bytes.length; i += sampleSize) {
-            final MiBandActivitySample sample;
-
-            switch (sampleSize) {
-                case 4:
-                    sample = createSample(bytes, i);
-                    break;
-                case 8:
-                    sample = createExtendedSample(bytes, i);
-                    break;
-                default:
-                    throw new IllegalStateException("Unsupported sample size " + sampleSize);
-            }
-
-            samples.add(sample);
+            samples.add(decodeSample(bytes, i));
         }
 
         if (samples.isEmpty()) {
@@ -130,10 +122,19 @@ public class FetchActivityOperation extends AbstractRepeatingFetchOperation {
     }
 
     @Override
-    protected boolean validChecksum(final int crc32) {
-        // TODO actually check it
-        LOG.warn("Checksum not implemented for activity data, assuming it's valid");
-        return true;
+    protected ActivityRecordHandler createActivityRecordHandler() {
+        return new SampleRecordHandler();
+    }
+
+    private MiBandActivitySample decodeSample(final byte[] value, final int i) {
+        switch (sampleSize) {
+            case 4:
+                return createSample(value, i);
+            case 8:
+                return createExtendedSample(value, i);
+            default:
+                throw new IllegalStateException("Unsupported sample size " + sampleSize);
+        }
     }
 
     private MiBandActivitySample createSample(byte[] value, int i) {
@@ -160,6 +161,46 @@ public class FetchActivityOperation extends AbstractRepeatingFetchOperation {
         return huamiExtendedActivitySample;
     }
 
+    /**
+     * Decodes the samples while they are received, and persists them in the background.
+     */
+    private class SampleRecordHandler implements ActivityRecordHandler {
+        private final BackgroundSampleWriter<MiBandActivitySample> sampleWriter =
+                new BackgroundSampleWriter<>(getName() + " writer", getDevice(), WRITE_BATCH_SIZE);
+
+        @Override
+        public int getRecordSize() {
+            return sampleSize;
+        }
+
+        @Override
+        public void handleRecords(final GregorianCalendar timestamp, final byte[] bytes, final int offset, final int length) {
+            for (int i = offset; i < offset + length; i += sampleSize) {
+                final MiBandActivitySample sample = decodeSample(bytes, i);
+                sample.setTimestamp((int) (timestamp.getTimeInMillis() / 1000));
+                sampleWriter.add(sample);
+
+                timestamp.add(Calendar.MINUTE, 1);
+            }
+        }
+
+        @Override
+        public void finish(final Consumer<Boolean> callback) {
+            sampleWriter.finish(success -> {
+                if (!success) {
+                    GB.toast(getContext(), "Error saving activity samples", Toast.LENGTH_LONG, GB.ERROR);
+                }
+                callback.accept(success);
+            });
+        }
+
+        @Override
+        public void abort() {
+            LOG.warn("Discarding the activity samples of round {}", fetchCount);
+            sampleWriter.abort();
+        }
+    }
+
     private static final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.ROOT);
 
     public static String sampleToString(final MiBandActivitySample sample) {
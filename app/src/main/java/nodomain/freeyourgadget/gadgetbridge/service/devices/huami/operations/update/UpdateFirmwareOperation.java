@@ -244,7 +244,7 @@ public class UpdateFirmwareOperation extends AbstractHuamiOperation {
             for (int i = 0; i < packets; i++) {
                 byte[] fwChunk = Arrays.copyOfRange(fwbytes, i * packetLength, i * packetLength + packetLength);
 
-                builder.write(fwCDataChar, fwChunk);
+                builder.writeWithoutResponse(fwCDataChar, fwChunk);
                 firmwareProgress += packetLength;
 
                 int progressPercent = (int) ((((float) firmwareProgress) / len) * 100);
@@ -256,7 +256,7 @@ public class UpdateFirmwareOperation extends AbstractHuamiOperation {
 
             if (firmwareProgress < len) {
                 byte[] lastChunk = Arrays.copyOfRange(fwbytes, packets * packetLength, len);
-                builder.write(fwCDataChar, lastChunk);
+                builder.writeWithoutResponse(fwCDataChar, lastChunk);
             }
 
             builder.write(fwCControlChar, new byte[]{HuamiService.COMMAND_FIRMWARE_UPDATE_SYNC});
@@ -253,13 +253,13 @@ public class UpdateFirmwareOperation2020 extends UpdateFirmwareOperation {
             for (int i = 0; i < packets; i++) {
                 byte[] fwChunk = Arrays.copyOfRange(fwbytes, offset + i * packetLength, offset + i * packetLength + packetLength);
 
-                builder.write(fwCDataChar, fwChunk);
+                builder.writeWithoutResponse(fwCDataChar, fwChunk);
                 chunkProgress += packetLength;
             }
 
             if (chunkProgress < chunkLength) {
                 byte[] lastChunk = Arrays.copyOfRange(fwbytes, offset + packets * packetLength, offset + packets * packetLength + (chunkLength - chunkProgress));
-                builder.write(fwCDataChar, lastChunk);
+                builder.writeWithoutResponse(fwCDataChar, lastChunk);
             }
 
             int progressPercent = (int) ((((float) (offset + chunkLength)) / len) * 100);
@@ -46,6 +46,7 @@ import android.location.Location;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
 import android.widget.Toast;
 
 import androidx.annotation.Nullable;
@@ -1513,7 +1514,7 @@ public class ZeppOsSupport extends HuamiSupport implements ZeppOsFileTransferSer
     /**
      * A handler to schedule the find phone event.
      */
-    private final Handler findPhoneHandler = new Handler();
+    private final Handler findPhoneHandler = new Handler(Looper.getMainLooper());
     private boolean findPhoneStarted;
 
     protected void handle2021FindDevice(final byte[] payload) {
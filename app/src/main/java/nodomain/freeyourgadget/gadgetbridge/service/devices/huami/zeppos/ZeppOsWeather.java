@@ -39,16 +39,21 @@ import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.TreeMap;
 
 import nodomain.freeyourgadget.gadgetbridge.devices.huami.HuamiWeatherConditions;
 import nodomain.freeyourgadget.gadgetbridge.model.Weather;
+import nodomain.freeyourgadget.gadgetbridge.model.WeatherPayloadCache;
 import nodomain.freeyourgadget.gadgetbridge.model.WeatherSpec;
 import nodomain.freeyourgadget.gadgetbridge.service.devices.pebble.webview.CurrentPosition;
 
@@ -82,6 +87,15 @@ public class ZeppOsWeather {
             .registerTypeAdapter(TideHourlyEntry.class, new TideHourlyEntry.Serializer())
             .create();
 
+    private static final Set<String> WEATHER_PATHS = new HashSet<>(Arrays.asList(
+            "/weather/v2/forecast",
+            "/weather/index",
+            "/weather/current",
+            "/weather/forecast/hourly",
+            "/weather/alerts",
+            "/weather/tide"
+    ));
+
     public static Response handleHttpRequest(final String path, final Map<String, String> query) {
         final WeatherSpec weatherSpec = Weather.getInstance().getWeatherSpec();
 
@@ -90,6 +104,27 @@ public class ZeppOsWeather {
             return new ZeppOsWeather.ErrorResponse(404, -2001, "Not found");
         }
 
+        if (!WEATHER_PATHS.contains(path)) {
+            LOG.error("Unknown weather path {}", path);
+            return new ZeppOsWeather.ErrorResponse(404, -2001, "Not found");
+        }
+
+        if (path.equals("/weather/v2/forecast")) {
+            // depends on the last known location, so it can not be reused
+            return createResponse(weatherSpec, path, query);
+        }
+
+        // All Zepp OS devices request the same payloads, usually several times for the same weather
+        final String json = WeatherPayloadCache.get(
+                "zeppos " + path + " " + new TreeMap<>(query),
+                weatherSpec,
+                () -> createResponse(weatherSpec, path, query).toJson()
+        );
+
+        return new RawJsonStringResponse(json);
+    }
+
+    private static Response createResponse(final WeatherSpec weatherSpec, final String path, final Map<String, String> query) {
         switch (path) {
             case "/weather/v2/forecast":
                 final int forecastDays = getQueryNum(query, "days", 10);
@@ -109,8 +144,7 @@ public class ZeppOsWeather {
                 return new TideResponse(weatherSpec, tideDays);
         }
 
-        LOG.error("Unknown weather path {}", path);
-        return new ZeppOsWeather.ErrorResponse(404, -2001, "Not found");
+        throw new IllegalArgumentException("Unknown weather path " + path);
     }
 
     private static int getQueryNum(final Map<String, String> query, final String key, final int defaultValue) {
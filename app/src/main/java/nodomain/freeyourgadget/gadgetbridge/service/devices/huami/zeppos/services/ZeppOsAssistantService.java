@@ -19,6 +19,7 @@ package nodomain.freeyourgadget.gadgetbridge.service.devices.huami.zeppos.servic
 import static nodomain.freeyourgadget.gadgetbridge.activities.devicesettings.DeviceSettingsPreferenceConst.PREF_VOICE_SERVICE_LANGUAGE;
 
 import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.widget.Toast;
 
@@ -78,7 +79,7 @@ public class ZeppOsAssistantService extends AbstractZeppOsService {
 
     public static final String PREF_VERSION = "zepp_os_assistant_version";
 
-    private final Handler handler = new Handler();
+    private final Handler handler = new Handler(Looper.getMainLooper());
     private final short endpoint;
 
     final ByteArrayOutputStream voiceBuffer = new ByteArrayOutputStream();
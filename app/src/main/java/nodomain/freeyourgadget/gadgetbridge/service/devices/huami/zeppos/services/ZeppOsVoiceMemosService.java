@@ -17,6 +17,7 @@
 package nodomain.freeyourgadget.gadgetbridge.service.devices.huami.zeppos.services;
 
 import android.os.Handler;
+import android.os.Looper;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
@@ -48,7 +49,7 @@ public class ZeppOsVoiceMemosService extends AbstractZeppOsService {
 
     private final Queue<String> downloadQueue = new LinkedList<>();
     private boolean downloading = false;
-    private final Handler handler = new Handler();
+    private final Handler handler = new Handler(Looper.getMainLooper());
 
     public ZeppOsVoiceMemosService(final ZeppOsSupport support) {
         super(support, false);
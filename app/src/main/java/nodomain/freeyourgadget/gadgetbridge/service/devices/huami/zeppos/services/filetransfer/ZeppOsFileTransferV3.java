@@ -257,7 +257,7 @@ public class ZeppOsFileTransferV3 extends ZeppOsFileTransferImpl {
         final TransactionBuilder builder = mSupport.createTransactionBuilder("send chunk v3");
         for (int i = 0; i < payload.length; i += partSize) {
             final byte[] part = ArrayUtils.subarray(payload, i, i + partSize);
-            builder.write(
+            builder.writeWithoutResponse(
                     mSupport.getCharacteristic(HuamiService.UUID_CHARACTERISTIC_ZEPP_OS_FILE_TRANSFER_V3_SEND),
                     part
             );
@@ -87,7 +87,7 @@ public class AsynchronousResponse {
     private static final Logger LOG = LoggerFactory.getLogger(AsynchronousResponse.class);
 
     private final HuaweiSupportProvider support;
-    private final Handler mFindPhoneHandler = new Handler();
+    private final Handler mFindPhoneHandler = new Handler(Looper.getMainLooper());
     private final static HashMap<Integer, String> dayOfWeekMap = new HashMap<>();
 
     static {
@@ -20,11 +20,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import nodomain.freeyourgadget.gadgetbridge.devices.huawei.HuaweiPacket;
+import nodomain.freeyourgadget.gadgetbridge.devices.huawei.HuaweiStreamReassembler;
 import nodomain.freeyourgadget.gadgetbridge.service.devices.huawei.requests.Request;
 
 /**
@@ -34,7 +34,7 @@ public class ResponseManager {
     private static final Logger LOG = LoggerFactory.getLogger(ResponseManager.class);
 
     private final List<Request> handlers = Collections.synchronizedList(new ArrayList<>());
-    private HuaweiPacket receivedPacket;
+    private final HuaweiStreamReassembler reassembler = new HuaweiStreamReassembler();
     private final AsynchronousResponse asynchronousResponse;
     private final HuaweiSupportProvider support;
 
@@ -74,64 +74,64 @@ public class ResponseManager {
     }
 
     /**
-     * Parses the data into a Huawei Packet.
-     * If the packet is complete, it will be handled by the first request that accepts it,
+     * Parses the data into Huawei Packets.
+     * Each complete packet will be handled by the first request that accepts it,
      * or as an asynchronous request otherwise.
      *
      * @param data The received data
      */
     public void handleData(byte[] data) {
-        //NOTE: This is a quick fix issue with concatenated packets.
-        //TODO: Extract transport related code from packet.
-        int left = 0;
-        do {
-            if(left > 0)
-                data = Arrays.copyOfRange(data, data.length - left, data.length);
+        reassembler.feed(data);
 
+        while (true) {
+            HuaweiPacket receivedPacket;
             try {
-                if (receivedPacket == null)
-                    receivedPacket = new HuaweiPacket(support.getParamsProvider()).parse(data);
-                else
-                    receivedPacket = receivedPacket.parse(data);
-
-                left = receivedPacket.getLeft();
+                if (!reassembler.next())
+                    return;
             } catch (HuaweiPacket.ParseException e) {
+                // The reassembler drops the buffered data, so the next message may be parsed correctly
                 LOG.error("Packet parse exception", e);
-
-                // Clean up so the next message may be parsed correctly
-                this.receivedPacket = null;
                 return;
             }
 
-            if (receivedPacket.complete) {
-                Request handler = null;
-                synchronized (handlers) {
-                    for (Request req : handlers) {
-                        if (req.handleResponse(receivedPacket)) {
-                            handler = req;
-                            break;
-                        }
-                    }
-                }
+            try {
+                receivedPacket = new HuaweiPacket(support.getParamsProvider())
+                        .parsePayload(reassembler.getPayload(), 0, reassembler.getPayloadLength());
+            } catch (HuaweiPacket.ParseException e) {
+                LOG.error("Packet parse exception", e);
+                continue;
+            }
+
+            handlePacket(receivedPacket);
+        }
+    }
 
-                if (handler == null) {
-                    LOG.debug("Service: " + Integer.toHexString(receivedPacket.serviceId & 0xff) + ", command: " + Integer.toHexString(receivedPacket.commandId & 0xff) + ", asynchronous response.");
+    private void handlePacket(HuaweiPacket receivedPacket) {
+        Request handler = null;
+        synchronized (handlers) {
+            for (Request req : handlers) {
+                if (req.handleResponse(receivedPacket)) {
+                    handler = req;
+                    break;
+                }
+            }
+        }
 
-                    // Asynchronous response
-                    asynchronousResponse.handleResponse(receivedPacket);
-                } else {
-                    LOG.debug("Service: " + Integer.toHexString(receivedPacket.serviceId & 0xff) + ", command: " + Integer.toHexString(receivedPacket.commandId & 0xff) + ", handled by: " + handler.getClass());
+        if (handler == null) {
+            LOG.debug("Service: " + Integer.toHexString(receivedPacket.serviceId & 0xff) + ", command: " + Integer.toHexString(receivedPacket.commandId & 0xff) + ", asynchronous response.");
 
-                    if (handler.autoRemoveFromResponseHandler()) {
-                        synchronized (handlers) {
-                            handlers.remove(handler);
-                        }
-                    }
+            // Asynchronous response
+            asynchronousResponse.handleResponse(receivedPacket);
+        } else {
+            LOG.debug("Service: " + Integer.toHexString(receivedPacket.serviceId & 0xff) + ", command: " + Integer.toHexString(receivedPacket.commandId & 0xff) + ", handled by: " + handler.getClass());
 
-                    handler.handleResponse();
+            if (handler.autoRemoveFromResponseHandler()) {
+                synchronized (handlers) {
+                    handlers.remove(handler);
                 }
-                receivedPacket = null;
             }
-        } while (left > 0);
+
+            handler.handleResponse();
+        }
     }
 }
@@ -878,6 +878,7 @@ public class LefunDeviceSupport extends AbstractBTLEDeviceSupport {
             sample.setRawIntensity(LefunConstants.INTENSITY_AWAKE);
 
             session.getLefunActivitySampleDao().insertOrReplace(sample);
+            DBHelper.invalidateActivityData(session, getDevice(), timestamp, timestamp);
         } catch (Exception e) {
             LOG.error("Error handling activity data", e);
         }
@@ -909,6 +910,7 @@ public class LefunDeviceSupport extends AbstractBTLEDeviceSupport {
                 sample.setHeartRate(ppgData0);
 
                 session.getLefunActivitySampleDao().insertOrReplace(sample);
+                DBHelper.invalidateActivityData(session, getDevice(), timestamp, timestamp);
 
                 final Intent intent = new Intent(DeviceService.ACTION_REALTIME_SAMPLES)
                         .putExtra(GBDevice.EXTRA_DEVICE, getDevice())
@@ -996,6 +998,7 @@ public class LefunDeviceSupport extends AbstractBTLEDeviceSupport {
             sample.setRawIntensity(intensity);
 
             session.getLefunActivitySampleDao().insertOrReplace(sample);
+            DBHelper.invalidateActivityData(session, getDevice(), timestamp, timestamp);
 
             LefunSleepSample sleepSample = new LefunSleepSample(timestamp,
                     DBHelper.getDevice(getDevice(), session).getId());
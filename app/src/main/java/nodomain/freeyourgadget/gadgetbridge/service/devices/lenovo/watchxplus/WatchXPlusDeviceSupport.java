@@ -25,6 +25,7 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.os.Handler;
+import android.os.Looper;
 import android.widget.Toast;
 
 import androidx.annotation.IntRange;
@@ -642,7 +643,7 @@ public class WatchXPlusDeviceSupport extends AbstractBTLEDeviceSupport {
                     // send first notification
                     sendNotification(WatchXPlusConstants.NOTIFICATION_CHANNEL_PHONE_CALL, callSpec.name);
                     // init repeat handler
-                    final Handler handler = new Handler();
+                    final Handler handler = new Handler(Looper.getMainLooper());
                     handler.postDelayed(new Runnable() {
                         public void run() {
                             // Actions to do after repeatDelay seconds
@@ -696,7 +697,7 @@ public class WatchXPlusDeviceSupport extends AbstractBTLEDeviceSupport {
                         LOG.info(" Missed call reminder ");
                         sendNotification(WatchXPlusConstants.NOTIFICATION_CHANNEL_PHONE_CALL, "Missed call");
                         // repeat missed call notification
-                        final Handler handler = new Handler();
+                        final Handler handler = new Handler(Looper.getMainLooper());
                         handler.postDelayed(new Runnable() {
                             public void run() {
                                 // Actions to do after repeatDelay seconds
@@ -1942,7 +1943,7 @@ public class WatchXPlusDeviceSupport extends AbstractBTLEDeviceSupport {
                 activityUser.getAge(),activityUser.getGender());
     }
 
-    private final Handler mFindPhoneHandler = new Handler();
+    private final Handler mFindPhoneHandler = new Handler(Looper.getMainLooper());
 
     private void onReverseFindDevice(boolean start) {
         if (start) {
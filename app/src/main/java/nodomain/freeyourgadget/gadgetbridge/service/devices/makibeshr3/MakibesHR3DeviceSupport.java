@@ -34,6 +34,7 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.CountDownTimer;
 import android.os.Handler;
+import android.os.Looper;
 import android.widget.Toast;
 
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
@@ -97,7 +98,7 @@ public class MakibesHR3DeviceSupport extends AbstractBTLEDeviceSupport implement
         }
     };
 
-    private final Handler mFindPhoneHandler = new Handler();
+    private final Handler mFindPhoneHandler = new Handler(Looper.getMainLooper());
 
     private BluetoothGattCharacteristic mControlCharacteristic = null;
     private BluetoothGattCharacteristic mReportCharacteristic = null;
@@ -21,6 +21,7 @@ import static nodomain.freeyourgadget.gadgetbridge.util.GB.hexdump;
 import android.bluetooth.BluetoothAdapter;
 import android.content.Context;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.ParcelUuid;
 
 import androidx.annotation.NonNull;
@@ -43,7 +44,7 @@ public class OppoHeadphonesIoThread extends BtClassicIoThread {
 
     private final OppoHeadphonesProtocol mProtocol;
 
-    private final Handler handler = new Handler();
+    private final Handler handler = new Handler(Looper.getMainLooper());
 
     // Some devices will not reply to the first battery request, so we need to retry a few times
     private int batteryRetries = 0;
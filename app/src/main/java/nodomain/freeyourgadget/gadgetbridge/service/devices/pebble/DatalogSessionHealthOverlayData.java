@@ -89,6 +89,15 @@ class DatalogSessionHealthOverlayData extends DatalogSessionPebbleHealth {
                 overlayList.add(new PebbleHealthActivityOverlay(overlayRecord.timestampStart, overlayRecord.timestampStart + overlayRecord.durationSeconds, overlayRecord.type, deviceId, userId, overlayRecord.getRawData()));
             }
             overlayDao.insertOrReplaceInTx(overlayList);
+
+            // the overlays change the activity kinds of the samples
+            int tsFrom = Integer.MAX_VALUE;
+            int tsTo = Integer.MIN_VALUE;
+            for (PebbleHealthActivityOverlay overlay : overlayList) {
+                tsFrom = Math.min(tsFrom, overlay.getTimestampFrom());
+                tsTo = Math.max(tsTo, overlay.getTimestampTo());
+            }
+            DBHelper.invalidateActivityData(session, getDevice(), tsFrom, tsTo);
         } catch (Exception ex) {
             LOG.debug(ex.getMessage());
         }
@@ -90,6 +90,15 @@ class DatalogSessionHealthSleep extends DatalogSessionPebbleHealth {
                 overlayList.add(new PebbleHealthActivityOverlay(sleepRecord.bedTimeStart, sleepRecord.bedTimeEnd, sleepRecord.type, deviceId, userId, sleepRecord.getRawData()));
             }
             overlayDao.insertOrReplaceInTx(overlayList);
+
+            // the overlays change the activity kinds of the samples
+            int tsFrom = Integer.MAX_VALUE;
+            int tsTo = Integer.MIN_VALUE;
+            for (PebbleHealthActivityOverlay overlay : overlayList) {
+                tsFrom = Math.min(tsFrom, overlay.getTimestampFrom());
+                tsTo = Math.max(tsTo, overlay.getTimestampTo());
+            }
+            DBHelper.invalidateActivityData(session, getDevice(), tsFrom, tsTo);
         } catch (Exception ex) {
             LOG.debug(ex.getMessage());
         }
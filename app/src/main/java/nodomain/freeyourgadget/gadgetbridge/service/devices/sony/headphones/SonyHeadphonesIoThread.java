@@ -19,6 +19,7 @@ package nodomain.freeyourgadget.gadgetbridge.service.devices.sony.headphones;
 import android.bluetooth.BluetoothAdapter;
 import android.content.Context;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.ParcelUuid;
 
 import androidx.annotation.NonNull;
@@ -47,7 +48,7 @@ public class SonyHeadphonesIoThread extends BtClassicIoThread {
     private final UUID btrfcommUuidV2 = UUID.fromString("956C7B26-D49A-4BA8-B03F-B17D393CB6E2");
 
     // Track whether we got the first init reply
-    private final Handler handler = new Handler();
+    private final Handler handler = new Handler(Looper.getMainLooper());
     private int initRetries = 0;
 
     /**
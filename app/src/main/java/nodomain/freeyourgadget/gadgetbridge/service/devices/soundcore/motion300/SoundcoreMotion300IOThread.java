@@ -19,6 +19,7 @@ package nodomain.freeyourgadget.gadgetbridge.service.devices.soundcore.motion300
 import android.bluetooth.BluetoothAdapter;
 import android.content.Context;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.ParcelUuid;
 import androidx.annotation.NonNull;
 
@@ -39,7 +40,7 @@ public class SoundcoreMotion300IOThread extends BtClassicIoThread {
     private static final Logger LOG = LoggerFactory.getLogger(SoundcoreMotion300IOThread.class);
 
     private final SoundcoreMotion300Protocol protocol;
-    private final Handler handler = new Handler();
+    private final Handler handler = new Handler(Looper.getMainLooper());
 
     public SoundcoreMotion300IOThread(
             GBDevice device,
@@ -19,6 +19,7 @@ package nodomain.freeyourgadget.gadgetbridge.service.devices.xiaomi.services;
 import android.content.Intent;
 import android.location.Location;
 import android.os.Handler;
+import android.os.Looper;
 
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
@@ -109,7 +110,7 @@ public class XiaomiHealthService extends AbstractXiaomiService {
     private boolean gpsStarted = false;
     private boolean gpsFixAcquired = false;
     private boolean workoutStarted = false;
-    private final Handler gpsTimeoutHandler = new Handler();
+    private final Handler gpsTimeoutHandler = new Handler(Looper.getMainLooper());
 
     private final Set<Integer> currentGoals = new LinkedHashSet<>();
     private final Set<Integer> supportedGoals = new LinkedHashSet<>();
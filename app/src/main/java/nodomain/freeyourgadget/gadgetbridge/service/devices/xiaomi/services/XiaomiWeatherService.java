@@ -38,6 +38,7 @@ import nodomain.freeyourgadget.gadgetbridge.R;
 import nodomain.freeyourgadget.gadgetbridge.activities.SettingsActivity;
 import nodomain.freeyourgadget.gadgetbridge.devices.xiaomi.XiaomiWeatherConditions;
 import nodomain.freeyourgadget.gadgetbridge.model.Weather;
+import nodomain.freeyourgadget.gadgetbridge.model.WeatherPayloadCache;
 import nodomain.freeyourgadget.gadgetbridge.model.WeatherSpec;
 import nodomain.freeyourgadget.gadgetbridge.proto.xiaomi.XiaomiProto;
 import nodomain.freeyourgadget.gadgetbridge.service.devices.xiaomi.XiaomiPreferences;
@@ -288,7 +289,17 @@ public class XiaomiWeatherService extends AbstractXiaomiService {
     public void sendCurrentConditions(final WeatherSpec weatherSpec) {
         LOG.debug("Sending current weather conditions for {}", weatherSpec.location);
 
-        XiaomiProto.Command command = XiaomiProto.Command.newBuilder()
+        final XiaomiProto.Command command = WeatherPayloadCache.get(
+                "xiaomi current " + weatherSpec.location,
+                weatherSpec,
+                () -> buildCurrentConditions(weatherSpec)
+        );
+
+        getSupport().sendCommand("set current weather", command);
+    }
+
+    private static XiaomiProto.Command buildCurrentConditions(final WeatherSpec weatherSpec) {
+        return XiaomiProto.Command.newBuilder()
                 .setType(COMMAND_TYPE)
                 .setSubtype(CMD_SET_CURRENT_WEATHER)
                 .setWeather(XiaomiProto.Weather.newBuilder().setCurrent(
@@ -307,11 +318,19 @@ public class XiaomiWeatherService extends AbstractXiaomiService {
                                 .setPressure(weatherSpec.pressure * 100f)
                 ))
                 .build();
-
-        getSupport().sendCommand("set current weather", command);
     }
 
     public void sendDailyForecast(final WeatherSpec weatherSpec) {
+        final XiaomiProto.Command command = WeatherPayloadCache.get(
+                "xiaomi daily " + weatherSpec.location,
+                weatherSpec,
+                () -> buildDailyForecast(weatherSpec)
+        );
+
+        getSupport().sendCommand("set daily forecast", command);
+    }
+
+    private static XiaomiProto.Command buildDailyForecast(final WeatherSpec weatherSpec) {
         final XiaomiProto.ForecastEntries.Builder entryListBuilder = XiaomiProto.ForecastEntries.newBuilder();
         final int daysToSend = Math.min(6, weatherSpec.forecasts.size());
 
@@ -358,7 +377,7 @@ public class XiaomiWeatherService extends AbstractXiaomiService {
 
         LOG.debug("Sending daily forecast with {} days of info", entryListBuilder.getEntryCount());
 
-        XiaomiProto.Command command = XiaomiProto.Command.newBuilder()
+        return XiaomiProto.Command.newBuilder()
                 .setType(COMMAND_TYPE)
                 .setSubtype(CMD_UPDATE_DAILY_FORECAST)
                 .setWeather(XiaomiProto.Weather.newBuilder().setForecast(
@@ -366,11 +385,19 @@ public class XiaomiWeatherService extends AbstractXiaomiService {
                                 .setMetadata(getWeatherMetaFromSpec(weatherSpec))
                                 .setEntries(entryListBuilder)))
                 .build();
-
-        getSupport().sendCommand("set daily forecast", command);
     }
 
     public void sendHourlyForecast(final WeatherSpec weatherSpec) {
+        final XiaomiProto.Command command = WeatherPayloadCache.get(
+                "xiaomi hourly " + weatherSpec.location,
+                weatherSpec,
+                () -> buildHourlyForecast(weatherSpec)
+        );
+
+        getSupport().sendCommand("update hourly forecast", command);
+    }
+
+    private static XiaomiProto.Command buildHourlyForecast(final WeatherSpec weatherSpec) {
         final XiaomiProto.ForecastEntries.Builder entriesBuilder = XiaomiProto.ForecastEntries.newBuilder();
         final int hoursToSend = Math.min(23, weatherSpec.hourly.size());
 
@@ -389,7 +416,7 @@ public class XiaomiWeatherService extends AbstractXiaomiService {
 
         LOG.debug("Sending hourly forecast with {} hours of info", entriesBuilder.getEntryCount());
 
-        final XiaomiProto.Command command = XiaomiProto.Command.newBuilder()
+        return XiaomiProto.Command.newBuilder()
                 .setType(COMMAND_TYPE)
                 .setSubtype(CMD_UPDATE_HOURLY_FORECAST)
                 .setWeather(XiaomiProto.Weather.newBuilder()
@@ -397,8 +424,6 @@ public class XiaomiWeatherService extends AbstractXiaomiService {
                                 .setMetadata(getWeatherMetaFromSpec(weatherSpec))
                                 .setEntries(entriesBuilder)))
                 .build();
-
-        getSupport().sendCommand("update hourly forecast", command);
     }
 
     private boolean supportsMultipleWeatherLocations() {
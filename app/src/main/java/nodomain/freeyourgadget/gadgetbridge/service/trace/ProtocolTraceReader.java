@@ -0,0 +1,144 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.service.trace;
+
+import static nodomain.freeyourgadget.gadgetbridge.service.trace.ProtocolTraceRecorder.HEADER_SIZE;
+import static nodomain.freeyourgadget.gadgetbridge.service.trace.ProtocolTraceRecorder.MAGIC;
+import static nodomain.freeyourgadget.gadgetbridge.service.trace.ProtocolTraceRecorder.OFFSET_CAPACITY;
+import static nodomain.freeyourgadget.gadgetbridge.service.trace.ProtocolTraceRecorder.OFFSET_COUNT;
+import static nodomain.freeyourgadget.gadgetbridge.service.trace.ProtocolTraceRecorder.OFFSET_DROPPED;
+import static nodomain.freeyourgadget.gadgetbridge.service.trace.ProtocolTraceRecorder.OFFSET_TAIL;
+import static nodomain.freeyourgadget.gadgetbridge.service.trace.ProtocolTraceRecorder.RECORD_HEADER_SIZE;
+import static nodomain.freeyourgadget.gadgetbridge.service.trace.ProtocolTraceRecorder.VERSION;
+import static nodomain.freeyourgadget.gadgetbridge.service.trace.ProtocolTraceRecorder.WRAP_MARKER;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import nodomain.freeyourgadget.gadgetbridge.util.FileUtils;
+
+/**
+ * Reads a trace written by {@link ProtocolTraceRecorder}, oldest record first.
+ */
+public class ProtocolTraceReader {
+    public static class Record {
+        private final long timestamp;
+        private final byte direction;
+        private final UUID uuid;
+        private final byte[] data;
+
+        public Record(final long timestamp, final byte direction, final UUID uuid, final byte[] data) {
+            this.timestamp = timestamp;
+            this.direction = direction;
+            this.uuid = uuid;
+            this.data = data;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public boolean isRx() {
+            return direction == ProtocolTraceRecorder.DIRECTION_RX;
+        }
+
+        public boolean isTx() {
+            return direction == ProtocolTraceRecorder.DIRECTION_TX;
+        }
+
+        /**
+         * @return the characteristic UUID, or a UUID of all zeros for frames not sent over GATT
+         */
+        public UUID getUuid() {
+            return uuid;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    private final List<Record> records;
+    private final int droppedCount;
+
+    private ProtocolTraceReader(final List<Record> records, final int droppedCount) {
+        this.records = records;
+        this.droppedCount = droppedCount;
+    }
+
+    public static ProtocolTraceReader read(final File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return read(FileUtils.readAll(in, Integer.MAX_VALUE));
+        }
+    }
+
+    public static ProtocolTraceReader read(final byte[] bytes) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (bytes.length < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a protocol trace");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported protocol trace version " + buffer.getShort(4));
+        }
+        final int capacity = buffer.getInt(OFFSET_CAPACITY);
+        if (capacity != bytes.length) {
+            throw new IOException(String.format(Locale.ROOT, "Trace capacity %d does not match file size %d", capacity, bytes.length));
+        }
+
+        final int count = buffer.getInt(OFFSET_COUNT);
+        final List<Record> records = new ArrayList<>(count);
+        int pos = buffer.getInt(OFFSET_TAIL);
+        for (int i = 0; i < count; i++) {
+            if (capacity - pos < 4 || buffer.getInt(pos) == WRAP_MARKER) {
+                pos = HEADER_SIZE;
+            }
+            final int length = buffer.getInt(pos);
+            if (length < 0 || pos + RECORD_HEADER_SIZE + length > capacity) {
+                throw new IOException(String.format(Locale.ROOT, "Invalid record length %d at %d", length, pos));
+            }
+            final long timestamp = buffer.getLong(pos + 4);
+            final byte direction = buffer.get(pos + 12);
+            final UUID uuid = new UUID(buffer.getLong(pos + 13), buffer.getLong(pos + 21));
+            final byte[] data = new byte[length];
+            buffer.position(pos + RECORD_HEADER_SIZE);
+            buffer.get(data);
+            records.add(new Record(timestamp, direction, uuid, data));
+            pos += RECORD_HEADER_SIZE + length;
+        }
+
+        return new ProtocolTraceReader(records, buffer.getInt(OFFSET_DROPPED));
+    }
+
+    public List<Record> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return the number of frames that were not recorded because they were too large
+     */
+    public int getDroppedCount() {
+        return droppedCount;
+    }
+}
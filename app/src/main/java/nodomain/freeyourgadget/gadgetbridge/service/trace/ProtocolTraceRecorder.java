@@ -0,0 +1,251 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.service.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.UUID;
+
+import nodomain.freeyourgadget.gadgetbridge.GBApplication;
+import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
+import nodomain.freeyourgadget.gadgetbridge.util.FileUtils;
+
+/**
+ * Records the raw frames exchanged with a device into a memory-mapped ring file. Recording a frame
+ * is a copy into the mapping, the file is written by the kernel, so the trace also survives a
+ * crash of the app. When the file is full, the oldest frames are overwritten.
+ * <p>
+ * Traces can be read with {@link ProtocolTraceReader}.
+ * <p>
+ * File layout, little endian:
+ * <pre>
+ * header:  magic (4), version (2), reserved (2), capacity (4), head (4), tail (4), count (4), dropped (4), reserved (4)
+ * records: payload length (4), timestamp millis (8), direction (1), UUID (16), payload
+ * </pre>
+ * A record that does not fit before the end of the file is written at the start of the data area,
+ * after writing {@link #WRAP_MARKER} as length if there is room for it.
+ */
+public class ProtocolTraceRecorder {
+    private static final Logger LOG = LoggerFactory.getLogger(ProtocolTraceRecorder.class);
+
+    public static final String PREF_PROTOCOL_TRACE = "protocol_trace";
+
+    static final int MAGIC = 0x52544247; // "GBTR"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_HEADER_SIZE = 4 + 8 + 1 + 16;
+    static final int WRAP_MARKER = -1;
+
+    static final int OFFSET_CAPACITY = 8;
+    static final int OFFSET_HEAD = 12;
+    static final int OFFSET_TAIL = 16;
+    static final int OFFSET_COUNT = 20;
+    static final int OFFSET_DROPPED = 24;
+
+    public static final byte DIRECTION_RX = 0;
+    public static final byte DIRECTION_TX = 1;
+
+    public static final int DEFAULT_CAPACITY = 4 * 1024 * 1024;
+
+    private static final UUID NO_UUID = new UUID(0, 0);
+
+    private final File file;
+    private final int capacity;
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer buffer;
+
+    private int head;
+    private int tail;
+    private int count;
+    private int dropped;
+
+    private ProtocolTraceRecorder(final File file, final int capacity) throws IOException {
+        if (capacity < HEADER_SIZE + 4 * RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Capacity too small: " + capacity);
+        }
+
+        this.file = file;
+        this.capacity = capacity;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(capacity);
+            buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (final IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (!restoreState()) {
+            head = HEADER_SIZE;
+            tail = HEADER_SIZE;
+            count = 0;
+            dropped = 0;
+            buffer.putInt(0, MAGIC);
+            buffer.putShort(4, VERSION);
+            buffer.putShort(6, (short) 0);
+            buffer.putInt(OFFSET_CAPACITY, capacity);
+            buffer.putInt(28, 0);
+            writeState();
+        }
+    }
+
+    /**
+     * Open a trace file, continuing an existing trace of the same capacity.
+     */
+    public static ProtocolTraceRecorder open(final File file, final int capacity) throws IOException {
+        return new ProtocolTraceRecorder(file, capacity);
+    }
+
+    /**
+     * @return a recorder for the device, or null if protocol traces are not enabled
+     */
+    public static ProtocolTraceRecorder createIfEnabled(final GBDevice device) {
+        if (!GBApplication.getPrefs().getBoolean(PREF_PROTOCOL_TRACE, false)) {
+            return null;
+        }
+
+        try {
+            final File dir = new File(FileUtils.getExternalFilesDir(), "traces");
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Failed to create " + dir);
+            }
+            final File file = new File(dir, getTraceFileName(device));
+            LOG.info("Recording protocol trace of {} to {}", device.getAddress(), file);
+            return open(file, DEFAULT_CAPACITY);
+        } catch (final IOException e) {
+            LOG.error("Failed to open protocol trace for {}", device.getAddress(), e);
+            return null;
+        }
+    }
+
+    public static String getTraceFileName(final GBDevice device) {
+        return device.getAddress().replace(":", "").toLowerCase(Locale.ROOT) + ".gbtrace";
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void recordRx(final UUID uuid, final byte[] data) {
+        if (data != null) {
+            record(DIRECTION_RX, uuid, data, 0, data.length);
+        }
+    }
+
+    public void recordTx(final UUID uuid, final byte[] data) {
+        if (data != null) {
+            record(DIRECTION_TX, uuid, data, 0, data.length);
+        }
+    }
+
+    public synchronized void record(final byte direction, final UUID uuid, final byte[] data, final int offset, final int length) {
+        if (buffer == null) {
+            return;
+        }
+
+        final int size = RECORD_HEADER_SIZE + length;
+        if (size > (capacity - HEADER_SIZE) / 4) {
+            // would evict a large part of the trace
+            dropped++;
+            buffer.putInt(OFFSET_DROPPED, dropped);
+            return;
+        }
+
+        makeRoom(size);
+        if (count == 0) {
+            tail = head;
+        }
+
+        final UUID recordUuid = uuid != null ? uuid : NO_UUID;
+        buffer.putInt(head, length);
+        buffer.putLong(head + 4, System.currentTimeMillis());
+        buffer.put(head + 12, direction);
+        buffer.putLong(head + 13, recordUuid.getMostSignificantBits());
+        buffer.putLong(head + 21, recordUuid.getLeastSignificantBits());
+        buffer.position(head + RECORD_HEADER_SIZE);
+        buffer.put(data, offset, length);
+
+        head += size;
+        count++;
+        writeState();
+    }
+
+    public synchronized void close() {
+        if (buffer == null) {
+            return;
+        }
+        buffer.force();
+        buffer = null;
+        try {
+            randomAccessFile.close();
+        } catch (final IOException e) {
+            LOG.warn("Failed to close protocol trace {}", file, e);
+        }
+        randomAccessFile = null;
+    }
+
+    private void makeRoom(final int size) {
+        if (head + size > capacity) {
+            // the rest of the data area is given up, evict what is still there
+            while (count > 0 && tail >= head) {
+                evictOldest();
+            }
+            if (capacity - head >= 4) {
+                buffer.putInt(head, WRAP_MARKER);
+            }
+            head = HEADER_SIZE;
+        }
+        while (count > 0 && tail >= head && tail < head + size) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        tail += RECORD_HEADER_SIZE + buffer.getInt(tail);
+        count--;
+        if (capacity - tail < 4 || buffer.getInt(tail) == WRAP_MARKER) {
+            tail = HEADER_SIZE;
+        }
+    }
+
+    private void writeState() {
+        buffer.putInt(OFFSET_HEAD, head);
+        buffer.putInt(OFFSET_TAIL, tail);
+        buffer.putInt(OFFSET_COUNT, count);
+        buffer.putInt(OFFSET_DROPPED, dropped);
+    }
+
+    private boolean restoreState() {
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION || buffer.getInt(OFFSET_CAPACITY) != capacity) {
+            return false;
+        }
+        head = buffer.getInt(OFFSET_HEAD);
+        tail = buffer.getInt(OFFSET_TAIL);
+        count = buffer.getInt(OFFSET_COUNT);
+        dropped = buffer.getInt(OFFSET_DROPPED);
+        return head >= HEADER_SIZE && head <= capacity && tail >= HEADER_SIZE && tail < capacity && count >= 0;
+    }
+}
@@ -61,9 +61,16 @@ public class CheckSums {
     }
     
     public static int getCRC16(byte[] seq, int crc) {
-        for (byte b : seq) {
+        return getCRC16(seq, 0, seq.length, crc);
+    }
+
+    /**
+     * Updates the CRC16 with the given range of bytes, so that it can be computed incrementally.
+     */
+    public static int getCRC16(byte[] seq, int offset, int length, int crc) {
+        for (int i = offset; i < offset + length; i++) {
             crc = ((crc >>> 8) | (crc << 8)) & 0xffff;
-            crc ^= (b & 0xff);//byte to int, trunc sign
+            crc ^= (seq[i] & 0xff);//byte to int, trunc sign
             crc ^= ((crc & 0xff) >> 4);
             crc ^= (crc << 12) & 0xffff;
             crc ^= ((crc & 0xFF) << 5) & 0xffff;
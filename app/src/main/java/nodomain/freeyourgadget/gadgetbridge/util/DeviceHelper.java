@@ -36,9 +36,7 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -50,6 +48,7 @@ import nodomain.freeyourgadget.gadgetbridge.R;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
 import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
 import nodomain.freeyourgadget.gadgetbridge.devices.DeviceCoordinator;
+import nodomain.freeyourgadget.gadgetbridge.devices.DeviceDiscoveryIndex;
 import nodomain.freeyourgadget.gadgetbridge.entities.Device;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDeviceCandidate;
@@ -60,7 +59,7 @@ public class DeviceHelper {
 
     private static final DeviceHelper instance = new DeviceHelper();
 
-    private DeviceType[] orderedDeviceTypes = null;
+    private DeviceDiscoveryIndex discoveryIndex = null;
 
     public static DeviceHelper getInstance() {
         return instance;
@@ -113,15 +112,16 @@ public class DeviceHelper {
         return resolvedType.getDeviceCoordinator().createDevice(candidate, resolvedType);
     }
 
-    private DeviceType[] getOrderedDeviceTypes(){
-        if(orderedDeviceTypes == null){
-            ArrayList<DeviceType> orderedDevices = new ArrayList<>(Arrays.asList(DeviceType.values()));
-            Collections.sort(orderedDevices, Comparator.comparingInt(dc -> dc.getDeviceCoordinator().getOrderPriority()));
-            orderedDeviceTypes = orderedDevices.toArray(new DeviceType[0]);
+    private DeviceDiscoveryIndex getDiscoveryIndex() {
+        if (discoveryIndex == null) {
+            final long start = System.currentTimeMillis();
+            discoveryIndex = new DeviceDiscoveryIndex(DeviceType.values());
+            LOG.debug("Built the device discovery index in {} ms", System.currentTimeMillis() - start);
         }
 
-        return orderedDeviceTypes;
+        return discoveryIndex;
     }
+
     public DeviceType resolveDeviceType(GBDeviceCandidate deviceCandidate) {
         return resolveDeviceType(deviceCandidate, true);
     }
@@ -136,15 +136,10 @@ public class DeviceHelper {
                 }
             }
 
-            for (DeviceType type : getOrderedDeviceTypes()) {
-                if (type.getDeviceCoordinator().supports(deviceCandidate)) {
-                    deviceTypeCache.put(deviceCandidate.getMacAddress().toLowerCase(), type);
-                    return type;
-                }
-            }
-            deviceTypeCache.put(deviceCandidate.getMacAddress().toLowerCase(), DeviceType.UNKNOWN);
+            final DeviceType type = getDiscoveryIndex().resolve(deviceCandidate);
+            deviceTypeCache.put(deviceCandidate.getMacAddress().toLowerCase(), type);
+            return type;
         }
-        return DeviceType.UNKNOWN;
     }
 
     public DeviceCoordinator resolveCoordinator(GBDeviceCandidate device) {
@@ -51,6 +51,8 @@ public class GBPrefs extends Prefs {
     private static final String AUTO_START = "general_autostartonboot";
     public static final String AUTO_EXPORT_ENABLED = "auto_export_enabled";
     public static final String AUTO_EXPORT_LOCATION = "auto_export_location";
+    public static final String AUTO_EXPORT_INCREMENTAL = "auto_export_incremental";
+    public static final String AUTO_EXPORT_INCREMENTAL_LOCATION = "auto_export_incremental_location";
     public static final String PING_TONE = "ping_tone";
     public static final String AUTO_EXPORT_INTERVAL = "auto_export_interval";
     private static final boolean AUTO_START_DEFAULT = true;
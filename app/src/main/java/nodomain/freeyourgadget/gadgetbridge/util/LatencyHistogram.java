@@ -0,0 +1,102 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies, with power of two millisecond buckets. The summary is
+ * logged every {@link #LOG_INTERVAL} recorded latencies.
+ */
+public class LatencyHistogram {
+    private static final Logger LOG = LoggerFactory.getLogger(LatencyHistogram.class);
+
+    private static final int LOG_INTERVAL = 100;
+
+    // bucket i holds the latencies below 2^i ms, the last one all others
+    private static final int BUCKETS = 16;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram(final String name) {
+        this.name = name;
+    }
+
+    public void record(final long nanos) {
+        final long millis = Math.max(0, nanos / 1_000_000L);
+        final int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+        buckets.incrementAndGet(bucket);
+        totalNanos.addAndGet(nanos);
+
+        long max;
+        do {
+            max = maxNanos.get();
+        } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+
+        if (count.incrementAndGet() % LOG_INTERVAL == 0) {
+            LOG.info("{}", this);
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getBucket(final int bucket) {
+        return buckets.get(bucket);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        final long n = count.get();
+        final StringBuilder sb = new StringBuilder(name)
+                .append(String.format(
+                        Locale.ROOT,
+                        ": count=%d avg=%.2fms max=%.2fms",
+                        n,
+                        n > 0 ? totalNanos.get() / 1e6 / n : 0d,
+                        maxNanos.get() / 1e6
+                ));
+        for (int i = 0; i < BUCKETS; i++) {
+            final long bucketCount = buckets.get(i);
+            if (bucketCount == 0) {
+                continue;
+            }
+            sb.append(i == BUCKETS - 1 ? " >=" : " <").append(1L << (i == BUCKETS - 1 ? i - 1 : i))
+                    .append("ms:").append(bucketCount);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,78 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.util;
+
+import nodomain.freeyourgadget.gadgetbridge.Logging;
+
+/**
+ * A log argument that only formats the given bytes when the log message is formatted, i.e. not at
+ * all if the level of the logger is not enabled:
+ * <pre>
+ * LOG.debug("Got {}", LazyHexdump.hexdump(value));
+ * </pre>
+ * The bytes are not copied. They are formatted at the latest when the event is handed to the
+ * asynchronous file appender, so the caller may reuse the array afterwards.
+ */
+public final class LazyHexdump {
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+    private final boolean formatBytes;
+    private String formatted;
+
+    private LazyHexdump(final byte[] bytes, final int offset, final int length, final boolean formatBytes) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.formatBytes = formatBytes;
+    }
+
+    /**
+     * @see GB#hexdump(byte[])
+     */
+    public static LazyHexdump hexdump(final byte[] bytes) {
+        return new LazyHexdump(bytes, 0, -1, false);
+    }
+
+    /**
+     * @see GB#hexdump(byte[], int, int)
+     */
+    public static LazyHexdump hexdump(final byte[] bytes, final int offset, final int length) {
+        return new LazyHexdump(bytes, offset, length, false);
+    }
+
+    /**
+     * @see Logging#formatBytes(byte[])
+     */
+    public static LazyHexdump formatBytes(final byte[] bytes) {
+        return new LazyHexdump(bytes, 0, -1, true);
+    }
+
+    @Override
+    public String toString() {
+        if (formatted == null) {
+            if (formatBytes) {
+                formatted = Logging.formatBytes(bytes);
+            } else if (bytes == null) {
+                formatted = "(null)";
+            } else {
+                formatted = GB.hexdump(bytes, offset, length);
+            }
+        }
+        return formatted;
+    }
+}
@@ -25,6 +25,7 @@ import androidx.annotation.WorkerThread;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import java.io.File;
 import java.util.Date;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -33,11 +34,25 @@ import nodomain.freeyourgadget.gadgetbridge.util.gson.GsonUtcDateAdapter;
 public abstract class AbstractZipBackupJob implements Runnable {
     public static final String METADATA_FILENAME = "gadgetbridge.json";
     public static final String DATABASE_FILENAME = "database/Gadgetbridge";
+    public static final String DATABASE_DELTA_FILENAME = "database/Gadgetbridge-delta";
     public static final String PREFS_GLOBAL_FILENAME = "preferences/global.json";
     public static final String PREFS_DEVICE_FILENAME = "preferences/device_%s.json";
     public static final String EXTERNAL_FILES_FOLDER = "files";
 
-    public static final int VERSION = 1;
+    public static final int VERSION = 2;
+    /**
+     * Full backups are still written as version 1, so that older versions can restore them.
+     */
+    public static final int VERSION_FULL = 1;
+
+    /**
+     * Metadata of the last exported backup, which the next incremental backup is based on.
+     */
+    public static final String LAST_BACKUP_METADATA_FILENAME = "last_backup.json";
+    /**
+     * Metadata of the last periodic backup, as periodic backups are exported to their own chain.
+     */
+    public static final String LAST_PERIODIC_BACKUP_METADATA_FILENAME = "last_periodic_backup.json";
 
     protected static final Gson GSON = new GsonBuilder()
             .registerTypeAdapter(Date.class, new GsonUtcDateAdapter())
@@ -64,6 +79,10 @@ public abstract class AbstractZipBackupJob implements Runnable {
         return mContext;
     }
 
+    protected static File getLastBackupMetadataFile(final Context context, final String filename) {
+        return new File(context.getFilesDir(), filename);
+    }
+
     public void abort() {
         aborted.set(true);
     }
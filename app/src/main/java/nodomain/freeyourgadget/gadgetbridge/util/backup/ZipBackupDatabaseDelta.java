@@ -0,0 +1,349 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.util.backup;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Exports and restores the database rows that changed since a previous backup.
+ * <p>
+ * Tables with a composite primary key (all the samples) are only ever appended to, or written with
+ * INSERT OR REPLACE, which assigns a new rowid to the replaced row. Their changes are therefore the
+ * rows above the highest rowid seen by the previous backup. All other tables are small and may be
+ * updated in place, so they are always exported completely. The same goes for WITHOUT ROWID
+ * tables, which have no rowid to compare.
+ * <p>
+ * Deleted rows can not be found by rowid, so a trigger counts the deletions of each append-only
+ * table in {@link #DELETIONS_TABLE}. The replacements of INSERT OR REPLACE do not fire delete
+ * triggers, as recursive triggers are disabled. When the count of a table changed since the
+ * previous backup, the delta contains that table completely.
+ */
+public final class ZipBackupDatabaseDelta {
+    private static final Logger LOG = LoggerFactory.getLogger(ZipBackupDatabaseDelta.class);
+
+    static final String DELETIONS_TABLE = "BACKUP_TABLE_DELETIONS";
+    private static final String DELETIONS_TRIGGER_SUFFIX = "_BACKUP_DELETIONS";
+
+    private static final Pattern WITHOUT_ROWID = Pattern.compile("\\bWITHOUT\\s+ROWID\\b", Pattern.CASE_INSENSITIVE);
+
+    private ZipBackupDatabaseDelta() {
+    }
+
+    /**
+     * Creates the triggers counting the deletions of the append-only tables, if they do not exist
+     * yet. Deletions made before a trigger existed are unknown, so creating one also counts as a
+     * deletion, and the table is exported completely by the next delta.
+     * <p>
+     * Part of the database schema, so only to be called when creating or upgrading the database.
+     * Tables added by a later schema version are not tracked until an update script calls this
+     * again, they are exported completely until then.
+     *
+     * @see nodomain.freeyourgadget.gadgetbridge.database.schema.GadgetbridgeUpdate_102
+     */
+    public static void installDeletionTracking(final SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            db.execSQL("CREATE TABLE IF NOT EXISTS " + DELETIONS_TABLE
+                    + " (TABLE_NAME TEXT PRIMARY KEY NOT NULL, DELETIONS INTEGER NOT NULL)");
+
+            final Set<String> triggers = new HashSet<>();
+            try (Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'trigger'", null)) {
+                while (cursor.moveToNext()) {
+                    triggers.add(cursor.getString(0));
+                }
+            }
+
+            for (final Map.Entry<String, String> e : getTables(db).entrySet()) {
+                final String table = e.getKey();
+                final String trigger = table + DELETIONS_TRIGGER_SUFFIX;
+                if (!isAppendOnly(db, table, e.getValue()) || triggers.contains(trigger)) {
+                    continue;
+                }
+
+                LOG.debug("Tracking deletions of {}", table);
+                final String literal = "'" + table.replace("'", "''") + "'";
+                db.execSQL("INSERT OR IGNORE INTO " + DELETIONS_TABLE + " VALUES (" + literal + ", 0)");
+                db.execSQL("UPDATE " + DELETIONS_TABLE + " SET DELETIONS = DELETIONS + 1 WHERE TABLE_NAME = " + literal);
+                db.execSQL("CREATE TRIGGER " + quote(trigger) + " AFTER DELETE ON " + quote(table)
+                        + " BEGIN UPDATE " + DELETIONS_TABLE + " SET DELETIONS = DELETIONS + 1 WHERE TABLE_NAME = " + literal + "; END");
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Drops the triggers and the table created by {@link #installDeletionTracking(SQLiteDatabase)}.
+     */
+    public static void removeDeletionTracking(final SQLiteDatabase db) {
+        final List<String> triggers = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'trigger'", null)) {
+            while (cursor.moveToNext()) {
+                if (cursor.getString(0).endsWith(DELETIONS_TRIGGER_SUFFIX)) {
+                    triggers.add(cursor.getString(0));
+                }
+            }
+        }
+        for (final String trigger : triggers) {
+            db.execSQL("DROP TRIGGER IF EXISTS " + quote(trigger));
+        }
+        db.execSQL("DROP TABLE IF EXISTS " + DELETIONS_TABLE);
+    }
+
+    /**
+     * Reads the highest rowid and the deletion count of all append-only tables. Tables without
+     * deletion tracking are left out, so that they are exported completely.
+     */
+    public static void readTableStates(final SQLiteDatabase db,
+                                       final Map<String, Long> highWaterMarks,
+                                       final Map<String, Long> deletionCounts) {
+        final Map<String, Long> trackedTables = new HashMap<>();
+        try (Cursor cursor = db.rawQuery("SELECT TABLE_NAME, DELETIONS FROM " + DELETIONS_TABLE, null)) {
+            while (cursor.moveToNext()) {
+                trackedTables.put(cursor.getString(0), cursor.getLong(1));
+            }
+        } catch (final SQLiteException e) {
+            LOG.warn("Deletions are not tracked", e);
+            return;
+        }
+
+        for (final Map.Entry<String, String> e : getTables(db).entrySet()) {
+            final String table = e.getKey();
+            if (!trackedTables.containsKey(table) || !isAppendOnly(db, table, e.getValue())) {
+                continue;
+            }
+            try (Cursor cursor = db.rawQuery("SELECT MAX(rowid) FROM " + quote(table), null)) {
+                cursor.moveToFirst();
+                highWaterMarks.put(table, cursor.isNull(0) ? 0L : cursor.getLong(0));
+                deletionCounts.put(table, trackedTables.get(table));
+            }
+        }
+    }
+
+    /**
+     * Checks whether the previous backup recorded the table states needed to continue from it.
+     */
+    public static boolean canContinueFrom(final ZipBackupMetadata previous) {
+        return previous.getTableHighWaterMarks() != null && previous.getTableDeletionCounts() != null;
+    }
+
+    /**
+     * Writes the rows that changed after the previous high-water marks, up to the current ones, to a
+     * new database in deltaFile. Append-only tables with deletions since the previous backup are
+     * written completely.
+     *
+     * @return the append-only tables that were written completely
+     */
+    public static Set<String> exportDelta(final SQLiteDatabase source,
+                                          final File deltaFile,
+                                          final ZipBackupMetadata previous,
+                                          final Map<String, Long> highWaterMarks,
+                                          final Map<String, Long> deletionCounts) {
+        final Map<String, Long> previousHighWaterMarks = Objects.requireNonNull(previous.getTableHighWaterMarks());
+        final Map<String, Long> previousDeletionCounts = Objects.requireNonNull(previous.getTableDeletionCounts());
+        final Set<String> completeTables = new HashSet<>();
+
+        final SQLiteDatabase delta = SQLiteDatabase.openOrCreateDatabase(deltaFile, null);
+        try {
+            delta.beginTransaction();
+            try {
+                for (final Map.Entry<String, String> e : getTables(source).entrySet()) {
+                    final String table = e.getKey();
+                    delta.execSQL(e.getValue());
+
+                    final Long highWaterMark = highWaterMarks.get(table);
+                    final Long previousHighWaterMark = previousHighWaterMarks.get(table);
+                    final int count;
+                    if (highWaterMark == null) {
+                        count = copyRows(source, delta, table, "INSERT", "", null);
+                    } else if (previousHighWaterMark == null || !Objects.equals(deletionCounts.get(table), previousDeletionCounts.get(table))) {
+                        LOG.info("Rows were deleted from {} or it was not tracked, exporting it completely", table);
+                        completeTables.add(table);
+                        count = copyRows(source, delta, table, "INSERT", " WHERE rowid <= ?", new String[]{
+                                String.valueOf(highWaterMark)
+                        });
+                    } else {
+                        count = copyRows(source, delta, table, "INSERT", " WHERE rowid > ? AND rowid <= ?", new String[]{
+                                String.valueOf(previousHighWaterMark),
+                                String.valueOf(highWaterMark)
+                        });
+                    }
+                    LOG.debug("Exported {} rows of {}", count, table);
+                }
+                delta.setTransactionSuccessful();
+            } finally {
+                delta.endTransaction();
+            }
+        } finally {
+            delta.close();
+        }
+
+        return completeTables;
+    }
+
+    /**
+     * Applies a delta written by {@link #exportDelta} on top of the target database.
+     *
+     * @param appendOnlyTables the tables of the delta that only contain changed rows - all other
+     *                         tables are replaced completely
+     */
+    public static void applyDelta(final SQLiteDatabase target,
+                                  final File deltaFile,
+                                  final Set<String> appendOnlyTables) {
+        final SQLiteDatabase delta = SQLiteDatabase.openDatabase(deltaFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        try {
+            final Map<String, String> targetTables = getTables(target);
+
+            target.beginTransaction();
+            try {
+                for (final String table : getTables(delta).keySet()) {
+                    if (!targetTables.containsKey(table)) {
+                        LOG.warn("Table {} does not exist, skipping", table);
+                        continue;
+                    }
+                    if (!appendOnlyTables.contains(table)) {
+                        target.execSQL("DELETE FROM " + quote(table));
+                    }
+                    final int count = copyRows(delta, target, table, "INSERT OR REPLACE", "", null);
+                    LOG.debug("Restored {} rows of {}", count, table);
+                }
+                target.setTransactionSuccessful();
+            } finally {
+                target.endTransaction();
+            }
+        } finally {
+            delta.close();
+        }
+    }
+
+    /**
+     * Returns the user tables of the database, along with the statement that created them.
+     */
+    private static Map<String, String> getTables(final SQLiteDatabase db) {
+        final Map<String, String> tables = new LinkedHashMap<>();
+        try (Cursor cursor = db.rawQuery(
+                "SELECT name, sql FROM sqlite_master WHERE type = 'table' AND name NOT LIKE 'sqlite_%' AND name != 'android_metadata' AND name != ?",
+                new String[]{DELETIONS_TABLE}
+        )) {
+            while (cursor.moveToNext()) {
+                tables.put(cursor.getString(0), cursor.getString(1));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * A table is append-only if it has a rowid, and a primary key that is not an alias for it.
+     */
+    private static boolean isAppendOnly(final SQLiteDatabase db, final String table, final String sql) {
+        if (sql != null && WITHOUT_ROWID.matcher(sql).find()) {
+            return false;
+        }
+        final List<String> primaryKeyTypes = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("PRAGMA table_info(" + quote(table) + ")", null)) {
+            final int typeIndex = cursor.getColumnIndexOrThrow("type");
+            final int pkIndex = cursor.getColumnIndexOrThrow("pk");
+            while (cursor.moveToNext()) {
+                if (cursor.getInt(pkIndex) > 0) {
+                    primaryKeyTypes.add(cursor.getString(typeIndex));
+                }
+            }
+        }
+        if (primaryKeyTypes.isEmpty()) {
+            return false;
+        }
+        return primaryKeyTypes.size() > 1 || !"INTEGER".equalsIgnoreCase(primaryKeyTypes.get(0));
+    }
+
+    private static int copyRows(final SQLiteDatabase source,
+                                final SQLiteDatabase target,
+                                final String table,
+                                final String insertVerb,
+                                final String where,
+                                @Nullable final String[] whereArgs) {
+        int count = 0;
+        try (Cursor cursor = source.rawQuery("SELECT * FROM " + quote(table) + where, whereArgs)) {
+            final String[] columns = cursor.getColumnNames();
+            final StringBuilder sql = new StringBuilder(insertVerb).append(" INTO ").append(quote(table)).append(" (");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i > 0 ? ", " : "").append(quote(columns[i]));
+            }
+            sql.append(") VALUES (");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i > 0 ? ", ?" : "?");
+            }
+            sql.append(")");
+
+            final SQLiteStatement statement = target.compileStatement(sql.toString());
+            try {
+                while (cursor.moveToNext()) {
+                    statement.clearBindings();
+                    for (int i = 0; i < columns.length; i++) {
+                        switch (cursor.getType(i)) {
+                            case Cursor.FIELD_TYPE_INTEGER:
+                                statement.bindLong(i + 1, cursor.getLong(i));
+                                break;
+                            case Cursor.FIELD_TYPE_FLOAT:
+                                statement.bindDouble(i + 1, cursor.getDouble(i));
+                                break;
+                            case Cursor.FIELD_TYPE_STRING:
+                                statement.bindString(i + 1, cursor.getString(i));
+                                break;
+                            case Cursor.FIELD_TYPE_BLOB:
+                                statement.bindBlob(i + 1, cursor.getBlob(i));
+                                break;
+                            case Cursor.FIELD_TYPE_NULL:
+                            default:
+                                statement.bindNull(i + 1);
+                                break;
+                        }
+                    }
+                    statement.executeInsert();
+                    count++;
+                }
+            } finally {
+                statement.close();
+            }
+        }
+        return count;
+    }
+
+    private static String quote(final String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -18,22 +18,34 @@ package nodomain.freeyourgadget.gadgetbridge.util.backup;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 
+import androidx.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -49,12 +61,35 @@ public class ZipBackupExportJob extends AbstractZipBackupJob {
     private static final Logger LOG = LoggerFactory.getLogger(ZipBackupExportJob.class);
 
     private final Uri mUri;
+    private final boolean mIncremental;
+    private final String mLastBackupMetadataFilename;
 
     private final byte[] copyBuffer = new byte[8192];
 
     public ZipBackupExportJob(final Context context, final ZipBackupCallback callback, final Uri uri) {
+        this(context, callback, uri, false);
+    }
+
+    /**
+     * @param incremental only export the changes since the last backup, if possible
+     */
+    public ZipBackupExportJob(final Context context, final ZipBackupCallback callback, final Uri uri, final boolean incremental) {
+        this(context, callback, uri, incremental, LAST_BACKUP_METADATA_FILENAME);
+    }
+
+    /**
+     * @param incremental                only export the changes since the last backup, if possible
+     * @param lastBackupMetadataFilename where the metadata of the last backup of this chain is kept
+     */
+    public ZipBackupExportJob(final Context context,
+                              final ZipBackupCallback callback,
+                              final Uri uri,
+                              final boolean incremental,
+                              final String lastBackupMetadataFilename) {
         super(context, callback);
         this.mUri = uri;
+        this.mIncremental = incremental;
+        this.mLastBackupMetadataFilename = lastBackupMetadataFilename;
     }
 
     @Override
@@ -64,6 +99,8 @@ public class ZipBackupExportJob extends AbstractZipBackupJob {
 
             if (isAborted()) return;
 
+            final ZipBackupMetadata previousBackup = mIncremental ? loadLastBackupMetadata() : null;
+
             // Preferences
             updateProgress(0, R.string.backup_restore_exporting_preferences);
             exportPreferences(zipOut);
@@ -72,12 +109,49 @@ public class ZipBackupExportJob extends AbstractZipBackupJob {
 
             // Database
             updateProgress(10, R.string.backup_restore_exporting_database);
-            exportDatabase(zipOut, getContext());
+            final Map<String, Long> highWaterMarks = new HashMap<>();
+            final Map<String, Long> deletionCounts = new HashMap<>();
+            Set<String> completeTables = null;
+            final int databaseVersion;
+            final boolean incremental;
+            File deltaFile = null;
+            // Readers do not exclude writers, so the writer lock is needed for the high-water
+            // marks and the delta to describe the same state
+            try (DBHandler dbHandler = GBApplication.acquireDB()) {
+                final SQLiteDatabase db = dbHandler.getDatabase();
+                databaseVersion = db.getVersion();
+                ZipBackupDatabaseDelta.readTableStates(db, highWaterMarks, deletionCounts);
+
+                incremental = previousBackup != null &&
+                        previousBackup.getBackupId() != null &&
+                        Integer.valueOf(databaseVersion).equals(previousBackup.getDatabaseVersion()) &&
+                        ZipBackupDatabaseDelta.canContinueFrom(previousBackup);
+
+                if (incremental) {
+                    // The changed rows are few, so they are copied while holding the lock, to
+                    // match the high-water marks exactly
+                    deltaFile = File.createTempFile("Gadgetbridge", ".delta", getContext().getCacheDir());
+                    if (!deltaFile.delete()) {
+                        LOG.warn("Failed to delete {} before writing the delta", deltaFile);
+                    }
+                    completeTables = ZipBackupDatabaseDelta.exportDelta(db, deltaFile, previousBackup, highWaterMarks, deletionCounts);
+                }
+            }
+
+            if (incremental) {
+                LOG.info("Exporting changes since backup {}", previousBackup.getBackupId());
+                exportDatabaseFile(zipOut, deltaFile, DATABASE_DELTA_FILENAME);
+            } else {
+                if (mIncremental) {
+                    LOG.info("No usable previous backup, exporting everything");
+                }
+                exportDatabase(zipOut, getContext());
+            }
 
             if (isAborted()) return;
 
             // External files
-            updateProgress(25, R.string.backup_restore_exporting_files);
+            updateProgress(50, R.string.backup_restore_exporting_files);
 
             final File externalFilesDir = FileUtils.getExternalFilesDir();
             LOG.debug("Exporting external files from {}", externalFilesDir);
@@ -85,9 +159,16 @@ public class ZipBackupExportJob extends AbstractZipBackupJob {
             final List<String> allExternalFiles = getAllRelativeFiles(externalFilesDir);
             LOG.debug("Got {} files to export", allExternalFiles.size());
 
+            final Map<String, Long> previousModificationTimes = incremental ? previousBackup.getFileModificationTimes() : null;
+            final Map<String, Long> fileModificationTimes = new HashMap<>();
             for (int i = 0; i < allExternalFiles.size() && !isAborted(); i++) {
                 final String child = allExternalFiles.get(i);
-                exportSingleExternalFile(zipOut, externalFilesDir, child);
+                final long lastModified = new File(externalFilesDir, child).lastModified();
+                fileModificationTimes.put(child, lastModified);
+
+                if (previousModificationTimes == null || !Objects.equals(previousModificationTimes.get(child), lastModified)) {
+                    exportSingleExternalFile(zipOut, externalFilesDir, child);
+                }
 
                 final int progress = (int) Math.min(99, 50 + 49 * (i / (float) allExternalFiles.size()));
                 updateProgress(progress, R.string.backup_restore_exporting_files_i_of_n, i + 1, allExternalFiles.size());
@@ -98,13 +179,29 @@ public class ZipBackupExportJob extends AbstractZipBackupJob {
 
             if (isAborted()) return;
 
-            addMetadata(zipOut);
+            final ZipBackupMetadata metadata = new ZipBackupMetadata(
+                    BuildConfig.APPLICATION_ID,
+                    BuildConfig.VERSION_NAME,
+                    BuildConfig.VERSION_CODE,
+                    incremental ? VERSION : VERSION_FULL,
+                    new Date(),
+                    UUID.randomUUID().toString(),
+                    incremental ? previousBackup.getBackupId() : null,
+                    databaseVersion,
+                    highWaterMarks,
+                    deletionCounts,
+                    completeTables,
+                    fileModificationTimes
+            );
+            addMetadata(zipOut, metadata);
 
             zipOut.finish();
             zipOut.flush();
 
             if (isAborted()) return;
 
+            saveLastBackupMetadata(metadata);
+
             LOG.info("Export complete");
 
             onSuccess(null);
@@ -123,7 +220,7 @@ public class ZipBackupExportJob extends AbstractZipBackupJob {
         final SharedPreferences globalPreferences = GBApplication.getPrefs().getPreferences();
         exportPreferences(zipOut, globalPreferences, PREFS_GLOBAL_FILENAME);
 
-        try (DBHandler dbHandler = GBApplication.acquireDB()) {
+        try (DBHandler dbHandler = GBApplication.acquireDBReadOnly()) {
             final List<Device> activeDevices = DBHelper.getActiveDevices(dbHandler.getDaoSession());
             for (Device dbDevice : activeDevices) {
                 LOG.debug("Exporting device preferences for {}", dbDevice.getIdentifier());
@@ -150,20 +247,36 @@ public class ZipBackupExportJob extends AbstractZipBackupJob {
         zipOut.write(preferencesJson.getBytes(StandardCharsets.UTF_8));
     }
 
-    private static void exportDatabase(final ZipOutputStream zipOut, final Context context) throws IOException {
+    private void exportDatabase(final ZipOutputStream zipOut, final Context context) throws IOException {
         LOG.debug("Exporting database");
 
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (DBHandler dbHandler = GBApplication.acquireDB()) {
-            final DBHelper helper = new DBHelper(context);
-            helper.exportDB(dbHandler, baos);
-        } catch (final Exception e) {
-            throw new IOException("Failed to export database", e);
-        }
+        // Only the snapshot is taken while holding the database lock, it is compressed afterwards
+        exportDatabaseFile(zipOut, new DBHelper(context).createSnapshot(), DATABASE_FILENAME);
+    }
 
-        final ZipEntry zipEntry = new ZipEntry(DATABASE_FILENAME);
-        zipOut.putNextEntry(zipEntry);
-        zipOut.write(baos.toByteArray());
+    /**
+     * Writes a temporary copy of the database to the zip, deleting it afterwards.
+     */
+    private void exportDatabaseFile(final ZipOutputStream zipOut, final File databaseFile, final String zipEntryName) throws IOException {
+        try {
+            final ZipEntry zipEntry = new ZipEntry(zipEntryName);
+            zipOut.putNextEntry(zipEntry);
+
+            final long totalBytes = Math.max(1, databaseFile.length());
+            long writtenBytes = 0;
+            try (final InputStream in = new FileInputStream(databaseFile)) {
+                int read;
+                while ((read = in.read(copyBuffer)) > 0 && !isAborted()) {
+                    zipOut.write(copyBuffer, 0, read);
+                    writtenBytes += read;
+                    updateProgress((int) (15 + 34 * writtenBytes / totalBytes), R.string.backup_restore_exporting_database);
+                }
+            }
+        } finally {
+            if (!databaseFile.delete()) {
+                LOG.warn("Failed to delete database copy {}", databaseFile);
+            }
+        }
     }
 
     /**
@@ -230,20 +343,35 @@ public class ZipBackupExportJob extends AbstractZipBackupJob {
         }
     }
 
-    private static void addMetadata(final ZipOutputStream zipOut) throws IOException {
+    private static void addMetadata(final ZipOutputStream zipOut, final ZipBackupMetadata metadata) throws IOException {
         LOG.debug("Adding metadata");
 
-        final ZipBackupMetadata metadata = new ZipBackupMetadata(
-                BuildConfig.APPLICATION_ID,
-                BuildConfig.VERSION_NAME,
-                BuildConfig.VERSION_CODE,
-                VERSION,
-                new Date()
-        );
         final String metadataJson = GSON.toJson(metadata);
 
         final ZipEntry zipEntry = new ZipEntry(METADATA_FILENAME);
         zipOut.putNextEntry(zipEntry);
         zipOut.write(metadataJson.getBytes(StandardCharsets.UTF_8));
     }
+
+    @Nullable
+    private ZipBackupMetadata loadLastBackupMetadata() {
+        final File file = getLastBackupMetadataFile(getContext(), mLastBackupMetadataFilename);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, ZipBackupMetadata.class);
+        } catch (final Exception e) {
+            LOG.error("Failed to read last backup metadata", e);
+            return null;
+        }
+    }
+
+    private void saveLastBackupMetadata(final ZipBackupMetadata metadata) {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(getLastBackupMetadataFile(getContext(), mLastBackupMetadataFilename)), StandardCharsets.UTF_8)) {
+            GSON.toJson(metadata, writer);
+        } catch (final Exception e) {
+            LOG.error("Failed to save last backup metadata", e);
+        }
+    }
 }
@@ -31,9 +31,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -48,12 +52,20 @@ import nodomain.freeyourgadget.gadgetbridge.util.FileUtils;
 public class ZipBackupImportJob extends AbstractZipBackupJob {
     private static final Logger LOG = LoggerFactory.getLogger(ZipBackupImportJob.class);
 
-    private final Uri mUri;
+    private final List<Uri> mUris;
     private final byte[] copyBuffer = new byte[8192];
 
     public ZipBackupImportJob(final Context context, final ZipBackupCallback callback, final Uri uri) {
+        this(context, callback, Collections.singletonList(uri));
+    }
+
+    /**
+     * @param uris a full backup, optionally along with the incremental backups made after it, in
+     *             any order
+     */
+    public ZipBackupImportJob(final Context context, final ZipBackupCallback callback, final List<Uri> uris) {
         super(context, callback);
-        this.mUri = uri;
+        this.mUris = uris;
     }
 
     @Override
@@ -61,73 +73,50 @@ public class ZipBackupImportJob extends AbstractZipBackupJob {
         try {
             updateProgress(0, R.string.backup_restore_importing_loading);
 
-            // Load zip to temporary file so we can seek
-            LOG.debug("Getting zip file from {}", mUri);
-            final ZipFile zipFile = getZipFromUri(getContext(), mUri);
+            // Load zips to temporary files so we can seek
+            final List<ZipFile> zipFiles = new ArrayList<>(mUris.size());
+            final List<ZipBackupMetadata> metadatas = new ArrayList<>(mUris.size());
+            for (final Uri uri : mUris) {
+                LOG.debug("Getting zip file from {}", uri);
+                final ZipFile zipFile = getZipFromUri(getContext(), uri);
 
-            if (isAborted()) return;
+                if (isAborted()) return;
 
-            // Validate file
-            updateProgress(10, R.string.backup_restore_importing_validating);
-            validateBackupFile(zipFile);
+                // Validate file
+                updateProgress(10, R.string.backup_restore_importing_validating);
+                metadatas.add(validateBackupFile(zipFile));
+                zipFiles.add(zipFile);
 
-            LOG.debug("Valid zip file: {}", mUri);
+                LOG.debug("Valid zip file: {}", uri);
+            }
 
             if (isAborted()) return;
 
-            final List<ZipEntry> externalFiles = new ArrayList<>();
-            final List<ZipEntry> devicePreferences = new ArrayList<>();
+            final List<ZipFile> chain = orderBackupChain(zipFiles, metadatas);
+            final ZipFile lastZipFile = chain.get(chain.size() - 1);
 
-            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
-            while (entries.hasMoreElements() && !isAborted()) {
-                final ZipEntry zipEntry = entries.nextElement();
+            // Restore external files, the later backups overwriting the earlier ones
+            final List<ZipEntry> externalFiles = new ArrayList<>();
+            final List<ZipFile> externalFilesZips = new ArrayList<>();
+            for (final ZipFile zipFile : chain) {
+                final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements() && !isAborted()) {
+                    final ZipEntry zipEntry = entries.nextElement();
+
+                    if (zipEntry.getName().startsWith(EXTERNAL_FILES_FOLDER + "/")) {
+                        if (zipEntry.getName().endsWith(".log") || zipEntry.getName().endsWith(".log.zip")) {
+                            continue;
+                        }
 
-                if (zipEntry.getName().startsWith(EXTERNAL_FILES_FOLDER + "/")) {
-                    if (zipEntry.getName().endsWith(".log") || zipEntry.getName().endsWith(".log.zip")) {
-                        continue;
+                        externalFiles.add(zipEntry);
+                        externalFilesZips.add(zipFile);
                     }
-
-                    externalFiles.add(zipEntry);
-                } else if (zipEntry.getName().startsWith("preferences/device_")) {
-                    devicePreferences.add(zipEntry);
                 }
             }
 
-            LOG.debug("Got {} external files, {} device preferences", externalFiles.size(), devicePreferences.size());
+            LOG.debug("Got {} external files from {} backups", externalFiles.size(), chain.size());
 
-            // Restore external files
-            final File externalFilesDir = FileUtils.getExternalFilesDir();
-            final List<String> failedFiles = new ArrayList<>();
-
-            for (int i = 0; i < externalFiles.size() && !isAborted(); i++) {
-                final ZipEntry externalFile = externalFiles.get(i);
-                final File targetExternalFile = new File(externalFilesDir, externalFile.getName().replaceFirst(EXTERNAL_FILES_FOLDER + "/", ""));
-                final File parentFile = targetExternalFile.getParentFile();
-                if (parentFile == null) {
-                    LOG.warn("Parent file for {} is null", targetExternalFile);
-                } else {
-                    if (!parentFile.exists()) {
-                        if (!parentFile.mkdirs()) {
-                            LOG.warn("Failed to create parent dirs for {}", targetExternalFile);
-                        }
-                    }
-                }
-
-                try (InputStream inputStream = zipFile.getInputStream(externalFile);
-                     FileOutputStream fout = new FileOutputStream(targetExternalFile)) {
-                    while (inputStream.available() > 0) {
-                        final int bytes = inputStream.read(copyBuffer);
-                        fout.write(copyBuffer, 0, bytes);
-                    }
-                } catch (final Exception e) {
-                    LOG.error("Failed to restore file {}", externalFile);
-                    failedFiles.add(externalFile.getName());
-                }
-
-                // 10% to 75%
-                final int progress = (int) (10 + 65 * (i / (float) externalFiles.size()));
-                updateProgress(progress, R.string.backup_restore_importing_files_i_of_n, i + 1, externalFiles.size());
-            }
+            final List<String> failedFiles = restoreExternalFiles(externalFiles, externalFilesZips);
 
             if (isAborted()) return;
 
@@ -137,56 +126,32 @@ public class ZipBackupImportJob extends AbstractZipBackupJob {
             try (DBHandler dbHandler = GBApplication.acquireDB()) {
                 final DBHelper helper = new DBHelper(getContext());
                 final SQLiteOpenHelper sqLiteOpenHelper = dbHandler.getHelper();
-                try (InputStream databaseInputStream = zipFile.getInputStream(zipFile.getEntry(DATABASE_FILENAME))) {
+                try (InputStream databaseInputStream = chain.get(0).getInputStream(chain.get(0).getEntry(DATABASE_FILENAME))) {
                     helper.importDB(dbHandler, databaseInputStream);
                     helper.validateDB(sqLiteOpenHelper);
                 }
+
+                for (int i = 1; i < chain.size() && !isAborted(); i++) {
+                    final ZipBackupMetadata metadata = metadatas.get(zipFiles.indexOf(chain.get(i)));
+                    LOG.debug("Applying database changes of backup {}", metadata.getBackupId());
+                    applyDatabaseDelta(dbHandler, chain.get(i), metadata);
+                }
             }
 
             if (isAborted()) return;
 
-            // Restore preferences
-            LOG.debug("Importing global preferences");
-            updateProgress(85, R.string.backup_restore_importing_preferences);
-            try (InputStream globalPrefsInputStream = zipFile.getInputStream(zipFile.getEntry(PREFS_GLOBAL_FILENAME))) {
-                final SharedPreferences globalPreferences = GBApplication.getPrefs().getPreferences();
-
-                final JsonBackupPreferences jsonBackupPreferences = JsonBackupPreferences.fromJson(globalPrefsInputStream);
-                if (!jsonBackupPreferences.importInto(globalPreferences)) {
-                    LOG.warn("Global preferences were not commited");
-                }
-
-                // We may be restoring from different versions - reset the changelog version
-                globalPreferences.edit()
-                        .putInt("ckChangeLog_last_version_code", BuildConfig.VERSION_CODE)
-                        .apply();
-            }
+            // Restore preferences, which are always complete
+            importPreferences(lastZipFile);
 
             if (isAborted()) return;
 
-            // At this point we already restored the db, so we can list the devices from there
-            try (DBHandler dbHandler = GBApplication.acquireDB()) {
-                final List<Device> activeDevices = DBHelper.getActiveDevices(dbHandler.getDaoSession());
-                for (Device dbDevice : activeDevices) {
-                    LOG.debug("Importing device preferences for {}", dbDevice.getIdentifier());
-                    final SharedPreferences devicePrefs = GBApplication.getDeviceSpecificSharedPrefs(dbDevice.getIdentifier());
-                    if (devicePrefs != null && !isAborted()) {
-                        final ZipEntry devicePrefsZipEntry = zipFile.getEntry(String.format(Locale.ROOT, PREFS_DEVICE_FILENAME, dbDevice.getIdentifier()));
-                        if (devicePrefsZipEntry == null) {
-                            continue;
-                        }
-                        try (InputStream devicePrefsInputStream = zipFile.getInputStream(devicePrefsZipEntry)) {
-                            final JsonBackupPreferences jsonBackupPreferences = JsonBackupPreferences.fromJson(devicePrefsInputStream);
-                            if (!jsonBackupPreferences.importInto(devicePrefs)) {
-                                LOG.warn("Device preferences for {} were not commited", dbDevice.getIdentifier());
-                            }
-                        }
-                    }
+            // The restored database is not the one the last backup was made from
+            for (final String filename : new String[]{LAST_BACKUP_METADATA_FILENAME, LAST_PERIODIC_BACKUP_METADATA_FILENAME}) {
+                if (getLastBackupMetadataFile(getContext(), filename).delete()) {
+                    LOG.debug("Deleted last backup metadata {}", filename);
                 }
             }
 
-            if (isAborted()) return;
-
             LOG.info("Import complete");
 
             if (!failedFiles.isEmpty()) {
@@ -201,6 +166,153 @@ public class ZipBackupImportJob extends AbstractZipBackupJob {
         }
     }
 
+    /**
+     * Orders the backups starting from the full backup, followed by each incremental backup made
+     * on top of the previous one.
+     */
+    private static List<ZipFile> orderBackupChain(final List<ZipFile> zipFiles,
+                                                  final List<ZipBackupMetadata> metadatas) throws IOException {
+        final List<ZipFile> chain = new ArrayList<>(zipFiles.size());
+        final List<ZipFile> remaining = new ArrayList<>(zipFiles);
+
+        String previousBackupId = null;
+        while (!remaining.isEmpty()) {
+            ZipFile next = null;
+            for (final ZipFile zipFile : remaining) {
+                final ZipBackupMetadata metadata = metadatas.get(zipFiles.indexOf(zipFile));
+                if (Objects.equals(metadata.getBaseBackupId(), previousBackupId)) {
+                    if (next != null) {
+                        throw new IOException("Multiple backups made on top of " + (previousBackupId != null ? previousBackupId : "nothing"));
+                    }
+                    next = zipFile;
+                }
+            }
+            if (next == null) {
+                if (previousBackupId == null) {
+                    throw new IOException("No full backup selected");
+                }
+                throw new IOException("Backups do not follow " + previousBackupId);
+            }
+
+            chain.add(next);
+            remaining.remove(next);
+            previousBackupId = metadatas.get(zipFiles.indexOf(next)).getBackupId();
+            if (previousBackupId == null && !remaining.isEmpty()) {
+                throw new IOException("Backups do not follow a backup without id");
+            }
+        }
+
+        return chain;
+    }
+
+    private List<String> restoreExternalFiles(final List<ZipEntry> externalFiles,
+                                              final List<ZipFile> externalFilesZips) {
+        final File externalFilesDir = FileUtils.getExternalFilesDir();
+        final List<String> failedFiles = new ArrayList<>();
+
+        for (int i = 0; i < externalFiles.size() && !isAborted(); i++) {
+            final ZipEntry externalFile = externalFiles.get(i);
+            final File targetExternalFile = new File(externalFilesDir, externalFile.getName().replaceFirst(EXTERNAL_FILES_FOLDER + "/", ""));
+            final File parentFile = targetExternalFile.getParentFile();
+            if (parentFile == null) {
+                LOG.warn("Parent file for {} is null", targetExternalFile);
+            } else {
+                if (!parentFile.exists()) {
+                    if (!parentFile.mkdirs()) {
+                        LOG.warn("Failed to create parent dirs for {}", targetExternalFile);
+                    }
+                }
+            }
+
+            try (InputStream inputStream = externalFilesZips.get(i).getInputStream(externalFile);
+                 FileOutputStream fout = new FileOutputStream(targetExternalFile)) {
+                while (inputStream.available() > 0) {
+                    final int bytes = inputStream.read(copyBuffer);
+                    fout.write(copyBuffer, 0, bytes);
+                }
+            } catch (final Exception e) {
+                LOG.error("Failed to restore file {}", externalFile);
+                failedFiles.add(externalFile.getName());
+            }
+
+            // 10% to 75%
+            final int progress = (int) (10 + 65 * (i / (float) externalFiles.size()));
+            updateProgress(progress, R.string.backup_restore_importing_files_i_of_n, i + 1, externalFiles.size());
+        }
+
+        return failedFiles;
+    }
+
+    private void applyDatabaseDelta(final DBHandler dbHandler,
+                                    final ZipFile zipFile,
+                                    final ZipBackupMetadata metadata) throws IOException {
+        // SQLite can only open files, so the delta is extracted first
+        final File deltaFile = File.createTempFile("gb-backup-delta-import", ".db", getContext().getCacheDir());
+        try {
+            try (InputStream inputStream = zipFile.getInputStream(zipFile.getEntry(DATABASE_DELTA_FILENAME));
+                 FileOutputStream outputStream = new FileOutputStream(deltaFile)) {
+                int len;
+                while ((len = inputStream.read(copyBuffer)) != -1) {
+                    outputStream.write(copyBuffer, 0, len);
+                }
+            }
+
+            final Set<String> appendOnlyTables = new HashSet<>();
+            if (metadata.getTableHighWaterMarks() != null) {
+                appendOnlyTables.addAll(metadata.getTableHighWaterMarks().keySet());
+            }
+            if (metadata.getCompleteTables() != null) {
+                appendOnlyTables.removeAll(metadata.getCompleteTables());
+            }
+            ZipBackupDatabaseDelta.applyDelta(dbHandler.getDatabase(), deltaFile, appendOnlyTables);
+        } finally {
+            if (!deltaFile.delete()) {
+                LOG.warn("Failed to delete {}", deltaFile);
+            }
+        }
+    }
+
+    private void importPreferences(final ZipFile zipFile) throws Exception {
+        LOG.debug("Importing global preferences");
+        updateProgress(85, R.string.backup_restore_importing_preferences);
+        try (InputStream globalPrefsInputStream = zipFile.getInputStream(zipFile.getEntry(PREFS_GLOBAL_FILENAME))) {
+            final SharedPreferences globalPreferences = GBApplication.getPrefs().getPreferences();
+
+            final JsonBackupPreferences jsonBackupPreferences = JsonBackupPreferences.fromJson(globalPrefsInputStream);
+            if (!jsonBackupPreferences.importInto(globalPreferences)) {
+                LOG.warn("Global preferences were not commited");
+            }
+
+            // We may be restoring from different versions - reset the changelog version
+            globalPreferences.edit()
+                    .putInt("ckChangeLog_last_version_code", BuildConfig.VERSION_CODE)
+                    .apply();
+        }
+
+        if (isAborted()) return;
+
+        // At this point we already restored the db, so we can list the devices from there
+        try (DBHandler dbHandler = GBApplication.acquireDBReadOnly()) {
+            final List<Device> activeDevices = DBHelper.getActiveDevices(dbHandler.getDaoSession());
+            for (Device dbDevice : activeDevices) {
+                LOG.debug("Importing device preferences for {}", dbDevice.getIdentifier());
+                final SharedPreferences devicePrefs = GBApplication.getDeviceSpecificSharedPrefs(dbDevice.getIdentifier());
+                if (devicePrefs != null && !isAborted()) {
+                    final ZipEntry devicePrefsZipEntry = zipFile.getEntry(String.format(Locale.ROOT, PREFS_DEVICE_FILENAME, dbDevice.getIdentifier()));
+                    if (devicePrefsZipEntry == null) {
+                        continue;
+                    }
+                    try (InputStream devicePrefsInputStream = zipFile.getInputStream(devicePrefsZipEntry)) {
+                        final JsonBackupPreferences jsonBackupPreferences = JsonBackupPreferences.fromJson(devicePrefsInputStream);
+                        if (!jsonBackupPreferences.importInto(devicePrefs)) {
+                            LOG.warn("Device preferences for {} were not commited", dbDevice.getIdentifier());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private ZipFile getZipFromUri(final Context context, final Uri uri) throws IOException {
         final File tmpFile = File.createTempFile("gb-backup-zip-import", "zip", context.getCacheDir());
         tmpFile.deleteOnExit();
@@ -220,24 +332,29 @@ public class ZipBackupImportJob extends AbstractZipBackupJob {
         return new ZipFile(tmpFile);
     }
 
-    private static void validateBackupFile(final ZipFile zipFile) throws IOException {
+    private static ZipBackupMetadata validateBackupFile(final ZipFile zipFile) throws IOException {
         final ZipEntry metadataEntry = zipFile.getEntry(METADATA_FILENAME);
         if (metadataEntry == null) {
             throw new IOException("Zip file has no metadata");
         }
-        final InputStream inputStream = zipFile.getInputStream(metadataEntry);
-        final ZipBackupMetadata zipBackupMetadata = GSON.fromJson(
-                new InputStreamReader(inputStream, StandardCharsets.UTF_8),
-                ZipBackupMetadata.class
-        );
+        final ZipBackupMetadata zipBackupMetadata;
+        try (InputStream inputStream = zipFile.getInputStream(metadataEntry)) {
+            zipBackupMetadata = GSON.fromJson(
+                    new InputStreamReader(inputStream, StandardCharsets.UTF_8),
+                    ZipBackupMetadata.class
+            );
+        }
 
         if (zipBackupMetadata.getBackupVersion() > VERSION) {
             throw new IOException("Unsupported backup version " + zipBackupMetadata.getBackupVersion());
         }
 
-        final ZipEntry databaseEntry = zipFile.getEntry(DATABASE_FILENAME);
+        final String databaseFilename = zipBackupMetadata.isIncremental() ? DATABASE_DELTA_FILENAME : DATABASE_FILENAME;
+        final ZipEntry databaseEntry = zipFile.getEntry(databaseFilename);
         if (databaseEntry == null) {
             throw new IOException("Zip file has no database");
         }
+
+        return zipBackupMetadata;
     }
 }
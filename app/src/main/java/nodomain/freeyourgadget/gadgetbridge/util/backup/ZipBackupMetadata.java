@@ -16,7 +16,11 @@
     along with this program.  If not, see <https://www.gnu.org/licenses/>. */
 package nodomain.freeyourgadget.gadgetbridge.util.backup;
 
+import androidx.annotation.Nullable;
+
 import java.util.Date;
+import java.util.Map;
+import java.util.Set;
 
 public class ZipBackupMetadata {
     private final String appId;
@@ -26,16 +30,72 @@ public class ZipBackupMetadata {
     private final int backupVersion;
     private final Date backupDate;
 
+    // The following are only set since backup version 2, and are used for incremental backups
+
+    @Nullable
+    private final String backupId;
+    /**
+     * The backup this one is based on, if it is incremental, null for full backups.
+     */
+    @Nullable
+    private final String baseBackupId;
+    @Nullable
+    private final Integer databaseVersion;
+    /**
+     * The highest rowid of each append-only table at the time of the backup. Tables not in this
+     * map are always exported completely.
+     */
+    @Nullable
+    private final Map<String, Long> tableHighWaterMarks;
+    /**
+     * The number of deletions counted for each append-only table at the time of the backup.
+     */
+    @Nullable
+    private final Map<String, Long> tableDeletionCounts;
+    /**
+     * The append-only tables that an incremental backup contains completely, as rows were deleted
+     * from them.
+     */
+    @Nullable
+    private final Set<String> completeTables;
+    /**
+     * Last modification time of each external file, by relative path.
+     */
+    @Nullable
+    private final Map<String, Long> fileModificationTimes;
+
     public ZipBackupMetadata(final String appId,
                              final String appVersionName,
                              final int appVersionCode,
                              final int backupVersion,
                              final Date backupDate) {
+        this(appId, appVersionName, appVersionCode, backupVersion, backupDate, null, null, null, null, null, null, null);
+    }
+
+    public ZipBackupMetadata(final String appId,
+                             final String appVersionName,
+                             final int appVersionCode,
+                             final int backupVersion,
+                             final Date backupDate,
+                             @Nullable final String backupId,
+                             @Nullable final String baseBackupId,
+                             @Nullable final Integer databaseVersion,
+                             @Nullable final Map<String, Long> tableHighWaterMarks,
+                             @Nullable final Map<String, Long> tableDeletionCounts,
+                             @Nullable final Set<String> completeTables,
+                             @Nullable final Map<String, Long> fileModificationTimes) {
         this.appId = appId;
         this.appVersionName = appVersionName;
         this.appVersionCode = appVersionCode;
         this.backupVersion = backupVersion;
         this.backupDate = backupDate;
+        this.backupId = backupId;
+        this.baseBackupId = baseBackupId;
+        this.databaseVersion = databaseVersion;
+        this.tableHighWaterMarks = tableHighWaterMarks;
+        this.tableDeletionCounts = tableDeletionCounts;
+        this.completeTables = completeTables;
+        this.fileModificationTimes = fileModificationTimes;
     }
 
     public String getAppId() {
@@ -57,4 +117,43 @@ public class ZipBackupMetadata {
     public Date getBackupDate() {
         return backupDate;
     }
+
+    @Nullable
+    public String getBackupId() {
+        return backupId;
+    }
+
+    @Nullable
+    public String getBaseBackupId() {
+        return baseBackupId;
+    }
+
+    public boolean isIncremental() {
+        return baseBackupId != null;
+    }
+
+    @Nullable
+    public Integer getDatabaseVersion() {
+        return databaseVersion;
+    }
+
+    @Nullable
+    public Map<String, Long> getTableHighWaterMarks() {
+        return tableHighWaterMarks;
+    }
+
+    @Nullable
+    public Map<String, Long> getTableDeletionCounts() {
+        return tableDeletionCounts;
+    }
+
+    @Nullable
+    public Set<String> getCompleteTables() {
+        return completeTables;
+    }
+
+    @Nullable
+    public Map<String, Long> getFileModificationTimes() {
+        return fileModificationTimes;
+    }
 }
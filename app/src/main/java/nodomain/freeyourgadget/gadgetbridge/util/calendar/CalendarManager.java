@@ -24,6 +24,7 @@ import android.net.Uri;
 import android.provider.CalendarContract;
 import android.provider.CalendarContract.Instances;
 import android.provider.ContactsContract;
+import android.text.TextUtils;
 import android.text.format.Time;
 
 import org.slf4j.Logger;
@@ -34,12 +35,15 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 
@@ -81,6 +85,9 @@ public class CalendarManager {
             Instances.RRULE
     };
 
+    // keep the number of query arguments below the SQLite limit
+    private static final int REMINDERS_QUERY_CHUNK_SIZE = 500;
+
     private final String deviceAddress;
     private final Context mContext;
 
@@ -111,6 +118,8 @@ public class CalendarManager {
 
     private List<CalendarEvent> getCalendarEvents(final int lookaheadDays) {
         final List<CalendarEvent> calendarEventList = new ArrayList<>();
+        // the event id of each instance in the list, for the reminders
+        final List<Long> eventIds = new ArrayList<>();
 
         Calendar cal = GregorianCalendar.getInstance();
         long dtStart = cal.getTimeInMillis();
@@ -153,42 +162,78 @@ public class CalendarManager {
                         evtCursor.getString(evtCursor.getColumnIndexOrThrow(Instances.RRULE))
                 );
 
-                // Query reminders for this event
-                final Cursor reminderCursor = mContext.getContentResolver().query(
-                        CalendarContract.Reminders.CONTENT_URI,
-                        null,
-                        CalendarContract.Reminders.EVENT_ID + " = ?",
-                        new String[]{String.valueOf(evtCursor.getLong(evtCursor.getColumnIndexOrThrow(Instances.EVENT_ID)))},
-                        null
-                );
-
-                if (reminderCursor != null && reminderCursor.getCount() > 0) {
-                    final List<Long> reminders = new ArrayList<>();
-                    while (reminderCursor.moveToNext()) {
-                        int minutes = reminderCursor.getInt(reminderCursor.getColumnIndexOrThrow(CalendarContract.Reminders.MINUTES));
-                        int method = reminderCursor.getInt(reminderCursor.getColumnIndexOrThrow(CalendarContract.Reminders.METHOD));
-                        LOG.debug("Reminder Method: {}, Minutes: {}", method, minutes);
-
-                        if (method == 1) //METHOD_ALERT
-                            reminders.add(calEvent.getBegin() - minutes * 60 * 1000L);
-
-                    }
-                    reminderCursor.close();
-
-                    calEvent.setRemindersAbsoluteTs(reminders);
-                }
-
                 if (!calendarIsBlacklisted(calEvent.getUniqueCalName())) {
+                    final long eventId = evtCursor.getLong(evtCursor.getColumnIndexOrThrow(Instances.EVENT_ID));
                     calendarEventList.add(calEvent);
+                    eventIds.add(eventId);
                 } else {
                     LOG.debug("calendar {} skipped because it's blacklisted", calEvent.getUniqueCalName());
                 }
             }
-            return calendarEventList;
         } catch (final Exception e) {
             LOG.error("could not query calendar, permission denied?", e);
             return calendarEventList;
         }
+
+        // Query the reminders of all events at once, recurring events share them between instances
+        final Map<Long, List<Integer>> reminderMinutes = getAlertReminderMinutes(new HashSet<>(eventIds));
+        for (int i = 0; i < calendarEventList.size(); i++) {
+            final List<Integer> minutesList = reminderMinutes.get(eventIds.get(i));
+            if (minutesList == null) {
+                continue;
+            }
+            final CalendarEvent calEvent = calendarEventList.get(i);
+            final List<Long> reminders = new ArrayList<>(minutesList.size());
+            for (final int minutes : minutesList) {
+                reminders.add(calEvent.getBegin() - minutes * 60 * 1000L);
+            }
+            calEvent.setRemindersAbsoluteTs(reminders);
+        }
+
+        return calendarEventList;
+    }
+
+    /**
+     * @return the minutes before the event of the alert reminders, by event id
+     */
+    private Map<Long, List<Integer>> getAlertReminderMinutes(final Set<Long> eventIds) {
+        final Map<Long, List<Integer>> reminderMinutes = new HashMap<>();
+        final List<Long> ids = new ArrayList<>(eventIds);
+        final String[] projection = new String[]{
+                CalendarContract.Reminders.EVENT_ID,
+                CalendarContract.Reminders.MINUTES,
+                CalendarContract.Reminders.METHOD
+        };
+
+        for (int i = 0; i < ids.size(); i += REMINDERS_QUERY_CHUNK_SIZE) {
+            final List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + REMINDERS_QUERY_CHUNK_SIZE));
+            final String[] selectionArgs = new String[chunk.size()];
+            for (int j = 0; j < chunk.size(); j++) {
+                selectionArgs[j] = String.valueOf(chunk.get(j));
+            }
+            final String selection = CalendarContract.Reminders.EVENT_ID + " IN (" + TextUtils.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+
+            try (Cursor reminderCursor = mContext.getContentResolver().query(CalendarContract.Reminders.CONTENT_URI, projection, selection, selectionArgs, null)) {
+                if (reminderCursor == null) {
+                    continue;
+                }
+                while (reminderCursor.moveToNext()) {
+                    final long eventId = reminderCursor.getLong(0);
+                    final int minutes = reminderCursor.getInt(1);
+                    final int method = reminderCursor.getInt(2);
+                    LOG.debug("Reminder Method: {}, Minutes: {}", method, minutes);
+
+                    final List<Integer> minutesList = reminderMinutes.computeIfAbsent(eventId, k -> new ArrayList<>());
+                    if (method == CalendarContract.Reminders.METHOD_ALERT) {
+                        minutesList.add(minutes);
+                    }
+                }
+            } catch (final Exception e) {
+                LOG.error("could not query calendar reminders", e);
+            }
+        }
+
+        return reminderMinutes;
     }
 
     public List<CalendarEvent> getBirthdays(final int lookaheadDays) {
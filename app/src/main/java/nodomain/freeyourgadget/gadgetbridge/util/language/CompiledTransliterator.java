@@ -0,0 +1,129 @@
+/*  Copyright (C) 2024 Gadgetbridge contributors
+
+    This file is part of Gadgetbridge.
+
+    Gadgetbridge is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Gadgetbridge is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>. */
+package nodomain.freeyourgadget.gadgetbridge.util.language;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Fuses a chain of {@link SimpleTransliterator}s into a single lookup table, so that a text is
+ * transliterated in one pass instead of one pass per transliterator.
+ * <p>
+ * A {@link SimpleTransliterator} replaces each character independently of the others, so the
+ * result of the chain for a text is the concatenation of the results for each of its characters.
+ * The table holds that result for every character changed by the chain, in pages of 256
+ * characters, which are only allocated if they contain a replacement.
+ */
+public class CompiledTransliterator implements Transliterator {
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final String[][] pages = new String[(Character.MAX_VALUE + 1) >> PAGE_BITS][];
+
+    public CompiledTransliterator(final List<SimpleTransliterator> transliterators) {
+        // a character that the first transliterators do not change reaches the next one unchanged,
+        // so only characters mapped by any of them can be changed by the chain
+        final BitSet mappedChars = new BitSet(Character.MAX_VALUE + 1);
+        final BitSet mappedLowercaseChars = new BitSet(Character.MAX_VALUE + 1);
+        for (final SimpleTransliterator transliterator : transliterators) {
+            transliterator.markMappedChars(mappedChars, mappedLowercaseChars);
+        }
+
+        for (int i = Character.MIN_VALUE; i <= Character.MAX_VALUE; i++) {
+            final char c = (char) i;
+            if (!mappedChars.get(c) && !mappedLowercaseChars.get(Character.toLowerCase(c))) {
+                continue;
+            }
+
+            // same as applying the transliterators one after the other
+            String replacement = String.valueOf(c);
+            for (final SimpleTransliterator transliterator : transliterators) {
+                replacement = transliterator.transliterate(replacement);
+            }
+            if (replacement.length() == 1 && replacement.charAt(0) == c) {
+                continue;
+            }
+
+            String[] page = pages[c >>> PAGE_BITS];
+            if (page == null) {
+                page = new String[PAGE_SIZE];
+                pages[c >>> PAGE_BITS] = page;
+            }
+            page[c & PAGE_MASK] = replacement;
+        }
+    }
+
+    /**
+     * Replace each run of {@link SimpleTransliterator}s in the chain by a
+     * {@link CompiledTransliterator}. Other transliterators depend on the surrounding characters,
+     * so they are kept as they are.
+     */
+    public static Transliterator compile(final List<Transliterator> transliterators) {
+        final List<Transliterator> stages = new ArrayList<>();
+        final List<SimpleTransliterator> run = new ArrayList<>();
+        for (final Transliterator transliterator : transliterators) {
+            if (transliterator instanceof SimpleTransliterator) {
+                run.add((SimpleTransliterator) transliterator);
+                continue;
+            }
+            if (!run.isEmpty()) {
+                stages.add(new CompiledTransliterator(run));
+                run.clear();
+            }
+            stages.add(transliterator);
+        }
+        if (!run.isEmpty()) {
+            stages.add(new CompiledTransliterator(run));
+        }
+
+        if (stages.size() == 1) {
+            return stages.get(0);
+        }
+        return new MultiTransliterator(stages);
+    }
+
+    @Override
+    public String transliterate(final String txt) {
+        if (txt == null || txt.isEmpty()) {
+            return txt;
+        }
+
+        final int length = txt.length();
+        // only allocated once the first character is replaced
+        StringBuilder builder = null;
+        for (int i = 0; i < length; i++) {
+            final char c = txt.charAt(i);
+            final String[] page = pages[c >>> PAGE_BITS];
+            final String replacement = page != null ? page[c & PAGE_MASK] : null;
+            if (replacement == null) {
+                if (builder != null) {
+                    builder.append(c);
+                }
+                continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder(length + 16);
+                builder.append(txt, 0, i);
+            }
+            builder.append(replacement);
+        }
+
+        return builder != null ? builder.toString() : txt;
+    }
+}
@@ -18,6 +18,7 @@ package nodomain.freeyourgadget.gadgetbridge.util.language;
 
 import org.apache.commons.lang3.text.WordUtils;
 
+import java.util.BitSet;
 import java.util.Map;
 
 public class SimpleTransliterator implements Transliterator {
@@ -33,6 +34,18 @@ public class SimpleTransliterator implements Transliterator {
         this(transliterateMap, true);
     }
 
+    /**
+     * Mark the characters that this transliterator may change. When converting to lowercase, the
+     * lowercase forms are marked in {@code lowercaseChars}, otherwise the characters themselves
+     * are marked in {@code chars}.
+     */
+    void markMappedChars(final BitSet chars, final BitSet lowercaseChars) {
+        final BitSet target = convertToLowercase ? lowercaseChars : chars;
+        for (final Character c : transliterateMap.keySet()) {
+            target.set(c);
+        }
+    }
+
     @Override
     public String transliterate(String txt) {
         if (txt == null || txt.isEmpty()) {
@@ -51,7 +64,7 @@ public class SimpleTransliterator implements Transliterator {
         return message;
     }
 
-    private String transliterate(final char c) {
+    String transliterate(final char c) {
         final char sourceChar = convertToLowercase ? Character.toLowerCase(c) : c;
 
         if (transliterateMap.containsKey(sourceChar)) {
@@ -0,0 +1,125 @@
+package nodomain.freeyourgadget.gadgetbridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
+
+public class AsyncLogAppenderTest extends TestBase {
+    /**
+     * Blocks the writer thread while writing, until released.
+     */
+    private static class BlockingOutputStream extends ByteArrayOutputStream {
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public synchronized void write(final byte[] b, final int off, final int len) {
+            writing.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.write(b, off, len);
+        }
+
+        @Override
+        public void write(final byte[] b) throws IOException {
+            write(b, 0, b.length);
+        }
+
+        private String getContent() {
+            return new String(toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testWritesInOrderAndFlushes() {
+        final LoggerContext context = new LoggerContext();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AsyncLogAppender appender = createAppender(context, out, 1024);
+        final Logger logger = createLogger(context, appender);
+
+        for (int i = 0; i < 100; i++) {
+            logger.debug("line {}", i);
+        }
+
+        assertTrue(appender.flush(2000));
+        final String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(100, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals("line " + i, lines[i]);
+        }
+        assertEquals(0, appender.getDroppedCount());
+
+        appender.stop();
+    }
+
+    @Test
+    public void testDropsWhenFull() throws Exception {
+        final LoggerContext context = new LoggerContext();
+        final BlockingOutputStream out = new BlockingOutputStream();
+        final AsyncLogAppender appender = createAppender(context, out, 4);
+        final Logger logger = createLogger(context, appender);
+
+        // keeps the writer thread busy
+        logger.debug("first");
+        assertTrue(out.writing.await(2, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 20; i++) {
+            logger.debug("queued {}", i);
+        }
+        assertEquals(4, appender.getQueuedCount());
+        assertEquals(16, appender.getDroppedCount());
+
+        out.release.countDown();
+        assertTrue(appender.flush(2000));
+        final String content = out.getContent();
+        assertTrue(content.startsWith("first\n"));
+        assertTrue(content.contains("Dropped 16 log events, the log queue was full\n"));
+        assertTrue(content.endsWith("queued 3\n"));
+
+        appender.stop();
+    }
+
+    private static AsyncLogAppender createAppender(final LoggerContext context, final ByteArrayOutputStream out, final int capacity) {
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+
+        final OutputStreamAppender<ILoggingEvent> fileAppender = new OutputStreamAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setEncoder(encoder);
+        fileAppender.setOutputStream(out);
+        fileAppender.start();
+
+        final AsyncLogAppender appender = new AsyncLogAppender(fileAppender, capacity);
+        appender.setContext(context);
+        appender.start();
+        return appender;
+    }
+
+    private static Logger createLogger(final LoggerContext context, final AsyncLogAppender appender) {
+        final Logger logger = context.getLogger("test");
+        logger.setLevel(Level.DEBUG);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+        return logger;
+    }
+}
@@ -0,0 +1,53 @@
+package nodomain.freeyourgadget.gadgetbridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import nodomain.freeyourgadget.gadgetbridge.database.DBHandler;
+import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
+import nodomain.freeyourgadget.gadgetbridge.entities.Device;
+import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
+
+public class DBLockTest extends TestBase {
+    @Test
+    public void testReadersDoNotWaitForWriters() throws Exception {
+        // the test holds the writer lock, see TestBase
+        final Device device = DBHelper.getDevice(createDummyGDevice("00:00:00:00:40"), daoSession);
+        assertFalse(GBApplication.isDBWriteLockedByOtherThread());
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Device> reader = executor.submit(() -> {
+                assertTrue(GBApplication.isDBWriteLockedByOtherThread());
+                try (DBHandler db = GBApplication.acquireDBReadOnly()) {
+                    return db.getDaoSession().getDeviceDao().load(device.getId());
+                }
+            });
+
+            final Device read = reader.get(2, TimeUnit.SECONDS);
+            assertEquals(device.getIdentifier(), read.getIdentifier());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReadersDoNotShareEntitiesWithWriters() throws Exception {
+        final Device device = DBHelper.getDevice(createDummyGDevice("00:00:00:00:41"), daoSession);
+
+        try (DBHandler db = GBApplication.acquireDBReadOnly()) {
+            final Device read = db.getDaoSession().getDeviceDao().load(device.getId());
+            assertNotSame(device, read);
+            assertEquals(device.getIdentifier(), read.getIdentifier());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package nodomain.freeyourgadget.gadgetbridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class StartupPhasesTest {
+    @Test
+    public void testDependenciesAndDeferredPhases() throws Exception {
+        final StartupPhases phases = new StartupPhases();
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch release = new CountDownLatch(1);
+
+        phases.run("main", () -> executed.add("main"));
+        phases.runInBackground("slow", () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException ignored) {
+            }
+            executed.add("slow");
+        });
+        phases.runInBackground("dependent", () -> executed.add("dependent"), "slow");
+        phases.defer("deferred", () -> executed.add("deferred"));
+
+        // nothing but the blocked phases may have run so far
+        assertEquals(Collections.singletonList("main"), executed);
+
+        release.countDown();
+        phases.ensure("dependent");
+        phases.ensure("deferred");
+        phases.ensure("deferred");
+
+        assertEquals(Arrays.asList("main", "slow", "dependent", "deferred"), executed);
+        assertTrue(phases.getSummary().contains("deferred (deferred): +"));
+    }
+
+    @Test
+    public void testFailedBackgroundPhase() {
+        final StartupPhases phases = new StartupPhases();
+        phases.runInBackground("failing", () -> {
+            throw new IllegalStateException("test");
+        });
+
+        // not passed on
+        phases.ensure("failing");
+        phases.ensure("unknown");
+
+        assertTrue(phases.getSummary().endsWith(", failed"));
+    }
+}
@@ -0,0 +1,105 @@
+package nodomain.freeyourgadget.gadgetbridge.database;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import nodomain.freeyourgadget.gadgetbridge.activities.charts.ActivityAnalysis;
+import nodomain.freeyourgadget.gadgetbridge.database.rollup.ActivityRollupCalculator;
+import nodomain.freeyourgadget.gadgetbridge.devices.miband.MiBandSampleProvider;
+import nodomain.freeyourgadget.gadgetbridge.entities.MiBandActivitySample;
+import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivityAmount;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivityAmounts;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySample;
+import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
+
+import static org.junit.Assert.assertEquals;
+
+public class ActivityRollupTest extends TestBase {
+    private static final int HOUR = ActivityRollupCalculator.BUCKET_SECONDS;
+
+    private static final int[] RAW_KINDS = {
+            MiBandSampleProvider.TYPE_ACTIVITY,
+            MiBandSampleProvider.TYPE_DEEP_SLEEP,
+            MiBandSampleProvider.TYPE_LIGHT_SLEEP,
+            MiBandSampleProvider.TYPE_NONWEAR,
+    };
+
+    @Test
+    public void testRollupMatchesActivityAnalysis() {
+        final GBDevice gbDevice = createDummyGDevice("00:00:00:00:20");
+        final MiBandSampleProvider sampleProvider = new MiBandSampleProvider(gbDevice, daoSession);
+
+        final Random random = new Random(42);
+        final int from = 1700000000 - (1700000000 % HOUR);
+        final int to = from + 48 * HOUR;
+
+        final List<MiBandActivitySample> samples = new ArrayList<>();
+        int rawKind = RAW_KINDS[0];
+        for (int ts = from - 2 * HOUR; ts < to; ts += 60) {
+            if (random.nextInt(50) == 0) {
+                // leave a gap of a few hours without samples
+                ts += random.nextInt(4 * HOUR);
+            }
+            if (random.nextInt(20) == 0) {
+                rawKind = RAW_KINDS[random.nextInt(RAW_KINDS.length)];
+            }
+            final MiBandActivitySample sample = sampleProvider.createActivitySample();
+            sample.setProvider(sampleProvider);
+            sample.setTimestamp(ts);
+            sample.setRawKind(rawKind);
+            sample.setSteps(random.nextInt(100));
+            samples.add(sample);
+        }
+
+        final List<ActivityRollupCalculator.Bucket> buckets = new ActivityRollupCalculator().calculate(samples, from, to);
+
+        for (int rangeFrom = from; rangeFrom < to; rangeFrom += 5 * HOUR) {
+            for (int rangeTo = rangeFrom + HOUR; rangeTo <= to; rangeTo += 7 * HOUR) {
+                final List<ActivityRollupCalculator.Bucket> bucketsInRange = new ArrayList<>();
+                for (final ActivityRollupCalculator.Bucket bucket : buckets) {
+                    if (bucket.timestamp >= rangeFrom && bucket.timestamp < rangeTo) {
+                        bucketsInRange.add(bucket);
+                    }
+                }
+                final List<ActivitySample> samplesInRange = new ArrayList<>();
+                for (final ActivitySample sample : samples) {
+                    if (sample.getTimestamp() >= rangeFrom && sample.getTimestamp() < rangeTo) {
+                        samplesInRange.add(sample);
+                    }
+                }
+
+                final ActivityAmounts expected = new ActivityAnalysis().calculateActivityAmounts(samplesInRange);
+                final ActivityAmounts actual = ActivityRollupCalculator.toActivityAmounts(
+                        ActivityRollupCalculator.sum(rangeFrom, bucketsInRange)
+                );
+
+                assertEquals(expected.getTotalSeconds(), actual.getTotalSeconds());
+                assertEquals(getTotalSteps(expected), getTotalSteps(actual));
+                for (final ActivityAmount expectedAmount : expected.getAmounts()) {
+                    assertEquals(expectedAmount.getTotalSeconds(), getSeconds(actual, expectedAmount));
+                }
+            }
+        }
+    }
+
+    private static long getTotalSteps(final ActivityAmounts amounts) {
+        long steps = 0;
+        for (final ActivityAmount amount : amounts.getAmounts()) {
+            steps += amount.getTotalSteps();
+        }
+        return steps;
+    }
+
+    private static long getSeconds(final ActivityAmounts amounts, final ActivityAmount expected) {
+        for (final ActivityAmount amount : amounts.getAmounts()) {
+            if (amount.getActivityKind() == expected.getActivityKind()) {
+                return amount.getTotalSeconds();
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,195 @@
+package nodomain.freeyourgadget.gadgetbridge.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import nodomain.freeyourgadget.gadgetbridge.database.schema.GadgetbridgeUpdate_101;
+import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummary;
+import nodomain.freeyourgadget.gadgetbridge.entities.BaseActivitySummaryDao;
+import nodomain.freeyourgadget.gadgetbridge.entities.Device;
+import nodomain.freeyourgadget.gadgetbridge.entities.User;
+import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
+
+public class ActivitySummaryListQueryTest extends TestBase {
+    private static final String TABLE = BaseActivitySummaryDao.TABLENAME;
+
+    @Test
+    public void testPagingWithEqualStartTimes() {
+        final Device device = DBHelper.getDevice(createDummyGDevice("00:00:00:00:60"), daoSession);
+        final Device otherDevice = DBHelper.getDevice(createDummyGDevice("00:00:00:00:61"), daoSession);
+        final User user = DBHelper.getUser(daoSession);
+
+        // the page boundaries fall between summaries with the same start time
+        final long[] startTimes = {3000, 1000, 2000, 3000, 1000, 3000, 2000, 1000};
+        final List<Long> expectedIds = new ArrayList<>();
+        for (final long startTime : startTimes) {
+            insertSummary(device, user, startTime);
+            insertSummary(otherDevice, user, startTime);
+        }
+        try (Cursor cursor = daoSession.getDatabase().rawQuery(
+                "SELECT _id FROM " + TABLE + " WHERE " + BaseActivitySummaryDao.Properties.DeviceId.columnName + " = ?"
+                        + " ORDER BY " + BaseActivitySummaryDao.Properties.StartTime.columnName + " DESC, _id DESC",
+                new String[]{String.valueOf(device.getId())}
+        )) {
+            while (cursor.moveToNext()) {
+                expectedIds.add(cursor.getLong(0));
+            }
+        }
+        assertEquals(startTimes.length, expectedIds.size());
+
+        final ActivitySummaryListQuery query = new ActivitySummaryListQuery(device.getId(), 0, 0, 0, null, null);
+        final List<Long> ids = new ArrayList<>();
+        BaseActivitySummary last = null;
+        int pages = 0;
+        while (true) {
+            final List<BaseActivitySummary> page = query.loadPage(daoSession.getDatabase(), last, 2);
+            if (page.isEmpty()) {
+                break;
+            }
+            for (final BaseActivitySummary summary : page) {
+                assertEquals(device.getId(), Long.valueOf(summary.getDeviceId()));
+                ids.add(summary.getId());
+            }
+            last = page.get(page.size() - 1);
+            pages++;
+        }
+
+        assertEquals(4, pages);
+        assertEquals(expectedIds, ids);
+    }
+
+    @Test
+    public void testTriggersResetDerivedStats() {
+        final SQLiteDatabase db = daoSession.getDatabase();
+        // only created for new databases by DBOpenHelper, not for the test database
+        ActivitySummaryDerivedStats.createTriggers(db);
+
+        final Device device = DBHelper.getDevice(createDummyGDevice("00:00:00:00:62"), daoSession);
+        final User user = DBHelper.getUser(daoSession);
+
+        // inserted or replaced with derived stats of a previous version of the row
+        final BaseActivitySummary summary = createSummary(device, user, 1000);
+        summary.setDistanceMeters(100d);
+        summary.setCaloriesBurnt(100d);
+        summary.setActiveSeconds(100d);
+        summary.setHasGps(true);
+        daoSession.getBaseActivitySummaryDao().insert(summary);
+        assertDerivedStats(db, summary.getId(), null);
+
+        setDerivedStats(db, summary.getId());
+        assertDerivedStats(db, summary.getId(), 42d);
+
+        // greenDAO updates all columns, the derived stats are kept if the data did not change
+        summary.setName("renamed");
+        summary.setDistanceMeters(42d);
+        summary.setCaloriesBurnt(42d);
+        summary.setActiveSeconds(42d);
+        summary.setHasGps(false);
+        daoSession.getBaseActivitySummaryDao().update(summary);
+        assertDerivedStats(db, summary.getId(), 42d);
+
+        summary.setSummaryData("{}");
+        daoSession.getBaseActivitySummaryDao().update(summary);
+        assertDerivedStats(db, summary.getId(), null);
+
+        setDerivedStats(db, summary.getId());
+        db.execSQL("UPDATE " + TABLE + " SET " + BaseActivitySummaryDao.Properties.GpxTrack.columnName + " = 'track.gpx'"
+                + " WHERE _id = " + summary.getId());
+        assertDerivedStats(db, summary.getId(), null);
+
+        setDerivedStats(db, summary.getId());
+        db.execSQL("UPDATE " + TABLE + " SET " + BaseActivitySummaryDao.Properties.RawSummaryData.columnName + " = x'01'"
+                + " WHERE _id = " + summary.getId());
+        assertDerivedStats(db, summary.getId(), null);
+    }
+
+    @Test
+    public void testUpdate101() {
+        final SQLiteDatabase db = SQLiteDatabase.create(null);
+        try {
+            // the table before schema 101
+            db.execSQL("CREATE TABLE " + TABLE + " (_id INTEGER PRIMARY KEY, "
+                    + BaseActivitySummaryDao.Properties.StartTime.columnName + " INTEGER NOT NULL, "
+                    + BaseActivitySummaryDao.Properties.GpxTrack.columnName + " TEXT, "
+                    + BaseActivitySummaryDao.Properties.SummaryData.columnName + " TEXT, "
+                    + BaseActivitySummaryDao.Properties.RawSummaryData.columnName + " BLOB)");
+            db.execSQL("INSERT INTO " + TABLE + " VALUES (1, 1000, NULL, '{}', NULL)");
+
+            final GadgetbridgeUpdate_101 update = new GadgetbridgeUpdate_101();
+            update.upgradeSchema(db);
+            // the columns or triggers may already exist, e.g. after a failed upgrade
+            update.upgradeSchema(db);
+
+            assertTrue(DBHelper.existsColumn(TABLE, BaseActivitySummaryDao.Properties.DistanceMeters.columnName, db));
+            assertTrue(DBHelper.existsColumn(TABLE, BaseActivitySummaryDao.Properties.CaloriesBurnt.columnName, db));
+            assertTrue(DBHelper.existsColumn(TABLE, BaseActivitySummaryDao.Properties.ActiveSeconds.columnName, db));
+            assertTrue(DBHelper.existsColumn(TABLE, BaseActivitySummaryDao.Properties.HasGps.columnName, db));
+
+            // existing summaries are computed on demand
+            assertDerivedStats(db, 1L, null);
+
+            setDerivedStats(db, 1L);
+            db.execSQL("UPDATE " + TABLE + " SET " + BaseActivitySummaryDao.Properties.SummaryData.columnName + " = '{\"a\": 1}'");
+            assertDerivedStats(db, 1L, null);
+        } finally {
+            db.close();
+        }
+    }
+
+    private void insertSummary(final Device device, final User user, final long startTime) {
+        daoSession.getBaseActivitySummaryDao().insert(createSummary(device, user, startTime));
+    }
+
+    private static BaseActivitySummary createSummary(final Device device, final User user, final long startTime) {
+        final BaseActivitySummary summary = new BaseActivitySummary();
+        summary.setName("summary");
+        summary.setStartTime(new Date(startTime));
+        summary.setEndTime(new Date(startTime + 500));
+        summary.setActivityKind(1);
+        summary.setDeviceId(device.getId());
+        summary.setUserId(user.getId());
+        return summary;
+    }
+
+    private static void setDerivedStats(final SQLiteDatabase db, final long id) {
+        db.execSQL("UPDATE " + TABLE + " SET "
+                + BaseActivitySummaryDao.Properties.DistanceMeters.columnName + " = 42, "
+                + BaseActivitySummaryDao.Properties.CaloriesBurnt.columnName + " = 42, "
+                + BaseActivitySummaryDao.Properties.ActiveSeconds.columnName + " = 42, "
+                + BaseActivitySummaryDao.Properties.HasGps.columnName + " = 0"
+                + " WHERE _id = " + id);
+    }
+
+    private static void assertDerivedStats(final SQLiteDatabase db, final long id, final Double expected) {
+        try (Cursor cursor = db.rawQuery("SELECT "
+                + BaseActivitySummaryDao.Properties.DistanceMeters.columnName + ", "
+                + BaseActivitySummaryDao.Properties.CaloriesBurnt.columnName + ", "
+                + BaseActivitySummaryDao.Properties.ActiveSeconds.columnName + ", "
+                + BaseActivitySummaryDao.Properties.HasGps.columnName
+                + " FROM " + TABLE + " WHERE _id = ?", new String[]{String.valueOf(id)})) {
+            assertTrue(cursor.moveToFirst());
+            for (int i = 0; i < 3; i++) {
+                if (expected == null) {
+                    assertTrue(cursor.isNull(i));
+                } else {
+                    assertEquals(expected, cursor.getDouble(i), 0.001);
+                }
+            }
+            if (expected == null) {
+                assertTrue(cursor.isNull(3));
+            } else {
+                assertFalse(cursor.isNull(3));
+            }
+        }
+    }
+}
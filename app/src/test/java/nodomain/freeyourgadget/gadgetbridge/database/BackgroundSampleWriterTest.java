@@ -0,0 +1,132 @@
+package nodomain.freeyourgadget.gadgetbridge.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import nodomain.freeyourgadget.gadgetbridge.GBApplication;
+import nodomain.freeyourgadget.gadgetbridge.devices.miband.MiBandSampleProvider;
+import nodomain.freeyourgadget.gadgetbridge.entities.MiBandActivitySample;
+import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
+import nodomain.freeyourgadget.gadgetbridge.model.DeviceType;
+import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
+
+public class BackgroundSampleWriterTest extends TestBase {
+    private static final int FROM = 1700000000;
+
+    private GBDevice gbDevice;
+
+    @Before
+    public void releaseDatabase() {
+        gbDevice = new GBDevice("00:00:00:00:50", "Mi Band", null, null, DeviceType.MIBAND);
+        // the writer persists on its own thread, see TestBase
+        GBApplication.releaseDB();
+    }
+
+    @After
+    public void acquireDatabase() throws Exception {
+        dbHandler = GBApplication.acquireDB();
+    }
+
+    @Test
+    public void testPersistsAllBatches() throws Exception {
+        final BackgroundSampleWriter<MiBandActivitySample> writer = new BackgroundSampleWriter<>("test writer", gbDevice, 10);
+        for (int i = 0; i < 25; i++) {
+            writer.add(createSample(FROM + i * 60, i));
+        }
+
+        assertEquals(Boolean.TRUE, finish(writer));
+
+        final List<MiBandActivitySample> samples = loadSamples();
+        assertEquals(25, samples.size());
+        for (int i = 0; i < samples.size(); i++) {
+            assertEquals(FROM + i * 60, samples.get(i).getTimestamp());
+            assertEquals(i, samples.get(i).getSteps());
+        }
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        // the samples of the test device are not database-backed, so persisting them fails
+        final GBDevice testDevice = createDummyGDevice("00:00:00:00:51");
+        final BackgroundSampleWriter<MiBandActivitySample> writer = new BackgroundSampleWriter<>("test writer", testDevice, 10);
+        for (int i = 0; i < 25; i++) {
+            writer.add(createSample(FROM + i * 60, i));
+        }
+
+        assertEquals(Boolean.FALSE, finish(writer));
+    }
+
+    @Test
+    public void testFinishDoesNotWait() throws Exception {
+        final BackgroundSampleWriter<MiBandActivitySample> writer = new BackgroundSampleWriter<>("test writer", gbDevice, 10);
+        writer.add(createSample(FROM, 1));
+
+        final BlockingQueue<Boolean> result = new ArrayBlockingQueue<>(1);
+        // keeps the writer waiting for the database
+        try (DBHandler ignored = GBApplication.acquireDB()) {
+            writer.finish(result::add);
+            assertNull(result.poll(100, TimeUnit.MILLISECONDS));
+        }
+
+        // the samples are persisted once the database is available
+        assertEquals(Boolean.TRUE, result.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, loadSamples().size());
+    }
+
+    @Test
+    public void testAbortDeletesPersistedSamples() throws Exception {
+        // a sample persisted before, outside of the aborted range
+        final BackgroundSampleWriter<MiBandActivitySample> previous = new BackgroundSampleWriter<>("previous writer", gbDevice, 10);
+        previous.add(createSample(FROM - 60, 1));
+        assertEquals(Boolean.TRUE, finish(previous));
+
+        final BackgroundSampleWriter<MiBandActivitySample> writer = new BackgroundSampleWriter<>("test writer", gbDevice, 10);
+        for (int i = 0; i < 25; i++) {
+            writer.add(createSample(FROM + i * 60, i));
+        }
+        // wait for the complete batches to be persisted
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (loadSamples().size() < 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(20, loadSamples().size());
+
+        writer.abort();
+
+        assertTrue(writer.awaitTermination(5000));
+        assertTrue(loadSamples().isEmpty());
+        try (DBHandler handler = GBApplication.acquireDB()) {
+            assertEquals(1, new MiBandSampleProvider(gbDevice, handler.getDaoSession()).getAllActivitySamples(FROM - 60, FROM - 60).size());
+        }
+    }
+
+    private static Boolean finish(final BackgroundSampleWriter<MiBandActivitySample> writer) throws InterruptedException {
+        final BlockingQueue<Boolean> result = new ArrayBlockingQueue<>(1);
+        writer.finish(result::add);
+        return result.poll(5, TimeUnit.SECONDS);
+    }
+
+    private static MiBandActivitySample createSample(final int timestamp, final int steps) {
+        final MiBandActivitySample sample = new MiBandActivitySample();
+        sample.setTimestamp(timestamp);
+        sample.setSteps(steps);
+        sample.setRawKind(MiBandSampleProvider.TYPE_ACTIVITY);
+        return sample;
+    }
+
+    private List<MiBandActivitySample> loadSamples() throws Exception {
+        try (DBHandler handler = GBApplication.acquireDB()) {
+            return new MiBandSampleProvider(gbDevice, handler.getDaoSession()).getAllActivitySamples(FROM, FROM + 24 * 60 * 60);
+        }
+    }
+}
@@ -6,8 +6,10 @@ import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.List;
 
+import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.entities.ActivityDescription;
 import nodomain.freeyourgadget.gadgetbridge.entities.ActivityDescriptionDao;
+import nodomain.freeyourgadget.gadgetbridge.entities.DaoSession;
 import nodomain.freeyourgadget.gadgetbridge.entities.Device;
 import nodomain.freeyourgadget.gadgetbridge.entities.DeviceAttributes;
 import nodomain.freeyourgadget.gadgetbridge.entities.Tag;
@@ -22,6 +24,7 @@ import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -94,6 +97,37 @@ public class EntitiesTest extends TestBase {
         assertEquals("1.2.3", attributes.getFirmwareVersion1());
     }
 
+    @Test
+    public void testFindDeviceId() {
+        GBDevice dummyGBDevice = createDummyGDevice("00:00:00:00:03");
+        assertNull(DBHelper.findDeviceId(dummyGBDevice, daoSession));
+
+        Device device = DBHelper.getDevice(dummyGBDevice, daoSession);
+        assertEquals(device.getId(), DBHelper.findDeviceId(dummyGBDevice, daoSession));
+        // served from the cache
+        assertEquals(device.getId(), DBHelper.findDeviceId(dummyGBDevice, daoSession));
+
+        DBHelper.updateDeviceMacAddress(daoSession, "00:00:00:00:03", "00:00:00:00:04");
+        assertNull(DBHelper.findDeviceId(dummyGBDevice, daoSession));
+        assertEquals(device.getId(), DBHelper.findDeviceId(createDummyGDevice("00:00:00:00:04"), daoSession));
+    }
+
+    @Test
+    public void testDeviceIdCacheSharedBySessions() throws Exception {
+        GBDevice dummyGBDevice = createDummyGDevice("00:00:00:00:05");
+        Device device = DBHelper.getDevice(dummyGBDevice, daoSession);
+        assertEquals(device.getId(), DBHelper.findDeviceId(dummyGBDevice, daoSession));
+
+        try (DBHandler readOnlyHandler = GBApplication.acquireDBReadOnly()) {
+            DaoSession readOnlySession = readOnlyHandler.getDaoSession();
+            assertNotSame(daoSession, readOnlySession);
+            // cached by the writer session, and not discarded by a lookup of the read-only session
+            assertEquals(device.getId(), DeviceIdCache.get(readOnlySession, dummyGBDevice.getAddress()));
+            assertEquals(device.getId(), DBHelper.findDeviceId(dummyGBDevice, readOnlySession));
+            assertEquals(device.getId(), DeviceIdCache.get(daoSession, dummyGBDevice.getAddress()));
+        }
+    }
+
     @Test
     public void testActivityDescription() {
         User user = DBHelper.getUser(daoSession);
@@ -5,7 +5,10 @@ import org.junit.Test;
 import java.util.List;
 
 import nodomain.freeyourgadget.gadgetbridge.devices.SampleProvider;
+import nodomain.freeyourgadget.gadgetbridge.devices.AbstractSampleProvider;
 import nodomain.freeyourgadget.gadgetbridge.devices.huawei.HuaweiSampleProvider;
+import nodomain.freeyourgadget.gadgetbridge.devices.makibeshr3.MakibesHR3SampleProvider;
+import nodomain.freeyourgadget.gadgetbridge.devices.miband.MiBand2SampleProvider;
 import nodomain.freeyourgadget.gadgetbridge.devices.miband.MiBandSampleProvider;
 import nodomain.freeyourgadget.gadgetbridge.entities.AbstractActivitySample;
 import nodomain.freeyourgadget.gadgetbridge.entities.Device;
@@ -14,6 +17,7 @@ import nodomain.freeyourgadget.gadgetbridge.entities.MiBandActivitySample;
 import nodomain.freeyourgadget.gadgetbridge.entities.User;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
 import nodomain.freeyourgadget.gadgetbridge.model.ActivityKind;
+import nodomain.freeyourgadget.gadgetbridge.model.ActivitySampleColumns;
 import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
 
 import static org.junit.Assert.assertEquals;
@@ -213,4 +217,48 @@ public class SampleProviderTest extends TestBase {
         samples = sampleProvider.getAllActivitySamplesHighRes(100, 200);
         assertEquals(4, samples.size()); // No combining takes place for the high res
     }
+
+    @Test
+    public void testSampleColumns() {
+        // the columns are declared by the provider
+        MiBandSampleProvider miBandProvider = new MiBandSampleProvider(dummyGBDevice, daoSession);
+        addSamples(miBandProvider, MiBandSampleProvider.TYPE_ACTIVITY, MiBandSampleProvider.TYPE_DEEP_SLEEP);
+        assertSampleColumns(miBandProvider);
+
+        // the raw intensity is not stored
+        MakibesHR3SampleProvider makibesProvider = new MakibesHR3SampleProvider(createDummyGDevice("00:00:00:00:11"), daoSession);
+        addSamples(makibesProvider, ActivityKind.ACTIVITY.getCode(), ActivityKind.LIGHT_SLEEP.getCode());
+        assertSampleColumns(makibesProvider);
+
+        // the raw kinds are post-processed, so the samples are loaded as entities
+        MiBand2SampleProvider miBand2Provider = new MiBand2SampleProvider(createDummyGDevice("00:00:00:00:12"), daoSession);
+        addSamples(miBand2Provider, 0x11, 0x14);
+        assertSampleColumns(miBand2Provider);
+    }
+
+    private <T extends AbstractActivitySample> void addSamples(AbstractSampleProvider<T> sampleProvider, int rawKind1, int rawKind2) {
+        User user = DBHelper.getUser(daoSession);
+        Device device = DBHelper.getDevice(sampleProvider.getDevice(), daoSession);
+        for (int i = 0; i < 10; i++) {
+            sampleProvider.addGBActivitySample(createSample(sampleProvider, i < 5 ? rawKind1 : rawKind2, 1000 + i * 60, 10 * i, 60 + i, 100 * i, user, device));
+        }
+    }
+
+    private <T extends AbstractActivitySample> void assertSampleColumns(AbstractSampleProvider<T> sampleProvider) {
+        List<T> samples = sampleProvider.getAllActivitySamples(1060, 1500);
+        ActivitySampleColumns columns = sampleProvider.getAllActivitySampleColumns(1060, 1500);
+        assertEquals(8, samples.size());
+        assertEquals(samples.size(), columns.size());
+        for (int i = 0; i < samples.size(); i++) {
+            T sample = samples.get(i);
+            assertEquals(sample.getTimestamp(), columns.getTimestamp(i));
+            assertEquals(sample.getRawKind(), columns.getRawKind(i));
+            assertEquals(sample.getKind(), columns.getKind(i));
+            assertEquals(sample.getIntensity(), columns.getIntensity(i), 0.0001f);
+            assertEquals(sample.getSteps(), columns.getSteps(i));
+            assertEquals(sample.getDistanceCm(), columns.getDistanceCm(i));
+            assertEquals(sample.getActiveCalories(), columns.getActiveCalories(i));
+            assertEquals(sample.getHeartRate(), columns.getHeartRate(i));
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package nodomain.freeyourgadget.gadgetbridge.database;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nodomain.freeyourgadget.gadgetbridge.devices.miband.MiBandSampleProvider;
+import nodomain.freeyourgadget.gadgetbridge.entities.MiBandActivitySample;
+import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
+import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
+
+import static org.junit.Assert.assertEquals;
+
+public class SampleQueryCacheTest extends TestBase {
+    private static final int DAY = 24 * 60 * 60;
+    private static final int FROM = 1700000000 - (1700000000 % DAY);
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @After
+    public void clearCache() {
+        SampleQueryCache.clear();
+    }
+
+    @Test
+    public void testServesSubRanges() {
+        final GBDevice gbDevice = createDummyGDevice("00:00:00:00:30");
+
+        assertEquals(DAY / 60 + 1, query(gbDevice, FROM, FROM + DAY).size());
+        assertEquals(1, queries.get());
+
+        final List<MiBandActivitySample> samples = query(gbDevice, FROM + 3600, FROM + 7200);
+        assertEquals(61, samples.size());
+        assertEquals(FROM + 3600, samples.get(0).getTimestamp());
+        assertEquals(1, queries.get());
+
+        query(gbDevice, FROM + DAY / 2, FROM + 2 * DAY);
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void testInvalidatesAffectedRanges() {
+        final GBDevice gbDevice = createDummyGDevice("00:00:00:00:31");
+
+        query(gbDevice, FROM, FROM + DAY);
+        query(gbDevice, FROM + 3 * DAY, FROM + 4 * DAY);
+        assertEquals(2, queries.get());
+
+        // the same day, and the following one, are affected
+        SampleQueryCache.invalidate(gbDevice.getAddress(), FROM + 2 * DAY, FROM + 2 * DAY + 60);
+        query(gbDevice, FROM, FROM + DAY);
+        assertEquals(2, queries.get());
+        query(gbDevice, FROM + 3 * DAY, FROM + 4 * DAY);
+        assertEquals(3, queries.get());
+
+        SampleQueryCache.invalidate("00:00:00:00:99", FROM, FROM + DAY);
+        query(gbDevice, FROM, FROM + DAY);
+        assertEquals(3, queries.get());
+    }
+
+    private List<MiBandActivitySample> query(final GBDevice gbDevice, final int tsFrom, final int tsTo) {
+        return SampleQueryCache.query(
+                gbDevice,
+                MiBandSampleProvider.class,
+                SampleQueryCache.Resolution.ALL,
+                tsFrom,
+                tsTo,
+                (from, to) -> {
+                    queries.incrementAndGet();
+                    final List<MiBandActivitySample> samples = new ArrayList<>();
+                    for (int ts = from; ts <= to; ts += 60) {
+                        final MiBandActivitySample sample = new MiBandActivitySample();
+                        sample.setTimestamp(ts);
+                        samples.add(sample);
+                    }
+                    return samples;
+                }
+        );
+    }
+}
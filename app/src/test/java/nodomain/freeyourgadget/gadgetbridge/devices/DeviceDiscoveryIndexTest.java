@@ -0,0 +1,104 @@
+package nodomain.freeyourgadget.gadgetbridge.devices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.when;
+
+import android.bluetooth.BluetoothDevice;
+import android.os.ParcelUuid;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.regex.Pattern;
+
+import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
+import nodomain.freeyourgadget.gadgetbridge.impl.GBDeviceCandidate;
+import nodomain.freeyourgadget.gadgetbridge.model.DeviceType;
+import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
+
+public class DeviceDiscoveryIndexTest extends TestBase {
+    private DeviceDiscoveryIndex index;
+
+    @Before
+    public void createIndex() {
+        index = new DeviceDiscoveryIndex(DeviceType.values());
+    }
+
+    @Test
+    public void testResolvesLikeLinearScan() {
+        // literal name prefixes, also of case insensitive patterns
+        assertResolves(DeviceType.AMAZFITGTS2, "Amazfit GTS 2");
+        assertResolves(DeviceType.AMAZFITGTS2, "AMAZFIT GTS 2");
+        assertResolves(DeviceType.MICOMPOSITIONSCALE, "mibfs");
+        assertResolves(DeviceType.PINETIME_JF, "InfiniTime");
+        assertResolves(DeviceType.NO1F1, "X-RUN 2");
+        assertResolves(DeviceType.BANGLEJS, "Bangle.js 4a2c");
+        assertResolves(DeviceType.SONY_WH_ULT900N, "ULT WEAR");
+
+        // patterns without a literal prefix
+        assertResolves(DeviceType.SONY_WF_1000XM4, "LE_WF-1000XM4");
+
+        // coordinators implementing supports(GBDeviceCandidate)
+        assertResolves(DeviceType.LEFUN, "Lefun");
+
+        // service uuids
+        assertResolves(DeviceType.FOSSILQHYBRID, "Hybrid HR", "3dda0001-957f-7d4a-34a6-74696673696d");
+
+        assertResolves(DeviceType.UNKNOWN, "Amazfit");
+        assertResolves(DeviceType.UNKNOWN, "Some Headset", "0000180d-0000-1000-8000-00805f9b34fb");
+        assertResolves(DeviceType.UNKNOWN, null);
+    }
+
+    @Test
+    public void testLiteralPrefixes() {
+        assertEquals(Collections.singletonList("Amazfit GTS"), DeviceDiscoveryIndex.getLiteralPrefixes(Pattern.compile("Amazfit GTS")));
+        assertEquals(Arrays.asList("Pinetime-JF", "InfiniTime"), DeviceDiscoveryIndex.getLiteralPrefixes(Pattern.compile("Pinetime-JF.*|InfiniTime.*")));
+        assertEquals(Arrays.asList("Sony ULT", "ULT WEAR"), DeviceDiscoveryIndex.getLiteralPrefixes(Pattern.compile("^Sony ULT|ULT WEAR$")));
+        assertEquals(Arrays.asList("TECLAST_H", "H"), DeviceDiscoveryIndex.getLiteralPrefixes(Pattern.compile("TECLAST_H[13]0.*|H[13]-[ABCDEF0123456789]{4}")));
+        assertEquals(Collections.singletonList("Amazfit Band "), DeviceDiscoveryIndex.getLiteralPrefixes(Pattern.compile("Amazfit Band 7?")));
+        assertEquals(Collections.singletonList("MIBCS"), DeviceDiscoveryIndex.getLiteralPrefixes(Pattern.compile("MIBCS", Pattern.CASE_INSENSITIVE)));
+    }
+
+    @Test
+    public void testNoLiteralPrefixes() {
+        assertNull(DeviceDiscoveryIndex.getLiteralPrefixes(Pattern.compile(".*WF-1000XM4.*")));
+        assertNull(DeviceDiscoveryIndex.getLiteralPrefixes(Pattern.compile("(Galaxy )?Buds2( \\(.*)?")));
+        assertNull(DeviceDiscoveryIndex.getLiteralPrefixes(Pattern.compile("Y5|.*Y6")));
+        assertNull(DeviceDiscoveryIndex.getLiteralPrefixes(Pattern.compile("X?")));
+        assertNull(DeviceDiscoveryIndex.getLiteralPrefixes(Pattern.compile("swr12", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE)));
+    }
+
+    private void assertResolves(final DeviceType expected, final String name, final String... serviceUuids) {
+        final BluetoothDevice device = Mockito.mock(BluetoothDevice.class);
+        when(device.getAddress()).thenReturn("00:00:00:00:00:01");
+        when(device.getName()).thenReturn(name);
+        final ParcelUuid[] uuids = new ParcelUuid[serviceUuids.length];
+        for (int i = 0; i < serviceUuids.length; i++) {
+            uuids[i] = ParcelUuid.fromString(serviceUuids[i]);
+        }
+        final GBDeviceCandidate candidate = new GBDeviceCandidate(device, GBDevice.RSSI_UNKNOWN, uuids);
+        candidate.refreshNameIfUnknown();
+
+        assertEquals(name, expected, resolveLinearly(candidate));
+        assertEquals(name, expected, index.resolve(candidate));
+    }
+
+    /**
+     * Asks every coordinator in the order of their priority, as done before the index.
+     */
+    private static DeviceType resolveLinearly(final GBDeviceCandidate candidate) {
+        final DeviceType[] deviceTypes = DeviceType.values();
+        Arrays.sort(deviceTypes, Comparator.comparingInt(type -> type.getDeviceCoordinator().getOrderPriority()));
+        for (final DeviceType type : deviceTypes) {
+            if (type.getDeviceCoordinator().supports(candidate)) {
+                return type;
+            }
+        }
+        return DeviceType.UNKNOWN;
+    }
+}
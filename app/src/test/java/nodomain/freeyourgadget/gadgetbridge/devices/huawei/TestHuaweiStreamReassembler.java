@@ -0,0 +1,172 @@
+package nodomain.freeyourgadget.gadgetbridge.devices.huawei;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public class TestHuaweiStreamReassembler {
+    private static final int CHUNK_SIZE = 20;
+
+    HuaweiPacket.ParamsProvider paramsProvider = new HuaweiPacket.ParamsProvider() {
+        @Override
+        public boolean areTransactionsCrypted() {
+            return false;
+        }
+
+        @Override
+        public int getSliceSize() {
+            return 0xF4;
+        }
+    };
+
+    @Test
+    public void testUnslicedPacket() throws HuaweiPacket.ParseException {
+        byte[] input = {0x5a, 0x00, 0x07, 0x00, 0x7f, 0x7f, 0x01, 0x02, 0x03, 0x04, 0x40, (byte) 0xb6};
+
+        HuaweiStreamReassembler reassembler = new HuaweiStreamReassembler();
+        reassembler.feed(input, 0, 5);
+        Assert.assertFalse(reassembler.next());
+        reassembler.feed(input, 5, input.length - 5);
+        Assert.assertTrue(reassembler.next());
+
+        HuaweiPacket packet = new HuaweiPacket(paramsProvider)
+                .parsePayload(reassembler.getPayload(), 0, reassembler.getPayloadLength());
+        Assert.assertEquals(0x7f, packet.serviceId);
+        Assert.assertEquals(0x7f, packet.commandId);
+        Assert.assertTrue(packet.complete);
+        Assert.assertEquals(new HuaweiTLV().put(0x01, (short) 0x0304), packet.getTlv());
+
+        Assert.assertFalse(reassembler.next());
+        Assert.assertEquals(0, reassembler.getBuffered());
+    }
+
+    @Test
+    public void testChecksumMismatch() {
+        byte[] input = {0x5a, 0x00, 0x07, 0x00, 0x7f, 0x7f, 0x01, 0x02, 0x03, 0x04, 0x40, (byte) 0xb7};
+
+        HuaweiStreamReassembler reassembler = new HuaweiStreamReassembler();
+        reassembler.feed(input);
+        Assert.assertThrows(HuaweiPacket.ChecksumIncorrectException.class, reassembler::next);
+        Assert.assertEquals(0, reassembler.getBuffered());
+    }
+
+    @Test
+    public void testMatchesPacketParse() throws HuaweiPacket.ParseException, HuaweiPacket.CryptoException {
+        byte[] trace = createTrace(5000);
+        List<HuaweiTLV> expected = parseWithPacket(trace);
+        Assert.assertEquals(3, expected.size());
+
+        for (int chunkSize : new int[]{1, 7, CHUNK_SIZE, 0xF4, 4096}) {
+            Assert.assertEquals("chunk size " + chunkSize, expected, parseWithReassembler(trace, chunkSize));
+        }
+    }
+
+    @Test
+    @Ignore("benchmark for development, remove this while measuring")
+    public void benchmark() throws HuaweiPacket.ParseException, HuaweiPacket.CryptoException {
+        for (int payloadSize : new int[]{1_000, 10_000, 100_000}) {
+            byte[] trace = createTrace(payloadSize);
+            for (int i = 0; i < 5; i++) {
+                // warm up
+                parseWithPacket(trace);
+                parseWithReassembler(trace, CHUNK_SIZE);
+            }
+
+            int iterations = 20;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                parseWithPacket(trace);
+            }
+            long packetNanos = (System.nanoTime() - start) / iterations;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                parseWithReassembler(trace, CHUNK_SIZE);
+            }
+            long reassemblerNanos = (System.nanoTime() - start) / iterations;
+
+            System.out.printf(
+                    Locale.ROOT,
+                    "%d bytes: packet %.3f ms/op, reassembler %.3f ms/op%n",
+                    trace.length, packetNanos / 1e6, reassemblerNanos / 1e6
+            );
+        }
+    }
+
+    /**
+     * Creates a trace as received from a device: a small packet, a large sliced packet, and
+     * another small packet, back to back.
+     */
+    private byte[] createTrace(int payloadSize) throws HuaweiPacket.CryptoException {
+        byte[] data = new byte[payloadSize];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        ByteArrayOutputStream trace = new ByteArrayOutputStream();
+        writePacket(trace, new HuaweiTLV().put(0x01, (short) 0x0304), false);
+        writePacket(trace, new HuaweiTLV().put(0x01, data).put(0x02, 0x05060708), true);
+        writePacket(trace, new HuaweiTLV().put(0x03, true), false);
+        return trace.toByteArray();
+    }
+
+    private void writePacket(ByteArrayOutputStream trace, HuaweiTLV tlv, boolean sliced) throws HuaweiPacket.CryptoException {
+        HuaweiPacket packet = new HuaweiPacket(paramsProvider);
+        packet.isSliced = sliced;
+        packet.isEncrypted = false;
+        packet.serviceId = 0x7f;
+        packet.commandId = 0x7f;
+        packet.setTlv(tlv);
+        for (byte[] frame : packet.serialize()) {
+            trace.write(frame, 0, frame.length);
+        }
+    }
+
+    /**
+     * The way the packets were parsed before the reassembler.
+     */
+    private List<HuaweiTLV> parseWithPacket(byte[] trace) throws HuaweiPacket.ParseException {
+        List<HuaweiTLV> ret = new ArrayList<>();
+        HuaweiPacket receivedPacket = null;
+        for (int offset = 0; offset < trace.length; offset += CHUNK_SIZE) {
+            byte[] data = Arrays.copyOfRange(trace, offset, Math.min(offset + CHUNK_SIZE, trace.length));
+            int left = 0;
+            do {
+                if (left > 0)
+                    data = Arrays.copyOfRange(data, data.length - left, data.length);
+
+                if (receivedPacket == null)
+                    receivedPacket = new HuaweiPacket(paramsProvider).parse(data);
+                else
+                    receivedPacket = receivedPacket.parse(data);
+                left = receivedPacket.getLeft();
+
+                if (receivedPacket.complete) {
+                    ret.add(receivedPacket.getTlv());
+                    receivedPacket = null;
+                }
+            } while (left > 0);
+        }
+        return ret;
+    }
+
+    private List<HuaweiTLV> parseWithReassembler(byte[] trace, int chunkSize) throws HuaweiPacket.ParseException {
+        List<HuaweiTLV> ret = new ArrayList<>();
+        HuaweiStreamReassembler reassembler = new HuaweiStreamReassembler();
+        for (int offset = 0; offset < trace.length; offset += chunkSize) {
+            reassembler.feed(trace, offset, Math.min(chunkSize, trace.length - offset));
+            while (reassembler.next()) {
+                HuaweiPacket packet = new HuaweiPacket(paramsProvider)
+                        .parsePayload(reassembler.getPayload(), 0, reassembler.getPayloadLength());
+                ret.add(packet.getTlv());
+            }
+        }
+        return ret;
+    }
+}
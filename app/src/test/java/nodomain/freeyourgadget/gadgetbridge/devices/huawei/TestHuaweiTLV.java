@@ -287,6 +287,22 @@ public class TestHuaweiTLV {
         Assert.fail();
     }
 
+    @Test
+    public void testParsedGetters() throws HuaweiPacket.MissingTagException {
+        byte[] input = {(byte) 0x90, 0x01, 0x04, 0x01, 0x02, 0x03, 0x04, 0x02, 0x02, 0x61, 0x62, 0x03, 0x03, 0x04, 0x01, 0x05};
+
+        HuaweiTLV huaweiTLV = new HuaweiTLV()
+                .parse(input, 1, input.length - 1);
+
+        Assert.assertEquals(Integer.valueOf(0x01020304), huaweiTLV.getInteger(0x01));
+        Assert.assertEquals(Integer.valueOf(0x01020304), huaweiTLV.getAsInteger(0x01));
+        Assert.assertEquals(Short.valueOf((short) 0x6162), huaweiTLV.getShort(0x02));
+        Assert.assertEquals("ab", huaweiTLV.getString(0x02));
+        Assert.assertEquals(Byte.valueOf((byte) 0x05), huaweiTLV.getObject(0x03).getByte(0x04));
+        Assert.assertArrayEquals(new byte[] {0x01, 0x02, 0x03, 0x04}, huaweiTLV.getBytes(0x01));
+        Assert.assertEquals(new HuaweiTLV().put(0x01, 0x01020304).put(0x02, "ab").put(0x03, new byte[] {0x04, 0x01, 0x05}), huaweiTLV);
+    }
+
     @Test
     public void testGetBytesEmpty() throws HuaweiPacket.MissingTagException {
         int tag = 0x01;
@@ -0,0 +1,43 @@
+package nodomain.freeyourgadget.gadgetbridge.externalevents.notifications;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import nodomain.freeyourgadget.gadgetbridge.activities.NotificationFilterActivity;
+
+public class NotificationFilterIndexTest {
+    @Test
+    public void testAllWordsOverlapping() {
+        final NotificationFilterIndex.CompiledFilter filter = NotificationFilterIndex.CompiledFilter.compile(
+                NotificationFilterActivity.NOTIFICATION_FILTER_MODE_WHITELIST,
+                NotificationFilterActivity.NOTIFICATION_FILTER_SUBMODE_ALL,
+                Arrays.asList("abc", "bcd", "abc")
+        );
+
+        assertTrue(filter.shouldContinue("xabcdx"));
+        assertFalse(filter.shouldContinue("abc bc"));
+        assertFalse(filter.shouldContinue("ABCD"));
+    }
+
+    @Test
+    public void testEmptyWords() {
+        final NotificationFilterIndex.CompiledFilter blacklistAll = NotificationFilterIndex.CompiledFilter.compile(
+                NotificationFilterActivity.NOTIFICATION_FILTER_MODE_BLACKLIST,
+                NotificationFilterActivity.NOTIFICATION_FILTER_SUBMODE_ALL,
+                Collections.emptyList()
+        );
+        assertFalse(blacklistAll.shouldContinue("anything"));
+
+        final NotificationFilterIndex.CompiledFilter blacklistAny = NotificationFilterIndex.CompiledFilter.compile(
+                NotificationFilterActivity.NOTIFICATION_FILTER_MODE_BLACKLIST,
+                NotificationFilterActivity.NOTIFICATION_FILTER_SUBMODE_ANY,
+                Collections.emptyList()
+        );
+        assertTrue(blacklistAny.shouldContinue("anything"));
+    }
+}
@@ -0,0 +1,30 @@
+package nodomain.freeyourgadget.gadgetbridge.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ActivitySampleColumnsTest {
+    @Test
+    public void testGrowsAndKeepsValues() {
+        final ActivitySampleColumns columns = new ActivitySampleColumns(0);
+        assertTrue(columns.isEmpty());
+
+        for (int i = 0; i < 100; i++) {
+            columns.add(1000 + i * 60, i, ActivityKind.ACTIVITY, i / 100f, i, i * 10, i * 2, 60 + i);
+        }
+
+        assertEquals(100, columns.size());
+        assertEquals(1000 + 99 * 60, columns.getTimestamp(99));
+        assertEquals(42, columns.getRawKind(42));
+        assertEquals(ActivityKind.ACTIVITY, columns.getKind(42));
+        assertEquals(0.42f, columns.getIntensity(42), 0.0001f);
+        assertEquals(42, columns.getSteps(42));
+        assertEquals(420, columns.getDistanceCm(42));
+        assertEquals(84, columns.getActiveCalories(42));
+        assertEquals(102, columns.getHeartRate(42));
+        assertFalse(columns.isSynthetic(42));
+    }
+}
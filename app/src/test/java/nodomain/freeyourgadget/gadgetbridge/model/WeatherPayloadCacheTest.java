@@ -0,0 +1,45 @@
+package nodomain.freeyourgadget.gadgetbridge.model;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
+
+public class WeatherPayloadCacheTest extends TestBase {
+    private final TimeZone defaultTimeZone = TimeZone.getDefault();
+
+    @After
+    public void restoreTimeZone() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void testEncodesOnChanges() {
+        final WeatherSpec spec = new WeatherSpec();
+        spec.location = "Berlin";
+        spec.currentTemp = 290;
+        final AtomicInteger encoded = new AtomicInteger();
+
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+        WeatherPayloadCache.get("test payload", spec, encoded::incrementAndGet);
+        WeatherPayloadCache.get("test payload", spec, encoded::incrementAndGet);
+        assertEquals(1, encoded.get());
+
+        // the spec changed
+        spec.currentTemp = 291;
+        WeatherPayloadCache.get("test payload", spec, encoded::incrementAndGet);
+        assertEquals(2, encoded.get());
+
+        // the dates are formatted for another time zone
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        WeatherPayloadCache.get("test payload", spec, encoded::incrementAndGet);
+        assertEquals(3, encoded.get());
+        WeatherPayloadCache.get("test payload", spec, encoded::incrementAndGet);
+        assertEquals(3, encoded.get());
+    }
+}
@@ -0,0 +1,99 @@
+package nodomain.freeyourgadget.gadgetbridge.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
+
+public class WeatherSpecCodecTest extends TestBase {
+    @Test
+    public void testRoundTrip() throws Exception {
+        final WeatherSpec first = createSpec("Berlin");
+        final WeatherSpec second = new WeatherSpec();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WeatherSpecCodec.writeList(out, Arrays.asList(first, second));
+        final List<WeatherSpec> specs = WeatherSpecCodec.readList(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(2, specs.size());
+        assertArrayEquals(WeatherSpecCodec.encode(first), WeatherSpecCodec.encode(specs.get(0)));
+        assertArrayEquals(WeatherSpecCodec.encode(second), WeatherSpecCodec.encode(specs.get(1)));
+
+        final WeatherSpec decoded = specs.get(0);
+        assertEquals("Berlin", decoded.location);
+        assertNull(decoded.currentCondition);
+        assertEquals(2, decoded.forecasts.size());
+        assertEquals(280, decoded.forecasts.get(1).maxTemp);
+        assertNull(decoded.forecasts.get(0).airQuality);
+        assertEquals(42, decoded.forecasts.get(1).airQuality.aqi);
+        assertEquals(1, decoded.hourly.size());
+        assertEquals(1700003600, decoded.hourly.get(0).timestamp);
+    }
+
+    @Test
+    public void testEncodeDetectsChanges() {
+        final WeatherSpec spec = createSpec("Berlin");
+        final byte[] before = WeatherSpecCodec.encode(spec);
+
+        spec.forecasts.get(0).humidity++;
+
+        assertFalse(Arrays.equals(before, WeatherSpecCodec.encode(spec)));
+    }
+
+    @Test
+    public void testRejectsOtherFormats() {
+        // start of a Java serialization stream, as written by older versions
+        final byte[] legacy = new byte[]{(byte) 0xac, (byte) 0xed, 0x00, 0x05, 0x73, 0x72};
+        assertThrows(IOException.class, () -> WeatherSpecCodec.readList(new ByteArrayInputStream(legacy)));
+    }
+
+    @Test
+    public void testEmptyList() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WeatherSpecCodec.writeList(out, Collections.emptyList());
+        assertEquals(0, WeatherSpecCodec.readList(new ByteArrayInputStream(out.toByteArray())).size());
+    }
+
+    private static WeatherSpec createSpec(final String location) {
+        final WeatherSpec spec = new WeatherSpec();
+        spec.timestamp = 1700000000;
+        spec.location = location;
+        spec.currentTemp = 283;
+        spec.currentConditionCode = 800;
+        spec.windSpeed = 12.5f;
+        spec.latitude = 52.52f;
+        spec.longitude = 13.4f;
+        spec.isCurrentLocation = 1;
+
+        final WeatherSpec.Daily today = new WeatherSpec.Daily();
+        today.minTemp = 270;
+        today.maxTemp = 279;
+        spec.forecasts.add(today);
+
+        final WeatherSpec.Daily tomorrow = new WeatherSpec.Daily();
+        tomorrow.minTemp = 271;
+        tomorrow.maxTemp = 280;
+        tomorrow.airQuality = new WeatherSpec.AirQuality();
+        tomorrow.airQuality.aqi = 42;
+        spec.forecasts.add(tomorrow);
+
+        final WeatherSpec.Hourly hourly = new WeatherSpec.Hourly();
+        hourly.timestamp = 1700003600;
+        hourly.temp = 282;
+        spec.hourly.add(hourly);
+
+        return spec;
+    }
+}
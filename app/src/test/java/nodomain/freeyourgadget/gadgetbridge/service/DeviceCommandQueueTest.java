@@ -0,0 +1,75 @@
+package nodomain.freeyourgadget.gadgetbridge.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
+
+public class DeviceCommandQueueTest extends TestBase {
+    @Test
+    public void testCoalescing() throws Exception {
+        final DeviceCommandQueue queue = new DeviceCommandQueue("test");
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        try {
+            // keep the queue busy, so that the following commands are still pending
+            queue.submit(null, () -> {
+                try {
+                    blocked.await(5, TimeUnit.SECONDS);
+                } catch (final InterruptedException ignored) {
+                }
+            });
+            queue.submit("state", () -> executed.add("state 1"));
+            queue.submit(null, () -> executed.add("notification"));
+            queue.submit("state", () -> executed.add("state 2"));
+            queue.submit("info", () -> executed.add("info"));
+            queue.submit("state", () -> executed.add("state 3"));
+            queue.submit(null, done::countDown);
+            blocked.countDown();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("notification", "info", "state 3"), executed);
+        } finally {
+            queue.quit();
+        }
+    }
+
+    @Test
+    public void testQuitRunsCleanupAfterPendingCommands() throws Exception {
+        final DeviceCommandQueue queue = new DeviceCommandQueue("test");
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch cleanedUp = new CountDownLatch(1);
+
+        queue.submit(null, () -> {
+            try {
+                blocked.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException ignored) {
+            }
+            executed.add("blocked");
+        });
+        queue.submit(null, () -> executed.add("pending"));
+        queue.quit(() -> {
+            executed.add("cleanup");
+            cleanedUp.countDown();
+        });
+        queue.submit(null, () -> executed.add("dropped"));
+
+        // quitting does not wait for the blocked command
+        assertTrue(executed.isEmpty());
+        blocked.countDown();
+        assertTrue(cleanedUp.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("blocked", "pending", "cleanup"), executed);
+    }
+}
@@ -0,0 +1,82 @@
+package nodomain.freeyourgadget.gadgetbridge.service.devices.banglejs;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BangleJSLineFramerTest {
+    private static final Logger LOG = LoggerFactory.getLogger(BangleJSLineFramerTest.class);
+
+    @Test
+    public void testLinesAcrossPackets() {
+        final List<String> lines = new ArrayList<>();
+        final BangleJSLineFramer framer = new BangleJSLineFramer(lines::add);
+
+        feed(framer, "{\"t\":\"info\",");
+        feed(framer, "\"msg\":\"hi\"}\r");
+        feed(framer, "\n\r\n>prompt\n{\"t\":");
+        assertEquals(Arrays.asList("{\"t\":\"info\",\"msg\":\"hi\"}", "", ">prompt"), lines);
+        assertEquals(5, framer.getPendingLength());
+
+        feed(framer, "\"ver\"}\r\n");
+        assertEquals("{\"t\":\"ver\"}", lines.get(3));
+        assertEquals(0, framer.getPendingLength());
+    }
+
+    @Test
+    public void testReset() {
+        final List<String> lines = new ArrayList<>();
+        final BangleJSLineFramer framer = new BangleJSLineFramer(lines::add);
+
+        feed(framer, "partial");
+        framer.reset();
+        feed(framer, "line\n");
+        assertEquals(Arrays.asList("line"), lines);
+    }
+
+    /**
+     * Frames a trace shaped like an activity track fetch: large JSON lines with CSV content,
+     * received in 20 byte notifications.
+     */
+    @Test
+    public void testBulkTransferTrace() {
+        final StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            csv.append("1700000000,").append(i).append(",52.5200,13.4050,34.5,82,1.2\\n");
+        }
+        final String packetLine = "{\"t\":\"actTrk\",\"log\":\"a\",\"cnt\":1,\"lines\":\"" + csv + "\"}\r\n";
+        final int lineCount = 100;
+        final StringBuilder trace = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            trace.append(packetLine);
+        }
+        final byte[] traceBytes = trace.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+        final int[] received = {0};
+        final BangleJSLineFramer framer = new BangleJSLineFramer(line -> {
+            assertEquals(packetLine.length() - 2, line.length());
+            received[0]++;
+        });
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < traceBytes.length; i += 20) {
+            framer.feed(traceBytes, i, Math.min(20, traceBytes.length - i));
+        }
+        final long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        assertEquals(lineCount, received[0]);
+        assertEquals(0, framer.getPendingLength());
+        LOG.info("Framed {} bytes in {} ms", traceBytes.length, elapsedMillis);
+    }
+
+    private static void feed(final BangleJSLineFramer framer, final String data) {
+        framer.feed(data.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
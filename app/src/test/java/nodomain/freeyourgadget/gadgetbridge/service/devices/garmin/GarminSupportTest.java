@@ -3,6 +3,8 @@ package nodomain.freeyourgadget.gadgetbridge.service.devices.garmin;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.math.BigInteger;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
@@ -372,4 +374,26 @@ public class GarminSupportTest extends TestBase {
         FitFile fitFile = FitFile.parseIncoming(fileContents);
         Assert.assertEquals(expectedOutput, fitFile.toString());
     }
+
+    @Test
+    public void TestFitFileStreaming() throws Exception {
+        final byte[] fileContents = GB.hexStringToByteArray("0e206806a20000002e464954bed040000100000401028400010002028403048c00000f042329000006a540000100cf0201100d030102000101020305080d1522375990e97962db0040000100ce05000102010102020102031107080a0700000001646f7567686e7574735f6561726e656400646f7567686e7574730060000100140403010204010205048606028401000100008c580000c738b98001008f5a00032c808e400200905c0005a9388a1003d39e");
+        final File file = File.createTempFile("streaming", ".fit");
+        file.deleteOnExit();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(fileContents);
+        }
+
+        final List<RecordData> records = new ArrayList<>();
+        FitFile.parseIncoming(file, records::add);
+        Assert.assertEquals(FitFile.parseIncoming(fileContents).toString(), records.toString());
+
+        // corrupt the last byte of the data, so that the CRC no longer matches
+        fileContents[fileContents.length - 3] ^= 0x01;
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(fileContents);
+        }
+        Assert.assertThrows(FitParseException.class, () -> FitFile.parseIncoming(file, record -> {
+        }));
+    }
 }
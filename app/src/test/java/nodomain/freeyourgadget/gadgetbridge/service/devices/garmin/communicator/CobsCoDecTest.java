@@ -1,8 +1,13 @@
 package nodomain.freeyourgadget.gadgetbridge.service.devices.garmin.communicator;
 
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.util.Locale;
+import java.util.Random;
+
 import nodomain.freeyourgadget.gadgetbridge.util.GB;
 
 public class CobsCoDecTest {
@@ -110,4 +115,74 @@ public class CobsCoDecTest {
             Assert.assertArrayEquals(payload, decodedData);
         }
     }
+
+    @Test
+    public void testMultipleFramesInOneChunk() {
+        final byte[] first = GB.hexStringToByteArray("2C00A0139600310F684C1BCA840508020B");
+        final byte[] second = GB.hexStringToByteArray("0102030000040506");
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(cobsCoDec.encode(first), 0, cobsCoDec.encode(first).length);
+        stream.write(cobsCoDec.encode(second), 0, cobsCoDec.encode(second).length);
+        // the trailing 0 of a frame may also be the leading 0 of the next one
+        final byte[] third = cobsCoDec.encode(first);
+        stream.write(third, 1, third.length - 1);
+
+        cobsCoDec.receivedBytes(stream.toByteArray());
+        Assert.assertArrayEquals(first, cobsCoDec.retrieveMessage());
+        Assert.assertArrayEquals(second, cobsCoDec.retrieveMessage());
+        Assert.assertArrayEquals(first, cobsCoDec.retrieveMessage());
+        Assert.assertNull(cobsCoDec.retrieveMessage());
+    }
+
+    @Test
+    public void testFrameLongerThanBuffer() {
+        final byte[] payload = new byte[100_000];
+        new Random(0).nextBytes(payload);
+
+        final byte[] encoded = cobsCoDec.encode(payload);
+        for (int i = 0; i < encoded.length; i += 20) {
+            Assert.assertNull(cobsCoDec.retrieveMessage());
+            final byte[] chunk = new byte[Math.min(20, encoded.length - i)];
+            System.arraycopy(encoded, i, chunk, 0, chunk.length);
+            cobsCoDec.receivedBytes(chunk);
+        }
+        Assert.assertArrayEquals(payload, cobsCoDec.retrieveMessage());
+    }
+
+    @Test
+    @Ignore("benchmark for development, remove this while measuring")
+    public void benchmarkDecoder() {
+        final Random random = new Random(0);
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 1000; i++) {
+            final byte[] payload = new byte[16 + random.nextInt(4000)];
+            random.nextBytes(payload);
+            final byte[] encoded = cobsCoDec.encode(payload);
+            stream.write(encoded, 0, encoded.length);
+        }
+        final byte[] trace = stream.toByteArray();
+
+        final byte[][] chunks = new byte[(trace.length + 243) / 244][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new byte[Math.min(244, trace.length - i * 244)];
+            System.arraycopy(trace, i * 244, chunks[i], 0, chunks[i].length);
+        }
+
+        for (int iteration = 0; iteration < 20; iteration++) {
+            final long start = System.nanoTime();
+            int messages = 0;
+            for (final byte[] chunk : chunks) {
+                cobsCoDec.receivedBytes(chunk);
+                while (cobsCoDec.retrieveMessage() != null) {
+                    messages++;
+                }
+            }
+            final long nanos = System.nanoTime() - start;
+            System.out.printf(
+                    Locale.ROOT,
+                    "%d messages, %d bytes in %.3f ms, %.1f MB/s%n",
+                    messages, trace.length, nanos / 1e6, trace.length * 1e3 / nanos
+            );
+        }
+    }
 }
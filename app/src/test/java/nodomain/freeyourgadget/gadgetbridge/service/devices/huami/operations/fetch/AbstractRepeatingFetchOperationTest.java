@@ -0,0 +1,273 @@
+package nodomain.freeyourgadget.gadgetbridge.service.devices.huami.operations.fetch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.net.Uri;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import nodomain.freeyourgadget.gadgetbridge.devices.huami.HuamiFWHelper;
+import nodomain.freeyourgadget.gadgetbridge.service.btle.TransactionBuilder;
+import nodomain.freeyourgadget.gadgetbridge.service.devices.huami.HuamiSupport;
+
+public class AbstractRepeatingFetchOperationTest {
+    private static final int RECORD_SIZE = 4;
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    // 2023-11-14 22:13:00 UTC
+    private static final long START_MILLIS = 1699999980000L;
+
+    @Test
+    public void testRecordsStraddlingPackets() {
+        final TestFetchOperation operation = new TestFetchOperation(createSupport(), START_MILLIS);
+
+        // the second record is split across three packets
+        operation.bufferActivityData(packet(0, 0, 1, 2, 3, 4, 5));
+        operation.bufferActivityData(packet(1, 6));
+        operation.bufferActivityData(packet(2, 7, 8));
+        operation.bufferActivityData(packet(3, 9, 10, 11));
+
+        assertEquals(3, operation.records.size());
+        assertArrayEquals(new byte[]{0, 1, 2, 3}, operation.records.get(0));
+        assertArrayEquals(new byte[]{4, 5, 6, 7}, operation.records.get(1));
+        assertArrayEquals(new byte[]{8, 9, 10, 11}, operation.records.get(2));
+
+        assertEquals(Arrays.asList(START_MILLIS, START_MILLIS + MINUTE_MILLIS, START_MILLIS + 2 * MINUTE_MILLIS), operation.recordTimestamps);
+
+        final CRC32 crc32 = new CRC32();
+        crc32.update(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11});
+        assertTrue(operation.validChecksum((int) crc32.getValue()));
+        assertFalse(operation.validChecksum((int) crc32.getValue() + 1));
+    }
+
+    @Test
+    public void testSavesTimestampAfterLastRecord() {
+        final HuamiSupport support = createSupport();
+        final TestFetchOperation operation = new TestFetchOperation(support, START_MILLIS);
+
+        operation.bufferActivityData(packet(0, 0, 1, 2, 3, 4, 5));
+        operation.bufferActivityData(packet(1, 6, 7));
+
+        assertEquals(Boolean.TRUE, process(operation));
+        assertEquals(1, operation.finishedHandlers);
+        // same as for buffered data, one minute after the last record
+        assertEquals(START_MILLIS + 2 * MINUTE_MILLIS, operation.savedTimestamp.getTimeInMillis());
+        // the data is older than now, so another round is fetched
+        assertEquals(1, support.getFetchOperationQueue().size());
+        assertSame(operation, support.getFetchOperationQueue().getFirst());
+    }
+
+    @Test
+    public void testWaitsForHandler() {
+        final TestFetchOperation operation = new TestFetchOperation(createSupport(), START_MILLIS);
+        operation.bufferActivityData(packet(0, 0, 1, 2, 3));
+
+        final Boolean[] result = new Boolean[1];
+        operation.pendingFinish = true;
+        operation.processBufferedData(success -> result[0] = success);
+
+        // nothing is acked or saved before the records are persisted
+        assertNull(result[0]);
+        assertNull(operation.savedTimestamp);
+
+        operation.finishCallback.accept(true);
+        assertEquals(Boolean.TRUE, result[0]);
+        assertEquals(START_MILLIS + MINUTE_MILLIS, operation.savedTimestamp.getTimeInMillis());
+    }
+
+    @Test
+    public void testStopsFetchingAtCurrentTime() {
+        final HuamiSupport support = createSupport();
+        final TestFetchOperation operation = new TestFetchOperation(support, System.currentTimeMillis());
+
+        operation.bufferActivityData(packet(0, 0, 1, 2, 3));
+
+        assertEquals(Boolean.TRUE, process(operation));
+        assertEquals(1, operation.records.size());
+        assertTrue(support.getFetchOperationQueue().isEmpty());
+    }
+
+    @Test
+    public void testIncompleteRecordFails() {
+        final TestFetchOperation operation = new TestFetchOperation(createSupport(), START_MILLIS);
+
+        operation.bufferActivityData(packet(0, 0, 1, 2, 3, 4, 5));
+
+        assertEquals(Boolean.FALSE, process(operation));
+        assertEquals(1, operation.records.size());
+        assertEquals(1, operation.abortedHandlers);
+        assertEquals(0, operation.finishedHandlers);
+        assertNull(operation.savedTimestamp);
+    }
+
+    @Test
+    public void testWriterFailureDoesNotSaveTimestamp() {
+        final HuamiSupport support = createSupport();
+        final TestFetchOperation operation = new TestFetchOperation(support, START_MILLIS);
+        operation.finishSuccess = false;
+
+        operation.bufferActivityData(packet(0, 0, 1, 2, 3));
+
+        assertEquals(Boolean.FALSE, process(operation));
+        assertNull(operation.savedTimestamp);
+        assertTrue(support.getFetchOperationQueue().isEmpty());
+    }
+
+    @Test
+    public void testDiscardAbortsHandler() {
+        final TestFetchOperation operation = new TestFetchOperation(createSupport(), START_MILLIS);
+
+        operation.bufferActivityData(packet(0, 0, 1, 2, 3));
+        operation.discardBufferedData();
+
+        assertEquals(1, operation.abortedHandlers);
+        assertEquals(0, operation.finishedHandlers);
+        assertNull(operation.savedTimestamp);
+    }
+
+    @Test
+    public void testNewHandlerPerRound() {
+        final TestFetchOperation operation = new TestFetchOperation(createSupport(), START_MILLIS);
+        operation.bufferActivityData(packet(0, 0, 1, 2, 3, 4));
+
+        // the previous round was neither finished nor discarded
+        operation.startFetching((TransactionBuilder) null);
+        assertEquals(1, operation.abortedHandlers);
+
+        // the partial record of the previous round is not carried over
+        operation.bufferActivityData(packet(0, 5, 6, 7, 8));
+        assertEquals(Boolean.TRUE, process(operation));
+        assertEquals(2, operation.records.size());
+        assertArrayEquals(new byte[]{5, 6, 7, 8}, operation.records.get(1));
+        assertEquals(Arrays.asList(START_MILLIS, START_MILLIS), operation.recordTimestamps);
+    }
+
+    @Test
+    public void testEmptyTransfer() {
+        final TestFetchOperation operation = new TestFetchOperation(createSupport(), START_MILLIS);
+
+        assertEquals(Boolean.TRUE, process(operation));
+        assertTrue(operation.records.isEmpty());
+        assertNull(operation.savedTimestamp);
+    }
+
+    private static Boolean process(final TestFetchOperation operation) {
+        final Boolean[] result = new Boolean[1];
+        operation.processBufferedData(success -> result[0] = success);
+        return result[0];
+    }
+
+    private static byte[] packet(final int counter, final int... payload) {
+        final byte[] packet = new byte[payload.length + 1];
+        packet[0] = (byte) counter;
+        for (int i = 0; i < payload.length; i++) {
+            packet[i + 1] = (byte) payload[i];
+        }
+        return packet;
+    }
+
+    private static HuamiSupport createSupport() {
+        return new HuamiSupport() {
+            @Override
+            public HuamiFWHelper createFWHelper(final Uri uri, final Context context) {
+                return null;
+            }
+        };
+    }
+
+    private static class TestFetchOperation extends AbstractRepeatingFetchOperation {
+        private final List<byte[]> records = new ArrayList<>();
+        private final List<Long> recordTimestamps = new ArrayList<>();
+        private GregorianCalendar savedTimestamp;
+        private boolean finishSuccess = true;
+        private boolean pendingFinish = false;
+        private Consumer<Boolean> finishCallback;
+        private int finishedHandlers = 0;
+        private int abortedHandlers = 0;
+
+        private TestFetchOperation(final HuamiSupport support, final long startMillis) {
+            super(support, HuamiFetchDataType.ACTIVITY);
+            final GregorianCalendar start = new GregorianCalendar();
+            start.setTimeInMillis(startMillis);
+            startTimestamp = start;
+            startFetching((TransactionBuilder) null);
+        }
+
+        @Override
+        protected ActivityRecordHandler createActivityRecordHandler() {
+            return new ActivityRecordHandler() {
+                @Override
+                public int getRecordSize() {
+                    return RECORD_SIZE;
+                }
+
+                @Override
+                public void handleRecords(final GregorianCalendar timestamp, final byte[] bytes, final int offset, final int length) {
+                    for (int i = offset; i < offset + length; i += RECORD_SIZE) {
+                        records.add(Arrays.copyOfRange(bytes, i, i + RECORD_SIZE));
+                        recordTimestamps.add(timestamp.getTimeInMillis());
+                        timestamp.add(Calendar.MINUTE, 1);
+                    }
+                }
+
+                @Override
+                public void finish(final Consumer<Boolean> callback) {
+                    finishedHandlers++;
+                    if (pendingFinish) {
+                        finishCallback = callback;
+                    } else {
+                        callback.accept(finishSuccess);
+                    }
+                }
+
+                @Override
+                public void abort() {
+                    abortedHandlers++;
+                }
+            };
+        }
+
+        @Override
+        protected void startFetching(final TransactionBuilder builder, final byte fetchType, final GregorianCalendar sinceWhen) {
+            // nothing is sent to a device
+        }
+
+        @Override
+        protected GregorianCalendar getLastSuccessfulSyncTime() {
+            return (GregorianCalendar) startTimestamp;
+        }
+
+        @Override
+        protected boolean handleActivityData(final GregorianCalendar timestamp, final byte[] bytes) {
+            throw new AssertionError("records must be handled while receiving");
+        }
+
+        @Override
+        protected void saveLastSyncTimestamp(final GregorianCalendar timestamp) {
+            savedTimestamp = timestamp;
+        }
+
+        @Override
+        protected String taskDescription() {
+            return "test";
+        }
+
+        @Override
+        protected String getLastSyncTimeKey() {
+            return "test";
+        }
+    }
+}
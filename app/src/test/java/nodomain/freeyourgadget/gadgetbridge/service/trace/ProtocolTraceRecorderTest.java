@@ -0,0 +1,101 @@
+package nodomain.freeyourgadget.gadgetbridge.service.trace;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import nodomain.freeyourgadget.gadgetbridge.service.btle.AbstractGattCallback;
+import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
+
+public class ProtocolTraceRecorderTest extends TestBase {
+    private static final Logger LOG = LoggerFactory.getLogger(ProtocolTraceRecorderTest.class);
+
+    private static final UUID UUID_NOTIFY = UUID.fromString("00000002-0000-3512-2118-0009af100700");
+    private static final UUID UUID_WRITE = UUID.fromString("00000001-0000-3512-2118-0009af100700");
+
+    @Test
+    public void testOldestFramesAreOverwritten() throws Exception {
+        final File file = createTraceFile();
+        final int frameCount = 500;
+
+        ProtocolTraceRecorder recorder = ProtocolTraceRecorder.open(file, 4096);
+        for (int i = 0; i < frameCount; i++) {
+            if (i == frameCount / 2) {
+                // continues the existing trace
+                recorder.close();
+                recorder = ProtocolTraceRecorder.open(file, 4096);
+            }
+            recorder.recordRx(UUID_NOTIFY, createFrame(i));
+        }
+        recorder.close();
+
+        final List<ProtocolTraceReader.Record> records = ProtocolTraceReader.read(file).getRecords();
+        assertTrue(records.size() > 10);
+        assertTrue(records.size() < frameCount);
+        for (int i = 0; i < records.size(); i++) {
+            final int frame = frameCount - records.size() + i;
+            assertArrayEquals(createFrame(frame), records.get(i).getData());
+            assertEquals(UUID_NOTIFY, records.get(i).getUuid());
+        }
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        final File file = createTraceFile();
+        final int frameCount = 10000;
+
+        final ProtocolTraceRecorder recorder = ProtocolTraceRecorder.open(file, ProtocolTraceRecorder.DEFAULT_CAPACITY);
+        long rxBytes = 0;
+        for (int i = 0; i < frameCount; i++) {
+            if (i % 100 == 0) {
+                recorder.recordTx(UUID_WRITE, new byte[]{0x01, (byte) i});
+            }
+            final byte[] frame = createFrame(i);
+            recorder.recordRx(UUID_NOTIFY, frame);
+            rxBytes += frame.length;
+        }
+        recorder.close();
+
+        final List<byte[]> received = new ArrayList<>();
+        final ProtocolTraceReplay.Result result = ProtocolTraceReplay.replay(ProtocolTraceReader.read(file), new AbstractGattCallback() {
+            @Override
+            public boolean onCharacteristicChanged(final BluetoothGatt gatt, final BluetoothGattCharacteristic characteristic) {
+                assertEquals(UUID_NOTIFY, characteristic.getUuid());
+                received.add(characteristic.getValue());
+                return true;
+            }
+        });
+
+        assertEquals(frameCount, result.getFrames());
+        assertEquals(rxBytes, result.getBytes());
+        assertArrayEquals(createFrame(1234), received.get(1234));
+        LOG.info("Replayed {} frames at {} bytes/s", result.getFrames(), (long) result.getBytesPerSecond());
+    }
+
+    private static File createTraceFile() throws Exception {
+        final File file = File.createTempFile("protocol", ".gbtrace");
+        file.deleteOnExit();
+        assertTrue(file.delete());
+        return file;
+    }
+
+    private static byte[] createFrame(final int index) {
+        final byte[] frame = new byte[1 + index % 40];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte) (index + i);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,88 @@
+package nodomain.freeyourgadget.gadgetbridge.service.trace;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import java.util.UUID;
+
+import nodomain.freeyourgadget.gadgetbridge.service.btbr.SocketCallback;
+import nodomain.freeyourgadget.gadgetbridge.service.btle.GattCallback;
+
+/**
+ * Feeds the received frames of a protocol trace into a device support, e.g. to benchmark or
+ * regression-test protocol decoding without a device:
+ * <pre>
+ * final ProtocolTraceReader trace = ProtocolTraceReader.read(new File("aabbccddeeff.gbtrace"));
+ * final ProtocolTraceReplay.Result result = ProtocolTraceReplay.replay(trace, support);
+ * </pre>
+ * Sent frames are skipped, the device support is expected to send them again while replaying.
+ */
+public final class ProtocolTraceReplay {
+    private static final UUID NO_UUID = new UUID(0, 0);
+
+    public static class Result {
+        private int frames;
+        private long bytes;
+        private long elapsedNanos;
+
+        public int getFrames() {
+            return frames;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getBytesPerSecond() {
+            return elapsedNanos > 0 ? bytes * 1e9 / elapsedNanos : 0;
+        }
+    }
+
+    private ProtocolTraceReplay() {
+    }
+
+    /**
+     * Replay the received GATT frames as characteristic changes.
+     */
+    public static Result replay(final ProtocolTraceReader trace, final GattCallback callback) {
+        final Result result = new Result();
+        final long start = System.nanoTime();
+        for (final ProtocolTraceReader.Record record : trace.getRecords()) {
+            if (!record.isRx() || NO_UUID.equals(record.getUuid())) {
+                continue;
+            }
+            final BluetoothGattCharacteristic characteristic = new BluetoothGattCharacteristic(
+                    record.getUuid(),
+                    BluetoothGattCharacteristic.PROPERTY_NOTIFY,
+                    BluetoothGattCharacteristic.PERMISSION_READ
+            );
+            characteristic.setValue(record.getData());
+            callback.onCharacteristicChanged(null, characteristic);
+            result.frames++;
+            result.bytes += record.getData().length;
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Replay the received frames of a Bluetooth classic connection.
+     */
+    public static Result replay(final ProtocolTraceReader trace, final SocketCallback callback) {
+        final Result result = new Result();
+        final long start = System.nanoTime();
+        for (final ProtocolTraceReader.Record record : trace.getRecords()) {
+            if (!record.isRx() || !NO_UUID.equals(record.getUuid())) {
+                continue;
+            }
+            callback.onSocketRead(record.getData());
+            result.frames++;
+            result.bytes += record.getData().length;
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+}
@@ -3,8 +3,11 @@ package nodomain.freeyourgadget.gadgetbridge.test;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import nodomain.freeyourgadget.gadgetbridge.database.DBHelper;
+import nodomain.freeyourgadget.gadgetbridge.entities.CalendarSyncState;
 import nodomain.freeyourgadget.gadgetbridge.entities.CalendarSyncStateDao;
 import nodomain.freeyourgadget.gadgetbridge.externalevents.CalendarReceiver;
 import nodomain.freeyourgadget.gadgetbridge.impl.GBDevice;
@@ -59,4 +62,27 @@ public class CalendarEventTest extends TestBase {
         assertEquals(2, calendarSyncStateDao.count());
     }
 
+    @Test
+    public void testSyncUpdatesAndDeletes() {
+        List<CalendarEvent> eventList = new ArrayList<>();
+        eventList.add(new CalendarEvent(BEGIN, END, ID_1, "first", null, null, CALNAME_1, CALACCOUNTNAME_1, COLOR_1, false, null, null, null, null));
+        eventList.add(new CalendarEvent(BEGIN, END, ID_2, "second", null, null, CALNAME_1, CALACCOUNTNAME_1, COLOR_1, false, null, null, null, null));
+
+        GBDevice dummyGBDevice = createDummyGDevice("00:00:01:00:04");
+        dummyGBDevice.setState(GBDevice.State.INITIALIZED);
+        CalendarReceiver testCR = new CalendarReceiver(getContext(), dummyGBDevice);
+        testCR.syncCalendar(eventList);
+
+        // the first event changes, the second one is removed
+        final CalendarEvent changed = new CalendarEvent(BEGIN, END, ID_1, "changed", null, null, CALNAME_1, CALACCOUNTNAME_1, COLOR_1, false, null, null, null, null);
+        testCR.syncCalendar(Collections.singletonList(changed));
+
+        List<CalendarSyncState> states = daoSession.getCalendarSyncStateDao().queryBuilder()
+                .where(CalendarSyncStateDao.Properties.DeviceId.eq(DBHelper.getDevice(dummyGBDevice, daoSession).getId()))
+                .list();
+        assertEquals(1, states.size());
+        assertEquals(ID_1, (long) states.get(0).getCalendarEntryId());
+        assertEquals(changed.hashCode(), states.get(0).getHash());
+    }
+
 }
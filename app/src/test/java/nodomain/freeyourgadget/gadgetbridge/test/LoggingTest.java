@@ -9,6 +9,7 @@ import androidx.annotation.NonNull;
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
 import nodomain.freeyourgadget.gadgetbridge.Logging;
 import nodomain.freeyourgadget.gadgetbridge.util.FileUtils;
+import nodomain.freeyourgadget.gadgetbridge.util.LazyHexdump;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -78,5 +79,10 @@ public class LoggingTest extends TestBase {
 
         tempOut = Logging.formatBytes(new byte[] {0xa, 1, (byte) 255});
         assertEquals("0x0a 0x01 0xff", tempOut);
+
+        assertEquals("", Logging.formatBytes(new byte[0]));
+        assertEquals("0x0a 0x01 0xff", LazyHexdump.formatBytes(new byte[] {0xa, 1, (byte) 255}).toString());
+        assertEquals("0A01FF", LazyHexdump.hexdump(new byte[] {0xa, 1, (byte) 255}).toString());
+        assertEquals("01", LazyHexdump.hexdump(new byte[] {0xa, 1, (byte) 255}, 1, 1).toString());
     }
 }
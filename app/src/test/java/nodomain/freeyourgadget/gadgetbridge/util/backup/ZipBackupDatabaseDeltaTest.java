@@ -0,0 +1,247 @@
+package nodomain.freeyourgadget.gadgetbridge.util.backup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nodomain.freeyourgadget.gadgetbridge.database.schema.GadgetbridgeUpdate_102;
+import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
+import nodomain.freeyourgadget.gadgetbridge.util.FileUtils;
+
+public class ZipBackupDatabaseDeltaTest extends TestBase {
+    private File dir;
+    private File sourceFile;
+    private SQLiteDatabase source;
+
+    @Before
+    public void setUpDatabase() throws Exception {
+        dir = new File(getContext().getCacheDir(), "delta-test");
+        FileUtils.deleteRecursively(dir);
+        assertTrue(dir.mkdirs());
+
+        sourceFile = new File(dir, "source.db");
+        source = SQLiteDatabase.openOrCreateDatabase(sourceFile, null);
+        source.execSQL("CREATE TABLE SAMPLE (TIMESTAMP INTEGER NOT NULL, DEVICE_ID INTEGER NOT NULL, VALUE INTEGER, PRIMARY KEY (TIMESTAMP, DEVICE_ID))");
+        source.execSQL("CREATE TABLE LEVEL (TIMESTAMP INTEGER NOT NULL, DEVICE_ID INTEGER NOT NULL, VALUE INTEGER, PRIMARY KEY (TIMESTAMP, DEVICE_ID)) WITHOUT ROWID");
+        source.execSQL("CREATE TABLE SETTING (_id INTEGER PRIMARY KEY, NAME TEXT)");
+        for (int i = 1; i <= 4; i++) {
+            source.execSQL("INSERT INTO SAMPLE VALUES (" + i + ", 1, " + i * 10 + ")");
+            source.execSQL("INSERT INTO LEVEL VALUES (" + i + ", 1, " + i * 10 + ")");
+        }
+        source.execSQL("INSERT INTO SETTING VALUES (1, 'a')");
+    }
+
+    @After
+    public void tearDownDatabase() throws Exception {
+        source.close();
+        FileUtils.deleteRecursively(dir);
+    }
+
+    @Test
+    public void testWithoutRowidTablesAreNotAppendOnly() {
+        ZipBackupDatabaseDelta.installDeletionTracking(source);
+
+        final Map<String, Long> highWaterMarks = new HashMap<>();
+        final Map<String, Long> deletionCounts = new HashMap<>();
+        ZipBackupDatabaseDelta.readTableStates(source, highWaterMarks, deletionCounts);
+
+        assertEquals(Long.valueOf(4), highWaterMarks.get("SAMPLE"));
+        assertFalse(highWaterMarks.containsKey("LEVEL"));
+        assertFalse(highWaterMarks.containsKey("SETTING"));
+        assertEquals(highWaterMarks.keySet(), deletionCounts.keySet());
+    }
+
+    @Test
+    public void testUntrackedTablesAreNotAppendOnly() {
+        final Map<String, Long> highWaterMarks = new HashMap<>();
+        final Map<String, Long> deletionCounts = new HashMap<>();
+        ZipBackupDatabaseDelta.readTableStates(source, highWaterMarks, deletionCounts);
+
+        assertTrue(highWaterMarks.isEmpty());
+        assertTrue(deletionCounts.isEmpty());
+    }
+
+    @Test
+    public void testDeltaOfInsertsAndReplacements() throws Exception {
+        final ZipBackupMetadata base = createBackup();
+        final File baseFile = copyDatabase("base.db");
+
+        source.execSQL("INSERT INTO SAMPLE VALUES (5, 1, 50)");
+        source.execSQL("INSERT OR REPLACE INTO SAMPLE VALUES (2, 1, 21)");
+        source.execSQL("INSERT INTO LEVEL VALUES (5, 1, 50)");
+        source.execSQL("DELETE FROM LEVEL WHERE TIMESTAMP = 1");
+        source.execSQL("UPDATE SETTING SET NAME = 'b'");
+
+        final Set<String> completeTables = exportAndApply(base, baseFile);
+
+        assertTrue(completeTables.isEmpty());
+        assertRestored(baseFile);
+    }
+
+    @Test
+    public void testDeltaOfDeleteAndInsert() throws Exception {
+        final ZipBackupMetadata base = createBackup();
+        final File baseFile = copyDatabase("base.db");
+
+        // the row count stays the same, and the rowid of the deleted row is reused
+        source.execSQL("DELETE FROM SAMPLE WHERE TIMESTAMP IN (2, 4)");
+        source.execSQL("INSERT INTO SAMPLE VALUES (5, 1, 50)");
+        source.execSQL("INSERT INTO SAMPLE VALUES (6, 1, 60)");
+
+        final Set<String> completeTables = exportAndApply(base, baseFile);
+
+        assertEquals(1, completeTables.size());
+        assertTrue(completeTables.contains("SAMPLE"));
+        assertRestored(baseFile);
+    }
+
+    @Test
+    public void testDeltaAfterDeltaWithDeletions() throws Exception {
+        final ZipBackupMetadata base = createBackup();
+        final File baseFile = copyDatabase("base.db");
+
+        source.execSQL("DELETE FROM SAMPLE WHERE TIMESTAMP = 1");
+        final Map<String, Long> highWaterMarks = new HashMap<>();
+        final Map<String, Long> deletionCounts = new HashMap<>();
+        ZipBackupDatabaseDelta.readTableStates(source, highWaterMarks, deletionCounts);
+        final File deltaFile = new File(dir, "delta1.db");
+        final Set<String> completeTables = ZipBackupDatabaseDelta.exportDelta(source, deltaFile, base, highWaterMarks, deletionCounts);
+        applyDelta(baseFile, deltaFile, highWaterMarks, completeTables);
+        assertRestored(baseFile);
+
+        // the deletion was part of the previous delta, so only the new row is exported
+        final ZipBackupMetadata previous = createMetadata(highWaterMarks, deletionCounts);
+        source.execSQL("INSERT INTO SAMPLE VALUES (5, 1, 50)");
+
+        assertTrue(exportAndApply(previous, baseFile).isEmpty());
+        assertRestored(baseFile);
+    }
+
+    @Test
+    public void testUpdate102() {
+        final GadgetbridgeUpdate_102 update = new GadgetbridgeUpdate_102();
+        update.upgradeSchema(source);
+        // only the missing triggers are created
+        update.upgradeSchema(source);
+        assertEquals(1, countDeletionTriggers());
+
+        source.execSQL("DELETE FROM SAMPLE WHERE TIMESTAMP = 1");
+        final Map<String, Long> highWaterMarks = new HashMap<>();
+        final Map<String, Long> deletionCounts = new HashMap<>();
+        ZipBackupDatabaseDelta.readTableStates(source, highWaterMarks, deletionCounts);
+        // counting the creation of the trigger
+        assertEquals(Long.valueOf(2), deletionCounts.get("SAMPLE"));
+
+        update.downgradeSchema(source);
+        assertEquals(0, countDeletionTriggers());
+        highWaterMarks.clear();
+        deletionCounts.clear();
+        ZipBackupDatabaseDelta.readTableStates(source, highWaterMarks, deletionCounts);
+        assertTrue(deletionCounts.isEmpty());
+
+        // the triggers do not refer to the dropped table anymore
+        source.execSQL("DELETE FROM SAMPLE WHERE TIMESTAMP = 2");
+    }
+
+    private int countDeletionTriggers() {
+        try (Cursor cursor = source.rawQuery("SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger'", null)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+
+    private ZipBackupMetadata createBackup() {
+        ZipBackupDatabaseDelta.installDeletionTracking(source);
+
+        final Map<String, Long> highWaterMarks = new HashMap<>();
+        final Map<String, Long> deletionCounts = new HashMap<>();
+        ZipBackupDatabaseDelta.readTableStates(source, highWaterMarks, deletionCounts);
+        return createMetadata(highWaterMarks, deletionCounts);
+    }
+
+    private static ZipBackupMetadata createMetadata(final Map<String, Long> highWaterMarks,
+                                                    final Map<String, Long> deletionCounts) {
+        final ZipBackupMetadata metadata = new ZipBackupMetadata(
+                "test", "1", 1, 2, new Date(), "backup", null, 1, highWaterMarks, deletionCounts, null, null
+        );
+        assertTrue(ZipBackupDatabaseDelta.canContinueFrom(metadata));
+        return metadata;
+    }
+
+    private File copyDatabase(final String name) throws Exception {
+        source.close();
+        final File copy = new File(dir, name);
+        FileUtils.copyFile(sourceFile, copy);
+        source = SQLiteDatabase.openDatabase(sourceFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        return copy;
+    }
+
+    private Set<String> exportAndApply(final ZipBackupMetadata previous, final File targetFile) {
+        final Map<String, Long> highWaterMarks = new HashMap<>();
+        final Map<String, Long> deletionCounts = new HashMap<>();
+        ZipBackupDatabaseDelta.readTableStates(source, highWaterMarks, deletionCounts);
+
+        final File deltaFile = new File(dir, "delta.db");
+        assertTrue(!deltaFile.exists() || deltaFile.delete());
+        final Set<String> completeTables = ZipBackupDatabaseDelta.exportDelta(source, deltaFile, previous, highWaterMarks, deletionCounts);
+        applyDelta(targetFile, deltaFile, highWaterMarks, completeTables);
+        return completeTables;
+    }
+
+    private static void applyDelta(final File targetFile,
+                                   final File deltaFile,
+                                   final Map<String, Long> highWaterMarks,
+                                   final Set<String> completeTables) {
+        // same as ZipBackupImportJob
+        final Set<String> appendOnlyTables = new HashSet<>(highWaterMarks.keySet());
+        appendOnlyTables.removeAll(completeTables);
+
+        final SQLiteDatabase target = SQLiteDatabase.openDatabase(targetFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        try {
+            ZipBackupDatabaseDelta.applyDelta(target, deltaFile, appendOnlyTables);
+        } finally {
+            target.close();
+        }
+    }
+
+    private void assertRestored(final File targetFile) {
+        final SQLiteDatabase target = SQLiteDatabase.openDatabase(targetFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        try {
+            for (final String table : new String[]{"SAMPLE", "LEVEL", "SETTING"}) {
+                assertEquals(table, readRows(source, table), readRows(target, table));
+            }
+        } finally {
+            target.close();
+        }
+    }
+
+    private static List<String> readRows(final SQLiteDatabase db, final String table) {
+        final List<String> rows = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT * FROM " + table + " ORDER BY 1, 2", null)) {
+            while (cursor.moveToNext()) {
+                final StringBuilder row = new StringBuilder();
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    row.append(i > 0 ? "|" : "").append(cursor.getString(i));
+                }
+                rows.add(row.toString());
+            }
+        }
+        return rows;
+    }
+}
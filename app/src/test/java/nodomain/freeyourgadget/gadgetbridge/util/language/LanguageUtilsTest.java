@@ -5,7 +5,9 @@ import android.content.SharedPreferences;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import nodomain.freeyourgadget.gadgetbridge.GBApplication;
@@ -14,10 +16,15 @@ import nodomain.freeyourgadget.gadgetbridge.test.TestBase;
 import nodomain.freeyourgadget.gadgetbridge.util.language.impl.CzechTransliterator;
 import nodomain.freeyourgadget.gadgetbridge.util.language.impl.ExtendedAsciiTransliterator;
 import nodomain.freeyourgadget.gadgetbridge.util.language.impl.FlattenToAsciiTransliterator;
+import nodomain.freeyourgadget.gadgetbridge.util.language.impl.GermanTransliterator;
+import nodomain.freeyourgadget.gadgetbridge.util.language.impl.KoreanTransliterator;
+import nodomain.freeyourgadget.gadgetbridge.util.language.impl.RussianTransliterator;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static nodomain.freeyourgadget.gadgetbridge.activities.devicesettings.DeviceSettingsPreferenceConst.PREF_TRANSLITERATION_LANGUAGES;
 
 /**
@@ -278,6 +285,47 @@ public class LanguageUtilsTest extends TestBase {
         assertEquals("300 Kc", multiTransliterator.transliterate("300\u00A0Kč"));
     }
 
+    @Test
+    public void testCompiledTransliterator() throws Exception {
+        final List<Transliterator> transliterators = Arrays.asList(
+                new CzechTransliterator(),
+                new GermanTransliterator(),
+                new RussianTransliterator(),
+                new KoreanTransliterator(),
+                new ExtendedAsciiTransliterator(),
+                new FlattenToAsciiTransliterator()
+        );
+        final MultiTransliterator multiTransliterator = new MultiTransliterator(transliterators);
+        final Transliterator compiledTransliterator = CompiledTransliterator.compile(transliterators);
+
+        final String[] inputs = {
+                "Žluťoučký kůň úpěl »ďábelské« „ódy“",
+                "ÄRGER über Größe",
+                "Съешь же ещё этих мягких французских булок",
+                "안녕하세요 Привет",
+                "plain ascii",
+                "",
+        };
+        for (final String input : inputs) {
+            assertEquals("Transliteration differs for " + input, multiTransliterator.transliterate(input), compiledTransliterator.transliterate(input));
+        }
+
+        final String ascii = "nothing to replace";
+        assertSame(ascii, new CompiledTransliterator(Collections.singletonList(new GermanTransliterator())).transliterate(ascii));
+    }
+
+    @Test
+    public void testCompiledTransliteratorIsCached() throws Exception {
+        enableTransliteration(true);
+        final Transliterator transliterator = getTransliteration();
+        assertSame(transliterator, getTransliteration());
+
+        final SharedPreferences devicePrefs = GBApplication.getDeviceSpecificSharedPrefs(dummyGBDevice.getAddress());
+        devicePrefs.edit().putString(PREF_TRANSLITERATION_LANGUAGES, "german").apply();
+        assertNotSame(transliterator, getTransliteration());
+        assertEquals("Gruesse", getTransliteration().transliterate("Grüße"));
+    }
+
     @Test
     public void testTransliterateOption() throws Exception {
         enableTransliteration(false);